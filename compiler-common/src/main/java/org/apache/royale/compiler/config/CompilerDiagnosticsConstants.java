@@ -41,5 +41,6 @@ public class CompilerDiagnosticsConstants
     public static final int ROYALEJSPROJECT = 8192;
     public static final int COMPC_PHASES = 16384;
     public static final int GOOG_DEPS = 32768;
+    public static final int CSS_DEPENDENCIES = 65536;
 
 }
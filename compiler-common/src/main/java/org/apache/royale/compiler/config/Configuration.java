@@ -42,6 +42,7 @@ import org.apache.royale.compiler.internal.config.localization.LocalizationManag
 import org.apache.royale.compiler.internal.mxml.MXMLNamespaceMapping;
 import org.apache.royale.compiler.mxml.IMXMLTypeConstants;
 import org.apache.royale.compiler.problems.*;
+import org.apache.royale.compiler.workspaces.WorkspaceExecutorStrategy;
 import org.apache.royale.swc.catalog.XMLFormatter;
 import org.apache.royale.utils.FileUtils;
 import org.apache.royale.utils.FilenameNormalization;
@@ -500,6 +501,100 @@ public class Configuration
         this.sizeReportFileName = getOutputPath(cv, filename);
     }
 
+    // 'profile-report' option
+    //
+
+    private String profileReportFileName = null;
+
+    public File getProfileReport()
+    {
+        return profileReportFileName != null ? new File(profileReportFileName) : null;
+    }
+
+    /**
+     * Records the time spent in each operation on each compilation unit and
+     * writes it to the specified file in the Chrome trace-event format. A
+     * summary of the slowest compilation units is written to the same path
+     * with a ".summary.txt" suffix.
+     */
+    @Config(advanced = true)
+    @Mapping("profile-report")
+    @Arguments("filename")
+    public void setProfileReport(ConfigurationValue cv, String filename)
+    {
+        this.profileReportFileName = getOutputPath(cv, filename);
+    }
+
+    //
+    // 'profile-report-count' option
+    //
+
+    private int profileReportCount = 20;
+
+    public int getProfileReportCount()
+    {
+        return profileReportCount;
+    }
+
+    /**
+     * The number of compilation units listed in the summary of the
+     * profile-report option.
+     */
+    @Config(advanced = true)
+    @Mapping("profile-report-count")
+    public void setProfileReportCount(ConfigurationValue cv, int count) throws ConfigurationException
+    {
+        if (count <= 0)
+            throw new ConfigurationException.GreaterThanZero(cv.getVar(), cv.getSource(), cv.getLine());
+        this.profileReportCount = count;
+    }
+
+    // 'swc-cache-directory' option
+    //
+
+    private String swcCacheDirectory = null;
+
+    public File getSwcCacheDirectory()
+    {
+        return swcCacheDirectory != null ? new File(swcCacheDirectory) : null;
+    }
+
+    /**
+     * Stores the ABC of the library SWCs in the specified directory, so that
+     * later compilations can build their definitions without decoding the
+     * library SWFs again. The directory can be shared by all builds.
+     */
+    @Config(advanced = true)
+    @Mapping("swc-cache-directory")
+    @Arguments("directory")
+    public void setSwcCacheDirectory(ConfigurationValue cv, String directory)
+    {
+        this.swcCacheDirectory = getOutputPath(cv, directory);
+    }
+
+    // 'mxml-cache-directory' option
+    //
+
+    private String mxmlCacheDirectory = null;
+
+    public File getMxmlCacheDirectory()
+    {
+        return mxmlCacheDirectory != null ? new File(mxmlCacheDirectory) : null;
+    }
+
+    /**
+     * Stores the tokens of the MXML files in the specified directory, so that
+     * later compilations don't have to tokenize MXML files that haven't
+     * changed. The directory can be shared by all builds.
+     */
+    @Config(advanced = true)
+    @Mapping("mxml-cache-directory")
+    @Arguments("directory")
+    public void setMxmlCacheDirectory(ConfigurationValue cv, String directory)
+    {
+        this.mxmlCacheDirectory = getOutputPath(cv, directory);
+    }
+
     // 'api-report' option
     //
 
@@ -1615,6 +1710,30 @@ public class Configuration
         this.strictIdentifierNames = strict;
     }
 
+    //
+    // 'compiler.defer-function-bodies' option
+    //
+
+    private boolean deferFunctionBodies = false;
+
+    public boolean getCompilerDeferFunctionBodies()
+    {
+        return deferFunctionBodies;
+    }
+
+    /**
+     * Whether the compiler also parses the function bodies in MXML script tags,
+     * and in ActionScript sources that are not plain files, only when they are
+     * needed. The function bodies in ActionScript files are always parsed when
+     * they are needed.
+     */
+    @Config(advanced = true)
+    @Mapping({ "compiler", "defer-function-bodies" })
+    public void setCompilerDeferFunctionBodies(ConfigurationValue cv, boolean defer)
+    {
+        this.deferFunctionBodies = defer;
+    }
+
     //
     // 'compiler.actionscript-file-encoding' option
     //
@@ -6030,8 +6149,14 @@ public class Configuration
     @SoftPrerequisites("royale")
     public void setFileSpecs(ConfigurationValue cv, List<String> args) throws ConfigurationException
     {
-    	
-        this.fileSpecs.addAll(args);
+        // relative paths are resolved against the root directory of the compile
+        for (String path : args)
+        {
+            if (pathResolver == null || new File(path).isAbsolute())
+                this.fileSpecs.add(path);
+            else
+                this.fileSpecs.add(pathResolver.resolve(path).getPath());
+        }
 
         checkForMxmlFiles(args);
     }
@@ -6222,6 +6347,62 @@ public class Configuration
         this.removeDeadCode = b;
     }
 
+    //
+    // 'compiler.parallel-link' option
+    //
+    private boolean parallelLink = false;
+
+    /**
+     * @return true if the ABC of a SWF is linked on several threads.
+     */
+    public boolean getParallelLink()
+    {
+        return this.parallelLink;
+    }
+
+    /**
+     * Parse, strip and optimize the ABC of each compilation unit on several
+     * threads when linking a SWF. Only merging the ABC into the SWF is done
+     * on a single thread.
+     * 
+     * @param cfgval the configuration value context.
+     * @param b true to link on several threads, false to link on one thread.
+     */
+    @Config(advanced = true)
+    @Mapping({ "compiler", "parallel-link" })
+    public void setParallelLink(ConfigurationValue cfgval, boolean b)
+    {
+        this.parallelLink = b;
+    }
+
+    //
+    // 'compiler.parallel-compression' option
+    //
+    private boolean parallelCompression = false;
+
+    /**
+     * @return true if ZLIB compressed SWFs are compressed on several threads.
+     */
+    public boolean getParallelCompression()
+    {
+        return this.parallelCompression;
+    }
+
+    /**
+     * Compress ZLIB compressed SWFs in blocks on several threads. The SWF is
+     * slightly larger than one compressed on a single thread.
+     * 
+     * @param cfgval the configuration value context.
+     * @param b true to compress on several threads, false to compress on one
+     * thread.
+     */
+    @Config(advanced = true)
+    @Mapping({ "compiler", "parallel-compression" })
+    public void setParallelCompression(ConfigurationValue cfgval, boolean b)
+    {
+        this.parallelCompression = b;
+    }
+
     //
     // Validation methods from ToolsConfiguration
     //
@@ -6413,4 +6594,61 @@ public class Configuration
         watch = b;
     }
 
+    //
+    // 'workspace-executor'
+    //
+
+    private WorkspaceExecutorStrategy workspaceExecutor = null;
+
+    /**
+     * @return The kind of thread pool the workspace uses, or null to keep the
+     * workspace's own thread pool.
+     */
+    public WorkspaceExecutorStrategy getWorkspaceExecutor()
+    {
+        return workspaceExecutor;
+    }
+
+    /**
+     * The kind of thread pool the compiler uses for background work:
+     * "thread-pool", "work-stealing" or "virtual-threads".
+     */
+    @Config(advanced = true)
+    @Mapping("workspace-executor")
+    public void setWorkspaceExecutor(ConfigurationValue cv, String value) throws ConfigurationException
+    {
+        WorkspaceExecutorStrategy strategy = WorkspaceExecutorStrategy.fromValue(value);
+        if (strategy == null)
+            throw new ConfigurationException.BadValue(value, cv.getVar(), cv.getSource(), cv.getLine());
+        workspaceExecutor = strategy;
+    }
+
+    //
+    // 'workspace-threads'
+    //
+
+    private int workspaceThreads = 0;
+
+    /**
+     * @return The number of threads for the workspace's thread pool, or 0
+     * for the default of 16 threads.
+     */
+    public int getWorkspaceThreads()
+    {
+        return workspaceThreads;
+    }
+
+    /**
+     * The number of threads the compiler uses for background work. The
+     * default is 16.
+     */
+    @Config(advanced = true)
+    @Mapping("workspace-threads")
+    public void setWorkspaceThreads(ConfigurationValue cv, int value) throws ConfigurationException
+    {
+        if (value <= 0)
+            throw new ConfigurationException.GreaterThanZero(cv.getVar(), cv.getSource(), cv.getLine());
+        workspaceThreads = value;
+    }
+
 }
@@ -457,6 +457,20 @@ public class Configurator implements ICompilerSettings, IConfigurator, ICompiler
         this.configurationPathResolver = pathResolver;
     }
 
+    /**
+     * Sets the directory that relative paths in the configuration are
+     * resolved against, such as the directory of a compile request to a
+     * compiler daemon.
+     *
+     * @param workingDirectory the directory. If null, {@code user.dir} is
+     * used.
+     */
+    public void setWorkingDirectory(String workingDirectory)
+    {
+        setConfigurationPathResolver(new ConfigurationPathResolver(
+                workingDirectory != null ? workingDirectory : System.getProperty("user.dir")));
+    }
+
     // Needed by MXMLC for now.
     public Configuration getConfiguration()
     {
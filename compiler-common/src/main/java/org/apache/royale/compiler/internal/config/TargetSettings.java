@@ -595,6 +595,18 @@ public class TargetSettings implements ITargetSettings
         return configuration.getRemoveDeadCode();
     }
 
+    @Override
+    public boolean getParallelLink()
+    {
+        return configuration.getParallelLink();
+    }
+
+    @Override
+    public boolean getParallelCompression()
+    {
+        return configuration.getParallelCompression();
+    }
+
 	@Override
 	public String getSWFMetadataDate() {
 		return configuration.getMetadataDate();
@@ -494,6 +494,16 @@ public interface ITargetSettings
      */
     boolean getRemoveDeadCode();
 
+    /**
+     * @return true if the ABC of the target is linked on several threads.
+     */
+    boolean getParallelLink();
+
+    /**
+     * @return true if the SWF of the target is compressed on several threads.
+     */
+    boolean getParallelCompression();
+
     /**
      * Gets the implicit imports for MXML.
      * 
@@ -0,0 +1,77 @@
+/*
+ *
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.apache.royale.compiler.workspaces;
+
+/**
+ * The kinds of thread pool a workspace can use to do background work, such as
+ * parsing, building scopes and generating code for compilation units.
+ */
+public enum WorkspaceExecutorStrategy
+{
+    /**
+     * A thread pool of 16 threads, unless a thread count is set. When all of
+     * the threads are busy, new work runs on the thread that asks for it.
+     */
+    THREAD_POOL("thread-pool"),
+
+    /**
+     * A work-stealing {@code ForkJoinPool}. Threads that wait for the result
+     * of other work run queued work in the meantime, so nested requests do not
+     * starve the pool.
+     */
+    WORK_STEALING("work-stealing"),
+
+    /**
+     * A new virtual thread for each piece of work. Requires Java 21 or newer.
+     * On older JVMs, {@link #WORK_STEALING} is used instead.
+     */
+    VIRTUAL_THREADS("virtual-threads");
+
+    private final String value;
+
+    private WorkspaceExecutorStrategy(String value)
+    {
+        this.value = value;
+    }
+
+    /**
+     * @return The value of the strategy in configuration options.
+     */
+    public String getValue()
+    {
+        return value;
+    }
+
+    /**
+     * Finds the strategy for a configuration option value.
+     *
+     * @param value The value of the configuration option.
+     * @return The strategy, or null if the value is not a known strategy.
+     */
+    public static WorkspaceExecutorStrategy fromValue(String value)
+    {
+        for (WorkspaceExecutorStrategy strategy : values())
+        {
+            if (strategy.value.equals(value))
+                return strategy;
+        }
+        return null;
+    }
+}
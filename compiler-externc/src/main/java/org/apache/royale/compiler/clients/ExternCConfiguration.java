@@ -28,6 +28,7 @@ import java.util.List;
 import org.apache.royale.compiler.config.Configuration;
 import org.apache.royale.compiler.config.ConfigurationValue;
 import org.apache.royale.compiler.exceptions.ConfigurationException.CannotOpen;
+import org.apache.royale.compiler.exceptions.ConfigurationException.GreaterThanZero;
 import org.apache.royale.compiler.exceptions.ConfigurationException.IncorrectArgumentCount;
 import org.apache.royale.compiler.internal.codegen.typedefs.pass.ReferenceCompiler.TypedefFile;
 import org.apache.royale.compiler.internal.codegen.typedefs.reference.BaseReference;
@@ -373,6 +374,33 @@ public class ExternCConfiguration extends Configuration
         this.jsRoot = new File(filename);
     }
 
+    private int writeThreads = 1;
+
+    /**
+     * The number of threads that write the generated files to disk. Only the
+     * writes are spread over these threads. The source of each file is still
+     * generated on one thread, because it is generated from the Closure type
+     * registry, which is not thread safe.
+     */
+    public int getWriteThreads()
+    {
+        return writeThreads;
+    }
+
+    @Config(advanced = true)
+    @Mapping("write-threads")
+    public void setWriteThreads(ConfigurationValue cfgval, int writeThreads) throws GreaterThanZero
+    {
+        if (writeThreads <= 0)
+            throw new GreaterThanZero(cfgval.getVar(), cfgval.getSource(), cfgval.getLine());
+        setWriteThreads(writeThreads);
+    }
+
+    public void setWriteThreads(int writeThreads)
+    {
+        this.writeThreads = writeThreads;
+    }
+
     @Config(allowMultiple = true)
     @Mapping("field-readonly")
     @Arguments({"class", "name"})
@@ -21,6 +21,19 @@ package org.apache.royale.compiler.internal.codegen.typedefs.emit;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.royale.compiler.internal.codegen.typedefs.reference.BaseReference;
@@ -36,6 +49,12 @@ public class ReferenceEmitter
 {
     private ReferenceModel model;
 
+    private ExecutorService writeExecutor;
+    private List<Future<?>> pendingWrites;
+    private Set<String> claimedFiles;
+    private Map<String, PendingFile> pendingFiles;
+    private boolean caseInsensitive;
+
     public ReferenceEmitter(ReferenceModel model)
     {
         this.model = model;
@@ -47,11 +66,149 @@ public class ReferenceEmitter
         if (!asRoot.exists())
             asRoot.mkdirs();
 
-        emitClasses();
-        emitInterfaces();
-        emitTypedefs();
-        emitFunctions();
-        emitConstants();
+        final int writeThreads = model.getConfiguration().getWriteThreads();
+        if (writeThreads > 1)
+        {
+            writeExecutor = Executors.newFixedThreadPool(writeThreads);
+            pendingWrites = new ArrayList<Future<?>>();
+            claimedFiles = new HashSet<String>();
+            pendingFiles = new HashMap<String, PendingFile>();
+            caseInsensitive = isCaseInsensitive(asRoot);
+        }
+        try
+        {
+            emitClasses();
+            emitInterfaces();
+            emitTypedefs();
+            emitFunctions();
+            emitConstants();
+
+            if (writeExecutor != null)
+                waitForWrites();
+        }
+        finally
+        {
+            if (writeExecutor != null)
+            {
+                writeExecutor.shutdownNow();
+                writeExecutor = null;
+                pendingWrites = null;
+                claimedFiles = null;
+                pendingFiles = null;
+            }
+        }
+    }
+
+    /**
+     * Write the source of a reference to its file. If the file was already
+     * written, the source is written to its file under the duplicates root
+     * instead.
+     * <p>
+     * When there are several write threads, the file is written on one of
+     * them while the source of the next reference is generated. Whether a
+     * file is a duplicate is still decided here, in the order of the
+     * references, so the files end up in the same places as they do with one
+     * thread. Several references can be written to the same duplicate file,
+     * and with one thread the last one wins, so a write is skipped if a
+     * later write to the same file was already submitted.
+     */
+    protected void write(File sourceFile, File duplicateFile, final String source) throws IOException
+    {
+        if (writeExecutor == null)
+        {
+            if (sourceFile.exists())
+                sourceFile = duplicateFile;
+            FileUtils.write(sourceFile, source);
+            return;
+        }
+
+        // the file may not be on disk yet, so check the files that were
+        // already claimed by earlier references too
+        if (sourceFile.exists() || !claimedFiles.add(getClaimKey(sourceFile)))
+            sourceFile = duplicateFile;
+        final File file = sourceFile;
+        final String key = getClaimKey(file);
+        PendingFile pendingFile = pendingFiles.get(key);
+        if (pendingFile == null)
+        {
+            pendingFile = new PendingFile();
+            pendingFiles.put(key, pendingFile);
+        }
+        final PendingFile target = pendingFile;
+        final int sequence;
+        synchronized (target)
+        {
+            sequence = ++target.lastSequence;
+        }
+        pendingWrites.add(writeExecutor.submit(new Callable<Void>()
+        {
+            @Override
+            public Void call() throws IOException
+            {
+                synchronized (target)
+                {
+                    if (target.lastSequence == sequence)
+                        FileUtils.write(file, source);
+                }
+                return null;
+            }
+        }));
+    }
+
+    /**
+     * The writes that were submitted for a file. Writes to the same file
+     * are done while holding its lock.
+     */
+    private static final class PendingFile
+    {
+        /**
+         * The sequence number of the last write that was submitted.
+         */
+        int lastSequence;
+    }
+
+    private void waitForWrites() throws IOException
+    {
+        for (Future<?> pendingWrite : pendingWrites)
+        {
+            try
+            {
+                pendingWrite.get();
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            }
+            catch (ExecutionException e)
+            {
+                if (e.getCause() instanceof IOException)
+                    throw (IOException) e.getCause();
+                throw new IOException(e.getCause());
+            }
+        }
+        pendingWrites.clear();
+    }
+
+    private String getClaimKey(File file)
+    {
+        final String path = file.getAbsolutePath();
+        return caseInsensitive ? path.toLowerCase(Locale.ENGLISH) : path;
+    }
+
+    /**
+     * Check if two names that differ only in case are the same file under a
+     * directory. With one thread, {@link File#exists()} answers that, but
+     * with several threads a file is claimed before it is on disk.
+     */
+    private static boolean isCaseInsensitive(File directory)
+    {
+        final String path = directory.getAbsolutePath();
+        final String upperCasePath = path.toUpperCase(Locale.ENGLISH);
+        final String lowerCasePath = path.toLowerCase(Locale.ENGLISH);
+        if (upperCasePath.equals(lowerCasePath))
+            return false;
+        return new File(upperCasePath).exists() && new File(lowerCasePath).exists();
     }
 
     protected void emitInterfaces() throws IOException
@@ -70,12 +227,8 @@ public class ReferenceEmitter
 
             emit(reference, sb);
 
-            File sourceFile = reference.getFile(model.getConfiguration().getAsInterfaceRoot());
-            if(sourceFile.exists())
-            {
-                sourceFile = reference.getFile(model.getConfiguration().getAsDuplicatesRoot());
-            }
-            FileUtils.write(sourceFile, sb.toString());
+            write(reference.getFile(model.getConfiguration().getAsInterfaceRoot()),
+                    reference.getFile(model.getConfiguration().getAsDuplicatesRoot()), sb.toString());
 
             sb.setLength(0);
         }
@@ -97,12 +250,8 @@ public class ReferenceEmitter
             
             emit(reference, sb);
 
-            File sourceFile = reference.getFile(model.getConfiguration().getAsClassRoot());
-            if(sourceFile.exists())
-            {
-                sourceFile = reference.getFile(model.getConfiguration().getAsDuplicatesRoot());
-            }
-            FileUtils.write(sourceFile, sb.toString());
+            write(reference.getFile(model.getConfiguration().getAsClassRoot()),
+                    reference.getFile(model.getConfiguration().getAsDuplicatesRoot()), sb.toString());
 
             sb.setLength(0);
         }
@@ -135,12 +284,8 @@ public class ReferenceEmitter
 
             emit(reference, sb);
 
-            File sourceFile = reference.getFile(model.getConfiguration().getAsTypeDefRoot());
-            if(sourceFile.exists())
-            {
-                sourceFile = reference.getFile(model.getConfiguration().getAsDuplicatesRoot());
-            }
-            FileUtils.write(sourceFile, sb.toString());
+            write(reference.getFile(model.getConfiguration().getAsTypeDefRoot()),
+                    reference.getFile(model.getConfiguration().getAsDuplicatesRoot()), sb.toString());
 
             sb.setLength(0);
         }
@@ -159,12 +304,8 @@ public class ReferenceEmitter
             
             emit(reference, sb);
 
-            File sourceFile = reference.getFile(model.getConfiguration().getAsFunctionRoot());
-            if(sourceFile.exists())
-            {
-                sourceFile = reference.getFile(model.getConfiguration().getAsDuplicatesRoot());
-            }
-            FileUtils.write(sourceFile, sb.toString());
+            write(reference.getFile(model.getConfiguration().getAsFunctionRoot()),
+                    reference.getFile(model.getConfiguration().getAsDuplicatesRoot()), sb.toString());
 
             sb.setLength(0);
         }
@@ -180,12 +321,8 @@ public class ReferenceEmitter
             
             emit(reference, sb);
 
-            File sourceFile = reference.getFile(model.getConfiguration().getAsConstantRoot());
-            if(sourceFile.exists())
-            {
-                sourceFile = reference.getFile(model.getConfiguration().getAsDuplicatesRoot());
-            }
-            FileUtils.write(sourceFile, sb.toString());
+            write(reference.getFile(model.getConfiguration().getAsConstantRoot()),
+                    reference.getFile(model.getConfiguration().getAsDuplicatesRoot()), sb.toString());
 
             sb.setLength(0);
         }
@@ -0,0 +1,148 @@
+/*
+ *
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.apache.royale.compiler.internal.codegen.typedefs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.royale.compiler.clients.EXTERNC;
+import org.apache.royale.compiler.clients.ExternCConfiguration;
+import org.apache.royale.compiler.clients.problems.ProblemQuery;
+import org.apache.royale.compiler.internal.codegen.typedefs.emit.ReferenceEmitter;
+import org.apache.royale.utils.FilenameNormalization;
+import org.junit.Test;
+
+public class TestParallelWrite extends TypedefsTestBase
+{
+    private static final File UNIT_TESTS_DIR = FilenameNormalization.normalize(new File(
+            "../compiler-externc/src/test/resources/typedefs/unit_tests"));
+
+    private static final File SERIAL_ROOT = new File(TypedefsTestUtils.TEMP_DIR, "typedefs/parallel/serial");
+    private static final File PARALLEL_ROOT = new File(TypedefsTestUtils.TEMP_DIR, "typedefs/parallel/threads");
+    private static final File DUPLICATES_ROOT = new File(TypedefsTestUtils.TEMP_DIR, "typedefs/parallel/duplicates");
+
+    @Test
+    public void test_write_threads_write_same_files() throws IOException
+    {
+        client.cleanOutput();
+        compile();
+        client.emit();
+
+        ExternCConfiguration parallelConfig = new ExternCConfiguration();
+        configure(parallelConfig, PARALLEL_ROOT);
+        parallelConfig.setWriteThreads(4);
+        EXTERNC parallelClient = new EXTERNC(parallelConfig);
+        parallelClient.getModel().problems = new ProblemQuery();
+        parallelClient.cleanOutput();
+        parallelClient.compile();
+        parallelClient.emit();
+
+        List<String> serialFiles = getRelativePaths(SERIAL_ROOT);
+        assertFalse(serialFiles.isEmpty());
+        assertEquals(serialFiles, getRelativePaths(PARALLEL_ROOT));
+        for (String path : serialFiles)
+        {
+            assertEquals(path, FileUtils.readFileToString(new File(SERIAL_ROOT, path)),
+                    FileUtils.readFileToString(new File(PARALLEL_ROOT, path)));
+        }
+    }
+
+    @Test
+    public void test_write_threads_last_duplicate_wins() throws IOException
+    {
+        ExternCConfiguration duplicatesConfig = new ExternCConfiguration();
+        configure(duplicatesConfig, DUPLICATES_ROOT);
+        duplicatesConfig.setWriteThreads(4);
+        EXTERNC duplicatesClient = new EXTERNC(duplicatesConfig);
+        duplicatesClient.cleanOutput();
+
+        final File sourceFile = new File(DUPLICATES_ROOT, "classes/Duplicate.as");
+        final File duplicateFile = new File(DUPLICATES_ROOT, "duplicates/Duplicate.as");
+        new ReferenceEmitter(duplicatesClient.getModel())
+        {
+            @Override
+            protected void emitClasses() throws IOException
+            {
+                for (int i = 0; i < 100; i++)
+                {
+                    write(sourceFile, duplicateFile, "source " + i);
+                }
+            }
+
+            @Override
+            protected void emitInterfaces()
+            {
+            }
+
+            @Override
+            protected void emitTypedefs()
+            {
+            }
+
+            @Override
+            protected void emitFunctions()
+            {
+            }
+
+            @Override
+            protected void emitConstants()
+            {
+            }
+        }.emit();
+
+        assertEquals("source 0", FileUtils.readFileToString(sourceFile));
+        assertEquals("source 99", FileUtils.readFileToString(duplicateFile));
+    }
+
+    private static List<String> getRelativePaths(File root)
+    {
+        String rootPath = root.getAbsolutePath();
+        Collection<File> files = FileUtils.listFiles(root, null, true);
+        List<String> result = new ArrayList<String>();
+        for (File file : files)
+        {
+            result.add(file.getAbsolutePath().substring(rootPath.length()));
+        }
+        Collections.sort(result);
+        return result;
+    }
+
+    private void configure(ExternCConfiguration config, File asRoot) throws IOException
+    {
+        config.setASRoot(asRoot);
+        config.addTypedef(new File(UNIT_TESTS_DIR, "package_namespace.js"));
+        config.addTypedef(new File(UNIT_TESTS_DIR, "constructor_members.js"));
+        config.addTypedef(new File(UNIT_TESTS_DIR, "type_inheritence.js"));
+    }
+
+    @Override
+    protected void configure(ExternCConfiguration config) throws IOException
+    {
+        configure(config, SERIAL_ROOT);
+    }
+}
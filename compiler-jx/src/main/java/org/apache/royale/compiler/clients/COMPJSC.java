@@ -98,6 +98,9 @@ public class COMPJSC extends MXMLJSC
     {
         long startTime = System.nanoTime();
 
+        final Integer daemonExitCode = CompilerDaemonClient.compileIfEnabled(CompilerDaemon.TOOL_COMPC, args);
+        if (daemonExitCode != null)
+            return daemonExitCode;
         final COMPJSC mxmlc = new COMPJSC();
         mxmlc.configurationClass = JSGoogCompcConfiguration.class;
         final List<ICompilerProblem> problems = new ArrayList<ICompilerProblem>();
@@ -173,6 +176,7 @@ public class COMPJSC extends MXMLJSC
                         System.out.println("COMPC");
 	                    COMPC compc = new COMPC();
 	                    mxmlc = compc;
+	                    compc.workingDirectory = workingDirectory;
                         //passing true to RoyaleASDocDelegate constructor, to make it behave (outwardly) the same
                         //as NilASDocDelegate, which would be the default ASDocDelegate, if the following
                         //setASDocDelegate assignment was not made. This allows for 'processing' of ASDocComments in
@@ -188,8 +192,12 @@ public class COMPJSC extends MXMLJSC
 	                    break;
 	                case JS_ROYALE:
                         System.out.println("COMPCJSCRoyale");
-	                	COMPJSCRoyale royale = new COMPJSCRoyale();
+	                	COMPJSCRoyale royale = getReusableCompiler(COMPJSCRoyale.class);
+	                	if (royale == null)
+	                		royale = new COMPJSCRoyale();
+	                	royale.keepWorkspaceOpen = keepWorkspaceOpen;
 	                	lastCompiler = royale;
+	                	royale.workingDirectory = workingDirectory;
 	                    result = royale.mainNoExit(removeASArgs(args), problems.getProblems(), false);
 	                    if (result != COMPJSCRoyale.ExitCode.SUCCESS.getCode() && result != COMPJSCRoyale.ExitCode.WATCHING.getCode())
 	                    {
@@ -200,6 +208,7 @@ public class COMPJSC extends MXMLJSC
                     case JS_NODE:
 	                	COMPJSCNative jsc = new COMPJSCNative();
 	                	lastCompiler = jsc;
+	                	jsc.workingDirectory = workingDirectory;
 	                    result = jsc.mainNoExit(removeASArgs(args), problems.getProblems(), false);
 	                    if (result != COMPJSCNative.ExitCode.SUCCESS.getCode() && result != COMPJSCNative.ExitCode.WATCHING.getCode())
 	                    {
@@ -241,10 +250,16 @@ public class COMPJSC extends MXMLJSC
         }
         finally
         {
-            if (!config.getWatch() || !ExitCode.SUCCESS.equals(exitCode))
+            if (!keepWorkspaceOpen && (!config.getWatch() || !ExitCode.SUCCESS.equals(exitCode)))
             {
                 waitAndClose();
             }
+            else
+            {
+                // the workspace is kept open for the next build, so write
+                // the profiling report of this build now
+                workspace.writeProfilingReport();
+            }
 
             if (outProblems != null && problems.hasFilteredProblems())
             {
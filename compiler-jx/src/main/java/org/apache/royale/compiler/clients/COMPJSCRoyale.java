@@ -33,11 +33,6 @@ import java.text.SimpleDateFormat;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.util.*;
-import java.util.zip.CRC32;
-import java.util.zip.Deflater;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipFile;
-import java.util.zip.ZipOutputStream;
 
 import com.google.debugging.sourcemap.SourceMapConsumerV3;
 import com.google.debugging.sourcemap.SourceMapGeneratorV3;
@@ -73,6 +68,8 @@ import org.apache.royale.compiler.units.ICompilationUnit;
 import org.apache.royale.compiler.units.ICompilationUnit.UnitType;
 import org.apache.royale.compiler.utils.SourceMapUtils;
 import org.apache.royale.swc.ISWCFileEntry;
+import org.apache.royale.swc.io.SWCArchive;
+import org.apache.royale.swc.io.SWCArchiveWriter;
 import org.apache.royale.swc.io.SWCReader;
 
 /**
@@ -219,8 +216,8 @@ public class COMPJSCRoyale extends MXMLJSCRoyale
         File swcFile = new File(outputFolderName);
         File jsOut = new File("js/out");
         File externsOut = new File("externs");
-        ZipFile zipFile = null;
-        ZipOutputStream zipOutputStream = null;
+        SWCArchive archive = null;
+        SWCArchiveWriter archiveWriter = null;
         String catalog = null;
         StringBuilder fileList = new StringBuilder();
         if (outputFolderName.endsWith(".swc"))
@@ -231,16 +228,38 @@ public class COMPJSCRoyale extends MXMLJSCRoyale
                 problems.add(new LibraryNotFoundProblem(outputFolderName));
                 return false;
             }
-            zipFile = new ZipFile(swcFile, ZipFile.OPEN_READ);
-            final InputStream catalogInputStream = SWCReader.getInputStream(zipFile, SWCReader.CATALOG_XML);
+            archive = new SWCArchive(swcFile);
+            final InputStream catalogInputStream = archive.getInputStream(SWCReader.CATALOG_XML);
             
             catalog = IOUtils.toString(catalogInputStream);
             catalogInputStream.close();
-            zipOutputStream = new ZipOutputStream(new BufferedOutputStream(new FileOutputStream(outputFolderName + ".new")));
-            zipOutputStream.setLevel(Deflater.NO_COMPRESSION);
-            for (final Enumeration<? extends ZipEntry> entryEnum = zipFile.entries(); entryEnum.hasMoreElements();)
+            archiveWriter = new SWCArchiveWriter(new File(outputFolderName + ".new"));
+            long fileDate = System.currentTimeMillis();
+            long zipFileDate = fileDate;
+            String metadataDate = targetSettings.getSWFMetadataDate();
+            if (metadataDate != null)
+            {
+                String metadataFormat = targetSettings.getSWFMetadataDateFormat();
+                try {
+                    SimpleDateFormat sdf = new SimpleDateFormat(metadataFormat);
+                    Date d = sdf.parse(metadataDate);
+                    Calendar cal = new GregorianCalendar();
+                    cal.setTime(d);
+                    sdf.setTimeZone(TimeZone.getTimeZone("UTC"));
+                    d = sdf.parse(metadataDate);
+                    fileDate = d.getTime();
+                    ZonedDateTime zdt = ZonedDateTime.of(cal.get(Calendar.YEAR), cal.get(Calendar.MONTH) + 1, cal.get(Calendar.DAY_OF_MONTH), 
+                                            cal.get(Calendar.HOUR_OF_DAY), cal.get(Calendar.MINUTE), cal.get(Calendar.SECOND), 0, ZoneId.systemDefault());
+                    zipFileDate = zdt.toInstant().toEpochMilli();
+                } catch (ParseException e) {
+                    // TODO Auto-generated catch block
+                    e.printStackTrace();
+                } catch (IllegalArgumentException e1) {
+                    e1.printStackTrace();
+                }
+            }
+            for (final SWCArchive.Entry entry : archive.getEntries())
             {
-                final ZipEntry entry = entryEnum.nextElement();
                 if (!entry.getName().contains("js/out") &&
                     !entry.getName().contains(SWCReader.CATALOG_XML))
                 {
@@ -248,41 +267,8 @@ public class COMPJSCRoyale extends MXMLJSCRoyale
                     {
                         System.out.println("Copy " + entry.getName());
                     }
-                    InputStream input = zipFile.getInputStream(entry);
-                    ZipEntry ze = new ZipEntry(entry.getName());
-                    ze.setMethod(ZipEntry.STORED);
-                    ze.setSize(entry.getSize());
-                    ze.setCompressedSize(entry.getCompressedSize());
-                    ze.setCrc(entry.getCrc());
-                    long fileDate = System.currentTimeMillis();
-                    long zipFileDate = fileDate;
-                    String metadataDate = targetSettings.getSWFMetadataDate();
-                    if (metadataDate != null)
-                    {
-                        String metadataFormat = targetSettings.getSWFMetadataDateFormat();
-                        try {
-                            SimpleDateFormat sdf = new SimpleDateFormat(metadataFormat);
-                            Date d = sdf.parse(metadataDate);
-                            Calendar cal = new GregorianCalendar();
-                            cal.setTime(d);
-                            sdf.setTimeZone(TimeZone.getTimeZone("UTC"));
-                            d = sdf.parse(metadataDate);
-                            fileDate = d.getTime();
-                            ZonedDateTime zdt = ZonedDateTime.of(cal.get(Calendar.YEAR), cal.get(Calendar.MONTH) + 1, cal.get(Calendar.DAY_OF_MONTH), 
-                                                    cal.get(Calendar.HOUR_OF_DAY), cal.get(Calendar.MINUTE), cal.get(Calendar.SECOND), 0, ZoneId.systemDefault());
-                            zipFileDate = zdt.toInstant().toEpochMilli();
-                        } catch (ParseException e) {
-                            // TODO Auto-generated catch block
-                            e.printStackTrace();
-                        } catch (IllegalArgumentException e1) {
-                            e1.printStackTrace();
-                        }
-                    }
-                    ze.setTime(zipFileDate);
-                    zipOutputStream.putNextEntry(ze);
-                    IOUtils.copy(input, zipOutputStream);
-                    zipOutputStream.flush();
-                    zipOutputStream.closeEntry();
+                    // copied as it is, without inflating and deflating it again
+                    archiveWriter.copyEntry(archive, entry, zipFileDate);
                 }
             }
             int filesIndex = catalog.indexOf("<files>");
@@ -312,110 +298,68 @@ public class COMPJSCRoyale extends MXMLJSCRoyale
         if (!packingSWC) 
             outputFolder = new File(outputFolderName);
 
-        Set<String> externs = config.getExterns();
+        final Set<String> externs = config.getExterns();
         Collection<ICompilationUnit> roots = ((RoyaleSWCTarget)target).getReachableCompilationUnits(errors);
-        Collection<ICompilationUnit> reachableCompilationUnits = project.getReachableCompilationUnitsInSWFOrder(roots);
-        for (final ICompilationUnit cu : reachableCompilationUnits)
+        List<ICompilationUnit> reachableCompilationUnits = project.getReachableCompilationUnitsInSWFOrder(roots);
+        List<EmittedUnit> emittedUnits = null;
+        if (project.config.getJsParallelEmit())
         {
+            final boolean emitToSWC = packingSWC;
+            final File emitOutputFolder = outputFolder;
+            emittedUnits = emitCompilationUnitsInParallel(reachableCompilationUnits, new ICompilationUnitEmitter<EmittedUnit>()
+            {
+                @Override
+                public EmittedUnit emit(ICompilationUnit cu, List<ICompilerProblem> unitProblems)
+                        throws InterruptedException, IOException
+                {
+                    if (!isEmittedUnit(cu, externs))
+                        return null;
+                    if (!emitToSWC)
+                    {
+                        writeCompilationUnitToFolder(cu, emitOutputFolder, unitProblems);
+                        return null;
+                    }
+                    return emitCompilationUnit(cu, unitProblems);
+                }
+            });
+        }
+        for (int i = 0; i < reachableCompilationUnits.size(); i++)
+        {
+            final ICompilationUnit cu = reachableCompilationUnits.get(i);
             ICompilationUnit.UnitType cuType = cu.getCompilationUnitType();
 
             if (cuType == ICompilationUnit.UnitType.AS_UNIT
                     || cuType == ICompilationUnit.UnitType.MXML_UNIT)
             {
                 String symbol = cu.getQualifiedNames().get(0);
-                if (externs.contains(symbol)) continue;
-                
-                if (project.isExternalLinkage(cu)) continue;
+                if (!isEmittedUnit(cu, externs)) continue;
                 
                 if (!packingSWC)
                 {
-                    final File outputClassFile = getOutputClassFile(
-                            cu.getQualifiedNames().get(0), outputFolder, true);
-
-                    if (config.isVerbose())
+                    if (emittedUnits == null)
                     {
-                        System.out.println("Compiling file: " + outputClassFile);
+                        writeCompilationUnitToFolder(cu, outputFolder,
+                                (List<ICompilerProblem>) problems.getProblems());
                     }
-
-                    ICompilationUnit unit = cu;
-
-                    IJSWriter writer;
-                    if (cuType == ICompilationUnit.UnitType.AS_UNIT)
-                    {
-                        writer = (IJSWriter) project.getBackend().createWriter(project,
-                                (List<ICompilerProblem>) problems.getProblems(), unit,
-                                false);
-                    }
-                    else
-                    {
-                        writer = (IJSWriter) project.getBackend().createMXMLWriter(
-                                project, (List<ICompilerProblem>) problems.getProblems(),
-                                unit, false);
-                    }
-
-                    BufferedOutputStream out = new BufferedOutputStream(
-                            new FileOutputStream(outputClassFile));
-                    BufferedOutputStream sourceMapOut = null;
-                    File outputSourceMapFile = null;
-                    if (project.config.getSourceMap())
-                    {
-                        outputSourceMapFile = getOutputSourceMapFile(
-                                cu.getQualifiedNames().get(0), outputFolder, true);
-                        sourceMapOut = new BufferedOutputStream(
-                            new FileOutputStream(outputSourceMapFile));
-                    }
-                    writer.writeTo(out, sourceMapOut, outputSourceMapFile);
-                    out.flush();
-                    out.close();
-                    if (sourceMapOut != null)
-                    {
-                        sourceMapOut.flush();
-                        sourceMapOut.close();
-                    }
-                    writer.close();
                 }
                 else
                 {
-                    if (config.isVerbose())
-                    {
-                        System.out.println("Compiling file: " + cu.getQualifiedNames().get(0));
-                    }
-                    
-                    ICompilationUnit unit = cu;
-
-                    IJSWriter writer;
-                    if (cuType == ICompilationUnit.UnitType.AS_UNIT)
+                    EmittedUnit emitted;
+                    if (emittedUnits != null)
                     {
-                        writer = (IJSWriter) project.getBackend().createWriter(project,
-                                (List<ICompilerProblem>) problems.getProblems(), unit,
-                                false);
+                        emitted = emittedUnits.get(i);
                     }
                     else
                     {
-                        writer = (IJSWriter) project.getBackend().createMXMLWriter(
-                                project, (List<ICompilerProblem>) problems.getProblems(),
-                                unit, false);
-                    }
-
-                    ByteArrayOutputStream temp = new ByteArrayOutputStream();
-                    ByteArrayOutputStream sourceMapTemp = null;
-                    
-                    boolean isExterns = false;
-                    if(cu.getDefinitionPromises().size() > 0)
-                    {
-                        isExterns = project.isExterns(cu.getDefinitionPromises().get(0).getQualifiedName());
-                    }
-                    
-                    // if the file is @externs DON'T create source map file
-                    if (project.config.getSourceMap() && !isExterns)
-                    {
-                        sourceMapTemp = new ByteArrayOutputStream();
+                        emitted = emitCompilationUnit(cu,
+                                (List<ICompilerProblem>) problems.getProblems());
                     }
-                    writer.writeTo(temp, sourceMapTemp, null);
+                    ByteArrayOutputStream temp = emitted.js;
+                    ByteArrayOutputStream sourceMapTemp = emitted.sourceMap;
 
                     File outputClassFile = getOutputClassFile(
                             cu.getQualifiedNames().get(0),
-                            isExterns ? externsOut : jsOut,
+                            emitted.isExterns ? externsOut : jsOut,
                             false);
                     String outputClassFilePath = outputClassFile.getPath();
                     outputClassFilePath = outputClassFilePath.replace('\\', '/');
@@ -425,13 +369,13 @@ public class COMPJSCRoyale extends MXMLJSCRoyale
                     }
                     ByteArrayOutputStream baos = new ByteArrayOutputStream();
                     temp.writeTo(baos);
-                    writeFileToZip(zipOutputStream, outputClassFilePath, baos, fileList);
+                    writeFileToZip(archiveWriter, outputClassFilePath, baos, fileList);
                     
                     if(sourceMapTemp != null)
                     {
                         String sourceMapFilePath = getOutputSourceMapFile(
                             cu.getQualifiedNames().get(0),
-                            isExterns ? externsOut : jsOut,
+                            emitted.isExterns ? externsOut : jsOut,
                             false).getPath();
                         sourceMapFilePath = sourceMapFilePath.replace('\\', '/');
                         if (config.isVerbose())
@@ -440,9 +384,8 @@ public class COMPJSCRoyale extends MXMLJSCRoyale
                         }
                         baos = new ByteArrayOutputStream();
                         processSourceMap(sourceMapTemp, baos, outputClassFile, symbol);
-                        writeFileToZip(zipOutputStream, sourceMapFilePath, baos, fileList);
+                        writeFileToZip(archiveWriter, sourceMapFilePath, baos, fileList);
                     }
-                    writer.close();
                 }
             }
             else if (cuType == ICompilationUnit.UnitType.SWC_UNIT)
@@ -485,7 +428,7 @@ public class COMPJSCRoyale extends MXMLJSCRoyale
                 InputStream fileStream = fileEntry.createInputStream();
                 IOUtils.copy(fileStream, baos);
                 fileStream.close();
-                writeFileToZip(zipOutputStream, outputClassFile, baos, fileList);
+                writeFileToZip(archiveWriter, outputClassFile, baos, fileList);
 
                 String outputMapFile = outputClassFile + ".map";
                 fileEntry = swcCU.getSWC().getFile(outputMapFile);
@@ -501,7 +444,7 @@ public class COMPJSCRoyale extends MXMLJSCRoyale
                 fileStream = fileEntry.createInputStream();
                 IOUtils.copy(fileStream, baos);
                 fileStream.close();
-                writeFileToZip(zipOutputStream, outputMapFile, baos, fileList);
+                writeFileToZip(archiveWriter, outputMapFile, baos, fileList);
             }
         }
         if (!config.getCreateTargetWithErrors())
@@ -514,7 +457,7 @@ public class COMPJSCRoyale extends MXMLJSCRoyale
         }
         if (packingSWC)
         {
-            zipFile.close();
+            archive.close();
             long fileDate = System.currentTimeMillis();
             long zipFileDate = fileDate;
             String metadataDate = targetSettings.getSWFMetadataDate();
@@ -543,25 +486,8 @@ public class COMPJSCRoyale extends MXMLJSCRoyale
             catalog = catalog.substring(0, libraryIndex + 13) +
                 "    <files>\n" + fileList.toString() + "    </files>" + 
                 catalog.substring(libraryIndex + 13);
-            ZipEntry ze = new ZipEntry(SWCReader.CATALOG_XML);
-            ze.setTime(zipFileDate);
-            ze.setMethod(ZipEntry.STORED);
-            
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            baos.write(catalog.getBytes());
-            ze.setSize(baos.size());
-            ze.setCompressedSize(baos.size());
-            CRC32 crc = new CRC32();
-            crc.reset();
-            crc.update(baos.toByteArray());
-            ze.setCrc(crc.getValue());
-            
-            zipOutputStream.putNextEntry(ze);
-            baos.writeTo(zipOutputStream);
-            zipOutputStream.flush();
-            zipOutputStream.closeEntry();
-            zipOutputStream.flush();
-            zipOutputStream.close();
+            archiveWriter.putEntry(SWCReader.CATALOG_XML, zipFileDate, catalog.getBytes());
+            archiveWriter.close();
             swcFile.delete();
             File newSWCFile = new File(outputFolderName + ".new");
             newSWCFile.renameTo(swcFile);
@@ -619,7 +545,106 @@ public class COMPJSCRoyale extends MXMLJSCRoyale
         }
     }
 
-    private void writeFileToZip(ZipOutputStream zipOutputStream, String entryFilePath, ByteArrayOutputStream baos, StringBuilder fileList) throws IOException
+    /**
+     * The JavaScript and source map emitted for a compilation unit that is
+     * written into a SWC.
+     */
+    private static class EmittedUnit
+    {
+        ByteArrayOutputStream js;
+        ByteArrayOutputStream sourceMap;
+        boolean isExterns;
+    }
+
+    private boolean isEmittedUnit(ICompilationUnit cu, Set<String> externs) throws InterruptedException
+    {
+        ICompilationUnit.UnitType cuType = cu.getCompilationUnitType();
+        if (cuType != ICompilationUnit.UnitType.AS_UNIT
+                && cuType != ICompilationUnit.UnitType.MXML_UNIT)
+        {
+            return false;
+        }
+        String symbol = cu.getQualifiedNames().get(0);
+        if (externs.contains(symbol))
+            return false;
+        return !project.isExternalLinkage(cu);
+    }
+
+    private IJSWriter createWriter(ICompilationUnit cu, List<ICompilerProblem> unitProblems)
+    {
+        if (cu.getCompilationUnitType() == ICompilationUnit.UnitType.AS_UNIT)
+        {
+            return (IJSWriter) project.getBackend().createWriter(project,
+                    unitProblems, cu, false);
+        }
+        return (IJSWriter) project.getBackend().createMXMLWriter(
+                project, unitProblems, cu, false);
+    }
+
+    private void writeCompilationUnitToFolder(ICompilationUnit cu, File outputFolder,
+            List<ICompilerProblem> unitProblems) throws InterruptedException, IOException
+    {
+        final File outputClassFile = getOutputClassFile(
+                cu.getQualifiedNames().get(0), outputFolder, true);
+
+        if (config.isVerbose())
+        {
+            System.out.println("Compiling file: " + outputClassFile);
+        }
+
+        IJSWriter writer = createWriter(cu, unitProblems);
+
+        BufferedOutputStream out = new BufferedOutputStream(
+                new FileOutputStream(outputClassFile));
+        BufferedOutputStream sourceMapOut = null;
+        File outputSourceMapFile = null;
+        if (project.config.getSourceMap())
+        {
+            outputSourceMapFile = getOutputSourceMapFile(
+                    cu.getQualifiedNames().get(0), outputFolder, true);
+            sourceMapOut = new BufferedOutputStream(
+                new FileOutputStream(outputSourceMapFile));
+        }
+        writer.writeTo(out, sourceMapOut, outputSourceMapFile);
+        out.flush();
+        out.close();
+        if (sourceMapOut != null)
+        {
+            sourceMapOut.flush();
+            sourceMapOut.close();
+        }
+        writer.close();
+    }
+
+    private EmittedUnit emitCompilationUnit(ICompilationUnit cu,
+            List<ICompilerProblem> unitProblems) throws InterruptedException, IOException
+    {
+        if (config.isVerbose())
+        {
+            System.out.println("Compiling file: " + cu.getQualifiedNames().get(0));
+        }
+
+        IJSWriter writer = createWriter(cu, unitProblems);
+
+        EmittedUnit emitted = new EmittedUnit();
+        emitted.js = new ByteArrayOutputStream();
+
+        if(cu.getDefinitionPromises().size() > 0)
+        {
+            emitted.isExterns = project.isExterns(cu.getDefinitionPromises().get(0).getQualifiedName());
+        }
+
+        // if the file is @externs DON'T create source map file
+        if (project.config.getSourceMap() && !emitted.isExterns)
+        {
+            emitted.sourceMap = new ByteArrayOutputStream();
+        }
+        writer.writeTo(emitted.js, emitted.sourceMap, null);
+        writer.close();
+        return emitted;
+    }
+
+    private void writeFileToZip(SWCArchiveWriter archiveWriter, String entryFilePath, ByteArrayOutputStream baos, StringBuilder fileList) throws IOException
     {
         long fileDate = System.currentTimeMillis();
         long zipFileDate = fileDate;
@@ -645,21 +670,7 @@ public class COMPJSCRoyale extends MXMLJSCRoyale
                 e1.printStackTrace();
             }
         }
-        ZipEntry ze = new ZipEntry(entryFilePath);
-        ze.setTime(zipFileDate);
-        ze.setMethod(ZipEntry.STORED);
-        
-        ze.setSize(baos.size());
-        ze.setCompressedSize(baos.size());
-        CRC32 crc = new CRC32();
-        crc.reset();
-        crc.update(baos.toByteArray());
-        ze.setCrc(crc.getValue());
-
-        zipOutputStream.putNextEntry(ze);
-        baos.writeTo(zipOutputStream);
-        zipOutputStream.flush();
-        zipOutputStream.closeEntry();
+        archiveWriter.putEntry(entryFilePath, zipFileDate, baos.toByteArray());
         fileList.append("        <file path=\"" + entryFilePath + "\" mod=\"" + fileDate + "\"/>\n");
     }
 
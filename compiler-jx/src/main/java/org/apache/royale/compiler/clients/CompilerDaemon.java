@@ -0,0 +1,486 @@
+/*
+ *
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.apache.royale.compiler.clients;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.apache.royale.compiler.internal.driver.js.goog.JSGoogCompcConfiguration;
+import org.apache.royale.compiler.problems.ICompilerProblem;
+
+/**
+ * A long-lived compiler process that keeps the workspaces of recent builds in
+ * memory, so that building the same project again only rebuilds what changed.
+ * <p>
+ * The daemon listens on a loopback socket. Its port and a random token are
+ * written to {@link #getInfoFile()}, which {@link CompilerDaemonClient} reads
+ * to find it. Each request names a tool ({@code mxmlc} or {@code compc}), a
+ * working directory and the command line arguments. The output of the
+ * compiler is streamed back to the client, followed by the exit code.
+ * <p>
+ * A build is kept warm for each distinct tool, working directory and
+ * arguments. Before a warm build is compiled again, the files on its source
+ * path, include sources, file specs, theme files and library path are checked
+ * for changes, and the changed files are invalidated in its workspaces.
+ * Relative paths in the arguments are resolved against the working directory
+ * of the request. Builds run one at a time, because the compiler writes to
+ * {@code System.out}.
+ * <p>
+ * Only the {@code JSRoyale} target keeps its workspace. Other targets are
+ * compiled in new workspaces for each request. The {@code -watch} option is
+ * not supported.
+ */
+public class CompilerDaemon
+{
+    /**
+     * Identifies the protocol. Sent by the client first.
+     */
+    public static final String PROTOCOL = "royale-compiler-daemon/1";
+
+    /**
+     * Tool name for applications.
+     */
+    public static final String TOOL_MXMLC = "mxmlc";
+
+    /**
+     * Tool name for libraries.
+     */
+    public static final String TOOL_COMPC = "compc";
+
+    /**
+     * Tool name that stops the daemon.
+     */
+    public static final String TOOL_SHUTDOWN = "shutdown";
+
+    /**
+     * Frame types of a response.
+     */
+    static final int FRAME_EXIT = 0;
+    static final int FRAME_STDOUT = 1;
+    static final int FRAME_STDERR = 2;
+
+    /**
+     * Keys in the info file.
+     */
+    static final String INFO_PORT = "port";
+    static final String INFO_TOKEN = "token";
+
+    /**
+     * Exit code sent when a request can't be run.
+     */
+    static final int EXIT_REQUEST_FAILED = MXMLJSC.ExitCode.FAILED_WITH_EXCEPTIONS.getCode();
+
+    public static final int DEFAULT_MAX_SESSIONS = 4;
+
+    /**
+     * @return The file that the running daemon writes its port and token to.
+     */
+    public static File getInfoFile()
+    {
+        return new File(new File(System.getProperty("user.home"), ".royale"), "compiler-daemon.properties");
+    }
+
+    /**
+     * Java program entry point.
+     * <p>
+     * Options are {@code -port=<n>}, which defaults to any free port, and
+     * {@code -max-sessions=<n>}, the number of warm builds to keep.
+     *
+     * @param args command line arguments
+     */
+    public static void main(final String[] args)
+    {
+        int port = 0;
+        int maxSessions = DEFAULT_MAX_SESSIONS;
+        for (String arg : args)
+        {
+            if (arg.startsWith("-port="))
+                port = Integer.parseInt(arg.substring("-port=".length()));
+            else if (arg.startsWith("-max-sessions="))
+                maxSessions = Integer.parseInt(arg.substring("-max-sessions=".length()));
+            else
+            {
+                System.err.println("Unknown option: " + arg);
+                System.err.println("Usage: CompilerDaemon [-port=<n>] [-max-sessions=<n>]");
+                System.exit(1);
+            }
+        }
+
+        CompilerDaemon daemon = new CompilerDaemon(maxSessions);
+        try
+        {
+            ServerSocket serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+            File infoFile = getInfoFile();
+            daemon.writeInfoFile(infoFile, serverSocket.getLocalPort());
+            System.out.println("Royale compiler daemon listening on port " + serverSocket.getLocalPort());
+            try
+            {
+                daemon.serve(serverSocket);
+            }
+            finally
+            {
+                infoFile.delete();
+                serverSocket.close();
+            }
+        }
+        catch (IOException e)
+        {
+            System.err.println(e.toString());
+            System.exit(1);
+        }
+        finally
+        {
+            daemon.close();
+        }
+        System.exit(0);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param maxSessions The number of warm builds to keep. When another
+     * build is started, the least recently used one is closed.
+     */
+    public CompilerDaemon(final int maxSessions)
+    {
+        byte[] tokenBytes = new byte[16];
+        new SecureRandom().nextBytes(tokenBytes);
+        StringBuilder tokenBuilder = new StringBuilder();
+        for (byte b : tokenBytes)
+            tokenBuilder.append(String.format("%02x", b & 0xff));
+        token = tokenBuilder.toString();
+
+        sessions = new LinkedHashMap<String, IncrementalBuild>(16, 0.75f, true)
+        {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, IncrementalBuild> eldest)
+            {
+                if (size() <= maxSessions)
+                    return false;
+                eldest.getValue().close();
+                return true;
+            }
+        };
+    }
+
+    private final String token;
+    private final LinkedHashMap<String, IncrementalBuild> sessions;
+    private volatile boolean stopped;
+
+    /**
+     * Writes the port and the token to a file that only the current user can
+     * read. The file is created with these permissions, so the token is never
+     * in a file that others can read, even for a moment.
+     */
+    void writeInfoFile(File infoFile, int port) throws IOException
+    {
+        File parent = infoFile.getParentFile();
+        if (parent != null)
+            parent.mkdirs();
+        Properties info = new Properties();
+        info.setProperty(INFO_PORT, Integer.toString(port));
+        info.setProperty(INFO_TOKEN, token);
+
+        // the file of an earlier daemon may have other permissions
+        Path path = infoFile.toPath();
+        Files.deleteIfExists(path);
+        try
+        {
+            Files.createFile(path, PosixFilePermissions.asFileAttribute(
+                    EnumSet.of(PosixFilePermission.OWNER_READ, PosixFilePermission.OWNER_WRITE)));
+        }
+        catch (UnsupportedOperationException e)
+        {
+            // not a POSIX file system, so restrict the empty file instead
+            Files.createFile(path);
+            infoFile.setReadable(false, false);
+            infoFile.setReadable(true, true);
+            infoFile.setWritable(false, false);
+            infoFile.setWritable(true, true);
+        }
+        OutputStream out = Files.newOutputStream(path);
+        try
+        {
+            info.store(out, "Royale compiler daemon");
+        }
+        finally
+        {
+            out.close();
+        }
+    }
+
+    /**
+     * @return The token that clients must send.
+     */
+    String getToken()
+    {
+        return token;
+    }
+
+    /**
+     * Handles connections until a shutdown request is received.
+     */
+    public void serve(ServerSocket serverSocket) throws IOException
+    {
+        while (!stopped)
+        {
+            Socket socket = serverSocket.accept();
+            try
+            {
+                handle(socket);
+            }
+            catch (IOException e)
+            {
+                // the client went away, keep serving the others
+                System.err.println(e.toString());
+            }
+            finally
+            {
+                socket.close();
+            }
+        }
+    }
+
+    private void handle(Socket socket) throws IOException
+    {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+
+        if (!PROTOCOL.equals(in.readUTF()) ||
+            !MessageDigest.isEqual(token.getBytes(StandardCharsets.UTF_8),
+                                   in.readUTF().getBytes(StandardCharsets.UTF_8)))
+        {
+            writeExit(out, EXIT_REQUEST_FAILED);
+            return;
+        }
+        String tool = in.readUTF();
+        String workingDirectory = in.readUTF();
+        int argCount = in.readInt();
+        String[] args = new String[argCount];
+        for (int i = 0; i < argCount; i++)
+            args[i] = in.readUTF();
+
+        if (TOOL_SHUTDOWN.equals(tool))
+        {
+            stopped = true;
+            writeExit(out, 0);
+            return;
+        }
+
+        PrintStream stdout = new PrintStream(new FrameOutputStream(out, FRAME_STDOUT), true, "UTF-8");
+        PrintStream stderr = new PrintStream(new FrameOutputStream(out, FRAME_STDERR), true, "UTF-8");
+        int exitCode = compile(tool, workingDirectory, args, stdout, stderr);
+        stdout.flush();
+        stderr.flush();
+        writeExit(out, exitCode);
+    }
+
+    private static void writeExit(DataOutputStream out, int exitCode) throws IOException
+    {
+        synchronized (out)
+        {
+            out.writeByte(FRAME_EXIT);
+            out.writeInt(exitCode);
+            out.flush();
+        }
+    }
+
+    /**
+     * Runs a tool, reusing the warm build for the same tool, working
+     * directory and arguments if there is one.
+     *
+     * @param tool {@link #TOOL_MXMLC} or {@link #TOOL_COMPC}.
+     * @param workingDirectory The directory that relative paths in the
+     * arguments are resolved against.
+     * @param args The command line arguments.
+     * @param out Receives the standard output of the compiler.
+     * @param err Receives the standard error of the compiler.
+     * @return The exit code of the compiler.
+     */
+    public synchronized int compile(String tool, String workingDirectory, String[] args,
+            PrintStream out, PrintStream err)
+    {
+        StringBuilder keyBuilder = new StringBuilder();
+        keyBuilder.append(tool).append('\n').append(workingDirectory);
+        for (String arg : args)
+            keyBuilder.append('\n').append(arg);
+        String key = keyBuilder.toString();
+
+        PrintStream oldOut = System.out;
+        PrintStream oldErr = System.err;
+        System.setOut(out);
+        System.setErr(err);
+        try
+        {
+            IncrementalBuild session = sessions.remove(key);
+            if (session == null)
+            {
+                MXMLJSC compiler = createCompiler(tool, workingDirectory);
+                if (compiler == null)
+                {
+                    err.println("Unknown tool: " + tool);
+                    return EXIT_REQUEST_FAILED;
+                }
+                session = new IncrementalBuild(compiler);
+            }
+            else
+            {
+                try
+                {
+                    session.applyFileChanges();
+                    if (session.getEarlyCutoffCandidateCount() > 0)
+                    {
+                        out.println("Skipped " + session.getEarlyCutoffSkipCount() + " of "
+                                + session.getEarlyCutoffCandidateCount()
+                                + " indirect dependents because the API of the changed files was unchanged.");
+                    }
+                }
+                catch (RuntimeException e)
+                {
+                    // fall back to a cold build
+                    session.close();
+                    session = new IncrementalBuild(createCompiler(tool, workingDirectory));
+                }
+            }
+
+            List<ICompilerProblem> problems = new ArrayList<ICompilerProblem>();
+            int exitCode = session.getCompiler().mainNoExit(args, problems, true);
+
+            if (exitCode == MXMLJSC.ExitCode.SUCCESS.getCode() ||
+                exitCode == MXMLJSC.ExitCode.FAILED_WITH_ERRORS.getCode())
+            {
+                session.recordFiles();
+                sessions.put(key, session);
+            }
+            else if (exitCode != MXMLJSC.ExitCode.WATCHING.getCode())
+            {
+                // the configuration may be half applied, so start over
+                session.close();
+            }
+            return exitCode;
+        }
+        finally
+        {
+            System.setOut(oldOut);
+            System.setErr(oldErr);
+        }
+    }
+
+    private static MXMLJSC createCompiler(String tool, String workingDirectory)
+    {
+        MXMLJSC compiler;
+        if (TOOL_MXMLC.equalsIgnoreCase(tool))
+        {
+            compiler = new MXMLJSC();
+        }
+        else if (TOOL_COMPC.equalsIgnoreCase(tool))
+        {
+            compiler = new COMPJSC();
+            compiler.configurationClass = JSGoogCompcConfiguration.class;
+        }
+        else
+        {
+            return null;
+        }
+        compiler.workingDirectory = workingDirectory;
+        return compiler;
+    }
+
+    /**
+     * Closes all of the warm builds.
+     */
+    public synchronized void close()
+    {
+        for (Iterator<IncrementalBuild> i = sessions.values().iterator(); i.hasNext();)
+        {
+            i.next().close();
+            i.remove();
+        }
+    }
+
+    /**
+     * Sends everything that is written to it as frames of one type.
+     */
+    private static final class FrameOutputStream extends OutputStream
+    {
+        FrameOutputStream(DataOutputStream out, int frameType)
+        {
+            this.out = out;
+            this.frameType = frameType;
+        }
+
+        private final DataOutputStream out;
+        private final int frameType;
+
+        @Override
+        public void write(int b) throws IOException
+        {
+            write(new byte[] {(byte)b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException
+        {
+            if (len == 0)
+                return;
+            // the compiler prints from several threads
+            synchronized (out)
+            {
+                out.writeByte(frameType);
+                out.writeInt(len);
+                out.write(b, off, len);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException
+        {
+            synchronized (out)
+            {
+                out.flush();
+            }
+        }
+    }
+}
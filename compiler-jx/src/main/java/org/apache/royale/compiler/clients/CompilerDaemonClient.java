@@ -0,0 +1,222 @@
+/*
+ *
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.apache.royale.compiler.clients;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.Properties;
+
+/**
+ * Runs a tool in a running {@link CompilerDaemon}.
+ * <p>
+ * The {@code mxmlc} and {@code compc} entry points that the command line, the
+ * Ant tasks and the Maven plugin use ask the daemon to compile when the
+ * {@value #ENABLED_PROPERTY} system property is {@code true}, and compile in
+ * their own process if no daemon is running.
+ */
+public class CompilerDaemonClient
+{
+    /**
+     * The system property that makes the {@code mxmlc} and {@code compc}
+     * entry points use the daemon.
+     */
+    public static final String ENABLED_PROPERTY = "royale.compiler.daemon";
+
+    /**
+     * Java program entry point.
+     * <p>
+     * The first argument is the tool, one of {@code mxmlc}, {@code compc} or
+     * {@code shutdown}. The other arguments are passed to the tool.
+     *
+     * @param args command line arguments
+     */
+    public static void main(final String[] args)
+    {
+        if (args.length == 0)
+        {
+            System.err.println("Usage: CompilerDaemonClient <mxmlc|compc|shutdown> [arguments]");
+            System.exit(1);
+        }
+        CompilerDaemonClient client = find(CompilerDaemon.getInfoFile());
+        if (client == null)
+        {
+            System.err.println("The Royale compiler daemon is not running.");
+            System.exit(1);
+        }
+        int exitCode;
+        try
+        {
+            exitCode = client.compile(args[0], System.getProperty("user.dir"),
+                    Arrays.copyOfRange(args, 1, args.length), System.out, System.err);
+        }
+        catch (IOException e)
+        {
+            System.err.println(e.toString());
+            exitCode = CompilerDaemon.EXIT_REQUEST_FAILED;
+        }
+        System.exit(exitCode);
+    }
+
+    /**
+     * Runs a tool in the daemon if {@value #ENABLED_PROPERTY} is set and a
+     * daemon is running.
+     *
+     * @param tool {@link CompilerDaemon#TOOL_MXMLC} or
+     * {@link CompilerDaemon#TOOL_COMPC}.
+     * @param args The command line arguments.
+     * @return The exit code, or null if the tool should run in this process.
+     */
+    public static Integer compileIfEnabled(String tool, String[] args)
+    {
+        if (!Boolean.getBoolean(ENABLED_PROPERTY))
+            return null;
+        CompilerDaemonClient client = find(CompilerDaemon.getInfoFile());
+        if (client == null)
+            return null;
+        try
+        {
+            return client.compile(tool, System.getProperty("user.dir"), args, System.out, System.err);
+        }
+        catch (IOException e)
+        {
+            // the daemon went away, so compile here
+            System.err.println("Royale compiler daemon failed, compiling without it: " + e.toString());
+            return null;
+        }
+    }
+
+    /**
+     * Reads the port and token of the running daemon.
+     *
+     * @param infoFile The file that the daemon wrote.
+     * @return A client, or null if no daemon is running.
+     */
+    public static CompilerDaemonClient find(File infoFile)
+    {
+        if (!infoFile.isFile())
+            return null;
+        Properties info = new Properties();
+        try
+        {
+            InputStream in = new FileInputStream(infoFile);
+            try
+            {
+                info.load(in);
+            }
+            finally
+            {
+                in.close();
+            }
+            return new CompilerDaemonClient(Integer.parseInt(info.getProperty(CompilerDaemon.INFO_PORT)),
+                    info.getProperty(CompilerDaemon.INFO_TOKEN));
+        }
+        catch (IOException e)
+        {
+            return null;
+        }
+        catch (RuntimeException e)
+        {
+            // a partly written or damaged file
+            return null;
+        }
+    }
+
+    /**
+     * Constructor
+     *
+     * @param port The port of the daemon on the loopback address.
+     * @param token The token of the daemon.
+     */
+    public CompilerDaemonClient(int port, String token)
+    {
+        this.port = port;
+        this.token = token;
+    }
+
+    private final int port;
+    private final String token;
+
+    /**
+     * Runs a tool in the daemon and copies its output.
+     *
+     * @param tool The tool.
+     * @param workingDirectory The directory that relative paths in the
+     * arguments are resolved against.
+     * @param args The command line arguments.
+     * @param out Receives the standard output of the compiler.
+     * @param err Receives the standard error of the compiler.
+     * @return The exit code of the tool.
+     * @throws IOException If the daemon can't be reached, or the connection
+     * is lost before the exit code is received.
+     */
+    public int compile(String tool, String workingDirectory, String[] args,
+            OutputStream out, OutputStream err) throws IOException
+    {
+        Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+        try
+        {
+            DataOutputStream request = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            request.writeUTF(CompilerDaemon.PROTOCOL);
+            request.writeUTF(token);
+            request.writeUTF(tool);
+            request.writeUTF(workingDirectory);
+            request.writeInt(args.length);
+            for (String arg : args)
+                request.writeUTF(arg);
+            request.flush();
+
+            DataInputStream response = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            byte[] buffer = new byte[8192];
+            while (true)
+            {
+                int frameType = response.readUnsignedByte();
+                if (frameType == CompilerDaemon.FRAME_EXIT)
+                {
+                    out.flush();
+                    err.flush();
+                    return response.readInt();
+                }
+                OutputStream target = frameType == CompilerDaemon.FRAME_STDERR ? err : out;
+                int remaining = response.readInt();
+                while (remaining > 0)
+                {
+                    int count = Math.min(remaining, buffer.length);
+                    response.readFully(buffer, 0, count);
+                    target.write(buffer, 0, count);
+                    remaining -= count;
+                }
+            }
+        }
+        finally
+        {
+            socket.close();
+        }
+    }
+}
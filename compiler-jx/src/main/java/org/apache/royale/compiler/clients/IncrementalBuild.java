@@ -0,0 +1,290 @@
+/*
+ *
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.apache.royale.compiler.clients;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.royale.compiler.config.Configuration;
+import org.apache.royale.compiler.internal.projects.ASProject;
+import org.apache.royale.compiler.internal.workspaces.Workspace;
+import org.apache.royale.utils.FilenameNormalization;
+
+/**
+ * A warm build: a compiler that keeps its workspaces open between calls to
+ * {@link MXMLJSC#mainNoExit(String[], List, Boolean)}, together with the
+ * files that the build used when it was last compiled.
+ * <p>
+ * Before the build is compiled again, {@link #applyFileChanges()} compares
+ * the files on its source path, include sources, file specs, theme files and
+ * library paths with the recorded ones, and invalidates the changed files in
+ * the workspaces, so that the next compile only rebuilds what they affect.
+ * Used by {@link CompilerDaemon} and by the OEM {@code Application} and
+ * {@code Library}.
+ */
+public class IncrementalBuild
+{
+    /**
+     * @param compiler The compiler of the build. Its workspaces are kept
+     * open until {@link #close()} is called.
+     */
+    public IncrementalBuild(MXMLJSC compiler)
+    {
+        this.compiler = compiler;
+        this.files = Collections.emptyMap();
+        compiler.keepWorkspaceOpen = true;
+    }
+
+    private final MXMLJSC compiler;
+
+    /**
+     * The files of the build, when it was last compiled.
+     */
+    private Map<String, FileStamp> files;
+
+    /**
+     * The early cutoff counts of the workspaces during the last call to
+     * {@link #applyFileChanges()}.
+     */
+    private long earlyCutoffCandidateCount;
+    private long earlyCutoffSkipCount;
+
+    /**
+     * @return The compiler of the build.
+     */
+    public MXMLJSC getCompiler()
+    {
+        return compiler;
+    }
+
+    /**
+     * Records the files of the build. Call after it was compiled.
+     */
+    public void recordFiles()
+    {
+        files = scanFiles();
+    }
+
+    /**
+     * Invalidates the files that were added, changed or removed since the
+     * build was last compiled.
+     */
+    public void applyFileChanges()
+    {
+        earlyCutoffCandidateCount = 0;
+        earlyCutoffSkipCount = 0;
+        Map<String, FileStamp> currentFiles = scanFiles();
+        Set<String> added = new HashSet<String>();
+        Set<String> changed = new HashSet<String>();
+        Set<String> removed = new HashSet<String>(files.keySet());
+        removed.removeAll(currentFiles.keySet());
+        for (Map.Entry<String, FileStamp> entry : currentFiles.entrySet())
+        {
+            FileStamp oldStamp = files.get(entry.getKey());
+            if (oldStamp == null)
+                added.add(entry.getKey());
+            else if (!oldStamp.equals(entry.getValue()))
+                changed.add(entry.getKey());
+        }
+        if (added.isEmpty() && changed.isEmpty() && removed.isEmpty())
+            return;
+
+        applyFileChanges(compiler.workspace, compiler.project, added, changed, removed);
+        if (compiler.lastCompiler instanceof MXMLJSCRoyale)
+        {
+            MXMLJSCRoyale royale = (MXMLJSCRoyale)compiler.lastCompiler;
+            applyFileChanges(royale.workspace, royale.project, added, changed, removed);
+        }
+    }
+
+    private void applyFileChanges(Workspace workspace, ASProject project,
+            Collection<String> added, Collection<String> changed, Collection<String> removed)
+    {
+        long oldEarlyCutoffCandidateCount = workspace.getEarlyCutoffCandidateCount();
+        long oldEarlyCutoffSkipCount = workspace.getEarlyCutoffSkipCount();
+        List<File> libraries = new ArrayList<File>();
+        for (String path : removed)
+        {
+            if (isLibrary(path))
+                libraries.add(new File(path));
+            else
+                workspace.fileRemoved(workspace.getFileSpecification(path));
+        }
+        for (String path : added)
+        {
+            if (isLibrary(path))
+                libraries.add(new File(path));
+            else
+                workspace.fileAdded(workspace.getFileSpecification(path));
+        }
+        for (String path : changed)
+        {
+            if (isLibrary(path))
+                libraries.add(new File(path));
+            else
+                workspace.fileChanged(workspace.getFileSpecification(path));
+        }
+        earlyCutoffCandidateCount += workspace.getEarlyCutoffCandidateCount() - oldEarlyCutoffCandidateCount;
+        earlyCutoffSkipCount += workspace.getEarlyCutoffSkipCount() - oldEarlyCutoffSkipCount;
+        if (!libraries.isEmpty())
+        {
+            for (File library : libraries)
+                workspace.getSWCManager().remove(library);
+            project.invalidateLibraries(libraries);
+        }
+    }
+
+    /**
+     * @return The number of compilation units that depended indirectly on
+     * the files changed by the last call to {@link #applyFileChanges()}, and
+     * were only cleaned if the API of the files changed.
+     */
+    public long getEarlyCutoffCandidateCount()
+    {
+        return earlyCutoffCandidateCount;
+    }
+
+    /**
+     * @return The number of compilation units that depended indirectly on
+     * the files changed by the last call to {@link #applyFileChanges()}, and
+     * were not cleaned because the API of the files was unchanged.
+     */
+    public long getEarlyCutoffSkipCount()
+    {
+        return earlyCutoffSkipCount;
+    }
+
+    private static boolean isLibrary(String path)
+    {
+        return path.toLowerCase().endsWith(".swc");
+    }
+
+    /**
+     * Collects the files that the configurations of the build refer to.
+     */
+    private Map<String, FileStamp> scanFiles()
+    {
+        Map<String, FileStamp> result = new HashMap<String, FileStamp>();
+        scanConfiguration(compiler.config, result);
+        if (compiler.lastCompiler instanceof MXMLJSCRoyale)
+            scanConfiguration(((MXMLJSCRoyale)compiler.lastCompiler).config, result);
+        return result;
+    }
+
+    private static void scanConfiguration(Configuration config, Map<String, FileStamp> result)
+    {
+        if (config == null)
+            return;
+        scanPaths(config.getCompilerSourcePath(), false, result);
+        scanPaths(config.getIncludeSources(), false, result);
+        scanPaths(config.getFileSpecs(), false, result);
+        scanPaths(config.getCompilerThemeFiles(), false, result);
+        scanPaths(config.getCompilerLibraryPath(), true, result);
+        scanPaths(config.getCompilerExternalLibraryPath(), true, result);
+        scanPaths(config.getCompilerIncludeLibraries(), true, result);
+        if (config instanceof JSConfiguration)
+        {
+            JSConfiguration jsConfig = (JSConfiguration)config;
+            scanPaths(jsConfig.getCompilerJsLibraryPath(), true, result);
+            scanPaths(jsConfig.getCompilerJsExternalLibraryPath(), true, result);
+        }
+    }
+
+    private static void scanPaths(List<String> paths, boolean librariesOnly, Map<String, FileStamp> result)
+    {
+        if (paths == null)
+            return;
+        for (String path : paths)
+            scanFile(FilenameNormalization.normalize(new File(path)), librariesOnly, result);
+    }
+
+    private static void scanFile(File file, boolean librariesOnly, Map<String, FileStamp> result)
+    {
+        if (file.isDirectory())
+        {
+            File[] children = file.listFiles();
+            if (children == null)
+                return;
+            for (File child : children)
+            {
+                if (!child.isHidden())
+                    scanFile(child, librariesOnly, result);
+            }
+        }
+        else if (file.isFile())
+        {
+            String path = file.getPath();
+            if (!librariesOnly || isLibrary(path))
+                result.put(path, new FileStamp(file));
+        }
+    }
+
+    /**
+     * Closes the workspaces of the build.
+     */
+    public void close()
+    {
+        compiler.keepWorkspaceOpen = false;
+        compiler.close();
+        if (compiler.lastCompiler instanceof MXMLJSCRoyale)
+        {
+            MXMLJSCRoyale royale = (MXMLJSCRoyale)compiler.lastCompiler;
+            royale.keepWorkspaceOpen = false;
+            royale.close();
+        }
+    }
+
+    /**
+     * The modification time and length of a file.
+     */
+    private static final class FileStamp
+    {
+        FileStamp(File file)
+        {
+            lastModified = file.lastModified();
+            length = file.length();
+        }
+
+        private final long lastModified;
+        private final long length;
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            if (!(obj instanceof FileStamp))
+                return false;
+            FileStamp other = (FileStamp)obj;
+            return lastModified == other.lastModified && length == other.length;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return (int)(lastModified ^ (lastModified >>> 32)) * 31 + (int)length;
+        }
+    }
+}
@@ -206,6 +206,9 @@ public class MXMLJSC implements JSCompilerEntryPoint, ProblemQueryProvider,
     @Override
     public int execute(String[] args)
     {
+        final Integer daemonExitCode = CompilerDaemonClient.compileIfEnabled(CompilerDaemon.TOOL_MXMLC, args);
+        if (daemonExitCode != null)
+            return daemonExitCode;
         final List<ICompilerProblem> problems = new ArrayList<ICompilerProblem>();
         return mainNoExit(args, problems, true);
     }
@@ -236,6 +239,9 @@ public class MXMLJSC implements JSCompilerEntryPoint, ProblemQueryProvider,
         System.out.println("MXMLJSC");
         for (String arg : args)
         	System.out.println(arg);
+        final Integer daemonExitCode = CompilerDaemonClient.compileIfEnabled(CompilerDaemon.TOOL_MXMLC, args);
+        if (daemonExitCode != null)
+            return daemonExitCode;
         final MXMLJSC mxmlc = new MXMLJSC();
         final List<ICompilerProblem> problems = new ArrayList<ICompilerProblem>();
         final int exitCode = mxmlc.mainNoExit(args, problems, true);
@@ -263,6 +269,19 @@ public class MXMLJSC implements JSCompilerEntryPoint, ProblemQueryProvider,
     public boolean noLink;
     public OutputStream err;
 	public Class<? extends Configuration> configurationClass = JSGoogConfiguration.class;
+
+    /**
+     * If true, the workspaces are not closed after compiling, and the
+     * compilers for the targets are reused by the next call to
+     * {@link #mainNoExit(String[], List, Boolean)}, so that it only rebuilds
+     * what changed. Used by {@link CompilerDaemon}.
+     */
+    public boolean keepWorkspaceOpen;
+
+    /**
+     * @see Configurator#setWorkingDirectory(String)
+     */
+    public String workingDirectory;
     
     public MXMLJSC()
     {
@@ -330,6 +349,7 @@ public class MXMLJSC implements JSCompilerEntryPoint, ProblemQueryProvider,
 	                case SWF:
 	                    mxmlc = new MXMLC();
 	                    mxmlc.configurationClass = configurationClass;
+	                    mxmlc.workingDirectory = workingDirectory;
 	                    if (noLink)
 	                    	result = mxmlc.mainCompileOnly(removeJSArgs(args), err);
 	                    else
@@ -341,8 +361,12 @@ public class MXMLJSC implements JSCompilerEntryPoint, ProblemQueryProvider,
 	                    }
 	                    break;
 	                case JS_ROYALE:
-	                	MXMLJSCRoyale royale = new MXMLJSCRoyale();
+	                	MXMLJSCRoyale royale = getReusableCompiler(MXMLJSCRoyale.class);
+	                	if (royale == null)
+	                		royale = new MXMLJSCRoyale();
+	                	royale.keepWorkspaceOpen = keepWorkspaceOpen;
 	                	lastCompiler = royale;
+	                	royale.workingDirectory = workingDirectory;
 	                    result = royale.mainNoExit(removeASArgs(args), problems.getProblems(), false);
                         if (result != MXMLJSCRoyale.ExitCode.SUCCESS.getCode() && result != MXMLJSCRoyale.ExitCode.WATCHING.getCode())
 	                    {
@@ -352,6 +376,7 @@ public class MXMLJSC implements JSCompilerEntryPoint, ProblemQueryProvider,
 	                case JS_ROYALE_CORDOVA:
 	                	MXMLJSCRoyaleCordova royaleCordova = new MXMLJSCRoyaleCordova();
 	                	lastCompiler = royaleCordova;
+	                	royaleCordova.workingDirectory = workingDirectory;
 	                    result = royaleCordova.mainNoExit(removeASArgs(args), problems.getProblems(), false);
                         if (result != MXMLJSCRoyaleCordova.ExitCode.SUCCESS.getCode() && result != MXMLJSCRoyaleCordova.ExitCode.WATCHING.getCode())
 	                    {
@@ -361,6 +386,7 @@ public class MXMLJSC implements JSCompilerEntryPoint, ProblemQueryProvider,
 	                case JS_NODE:
                         MXMLJSCNode node = new MXMLJSCNode();
                         lastCompiler = node;
+                        node.workingDirectory = workingDirectory;
                         result = node.mainNoExit(removeASArgs(args), problems.getProblems(), false);
                         if (result != MXMLJSCNode.ExitCode.SUCCESS.getCode() && result != MXMLJSCNode.ExitCode.WATCHING.getCode())
                         {
@@ -370,6 +396,7 @@ public class MXMLJSC implements JSCompilerEntryPoint, ProblemQueryProvider,
                     case JS_NODE_MODULE:
                         MXMLJSCNodeModule nodeModule = new MXMLJSCNodeModule();
                         lastCompiler = nodeModule;
+                        nodeModule.workingDirectory = workingDirectory;
                         result = nodeModule.mainNoExit(removeASArgs(args), problems.getProblems(), false);
                         if (result != MXMLJSCNodeModule.ExitCode.SUCCESS.getCode() && result != MXMLJSCNodeModule.ExitCode.WATCHING.getCode())
                         {
@@ -379,6 +406,7 @@ public class MXMLJSC implements JSCompilerEntryPoint, ProblemQueryProvider,
 	                case JS_NATIVE:
 	                	MXMLJSCNative jsc = new MXMLJSCNative();
 	                	lastCompiler = jsc;
+	                	jsc.workingDirectory = workingDirectory;
 	                    result = jsc.mainNoExit(removeASArgs(args), problems.getProblems(), false);
                         if (result != MXMLJSCNative.ExitCode.SUCCESS.getCode() && result != MXMLJSCNative.ExitCode.WATCHING.getCode())
 	                    {
@@ -420,10 +448,16 @@ public class MXMLJSC implements JSCompilerEntryPoint, ProblemQueryProvider,
         }
         finally
         {
-            if (!config.getWatch() || !ExitCode.SUCCESS.equals(exitCode))
+            if (!keepWorkspaceOpen && (!config.getWatch() || !ExitCode.SUCCESS.equals(exitCode)))
             {
                 waitAndClose();
             }
+            else
+            {
+                // the workspace is kept open for the next build, so write
+                // the profiling report of this build now
+                workspace.writeProfilingReport();
+            }
 
             if (outProblems != null && problems.hasFilteredProblems())
             {
@@ -453,7 +487,9 @@ public class MXMLJSC implements JSCompilerEntryPoint, ProblemQueryProvider,
     			  arg.startsWith("-compiler.js-define") ||
     			  arg.startsWith("-js-output") ||
     			  arg.startsWith("-js-vector-emulation-class") ||
+    			  arg.startsWith("-js-parallel-emit") ||
     			  arg.startsWith("-externs-report") ||
+    			  arg.startsWith("-goog-deps-index") ||
     			  arg.startsWith("-js-load-config") ||
     			  arg.startsWith("-warn-public-vars") ||
     			  arg.startsWith("-export-protected-symbols") ||
@@ -579,6 +615,8 @@ public class MXMLJSC implements JSCompilerEntryPoint, ProblemQueryProvider,
     public boolean configure(final String[] args)
     {
     	projectConfigurator = new RoyaleProjectConfigurator(configurationClass);
+        projectConfigurator.setWorkingDirectory(workingDirectory);
+    	targetSettings = null;
     	
         try
         {
@@ -655,7 +693,7 @@ public class MXMLJSC implements JSCompilerEntryPoint, ProblemQueryProvider,
             if (problems.hasErrors())
                 return false;
 
-            DefinitionBase.setPerformanceCachingEnabled(!config.getWatch());
+            DefinitionBase.setPerformanceCachingEnabled(!config.getWatch() && !keepWorkspaceOpen);
             
             return true;
         }
@@ -764,6 +802,22 @@ public class MXMLJSC implements JSCompilerEntryPoint, ProblemQueryProvider,
         }
     }
 
+    /**
+     * Returns the compiler that the previous call to
+     * {@link #mainNoExit(String[], List, Boolean)} used for a target, so that
+     * its workspace can be reused.
+     * 
+     * @param compilerClass The exact class of the compiler.
+     * @return The compiler, or null if the workspaces are not kept open or
+     * there is no previous compiler of the specified class.
+     */
+    protected <T extends JSCompilerEntryPoint> T getReusableCompiler(Class<T> compilerClass)
+    {
+        if (keepWorkspaceOpen && lastCompiler != null && lastCompiler.getClass() == compilerClass)
+            return compilerClass.cast(lastCompiler);
+        return null;
+    }
+
     /**
      * Force terminate the compilation process.
      */
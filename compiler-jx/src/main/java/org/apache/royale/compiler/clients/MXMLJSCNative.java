@@ -183,6 +183,11 @@ public class MXMLJSCNative implements JSCompilerEntryPoint, ProblemQueryProvider
     protected ITargetSettings targetSettings;
     protected IJSApplication jsTarget;
     private IJSGoogPublisher jsPublisher;
+
+    /**
+     * @see Configurator#setWorkingDirectory(String)
+     */
+    public String workingDirectory;
     
     public MXMLJSCNative()
     {
@@ -281,6 +286,12 @@ public class MXMLJSCNative implements JSCompilerEntryPoint, ProblemQueryProvider
             {
                 waitAndClose();
             }
+            else
+            {
+                // the workspace is kept open for the next build, so write
+                // the profiling report of this build now
+                workspace.writeProfilingReport();
+            }
 
             if (outProblems != null && problems.hasFilteredProblems())
             {
@@ -722,6 +733,7 @@ public class MXMLJSCNative implements JSCompilerEntryPoint, ProblemQueryProvider
     {
         project.getSourceCompilationUnitFactory().addHandler(asFileHandler);
         project.configurator = projectConfigurator = createConfigurator();
+        projectConfigurator.setWorkingDirectory(workingDirectory);
 
         try
         {
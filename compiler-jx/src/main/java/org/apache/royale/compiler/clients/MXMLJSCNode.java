@@ -184,6 +184,11 @@ public class MXMLJSCNode implements JSCompilerEntryPoint, ProblemQueryProvider,
     protected IJSApplication jsTarget;
     private IJSGoogPublisher jsPublisher;
 
+    /**
+     * @see Configurator#setWorkingDirectory(String)
+     */
+    public String workingDirectory;
+
     public MXMLJSCNode()
     {
         this(new NodeBackend());
@@ -284,6 +289,12 @@ public class MXMLJSCNode implements JSCompilerEntryPoint, ProblemQueryProvider,
             {
                 waitAndClose();
             }
+            else
+            {
+                // the workspace is kept open for the next build, so write
+                // the profiling report of this build now
+                workspace.writeProfilingReport();
+            }
 
             if (outProblems != null && problems.hasFilteredProblems())
             {
@@ -725,6 +736,7 @@ public class MXMLJSCNode implements JSCompilerEntryPoint, ProblemQueryProvider,
     {
         project.getSourceCompilationUnitFactory().addHandler(asFileHandler);
         project.configurator = projectConfigurator = createConfigurator();
+        projectConfigurator.setWorkingDirectory(workingDirectory);
 
         try
         {
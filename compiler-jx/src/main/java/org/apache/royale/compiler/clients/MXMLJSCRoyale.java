@@ -31,6 +31,10 @@ import java.io.InputStreamReader;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import org.apache.commons.io.FilenameUtils;
 import org.apache.royale.compiler.clients.MXMLJSC.JSTargetType;
@@ -205,6 +209,18 @@ public class MXMLJSCRoyale implements JSCompilerEntryPoint, ProblemQueryProvider
     protected ITargetSettings targetSettings;
     protected IJSApplication jsTarget;
     private IJSGoogPublisher jsPublisher;
+
+    /**
+     * If true, the workspace is not closed after compiling, and the next call
+     * to {@link #mainNoExit(String[], List, Boolean)} only rebuilds the
+     * compilation units that were invalidated in the meantime.
+     */
+    public boolean keepWorkspaceOpen;
+
+    /**
+     * @see Configurator#setWorkingDirectory(String)
+     */
+    public String workingDirectory;
     
     public MXMLJSCRoyale()
     {
@@ -302,10 +318,16 @@ public class MXMLJSCRoyale implements JSCompilerEntryPoint, ProblemQueryProvider
         }
         finally
         {
-            if (!config.getWatch() || !ExitCode.SUCCESS.equals(exitCode))
+            if (!keepWorkspaceOpen && (!config.getWatch() || !ExitCode.SUCCESS.equals(exitCode)))
             {
                 waitAndClose();
             }
+            else
+            {
+                // the workspace is kept open for the next build, so write
+                // the profiling report of this build now
+                workspace.writeProfilingReport();
+            }
 
             if (outProblems != null && problems.hasFilteredProblems())
             {
@@ -447,11 +469,19 @@ public class MXMLJSCRoyale implements JSCompilerEntryPoint, ProblemQueryProvider
 	                    	outputResourceBundle((ResourceBundleCompilationUnit)cu, outputFolder);
 	                    }
 	                }
-	                for (final ICompilationUnit cu : reachableCompilationUnits)
+	                if (googConfiguration.getJsParallelEmit())
+	                {
+	                    writeCompilationUnitsInParallel(reachableCompilationUnits, outputFolder,
+	                            closurePropNamesToKeep, closureSymbolNamesToExport);
+	                }
+	                else
 	                {
-                        writeCompilationUnit(cu, outputFolder);
-                        ClosureUtils.collectPropertyNamesToKeep(cu, project, closurePropNamesToKeep);
-                        ClosureUtils.collectSymbolNamesToExport(cu, project, closureSymbolNamesToExport);
+		                for (final ICompilationUnit cu : reachableCompilationUnits)
+		                {
+	                        writeCompilationUnit(cu, outputFolder);
+	                        ClosureUtils.collectPropertyNamesToKeep(cu, project, closurePropNamesToKeep);
+	                        ClosureUtils.collectSymbolNamesToExport(cu, project, closureSymbolNamesToExport);
+		                }
 	                }
 	                File externsReportFile = googConfiguration.getExternsReport();
 	                if (externsReportFile != null)
@@ -491,7 +521,151 @@ public class MXMLJSCRoyale implements JSCompilerEntryPoint, ProblemQueryProvider
         return compilationSuccess && (errs.size() == 0);
     }
 
+    /**
+     * Emits each of the compilation units in parallel and collects the names
+     * that Closure Compiler should keep and export. The names are merged in
+     * the same order as the serial loop in {@link #compile()}, so the
+     * published output does not change.
+     */
+    private void writeCompilationUnitsInParallel(List<ICompilationUnit> units, final File outputFolder,
+            Set<String> closurePropNamesToKeep, LinkedHashSet<String> closureSymbolNamesToExport)
+            throws InterruptedException, IOException
+    {
+        List<ClosureNames> results = emitCompilationUnitsInParallel(units, new ICompilationUnitEmitter<ClosureNames>()
+        {
+            @Override
+            public ClosureNames emit(ICompilationUnit cu, List<ICompilerProblem> unitProblems)
+                    throws InterruptedException, IOException
+            {
+                writeCompilationUnit(cu, outputFolder, unitProblems);
+                ClosureNames names = new ClosureNames();
+                ClosureUtils.collectPropertyNamesToKeep(cu, project, names.propertyNamesToKeep);
+                ClosureUtils.collectSymbolNamesToExport(cu, project, names.symbolNamesToExport);
+                return names;
+            }
+        });
+        for (ClosureNames names : results)
+        {
+            closurePropNamesToKeep.addAll(names.propertyNamesToKeep);
+            closureSymbolNamesToExport.addAll(names.symbolNamesToExport);
+        }
+    }
+
+    /**
+     * The Closure Compiler names collected from a single compilation unit.
+     */
+    private static class ClosureNames
+    {
+        final Set<String> propertyNamesToKeep = new HashSet<String>();
+        final LinkedHashSet<String> symbolNamesToExport = new LinkedHashSet<String>();
+    }
+
+    /**
+     * Emits a single compilation unit as part of
+     * {@link MXMLJSCRoyale#emitCompilationUnitsInParallel(List, ICompilationUnitEmitter)}.
+     */
+    protected static interface ICompilationUnitEmitter<T>
+    {
+        /**
+         * Emits the compilation unit. This is called from a thread in the
+         * workspace's pool, so any problems must be added to
+         * {@code unitProblems} instead of the shared problem query.
+         */
+        T emit(ICompilationUnit cu, List<ICompilerProblem> unitProblems)
+                throws InterruptedException, IOException;
+    }
+
+    /**
+     * Runs the emitter over each of the compilation units using the
+     * workspace's {@link ExecutorService}.
+     * <p>
+     * The main compilation unit reads state on the project that other units
+     * set while they are emitted, such as {@link RoyaleJSProject#needLanguage},
+     * so it is emitted only after all of the units before it have finished.
+     * Once every unit is done, the problems from each unit are added to the
+     * problem query in the original order.
+     * 
+     * @return The emitter's results, in the same order as {@code units}.
+     */
+    protected <T> List<T> emitCompilationUnitsInParallel(List<ICompilationUnit> units,
+            final ICompilationUnitEmitter<T> emitter) throws InterruptedException, IOException
+    {
+        final int n = units.size();
+        final List<List<ICompilerProblem>> unitProblems = new ArrayList<List<ICompilerProblem>>(n);
+        for (int i = 0; i < n; i++)
+        {
+            unitProblems.add(new ArrayList<ICompilerProblem>());
+        }
+        final List<T> results = new ArrayList<T>(Collections.<T>nCopies(n, null));
+
+        int mainIndex = mainCU != null ? units.indexOf(mainCU) : -1;
+        if (mainIndex == -1)
+        {
+            emitInParallel(units, 0, n, emitter, unitProblems, results);
+        }
+        else
+        {
+            emitInParallel(units, 0, mainIndex, emitter, unitProblems, results);
+            results.set(mainIndex, emitter.emit(mainCU, unitProblems.get(mainIndex)));
+            emitInParallel(units, mainIndex + 1, n, emitter, unitProblems, results);
+        }
+
+        for (List<ICompilerProblem> p : unitProblems)
+        {
+            problems.addAll(p);
+        }
+        return results;
+    }
+
+    private <T> void emitInParallel(List<ICompilationUnit> units, int start, int end,
+            final ICompilationUnitEmitter<T> emitter,
+            List<List<ICompilerProblem>> unitProblems, List<T> results)
+            throws InterruptedException, IOException
+    {
+        ExecutorService executorService = workspace.getExecutorService();
+        List<Future<T>> futures = new ArrayList<Future<T>>(end - start);
+        for (int i = start; i < end; i++)
+        {
+            final ICompilationUnit cu = units.get(i);
+            final List<ICompilerProblem> p = unitProblems.get(i);
+            futures.add(executorService.submit(new Callable<T>()
+            {
+                @Override
+                public T call() throws Exception
+                {
+                    return emitter.emit(cu, p);
+                }
+            }));
+        }
+        for (int i = start; i < end; i++)
+        {
+            try
+            {
+                results.set(i, futures.get(i - start).get());
+            }
+            catch (ExecutionException e)
+            {
+                Throwable cause = e.getCause();
+                if (cause instanceof IOException)
+                    throw (IOException) cause;
+                if (cause instanceof InterruptedException)
+                    throw (InterruptedException) cause;
+                if (cause instanceof RuntimeException)
+                    throw (RuntimeException) cause;
+                if (cause instanceof Error)
+                    throw (Error) cause;
+                throw new RuntimeException(cause);
+            }
+        }
+    }
+
     protected void writeCompilationUnit(ICompilationUnit cu, File outputFolder) throws InterruptedException, IOException
+    {
+        writeCompilationUnit(cu, outputFolder, problems.getProblems());
+    }
+
+    private void writeCompilationUnit(ICompilationUnit cu, File outputFolder,
+            List<ICompilerProblem> unitProblems) throws InterruptedException, IOException
     {
         ICompilationUnit.UnitType cuType = cu.getCompilationUnitType();
         if (cuType != ICompilationUnit.UnitType.AS_UNIT
@@ -514,12 +688,12 @@ public class MXMLJSCRoyale implements JSCompilerEntryPoint, ProblemQueryProvider
         if (cuType == ICompilationUnit.UnitType.AS_UNIT)
         {
             writer = (IJSWriter) project.getBackend().createWriter(project,
-                    problems.getProblems(), unit, false);
+                    unitProblems, unit, false);
         }
         else
         {
             writer = (IJSWriter) project.getBackend().createMXMLWriter(
-                    project, problems.getProblems(), unit, false);
+                    project, unitProblems, unit, false);
         }
 
         BufferedOutputStream out = new BufferedOutputStream(
@@ -1161,6 +1335,8 @@ public class MXMLJSCRoyale implements JSCompilerEntryPoint, ProblemQueryProvider
     {
         project.getSourceCompilationUnitFactory().addHandler(asFileHandler);
         project.configurator = projectConfigurator = createConfigurator();
+        projectConfigurator.setWorkingDirectory(workingDirectory);
+        targetSettings = null;
 
         try
         {
@@ -1194,7 +1370,7 @@ public class MXMLJSCRoyale implements JSCompilerEntryPoint, ProblemQueryProvider
 
             validateTargetFile();
 
-            DefinitionBase.setPerformanceCachingEnabled(!config.getWatch());
+            DefinitionBase.setPerformanceCachingEnabled(!config.getWatch() && !keepWorkspaceOpen);
 
             return true;
         }
@@ -185,6 +185,11 @@ public class MXMLJSCRoyaleCordova implements JSCompilerEntryPoint, ProblemQueryP
     protected ITargetSettings targetSettings;
     protected IJSApplication jsTarget;
     private IJSGoogPublisher jsPublisher;
+
+    /**
+     * @see Configurator#setWorkingDirectory(String)
+     */
+    public String workingDirectory;
     
     public MXMLJSCRoyaleCordova()
     {
@@ -286,6 +291,12 @@ public class MXMLJSCRoyaleCordova implements JSCompilerEntryPoint, ProblemQueryP
             {
                 waitAndClose();
             }
+            else
+            {
+                // the workspace is kept open for the next build, so write
+                // the profiling report of this build now
+                workspace.writeProfilingReport();
+            }
 
             if (outProblems != null && problems.hasFilteredProblems())
             {
@@ -727,6 +738,7 @@ public class MXMLJSCRoyaleCordova implements JSCompilerEntryPoint, ProblemQueryP
     {
         project.getSourceCompilationUnitFactory().addHandler(asFileHandler);
         project.configurator = projectConfigurator = createConfigurator();
+        projectConfigurator.setWorkingDirectory(workingDirectory);
 
         try
         {
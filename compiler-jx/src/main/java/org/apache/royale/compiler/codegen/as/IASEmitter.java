@@ -48,6 +48,15 @@ public interface IASEmitter extends INestingEmitter
 
     String postProcess(String output);
 
+    /**
+     * Post-processes the emitted output in place. Only the regions that
+     * change are replaced, so the whole output does not need to be copied to
+     * a {@link String}.
+     * 
+     * @param output The emitted output.
+     */
+    void postProcess(StringBuffer output);
+
     void emitImport(IImportNode node);
 
     void emitPackageHeader(IPackageDefinition definition);
@@ -66,6 +66,14 @@ public interface IMXMLEmitter extends IEmitter
     IBlockWalker getMXMLWalker();
 
     String postProcess(String output);
+
+    /**
+     * Post-processes the emitted output in place.
+     * 
+     * @param output The emitted output.
+     * @see #postProcess(String)
+     */
+    void postProcess(StringBuffer output);
     
     void setMXMLWalker(IBlockWalker mxmlBlockWalker);
 
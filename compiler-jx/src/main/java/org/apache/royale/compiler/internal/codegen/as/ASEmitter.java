@@ -172,6 +172,17 @@ public class ASEmitter implements IASEmitter, IEmitter
     {
     	return output;
     }
+
+    @Override
+    public void postProcess(StringBuffer output)
+    {
+        String original = output.toString();
+        String processed = postProcess(original);
+        if (processed != original)
+        {
+            output.replace(0, output.length(), processed);
+        }
+    }
     
     @Override
     public void write(IEmitterTokens value)
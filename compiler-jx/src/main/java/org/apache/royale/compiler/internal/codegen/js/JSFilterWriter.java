@@ -19,6 +19,7 @@
 
 package org.apache.royale.compiler.internal.codegen.js;
 
+import java.io.StringWriter;
 import java.io.Writer;
 
 import org.apache.royale.compiler.internal.codegen.as.ASFilterWriter;
@@ -34,6 +35,19 @@ public class JSFilterWriter extends ASFilterWriter
         super(out);
     }
 
+    /**
+     * @return The buffer that holds the emitted output, which may be
+     * modified in place.
+     */
+    public StringBuffer getBuffer()
+    {
+        if (out instanceof StringWriter)
+        {
+            return ((StringWriter) out).getBuffer();
+        }
+        return new StringBuffer(out.toString());
+    }
+
     @Override
     public String toString()
     {
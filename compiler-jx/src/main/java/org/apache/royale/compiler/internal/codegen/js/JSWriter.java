@@ -22,6 +22,8 @@ package org.apache.royale.compiler.internal.codegen.js;
 import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.util.List;
 import java.util.Stack;
 
@@ -37,6 +39,8 @@ import org.apache.royale.compiler.visitor.as.IASBlockWalker;
 
 public class JSWriter implements IJSWriter
 {
+    private static final int WRITE_CHUNK_SIZE = 8192;
+
     protected RoyaleJSProject project;
 
     protected List<ICompilerProblem> problems;
@@ -99,13 +103,13 @@ public class JSWriter implements IJSWriter
         
         try
         {
-            String emitted = writer.toString();
+            StringBuffer emitted = writer.getBuffer();
             if(!isExterns)
             {
                 //nothing to post-process in externs
-                emitted = emitter.postProcess(emitted);
+                emitter.postProcess(emitted);
             }
-            jsOut.write(emitted.getBytes("utf8"));
+            writeUTF8(emitted, jsOut);
         }
         catch (IOException e)
         {
@@ -145,6 +149,22 @@ public class JSWriter implements IJSWriter
         }
     }
     
+    /**
+     * Encodes the emitted output as UTF-8 directly to the stream, a chunk at
+     * a time, instead of copying all of it to a String and a byte[] first.
+     * The stream is flushed, but not closed.
+     */
+    protected void writeUTF8(CharSequence emitted, OutputStream out) throws IOException
+    {
+        Writer utf8Out = new OutputStreamWriter(out, "utf8");
+        int length = emitted.length();
+        for (int i = 0; i < length; i += WRITE_CHUNK_SIZE)
+        {
+            utf8Out.append(emitted, i, Math.min(length, i + WRITE_CHUNK_SIZE));
+        }
+        utf8Out.flush();
+    }
+
     protected void convertMappingSourcePathsToRelative(IMappingEmitter emitter, File relativeToFile)
     {
         List<IMappingEmitter.SourceMapMapping> mappings = emitter.getSourceMapMappings();
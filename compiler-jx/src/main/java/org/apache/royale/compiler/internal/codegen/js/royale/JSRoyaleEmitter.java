@@ -305,6 +305,71 @@ public class JSRoyaleEmitter extends JSGoogEmitter implements IJSRoyaleEmitter
     	return Joiner.on("\n").join(finalLines);
     }
 
+    /**
+     * Only the lines up to the end of the goog.require() block are changed by
+     * postProcess(String), so only that region of the output is replaced.
+     */
+    @Override
+    public void postProcess(StringBuffer output)
+    {
+        int headerEnd = getRequiresEnd(output);
+        if (headerEnd == -1)
+        {
+            super.postProcess(output);
+            return;
+        }
+        String processed = postProcess(output.substring(0, headerEnd));
+        output.replace(0, headerEnd, processed);
+        // postProcess(String) splits the whole output into lines, which drops
+        // the empty lines at the end of the file
+        int length = output.length();
+        while (length > 0 && output.charAt(length - 1) == '\n')
+        {
+            length--;
+        }
+        output.setLength(length);
+    }
+
+    /**
+     * Finds the end of the first non-empty line after the goog.require()
+     * block. postProcess(String) does not change anything after the first
+     * line after the block, and String.split() would drop an empty line at
+     * the end of the region.
+     * 
+     * @return The index of the end of the line, or -1 if the
+     * goog.require() block does not end before the last line.
+     */
+    public static int getRequiresEnd(StringBuffer output)
+    {
+        String requireToken = JSGoogEmitterTokens.GOOG_REQUIRE.getToken();
+        boolean sawRequires = false;
+        int nextRequire = output.indexOf(requireToken);
+        int lineStart = 0;
+        int length = output.length();
+        while (lineStart < length)
+        {
+            int lineEnd = output.indexOf("\n", lineStart);
+            if (lineEnd == -1)
+            {
+                return -1;
+            }
+            if (nextRequire != -1 && nextRequire < lineStart)
+            {
+                nextRequire = output.indexOf(requireToken, lineStart);
+            }
+            if (nextRequire != -1 && nextRequire < lineEnd)
+            {
+                sawRequires = true;
+            }
+            else if (sawRequires && lineEnd > lineStart)
+            {
+                return lineEnd;
+            }
+            lineStart = lineEnd + 1;
+        }
+        return -1;
+    }
+
     public String formatGetter(String name) {
         String prefix = JSRoyaleEmitterTokens.GETTER_PREFIX.getToken();
         RoyaleJSProject project = (RoyaleJSProject) getWalker().getProject();
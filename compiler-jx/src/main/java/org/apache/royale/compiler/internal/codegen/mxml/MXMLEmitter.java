@@ -45,6 +45,17 @@ public class MXMLEmitter extends Emitter implements IMXMLEmitter
         return output;
     }
 
+    @Override
+    public void postProcess(StringBuffer output)
+    {
+        String original = output.toString();
+        String processed = postProcess(original);
+        if (processed != original)
+        {
+            output.replace(0, output.length(), processed);
+        }
+    }
+
     //--------------------------------------------------------------------------
     //    walkers
     //--------------------------------------------------------------------------
@@ -70,7 +70,9 @@ public class MXMLWriter extends JSWriter
 
         try
         {
-            out.write(mxmlEmitter.postProcess(writer.toString()).getBytes("utf8"));
+            StringBuffer emitted = writer.getBuffer();
+            mxmlEmitter.postProcess(emitted);
+            writeUTF8(emitted, out);
         }
         catch (IOException e)
         {
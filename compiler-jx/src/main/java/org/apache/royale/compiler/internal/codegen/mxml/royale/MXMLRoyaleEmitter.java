@@ -186,6 +186,49 @@ public class MXMLRoyaleEmitter extends MXMLEmitter implements
 
     @Override
     public String postProcess(String output)
+    {
+        return postProcess(output, null);
+    }
+
+    /**
+     * Only the lines up to the end of the goog.require() block are changed by
+     * postProcess(String), except for the info() and cssData that are
+     * appended to the main application, so only that region of the output is
+     * replaced, and the appended lines are added to its end.
+     */
+    @Override
+    public void postProcess(StringBuffer output)
+    {
+        int headerEnd = JSRoyaleEmitter.getRequiresEnd(output);
+        if (headerEnd == -1)
+        {
+            super.postProcess(output);
+            return;
+        }
+        List<String> appendedLines = new ArrayList<String>();
+        String processed = postProcess(output.substring(0, headerEnd), appendedLines);
+        output.replace(0, headerEnd, processed);
+        // postProcess(String) splits the whole output into lines, which drops
+        // the empty lines at the end of the file
+        int length = output.length();
+        while (length > 0 && output.charAt(length - 1) == '\n')
+        {
+            length--;
+        }
+        output.setLength(length);
+        for (String line : appendedLines)
+        {
+            output.append('\n');
+            output.append(line);
+        }
+    }
+
+    /**
+     * @param appendedLines If not null, the lines that are appended to the
+     * end of the output are added to this list instead, because the output is
+     * only the beginning of the file.
+     */
+    private String postProcess(String output, List<String> appendedLines)
     {
         IASEmitter asEmitter = ((IMXMLBlockWalker) getMXMLWalker()).getASEmitter();
         ArrayList<String> asEmitterUsedNames = ((JSRoyaleEmitter)asEmitter).usedNames;
@@ -601,13 +644,7 @@ public class MXMLRoyaleEmitter extends MXMLEmitter implements
 	            		}
 	            	}
 	            	infoInject += "}};";
-                    finalLines.add(infoInject);
-                    int newLineIndex = 0;
-                    while((newLineIndex = infoInject.indexOf('\n', newLineIndex)) != -1)
-                    {
-                        addLineToMappings(finalLines.size());
-                        newLineIndex++;
-                    }
+                    appendLine(finalLines, appendedLines, infoInject);
 
                     String cssInject = "\n\n" + thisDef + ".prototype.cssData = [";
                     JSCSSCompilationSession cssSession = (JSCSSCompilationSession) royaleProject.getCSSCompilationSession();
@@ -628,13 +665,7 @@ public class MXMLRoyaleEmitter extends MXMLEmitter implements
                             }
                         }
                         cssInject += s;
-                        finalLines.add(cssInject);
-                        newLineIndex = 0;
-                        while((newLineIndex = cssInject.indexOf('\n', newLineIndex)) != -1)
-                        {
-                            addLineToMappings(finalLines.size());
-                            newLineIndex++;
-                        }
+                        appendLine(finalLines, appendedLines, cssInject);
                     }
 	            }
             }
@@ -666,6 +697,28 @@ public class MXMLRoyaleEmitter extends MXMLEmitter implements
     	return Joiner.on("\n").join(finalLines);
     }
 
+    /**
+     * Appends a line to the end of the output, or to the appended lines if
+     * only the beginning of the output is post-processed. No mapped line
+     * follows the appended lines, so the mappings are only adjusted, as
+     * before, in the first case.
+     */
+    private void appendLine(ArrayList<String> finalLines, List<String> appendedLines, String line)
+    {
+        if (appendedLines != null)
+        {
+            appendedLines.add(line);
+            return;
+        }
+        finalLines.add(line);
+        int newLineIndex = 0;
+        while((newLineIndex = line.indexOf('\n', newLineIndex)) != -1)
+        {
+            addLineToMappings(finalLines.size());
+            newLineIndex++;
+        }
+    }
+
     private String getSubFileContent(List<String> subfileLines) {
     	StringBuffer sb = new StringBuffer();
     	for (String s : subfileLines)
@@ -599,8 +599,9 @@ public class MXMLRoyalePublisher extends JSGoogPublisher implements IJSGoogPubli
             compilerWrapper.setSourceMap(googConfiguration.getSourceMap());
             compilerWrapper.setVerbose(googConfiguration.isVerbose());
             compilerWrapper.setPreventRenameMxmlSymbolReferences(googConfiguration.getPreventRenameMxmlSymbolReferences());
+            compilerWrapper.setCacheDirectory(googConfiguration.getJsCompilerCacheDirectory());
 
-            ok = compilerWrapper.compile();
+            ok = compilerWrapper.compile(problems);
 
             // FOR MODULES: add additionalScript to main js release file too
             if (project.isModule(mainClassQName))
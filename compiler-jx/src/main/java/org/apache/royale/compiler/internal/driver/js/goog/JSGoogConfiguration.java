@@ -285,7 +285,31 @@ public class JSGoogConfiguration extends JSConfiguration
     {
     	skipTranspile = value;
     }
-    
+
+    //
+    // 'js-parallel-emit'
+    //
+
+    private boolean jsParallelEmit = false;
+
+    /**
+     * Whether the JavaScript for each compilation unit is emitted on the
+     * workspace's thread pool instead of one unit at a time. The output is
+     * the same either way.
+     */
+    public boolean getJsParallelEmit()
+    {
+        return jsParallelEmit;
+    }
+
+    @Config(advanced = true)
+    @Mapping("js-parallel-emit")
+    public void setJsParallelEmit(ConfigurationValue cv, boolean value)
+            throws ConfigurationException
+    {
+        jsParallelEmit = value;
+    }
+
     
     
     protected String getAbsolutePathFromPathRelativeToMXMLC(String relativePath)
@@ -963,7 +987,56 @@ public class JSGoogConfiguration extends JSConfiguration
     {
         this.externsReportFileName = getOutputPath(cv, filename);
     }
-    
+
+    //
+    // 'goog-deps-index' option
+    //
+
+    private String googDepsIndexFileName = null;
+
+    public File getGoogDepsIndex()
+    {
+        return googDepsIndexFileName != null ? new File(googDepsIndexFileName) : null;
+    }
+
+    /**
+     * Stores the goog.provide and goog.require information that is scanned
+     * from each .js file in the specified file, so that files that have not
+     * changed since the last build do not need to be scanned again.
+     */
+    @Config(advanced = true)
+    @Mapping("goog-deps-index")
+    @Arguments("filename")
+    public void setGoogDepsIndex(ConfigurationValue cv, String filename)
+    {
+        this.googDepsIndexFileName = getOutputPath(cv, filename);
+    }
+
+    //
+    // 'js-compiler-cache-directory' option
+    //
+
+    private String jsCompilerCacheDirectoryName = null;
+
+    public File getJsCompilerCacheDirectory()
+    {
+        return jsCompilerCacheDirectoryName != null ? new File(jsCompilerCacheDirectoryName) : null;
+    }
+
+    /**
+     * Stores the output of the release build optimization by Google Closure
+     * Compiler in the specified directory. When the sources, externs and
+     * options of the next release build are the same, the stored output is
+     * used instead of running Closure Compiler again.
+     */
+    @Config(advanced = true)
+    @Mapping("js-compiler-cache-directory")
+    @Arguments("directory")
+    public void setJsCompilerCacheDirectory(ConfigurationValue cv, String directory)
+    {
+        this.jsCompilerCacheDirectoryName = getOutputPath(cv, directory);
+    }
+
     
     /**
      * Support for reflection data output to represent selected config options
@@ -0,0 +1,360 @@
+/*
+ *
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.royale.compiler.internal.graph;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.royale.compiler.internal.graph.GoogDepsWriter.FileInfo;
+
+import com.google.common.io.Files;
+
+/**
+ * A persistent index of the {@link FileInfo} that {@link GoogDepsWriter}
+ * scans from each .js file. Entries are keyed by the path of the file, and
+ * are only used if the file's modification time and length match, or if the
+ * MD5 hash of its contents matches. Files that are copied from a SWC on every
+ * build, but which never change, are matched by their hash.
+ */
+public class GoogDepsIndex
+{
+    private static final int MAGIC = 0x52474449; // "RGDI"
+    private static final int VERSION = 2;
+
+    /**
+     * Creates an index that is stored in the specified file.
+     *
+     * @param indexFile The file that the index is loaded from and saved to.
+     */
+    public GoogDepsIndex(File indexFile)
+    {
+        this.indexFile = indexFile;
+    }
+
+    private final File indexFile;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+    private final AtomicInteger hits = new AtomicInteger();
+    private final AtomicInteger misses = new AtomicInteger();
+
+    /**
+     * Loads the index from its file. A missing, unreadable or out of date
+     * index file is ignored, and every file will be scanned again.
+     */
+    public void load()
+    {
+        entries.clear();
+        if (!indexFile.exists())
+            return;
+        DataInputStream in = null;
+        try
+        {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)));
+            if (in.readInt() != MAGIC || in.readInt() != VERSION)
+                return;
+            int n = in.readInt();
+            for (int i = 0; i < n; i++)
+            {
+                Entry entry = readEntry(in);
+                entries.put(entry.path, entry);
+            }
+        }
+        catch (IOException e)
+        {
+            entries.clear();
+        }
+        finally
+        {
+            if (in != null)
+            {
+                try
+                {
+                    in.close();
+                }
+                catch (IOException e)
+                {
+                }
+            }
+        }
+    }
+
+    /**
+     * Saves the index to its file. Entries for files that no longer exist are
+     * dropped.
+     *
+     * @throws IOException
+     */
+    public void save() throws IOException
+    {
+        File parent = indexFile.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists())
+            parent.mkdirs();
+        List<Entry> entriesToSave = new ArrayList<Entry>();
+        for (Entry entry : entries.values())
+        {
+            if (new File(entry.path).exists())
+                entriesToSave.add(entry);
+        }
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexFile)));
+        try
+        {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(entriesToSave.size());
+            for (Entry entry : entriesToSave)
+            {
+                writeEntry(out, entry);
+            }
+        }
+        finally
+        {
+            out.close();
+        }
+    }
+
+    /**
+     * Gets a copy of the indexed {@link FileInfo} for the specified file.
+     *
+     * @param file The .js file.
+     * @param className The name of the class that the file provides.
+     * @return The {@link FileInfo}, or {@code null} if the file is not in the
+     * index or has changed.
+     */
+    FileInfo get(File file, String className) throws IOException
+    {
+        Entry entry = entries.get(file.getAbsolutePath());
+        if (entry == null || !entry.className.equals(className))
+        {
+            misses.incrementAndGet();
+            return null;
+        }
+        long lastModified = file.lastModified();
+        long length = file.length();
+        if (entry.lastModified != lastModified || entry.length != length)
+        {
+            if (!Arrays.equals(entry.hash, hash(Files.toByteArray(file))))
+            {
+                misses.incrementAndGet();
+                return null;
+            }
+            entry.lastModified = lastModified;
+            entry.length = length;
+        }
+        hits.incrementAndGet();
+        return copy(entry.fileInfo);
+    }
+
+    /**
+     * Adds the {@link FileInfo} that was scanned from the specified file to
+     * the index.
+     *
+     * @param file The .js file.
+     * @param className The name of the class that the file provides.
+     * @param contents The contents of the file that were scanned.
+     * @param fileInfo The information that was scanned.
+     */
+    void put(File file, String className, byte[] contents, FileInfo fileInfo)
+    {
+        Entry entry = new Entry();
+        entry.path = file.getAbsolutePath();
+        entry.className = className;
+        entry.lastModified = file.lastModified();
+        entry.length = file.length();
+        entry.hash = hash(contents);
+        entry.fileInfo = copy(fileInfo);
+        entries.put(entry.path, entry);
+    }
+
+    /**
+     * @return The number of files that did not need to be scanned.
+     */
+    public int getHitCount()
+    {
+        return hits.get();
+    }
+
+    /**
+     * @return The number of files that needed to be scanned.
+     */
+    public int getMissCount()
+    {
+        return misses.get();
+    }
+
+    private static byte[] hash(byte[] contents)
+    {
+        try
+        {
+            return MessageDigest.getInstance("MD5").digest(contents);
+        }
+        catch (NoSuchAlgorithmException e)
+        {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * The sort in {@link GoogDepsWriter} adds static dependencies to the
+     * {@link FileInfo}, so the index only ever hands out copies.
+     */
+    private static FileInfo copy(FileInfo fi)
+    {
+        FileInfo result = new FileInfo();
+        result.impls = copy(fi.impls);
+        result.deps = copy(fi.deps);
+        result.staticDeps = copy(fi.staticDeps);
+        result.provides = copy(fi.provides);
+        result.staticInitializers = copy(fi.staticInitializers);
+        result.additionalHTML = copy(fi.additionalHTML);
+        result.constructorLine = fi.constructorLine;
+        result.depsLine = fi.depsLine;
+        result.suppressLine = fi.suppressLine;
+        result.fileoverviewLine = fi.fileoverviewLine;
+        result.googProvideLine = fi.googProvideLine;
+        result.isExtern = fi.isExtern;
+        result.needCSS = fi.needCSS;
+        return result;
+    }
+
+    private static ArrayList<String> copy(ArrayList<String> list)
+    {
+        return list != null ? new ArrayList<String>(list) : null;
+    }
+
+    private static Entry readEntry(DataInputStream in) throws IOException
+    {
+        Entry entry = new Entry();
+        entry.path = readString(in);
+        entry.className = readString(in);
+        entry.lastModified = in.readLong();
+        entry.length = in.readLong();
+        entry.hash = new byte[in.readInt()];
+        in.readFully(entry.hash);
+        FileInfo fi = new FileInfo();
+        fi.impls = readList(in);
+        fi.deps = readList(in);
+        fi.staticDeps = readList(in);
+        fi.provides = readList(in);
+        fi.staticInitializers = readList(in);
+        fi.additionalHTML = readList(in);
+        fi.constructorLine = in.readInt();
+        fi.depsLine = in.readInt();
+        fi.suppressLine = in.readInt();
+        fi.fileoverviewLine = in.readInt();
+        fi.googProvideLine = in.readInt();
+        fi.isExtern = in.readBoolean();
+        fi.needCSS = in.readBoolean();
+        entry.fileInfo = fi;
+        return entry;
+    }
+
+    private static void writeEntry(DataOutputStream out, Entry entry) throws IOException
+    {
+        writeString(out, entry.path);
+        writeString(out, entry.className);
+        out.writeLong(entry.lastModified);
+        out.writeLong(entry.length);
+        out.writeInt(entry.hash.length);
+        out.write(entry.hash);
+        FileInfo fi = entry.fileInfo;
+        writeList(out, fi.impls);
+        writeList(out, fi.deps);
+        writeList(out, fi.staticDeps);
+        writeList(out, fi.provides);
+        writeList(out, fi.staticInitializers);
+        writeList(out, fi.additionalHTML);
+        out.writeInt(fi.constructorLine);
+        out.writeInt(fi.depsLine);
+        out.writeInt(fi.suppressLine);
+        out.writeInt(fi.fileoverviewLine);
+        out.writeInt(fi.googProvideLine);
+        out.writeBoolean(fi.isExtern);
+        out.writeBoolean(fi.needCSS);
+    }
+
+    private static ArrayList<String> readList(DataInputStream in) throws IOException
+    {
+        int n = in.readInt();
+        if (n == -1)
+            return null;
+        ArrayList<String> list = new ArrayList<String>(n);
+        for (int i = 0; i < n; i++)
+        {
+            list.add(readString(in));
+        }
+        return list;
+    }
+
+    private static void writeList(DataOutputStream out, List<String> list) throws IOException
+    {
+        if (list == null)
+        {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(list.size());
+        for (String s : list)
+        {
+            writeString(out, s);
+        }
+    }
+
+    /**
+     * Strings are written as a length and UTF-8 bytes, because
+     * {@link DataOutputStream#writeUTF(String)} is limited to 64K bytes, and
+     * an <code>@royaleinjecthtml</code> block may be larger.
+     */
+    private static String readString(DataInputStream in) throws IOException
+    {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException
+    {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static class Entry
+    {
+        String path;
+        String className;
+        long lastModified;
+        long length;
+        byte[] hash;
+        FileInfo fileInfo;
+    }
+}
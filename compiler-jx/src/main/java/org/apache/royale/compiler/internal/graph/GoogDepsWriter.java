@@ -24,14 +24,22 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.charset.Charset;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
@@ -42,10 +50,13 @@ import org.apache.royale.compiler.config.CompilerDiagnosticsConstants;
 import org.apache.royale.compiler.internal.codegen.js.goog.JSGoogEmitterTokens;
 import org.apache.royale.compiler.internal.driver.js.JSCompilationUnit;
 import org.apache.royale.compiler.internal.driver.js.goog.JSGoogConfiguration;
+import org.apache.royale.compiler.internal.projects.ASProject;
 import org.apache.royale.compiler.internal.projects.CompilerProject;
 import org.apache.royale.compiler.internal.projects.DefinitionPriority;
 import org.apache.royale.compiler.internal.projects.DependencyGraph;
 import org.apache.royale.compiler.internal.projects.RoyaleJSProject;
+import org.apache.royale.compiler.internal.projects.SWCFileEntryIndex;
+import org.apache.royale.compiler.problems.CircularJSDependencyProblem;
 import org.apache.royale.compiler.problems.FileNotFoundProblem;
 import org.apache.royale.compiler.problems.MainDefinitionQNameProblem;
 import org.apache.royale.compiler.problems.UnexpectedExceptionProblem;
@@ -54,6 +65,7 @@ import org.apache.royale.compiler.utils.SourceMapUtils;
 import org.apache.royale.swc.ISWC;
 import org.apache.royale.swc.ISWCFileEntry;
 
+import com.google.common.io.ByteSource;
 import com.google.common.io.Files;
 import com.google.debugging.sourcemap.FilePosition;
 import com.google.debugging.sourcemap.SourceMapConsumerV3;
@@ -81,6 +93,12 @@ public class GoogDepsWriter {
 				System.out.println("using SWC: " + swc.getSWCFile().getAbsolutePath());
 			}
 		}
+		File depsIndexFile = config.getGoogDepsIndex();
+		if (depsIndexFile != null)
+		{
+			depsIndex = new GoogDepsIndex(depsIndexFile);
+			depsIndex.load();
+		}
 	}
 	
 	private ProblemQuery problems;
@@ -89,6 +107,7 @@ public class GoogDepsWriter {
 	private String mainName;
 	private List<String> otherPaths;
 	private List<ISWC> swcs;
+	private SWCFileEntryIndex swcFileEntryIndex;
 	private boolean removeCirculars = false;
 	private boolean sourceMaps = false;
 	private String sourceMapsSourceRoot = null;
@@ -98,6 +117,10 @@ public class GoogDepsWriter {
 	private CompilerProject project;
 	private ArrayList<String> staticInitializers;
 	private ArrayList<String> staticInitializerOwners;
+	private GoogDepsIndex depsIndex;
+	// files are copied from multiple threads, so each asset is only copied once
+	private HashSet<String> missingClasses = new HashSet<String>();
+	private Set<String> copiedAssets = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
 	
 	private HashMap<String, GoogDep> depMap = new HashMap<String,GoogDep>();
 	private HashMap<String, ICompilationUnit> requireMap = new HashMap<String, ICompilationUnit>();
@@ -466,6 +489,21 @@ public class GoogDepsWriter {
 			return false;
 		}
 		addDeps(mainName);
+		if (depsIndex != null)
+		{
+			if (verbose)
+			{
+				System.out.println("goog-deps-index: " + depsIndex.getHitCount() + " files unchanged, " + depsIndex.getMissCount() + " files scanned");
+			}
+			try
+			{
+				depsIndex.save();
+			}
+			catch (IOException e)
+			{
+				System.out.println("Error writing goog-deps-index: " + e.getMessage());
+			}
+		}
 		return true;
 	}
     
@@ -581,109 +619,192 @@ public class GoogDepsWriter {
 		return arr;
 	}
 	
-	private void sortFunction(GoogDep current, List<GoogDep> arr)
+	/**
+	 * Adds the specified class and the classes that it depends on to the
+	 * list, with each class after the classes that it depends on. This walks
+	 * the dependencies with an explicit stack instead of recursion, so that
+	 * long dependency chains do not overflow the stack.
+	 * <p>
+	 * Only cycles of @extends and @implements are reported, because a class
+	 * must be loaded after its base class and interfaces, so no order can
+	 * satisfy such a cycle. Cycles of goog.require are common, because two
+	 * classes may use each other, and are not errors: as in the recursive
+	 * walk, a class that was already visited is skipped, and Closure Compiler
+	 * only needs the requires of base classes and interfaces.
+	 */
+	private void sortFunction(GoogDep root, List<GoogDep> arr)
 	{
-		visited.put(current.className, current);
-		
-		if (removeCirculars)
+		HashSet<String> inProgress = new HashSet<String>();
+		ArrayDeque<SortFrame> stack = new ArrayDeque<SortFrame>();
+		stack.push(new SortFrame(root));
+		while (!stack.isEmpty())
 		{
-			removeRequires(current);
-		}
-		if (verbose)
-		{
-			System.out.println("Dependencies calculated for '" + current.className + "'");
-		}
-
-		ICompilationUnit unit = null;
-		
-		if (removeCirculars)
-		{
-			unit = requireMap.get(current.className);
-			if (unit == null)
+			SortFrame frame = stack.peek();
+			GoogDep current = frame.current;
+			if (frame.stage == SortFrame.ENTER)
 			{
-				unit = new JSCompilationUnit(project, current.filePath, DefinitionPriority.BasePriority.SOURCE_LIST, current.className);
-				graph.addCompilationUnit(unit);
-				requireMap.put(current.className, unit);
-				requireMap2.put(unit, current.className);
+				visited.put(current.className, current);
+				inProgress.add(current.className);
+				
+				if (removeCirculars)
+				{
+					removeRequires(current);
+				}
+				if (verbose)
+				{
+					System.out.println("Dependencies calculated for '" + current.className + "'");
+				}
+				
+				if (removeCirculars)
+				{
+					frame.unit = getOrAddUnit(current.className, current.filePath);
+					if (current.fileInfo.deps == null)
+					{
+						inProgress.remove(current.className);
+						stack.pop();
+						continue;
+					}
+				}
+				frame.stage = SortFrame.IMPLS;
 			}
-			if (current.fileInfo.deps == null)
-				return;
-		}
-		
-		ArrayList<String> impls = current.fileInfo.impls != null ? current.fileInfo.impls : null;
-		if (impls != null)
-		{
-			for (String className : impls)
+			if (frame.stage == SortFrame.IMPLS)
 			{
-				if (!isGoogClass(className))
+				ArrayList<String> impls = current.fileInfo.impls;
+				GoogDep next = null;
+				while (impls != null && frame.index < impls.size())
 				{
+					String className = impls.get(frame.index++);
+					if (isGoogClass(className))
+						continue;
 					GoogDep gd = depMap.get(className);
-					if (gd != null)
+					if (gd == null)
+						continue;
+					if (removeCirculars)
 					{
-						if (removeCirculars)
+						ICompilationUnit base = getOrAddUnit(className, className);
+						if (verbose)
 						{
-							ICompilationUnit base = requireMap.get(className);
-							if (base == null)
-							{
-								base = new JSCompilationUnit(project, className, DefinitionPriority.BasePriority.SOURCE_LIST, className);
-								graph.addCompilationUnit(base);
-								requireMap.put(className, base);
-								requireMap2.put(base, className);
-							}
-							if (verbose)
-							{
-								System.out.println(current.className + " depends on " + className);
-							}
-							graph.addDependency(unit, base, DependencyType.INHERITANCE);
+							System.out.println(current.className + " depends on " + className);
 						}
-						if (!visited.containsKey(className))
+						graph.addDependency(frame.unit, base, DependencyType.INHERITANCE);
+					}
+					if (!visited.containsKey(className))
+					{
+						next = gd;
+						break;
+					}
+					if (inProgress.contains(className))
+					{
+						problems.add(new CircularJSDependencyProblem(getCycle(stack, className)));
+					}
+				}
+				if (next != null)
+				{
+					stack.push(new SortFrame(next));
+					continue;
+				}
+				if (removeCirculars && current.fileInfo.staticDeps != null)
+				{
+					for (String staticDep : current.fileInfo.staticDeps)
+					{
+						ICompilationUnit base = getOrAddUnit(staticDep, staticDep);
+						if (verbose)
 						{
-							sortFunction(gd, arr);
+							System.out.println(current.className + " static initialization depends on " + staticDep);
 						}
+						graph.addDependency(frame.unit, base, DependencyType.INHERITANCE);
 					}
 				}
+				frame.stage = SortFrame.DEPS;
+				frame.index = 0;
 			}
-		}
-		if (removeCirculars)
-		{
-			if (current.fileInfo.staticDeps != null && removeCirculars)
+			ArrayList<String> deps = current.deps;
+			GoogDep next = null;
+			while (frame.index < deps.size())
 			{
-				for (String staticDep : current.fileInfo.staticDeps)
+				String className = deps.get(frame.index++);
+				if (!isGoogClass(className) && isGoogProvided(className))
 				{
-					ICompilationUnit base = requireMap.get(staticDep);
-					if (base == null)
+					GoogDep gd = depMap.get(className);
+					if (gd == null)
 					{
-						base = new JSCompilationUnit(project, staticDep, DefinitionPriority.BasePriority.SOURCE_LIST, staticDep);
-						graph.addCompilationUnit(base);
-						requireMap.put(staticDep, base);
-						requireMap2.put(base, staticDep);
+						if (missingClasses.add(className))
+						{
+							System.out.println("No GoogDep for " + className);
+							problems.add(new FileNotFoundProblem(className));
+						}
+						continue;
 					}
-					if (verbose)
+					if (!visited.containsKey(className))
 					{
-						System.out.println(current.className + " static initialization depends on " + staticDep);
+						next = gd;
+						break;
 					}
-					graph.addDependency(unit, base, DependencyType.INHERITANCE);
 				}
 			}
-		}
-		ArrayList<String> deps = current.deps;
-		for (String className : deps)
-		{
-			if (!isGoogClass(className) && isGoogProvided(className))
+			if (next != null)
 			{
-				GoogDep gd = depMap.get(className);
-				if (gd == null)
-				{
-					System.out.println("No GoogDep for " + className);
-					throw new RuntimeException("Unable to find dependency information for class: " + className);
-				}
-				if (!visited.containsKey(className))
-				{
-					sortFunction(gd, arr);
-				}
+				stack.push(new SortFrame(next));
+				continue;
 			}
+			arr.add(current);
+			inProgress.remove(current.className);
+			stack.pop();
 		}
-		arr.add(current);
+	}
+
+	private ICompilationUnit getOrAddUnit(String className, String filePath)
+	{
+		ICompilationUnit unit = requireMap.get(className);
+		if (unit == null)
+		{
+			unit = new JSCompilationUnit(project, filePath, DefinitionPriority.BasePriority.SOURCE_LIST, className);
+			graph.addCompilationUnit(unit);
+			requireMap.put(className, unit);
+			requireMap2.put(unit, className);
+		}
+		return unit;
+	}
+
+	/**
+	 * Describes the cycle that ends with a reference back to the specified
+	 * class, which is still on the stack.
+	 */
+	private String getCycle(ArrayDeque<SortFrame> stack, String className)
+	{
+		StringBuilder sb = new StringBuilder();
+		Iterator<SortFrame> frames = stack.descendingIterator();
+		boolean inCycle = false;
+		while (frames.hasNext())
+		{
+			String name = frames.next().current.className;
+			if (name.equals(className))
+				inCycle = true;
+			if (inCycle)
+				sb.append(name).append(" -> ");
+		}
+		sb.append(className);
+		return sb.toString();
+	}
+
+	/**
+	 * The state of one class in {@link GoogDepsWriter#sortFunction(GoogDep, List)}.
+	 */
+	private static class SortFrame
+	{
+		static final int ENTER = 0;
+		static final int IMPLS = 1;
+		static final int DEPS = 2;
+
+		SortFrame(GoogDep current)
+		{
+			this.current = current;
+		}
+
+		final GoogDep current;
+		ICompilationUnit unit;
+		int stage = ENTER;
+		int index = 0;
 	}
 	
 	private void addRestOfDeps(GoogDep main, List<String> restOfDeps)
@@ -763,64 +884,194 @@ public class GoogDepsWriter {
 		
 	}
 	
-	private void addDeps(String className)
+	/**
+	 * Adds a {@link GoogDep} to depMap for each class that the specified class
+	 * depends on, directly or indirectly. The files are scanned in parallel by
+	 * {@link #scanFiles(String)}, and then added to depMap in the order of a
+	 * depth-first walk of the dependencies, so that the output does not depend
+	 * on which file was scanned first.
+	 */
+	private void addDeps(String mainClassName)
 	{
-		if (depMap.containsKey(className) || isGoogClass(className) || !isGoogProvided(className))
+		Map<String, FileInfo> fileInfos = scanFiles(mainClassName);
+		ArrayDeque<String> stack = new ArrayDeque<String>();
+		stack.push(mainClassName);
+		while (!stack.isEmpty())
 		{
-			return;
-		}
-		
-		// build goog dependency list
-		GoogDep gd = new GoogDep();
-		gd.className = className;
-		gd.filePath = getFilePath(className);
-		if(gd.filePath.isEmpty()) {
-			// TODO Send a ICompilerProblem instead.
-			throw new RuntimeException("Unable to find JavaScript filePath for class: " + className);
-		}
-		depMap.put(gd.className, gd);
-        List<String> fileLines;
-		try {
-			fileLines = Files.readLines(new File(gd.filePath), Charset.forName("utf8"));
-            FileInfo fi = getFileInfo(fileLines, className);
+			String className = stack.pop();
+			if (depMap.containsKey(className) || isGoogClass(className) || !isGoogProvided(className))
+			{
+				continue;
+			}
+			FileInfo fi = fileInfos.get(className);
+			if (fi == null)
+			{
+				// the problem was reported when the file was scanned
+				continue;
+			}
+
+			// build goog dependency list
+			GoogDep gd = new GoogDep();
+			gd.className = className;
+			gd.filePath = getFilePath(className, false);
 			gd.fileInfo = fi;
-		} catch (IOException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
+			depMap.put(gd.className, gd);
+			applyFileInfo(fi, className);
+			gd.deps = new ArrayList<String>();
+			List<String> deps = getDependencies(fi, gd.deps);
+			for (int i = deps.size() - 1; i >= 0; i--)
+			{
+				stack.push(deps.get(i));
+			}
 		}
-		if (gd.fileInfo.impls != null)
+	}
+
+	/**
+	 * Gets the classes that must be added to depMap for a file, in the order
+	 * that they are visited.
+	 *
+	 * @param fi The scanned file.
+	 * @param gdDeps If not {@code null}, the dependencies that are written to
+	 * goog.addDependency() for the file are added to this list.
+	 */
+	private List<String> getDependencies(FileInfo fi, List<String> gdDeps)
+	{
+		ArrayList<String> result = new ArrayList<String>();
+		if (fi.impls != null)
 		{
-	        for (String dep : gd.fileInfo.impls)
+	        for (String dep : fi.impls)
 	        {
-	        	if (gd.fileInfo.provides != null &&
-	        			gd.fileInfo.provides.contains(dep)) continue;
-	            addDeps(dep);
+	        	if (fi.provides != null &&
+	        			fi.provides.contains(dep)) continue;
+	        	result.add(dep);
 	        }
 		}
-		gd.deps = new ArrayList<String>();
-		if (gd.fileInfo.deps != null)
+		if (fi.deps != null)
 		{
-	        for (String dep : gd.fileInfo.deps)
+			ArrayList<String> allDeps = new ArrayList<String>();
+	        for (String dep : fi.deps)
 	        {
-	        	gd.deps.add(dep);
-	        	if (gd.fileInfo.provides != null &&
-	        			gd.fileInfo.provides.contains(dep)) continue;
-	            addDeps(dep);
+	        	allDeps.add(dep);
+	        	if (fi.provides != null &&
+	        			fi.provides.contains(dep)) continue;
+	        	result.add(dep);
 	        }
-	        if (gd.fileInfo.staticDeps != null)
+	        if (fi.staticDeps != null)
 	        {
-		        for (String dep : gd.fileInfo.staticDeps)
+		        for (String dep : fi.staticDeps)
 		        {
-		        	if (!gd.deps.contains(dep))
+		        	if (!allDeps.contains(dep))
 		        	{
-		        		gd.deps.add(dep);
-		        		if (gd.fileInfo.provides != null &&
-		        			gd.fileInfo.provides.contains(dep)) continue;
-		        		addDeps(dep);
+		        		allDeps.add(dep);
+		        		if (fi.provides != null &&
+		        			fi.provides.contains(dep)) continue;
+		        		result.add(dep);
 		        	}
 		        }
 	        }
+	        if (gdDeps != null)
+	        	gdDeps.addAll(allDeps);
 		}
+		return result;
+	}
+
+	/**
+	 * Finds, copies and scans the .js file for each class that is reachable
+	 * from the specified class, using the workspace's {@link ExecutorService}.
+	 * Classes whose file could not be found or read are reported as problems
+	 * and left out of the result.
+	 */
+	private Map<String, FileInfo> scanFiles(String mainClassName)
+	{
+		Map<String, FileInfo> result = new HashMap<String, FileInfo>();
+		ExecutorService executorService = project.getWorkspace().getExecutorService();
+		ExecutorCompletionService<ScanResult> completionService = new ExecutorCompletionService<ScanResult>(executorService);
+		HashSet<String> submitted = new HashSet<String>();
+		int pending = 0;
+		submitted.add(mainClassName);
+		if (!isGoogClass(mainClassName) && isGoogProvided(mainClassName))
+		{
+			completionService.submit(new ScanTask(mainClassName));
+			pending++;
+		}
+		while (pending > 0)
+		{
+			ScanResult scanResult;
+			try
+			{
+				scanResult = completionService.take().get();
+			}
+			catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+				problems.add(new UnexpectedExceptionProblem(e));
+				return result;
+			}
+			catch (ExecutionException e)
+			{
+				problems.add(new UnexpectedExceptionProblem(e.getCause()));
+				pending--;
+				continue;
+			}
+			pending--;
+			if (scanResult.exception != null)
+			{
+				problems.add(new UnexpectedExceptionProblem(scanResult.exception));
+				continue;
+			}
+			if (scanResult.fileInfo == null)
+			{
+				missingClasses.add(scanResult.className);
+				problems.add(new FileNotFoundProblem(scanResult.className));
+				continue;
+			}
+			result.put(scanResult.className, scanResult.fileInfo);
+			for (String dep : getDependencies(scanResult.fileInfo, null))
+			{
+				if (submitted.add(dep) && !isGoogClass(dep) && isGoogProvided(dep))
+				{
+					completionService.submit(new ScanTask(dep));
+					pending++;
+				}
+			}
+		}
+		return result;
+	}
+
+	private class ScanTask implements Callable<ScanResult>
+	{
+		ScanTask(String className)
+		{
+			this.className = className;
+		}
+
+		private final String className;
+
+		@Override
+		public ScanResult call()
+		{
+			ScanResult scanResult = new ScanResult();
+			scanResult.className = className;
+			String filePath = getFilePath(className, true);
+			if (filePath.isEmpty())
+				return scanResult;
+			try
+			{
+				scanResult.fileInfo = getFileInfo(new File(filePath), className);
+			}
+			catch (IOException e)
+			{
+				scanResult.exception = e;
+			}
+			return scanResult;
+		}
+	}
+
+	private static class ScanResult
+	{
+		String className;
+		FileInfo fileInfo;
+		IOException exception;
 	}
 	
 	void removeRequires(GoogDep gd)
@@ -831,6 +1082,12 @@ public class GoogDepsWriter {
 	    try
         {
 			gd = depMap.get(className);
+            FileInfo fi = gd.fileInfo;
+            int stopLine = fi.constructorLine;
+            if (fi.constructorLine == -1) // standalone functions
+            	stopLine = fi.googProvideLine + 4; // search a few more lines after goog.provide
+            if (fi.depsLine > -1 && fi.depsLine < stopLine)
+            	return; // already been processed
 			File depFile = new File(gd.filePath);
             List<String> fileLines = Files.readLines(depFile, Charset.forName("utf8"));
 			ArrayList<String> finalLines = new ArrayList<String>();
@@ -862,12 +1119,8 @@ public class GoogDepsWriter {
         	ArrayList<String> writtenRequires = new ArrayList<String>();
 //        	int staticDepsLine = -1;
         	int lastRequireLine = -1;
-            FileInfo fi = gd.fileInfo;
 //            int suppressCount = 0;
             int i = 0;
-            int stopLine = fi.constructorLine;
-            if (fi.constructorLine == -1) // standalone functions
-            	stopLine = fi.googProvideLine + 4; // search a few more lines after goog.provide
             for (String line : fileLines)
             {
             	if (i < stopLine)
@@ -1028,6 +1281,48 @@ public class GoogDepsWriter {
         }		
 	}
 		
+	/**
+	 * Gets the {@link FileInfo} for the specified file from the
+	 * goog-deps-index, or scans the file if it is not in the index or has
+	 * changed.
+	 */
+	private FileInfo getFileInfo(File file, String className) throws IOException
+	{
+		if (depsIndex != null)
+		{
+			FileInfo fi = depsIndex.get(file, className);
+			if (fi != null)
+				return fi;
+		}
+		byte[] contents = Files.toByteArray(file);
+		List<String> fileLines = ByteSource.wrap(contents).asCharSource(Charset.forName("utf8")).readLines();
+		FileInfo fi = getFileInfo(fileLines, className);
+		if (depsIndex != null)
+			depsIndex.put(file, className, contents, fi);
+		return fi;
+	}
+
+	/**
+	 * Adds the information from a scanned file that is collected for all of
+	 * the files, such as the additional HTML and the classes that are used in
+	 * static initializers.
+	 */
+	private void applyFileInfo(FileInfo fi, String className)
+	{
+		if (fi.additionalHTML != null)
+			additionalHTML.addAll(fi.additionalHTML);
+		if (fi.needCSS)
+			needCSS = true;
+		if (fi.staticInitializers != null)
+		{
+			for (String staticDep : fi.staticInitializers)
+			{
+				staticInitializers.add(staticDep);
+				staticInitializerOwners.add(className);
+			}
+		}
+	}
+
 	FileInfo getFileInfo(List<String> lines, String className)
 	{
 		FileInfo fi = new FileInfo();
@@ -1036,6 +1331,7 @@ public class GoogDepsWriter {
 		int constructorCount = 0;
 	    int n = lines.size();
 	    fi.constructorLine = -1;
+	    fi.depsLine = -1;
 	    fi.suppressLine = -1;
 	    fi.fileoverviewLine = -1;
 		fi.googProvideLine = -1;
@@ -1061,7 +1357,9 @@ public class GoogDepsWriter {
 	            	line = line.trim();
 	            	if (line.startsWith("*"))
 	            		line = line.substring(1);
-				    additionalHTML.add(line);
+	            	if (fi.additionalHTML == null)
+	            		fi.additionalHTML = new ArrayList<String>();
+				    fi.additionalHTML.add(line);
 				    continue;
 	            }
                 c = line.indexOf("<inject_script>");
@@ -1121,7 +1419,7 @@ public class GoogDepsWriter {
 					        			if (!fi.impls.contains(impl) && !impl.contentEquals(className))
 					        				fi.impls.add(impl);
 					        			if (impl.equals("org.apache.royale.core.ICSSImpl"))
-					        				needCSS = true;
+					        				fi.needCSS = true;
 					        		}
 					        		else
 					        		{
@@ -1150,8 +1448,9 @@ public class GoogDepsWriter {
 						    					{
 						    						if (staticDep.equals(className))
 						    							continue;
-						    						staticInitializers.add(staticDep);
-						    						staticInitializerOwners.add(className);
+						    						if (fi.staticInitializers == null)
+						    							fi.staticInitializers = new ArrayList<String>();
+						    						fi.staticInitializers.add(staticDep);
 						    					}
 						    				}
 						    				else
@@ -1172,7 +1471,7 @@ public class GoogDepsWriter {
 									        			fi.deps = new ArrayList<String>();
 									        			if (line.length() > 2) // don't add blank or space if no deps
 									        				fi.deps.addAll(Arrays.asList(line.split(",")));
-//								    					fi.depsLine = i;
+								    					fi.depsLine = i;
 								    				}
 								    				else /* if (fi.depsLine == 0) */
 								    				{
@@ -1209,7 +1508,17 @@ public class GoogDepsWriter {
 	    return fi;
 	}
 	
-	String getFilePath(String className)
+	/**
+	 * Gets the path of the .js file for the specified class in the output
+	 * folder.
+	 *
+	 * @param copy If {@code true}, the file is copied to the output folder
+	 * from the other paths or from a SWC, if needed. If {@code false}, the
+	 * file has already been copied by an earlier call.
+	 * @return The path of the file, or an empty string if it could not be
+	 * found.
+	 */
+	String getFilePath(String className, boolean copy)
 	{
 	    String fn;
 	    File destFile;
@@ -1219,7 +1528,7 @@ public class GoogDepsWriter {
         
         fn = outputFolderPath + File.separator + classPath + ".js";
         f = new File(fn);
-        if (f.exists())
+        if (!copy || f.exists())
         {
             return fn;
         }
@@ -1281,88 +1590,97 @@ public class GoogDepsWriter {
     		}
         }
 
-        for (ISWC swc : swcs)
+        SWCFileEntryIndex index = getSWCFileEntryIndex();
+        ISWCFileEntry fileEntry = index.getClassFile(className, ".js");
+        if (fileEntry != null)
         {
-			ISWCFileEntry fileEntry = getFileEntry(swc, className);
-    		if (fileEntry != null)
-    		{
-    			fn = outputFolderPath + File.separator + classPath + ".js";
-    			destFile = new File(fn);
-    			// copy source to output
-    			try {
-    				InputStream inStream = fileEntry.createInputStream();
-    				OutputStream outStream = FileUtils.openOutputStream(destFile);
-    				byte[] b = new byte[1024 * 1024];
-    				int bytes_read;
-    				while ((bytes_read = inStream.read(b)) != -1)
-    				{
-        				outStream.write(b, 0, bytes_read);
-    				}
-    				outStream.flush();
-    				outStream.close();    					
-					inStream.close();
-					
-					//if source maps requested, copy from the swc, if available
-					if (sourceMaps)
+            ISWC swc = index.getSWC(fileEntry);
+    		fn = outputFolderPath + File.separator + classPath + ".js";
+    		destFile = new File(fn);
+    		// copy source to output
+    		try {
+    			InputStream inStream = fileEntry.createInputStream();
+    			OutputStream outStream = FileUtils.openOutputStream(destFile);
+    			byte[] b = new byte[1024 * 1024];
+    			int bytes_read;
+    			while ((bytes_read = inStream.read(b)) != -1)
+    			{
+    				outStream.write(b, 0, bytes_read);
+    			}
+    			outStream.flush();
+    			outStream.close();    					
+				inStream.close();
+				
+				//if source maps requested, copy from the swc, if available
+				if (sourceMaps)
+				{
+					ISWCFileEntry sourceMapFileEntry = getFileEntry(swc, className, ".js.map");
+					if (sourceMapFileEntry != null)
 					{
-						ISWCFileEntry sourceMapFileEntry = getFileEntry(swc, className, ".js.map");
-						if (sourceMapFileEntry != null)
-						{
-							String sourceMapFn = outputFolderPath + File.separator + classPath + ".js.map";
-							File sourceMapDestFile = new File(sourceMapFn);
-							inStream = sourceMapFileEntry.createInputStream();
-							String sourceMapContents = IOUtils.toString(inStream, Charset.forName("utf8"));
-							FileUtils.writeStringToFile(sourceMapDestFile, sourceMapContents, Charset.forName("utf8"));
-						}
+						String sourceMapFn = outputFolderPath + File.separator + classPath + ".js.map";
+						File sourceMapDestFile = new File(sourceMapFn);
+						inStream = sourceMapFileEntry.createInputStream();
+						String sourceMapContents = IOUtils.toString(inStream, Charset.forName("utf8"));
+						FileUtils.writeStringToFile(sourceMapDestFile, sourceMapContents, Charset.forName("utf8"));
 					}
+				}
 
-    				// (erikdebruin) copy class assets files
-    				if (className.contains("org.apache.royale"))
+    			// (erikdebruin) copy class assets files
+    			if (className.contains("org.apache.royale"))
+    			{
+    				Map<String, ISWCFileEntry> includedfiles = swc.getFiles();
+    				Set<String> includedList = includedfiles.keySet();
+    				for (String included : includedList)
     				{
-    					Map<String, ISWCFileEntry> includedfiles = swc.getFiles();
-    					Set<String> includedList = includedfiles.keySet();
-    					for (String included : includedList)
+    					if (included.contains(".png") ||
+    						included.contains(".gif") ||
+    						included.contains(".jpg") ||
+    						included.contains(".jpeg") ||
+    						included.contains(".svg") ||
+    						included.contains(".json"))
     					{
-    						if (included.contains(".png") ||
-    							included.contains(".gif") ||
-    							included.contains(".jpg") ||
-    							included.contains(".jpeg") ||
-    							included.contains(".svg") ||
-    							included.contains(".json"))
-    						{
-    							fileEntry = includedfiles.get(included);
-    			    			String assetName = outputFolderPath + File.separator + included;
-    			    			File assetFile = new File(assetName);
-    		    				inStream = fileEntry.createInputStream();
-    		    				outStream = FileUtils.openOutputStream(assetFile);
-    		    				b = new byte[inStream.available()];
-    		    				inStream.read(b);
-    		    				outStream.write(b);
-    		    				inStream.close();
-    		    				outStream.flush();
-    		    				outStream.close();
-						        if (verbose)
-								{
-									System.out.println("Copied asset " + assetName);
-								}
-    						}
+    		    			String assetName = outputFolderPath + File.separator + included;
+    		    			if (!copiedAssets.add(assetName))
+    		    				continue;
+    						fileEntry = includedfiles.get(included);
+    		    			File assetFile = new File(assetName);
+    	    				inStream = fileEntry.createInputStream();
+    	    				outStream = FileUtils.openOutputStream(assetFile);
+    	    				IOUtils.copy(inStream, outStream);
+    	    				inStream.close();
+    	    				outStream.flush();
+    	    				outStream.close();
+					        if (verbose)
+							{
+								System.out.println("Copied asset " + assetName);
+							}
     					}
     				}
-    			} catch (IOException e) {
-    				System.out.println("Error copying file for class: " + className);
     			}
-    			return fn;
+    		} catch (IOException e) {
+    			System.out.println("Error copying file for class: " + className);
     		}
+    		return fn;
         }
         
 		System.out.println("Could not find file for class: " + className);
-		problems.add(new FileNotFoundProblem(className));
 		return "";
 	}
 
-	private ISWCFileEntry getFileEntry(ISWC swc, String className)
+	/**
+	 * Returns the index of the files in the SWCs. It is the index of the
+	 * library path of the project, if the SWCs are the same.
+	 */
+	private synchronized SWCFileEntryIndex getSWCFileEntryIndex()
 	{
-		return getFileEntry(swc, className, ".js");
+		if (swcFileEntryIndex == null)
+		{
+			if (project instanceof ASProject)
+				swcFileEntryIndex = ((ASProject)project).getLibraryFileEntryIndex();
+			if (swcFileEntryIndex == null || !swcFileEntryIndex.isIndexOf(swcs))
+				swcFileEntryIndex = new SWCFileEntryIndex(swcs);
+		}
+		return swcFileEntryIndex;
 	}
 
 	private ISWCFileEntry getFileEntry(ISWC swc, String className, String extension)
@@ -1524,17 +1842,21 @@ public class GoogDepsWriter {
 		
 	}
 	
-	private class FileInfo
+	static class FileInfo
 	{
 		public ArrayList<String> impls;
 		public ArrayList<String> deps;
 		public ArrayList<String> staticDeps;
 		public ArrayList<String> provides;
+		// classes used in static initializers, in the order they appear in the file
+		public ArrayList<String> staticInitializers;
+		public ArrayList<String> additionalHTML;
 		public int constructorLine;
-//		public int depsLine;
+		public int depsLine;
 		public int suppressLine;
 		public int fileoverviewLine;
 		public int googProvideLine;
 		public boolean isExtern;
+		public boolean needCSS;
 	}
 }
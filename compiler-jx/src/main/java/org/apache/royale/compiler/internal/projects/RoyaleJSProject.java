@@ -21,6 +21,7 @@ package org.apache.royale.compiler.internal.projects;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -290,7 +291,7 @@ public class RoyaleJSProject extends RoyaleProject
         }
     }
 
-    public boolean needLanguage;
+    public volatile boolean needLanguage;
     public boolean needCSS;
     public boolean needXML;
 
@@ -620,7 +621,8 @@ public class RoyaleJSProject extends RoyaleProject
 		return true;
 	}
 
-	private HashSet<String> exportedNames = new HashSet<String>();
+	// emitters may add names from multiple threads when js-parallel-emit is enabled
+	private Set<String> exportedNames = Collections.synchronizedSet(new HashSet<String>());
 	
 	public List<String> compiledResourceBundleNames = new ArrayList<String>();
 	public List<String> compiledResourceBundleClasses = new ArrayList<String>();
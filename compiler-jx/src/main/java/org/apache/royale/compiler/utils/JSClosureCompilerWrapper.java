@@ -19,15 +19,34 @@
 
 package org.apache.royale.compiler.utils;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.lang.ref.SoftReference;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
 import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.royale.compiler.clients.problems.ProblemQuery;
+import org.apache.royale.compiler.problems.JSCompilerCacheProblem;
 
 import com.google.javascript.jscomp.CheckLevel;
 import com.google.javascript.jscomp.CommandLineRunner;
@@ -39,6 +58,8 @@ import com.google.javascript.jscomp.CompilerOptions.LanguageMode;
 import com.google.javascript.jscomp.DependencyOptions;
 import com.google.javascript.jscomp.DependencyOptions.DependencyMode;
 import com.google.javascript.jscomp.DiagnosticGroups;
+import com.google.javascript.jscomp.JSError;
+import com.google.javascript.jscomp.LightweightMessageFormatter;
 import com.google.javascript.jscomp.Result;
 import com.google.javascript.jscomp.RoyaleClosurePassConfig;
 import com.google.javascript.jscomp.RoyaleDiagnosticGroups;
@@ -55,6 +76,9 @@ public class JSClosureCompilerWrapper
     {
         Compiler.setLoggingLevel(Level.INFO);
 
+        // filterOptions() and initOptions() remove some of the arguments
+        cacheKeyArgs = new ArrayList<String>(args);
+
         compiler_ = new Compiler();
         jsSourceFiles_ = new ArrayList<SourceFile>();
         jsExternsFiles_ = new ArrayList<SourceFile>();
@@ -95,12 +119,92 @@ public class JSClosureCompilerWrapper
     private boolean sourceMap = false;
     private boolean verbose = false;
     private boolean preventRenameMxmlSymbolReferences = true;
+    private File cacheDirectory;
+    private final List<String> cacheKeyArgs;
+    private final StringBuilder cacheKeyOptions = new StringBuilder();
     
     public String targetFilePath;
     
+    /**
+     * Version of the layout of the cache directory and of the cache key.
+     */
+    private static final String CACHE_VERSION = "2";
+
+    /**
+     * The logger that Closure Compiler reports warnings to when it has no
+     * error stream, which the warnings of a cached output are replayed to.
+     */
+    private static final Logger closureLogger = Logger.getLogger("com.google.javascript.jscomp");
+
+    /**
+     * The number of externs files that are kept for later wrappers.
+     */
+    private static final int MAX_EXTERNS_FILES = 64;
+
+    /**
+     * Externs files that were loaded by earlier wrappers in this process,
+     * such as the wrappers of the other modules of an application. The least
+     * recently used files are dropped, and the contents are only softly
+     * reachable, so that a long running process doesn't keep every externs
+     * file that it has ever compiled with.
+     */
+    private static final Map<String, CachedExternsFile> externsFiles =
+            new LinkedHashMap<String, CachedExternsFile>(16, 0.75f, true)
+    {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedExternsFile> eldest)
+        {
+            return size() > MAX_EXTERNS_FILES;
+        }
+    };
+
+    /**
+     * The default externs of Closure Compiler, which are the same for every
+     * wrapper in this process.
+     */
+    private static List<SourceFile> defaultExterns;
+
+    private static final class CachedExternsFile
+    {
+        CachedExternsFile(File file, SourceFile sourceFile)
+        {
+            lastModified = file.lastModified();
+            length = file.length();
+            this.sourceFile = new SoftReference<SourceFile>(sourceFile);
+        }
+
+        final long lastModified;
+        final long length;
+        final SoftReference<SourceFile> sourceFile;
+    }
+
     public void addJSExternsFile(String fileName)
     {
-        addJSExternsFile(SourceFile.fromFile(fileName));
+        addJSExternsFile(getExternsFile(fileName));
+    }
+
+    /**
+     * Reuses the {@link SourceFile} of an externs file that an earlier wrapper
+     * loaded, so that its contents are only read once.
+     */
+    private static SourceFile getExternsFile(String fileName)
+    {
+        File file = new File(fileName);
+        synchronized (externsFiles)
+        {
+            CachedExternsFile cached = externsFiles.get(fileName);
+            SourceFile sourceFile = null;
+            if (cached != null && cached.lastModified == file.lastModified() && cached.length == file.length())
+                sourceFile = cached.sourceFile.get();
+            if (sourceFile == null)
+            {
+                sourceFile = SourceFile.fromFile(file.getPath());
+                externsFiles.put(fileName, new CachedExternsFile(file, sourceFile));
+            }
+            return sourceFile;
+        }
     }
     
     public void addJSExternsFile(SourceFile file)
@@ -142,8 +246,74 @@ public class JSClosureCompilerWrapper
     {
         extraSymbolNamesToExport = names;
     }
+
+    /**
+     * Sets a directory to store the optimized output in. When the sources,
+     * externs and options are the same as a stored output, the stored output
+     * is copied instead of running Closure Compiler.
+     */
+    public void setCacheDirectory(File directory)
+    {
+        cacheDirectory = directory;
+    }
     
     public boolean compile()
+    {
+        return compile(null);
+    }
+
+    /**
+     * @param problems The problems of the compilation. If the cache directory
+     * can't be used, a warning is added to it, and the output is compiled.
+     */
+    public boolean compile(ProblemQuery problems)
+    {
+        String cacheKey = null;
+        if (cacheDirectory != null)
+        {
+            try
+            {
+                cacheKey = computeCacheKey();
+                if (restoreFromCache(cacheKey))
+                {
+                    if (verbose)
+                        System.out.println("using cached output of Closure Compiler: " + cacheKey);
+                    return true;
+                }
+            }
+            catch (IOException e)
+            {
+                // compile without the cache
+                reportCacheProblem(problems, e);
+                cacheKey = null;
+            }
+        }
+
+        boolean success = compileWithClosure();
+
+        if (success && cacheKey != null)
+        {
+            try
+            {
+                saveToCache(cacheKey);
+            }
+            catch (IOException e)
+            {
+                reportCacheProblem(problems, e);
+            }
+        }
+        return success;
+    }
+
+    private void reportCacheProblem(ProblemQuery problems, IOException e)
+    {
+        if (problems != null)
+            problems.add(new JSCompilerCacheProblem(cacheDirectory, e));
+        else if (verbose)
+            System.out.println("Unable to use the Closure Compiler cache in " + cacheDirectory + ": " + e.getMessage());
+    }
+
+    private boolean compileWithClosure()
     {
         if (verbose)
         {
@@ -245,13 +415,236 @@ public class JSClosureCompilerWrapper
         return result.success;
     }    
     
+    /**
+     * Computes a digest of everything that affects the output: the version
+     * of Closure Compiler, the options, the names and contents of the sources
+     * and externs, the names to keep and export, and the input maps.
+     */
+    String computeCacheKey() throws IOException
+    {
+        MessageDigest digest;
+        try
+        {
+            digest = MessageDigest.getInstance("SHA-256");
+        }
+        catch (NoSuchAlgorithmException e)
+        {
+            throw new IOException(e);
+        }
+        updateDigest(digest, CACHE_VERSION);
+        updateDigest(digest, Compiler.getReleaseVersion());
+        for (String arg : cacheKeyArgs)
+            updateDigest(digest, arg);
+        updateDigest(digest, cacheKeyOptions.toString());
+        updateDigest(digest, targetFilePath);
+        updateDigest(digest, Boolean.toString(sourceMap));
+        updateDigest(digest, Boolean.toString(preventRenameMxmlSymbolReferences));
+        updateDigest(digest, Boolean.toString(skipTypeInference));
+        updateDigest(digest, String.valueOf(variableMapOutputPath));
+        updateDigest(digest, String.valueOf(propertyMapOutputPath));
+        if (propertyNamesToKeep != null)
+        {
+            for (String name : new TreeSet<String>(propertyNamesToKeep))
+                updateDigest(digest, name);
+        }
+        updateDigest(digest, "");
+        if (extraSymbolNamesToExport != null)
+        {
+            // the order matters for the exports
+            for (String name : extraSymbolNamesToExport)
+                updateDigest(digest, name);
+        }
+        updateDigest(digest, "");
+        File outputFolder = new File(targetFilePath).getParentFile();
+        updateDigestWithFile(digest, outputFolder, variableMapInputPath);
+        updateDigestWithFile(digest, outputFolder, propertyMapInputPath);
+        for (SourceFile file : jsExternsFiles_)
+        {
+            updateDigest(digest, file.getName());
+            updateDigest(digest, file.getCode());
+        }
+        updateDigest(digest, "");
+        for (SourceFile file : jsSourceFiles_)
+        {
+            updateDigest(digest, file.getName());
+            updateDigest(digest, file.getCode());
+        }
+
+        StringBuilder key = new StringBuilder();
+        for (byte b : digest.digest())
+            key.append(String.format("%02x", b & 0xff));
+        return key.toString();
+    }
+
+    private static void updateDigest(MessageDigest digest, String value)
+    {
+        if (value != null)
+            digest.update(value.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte)0);
+    }
+
+    private static void updateDigestWithFile(MessageDigest digest, File folder, String path) throws IOException
+    {
+        if (path == null)
+        {
+            digest.update((byte)0);
+            return;
+        }
+        File file = new File(folder, path);
+        if (file.exists())
+            digest.update(Files.readAllBytes(file.toPath()));
+        digest.update((byte)0);
+    }
+
+    /**
+     * @return The name of the cache entry for a key. The entries of one
+     * output file share a prefix, so that older entries can be found.
+     */
+    private String getCacheEntryPrefix()
+    {
+        return new File(targetFilePath).getName() + "-";
+    }
+
+    /**
+     * Copies the stored outputs for a key to the output paths.
+     * 
+     * @return true if there were stored outputs for the key.
+     */
+    private boolean restoreFromCache(String cacheKey) throws IOException
+    {
+        File entry = new File(cacheDirectory, getCacheEntryPrefix() + cacheKey);
+        if (!new File(entry, "output.js").isFile())
+            return false;
+        File outputFolder = new File(targetFilePath).getParentFile();
+        copyFile(new File(entry, "output.js"), new File(targetFilePath));
+        if (sourceMap)
+            copyFile(new File(entry, "output.js.map"), new File(options_.sourceMapOutputPath));
+        if (variableMapOutputPath != null && new File(entry, "variable.map").isFile())
+            copyFile(new File(entry, "variable.map"), new File(outputFolder, variableMapOutputPath));
+        if (propertyMapOutputPath != null && new File(entry, "property.map").isFile())
+            copyFile(new File(entry, "property.map"), new File(outputFolder, propertyMapOutputPath));
+        replayWarnings(new File(entry, "warnings"));
+        return true;
+    }
+
+    /**
+     * Stores the outputs of the compilation for a key, and removes the
+     * outputs that were stored for the same output file with other keys.
+     */
+    private void saveToCache(String cacheKey) throws IOException
+    {
+        String prefix = getCacheEntryPrefix();
+        File entry = new File(cacheDirectory, prefix + cacheKey);
+        File tempEntry = new File(cacheDirectory, prefix + cacheKey + ".tmp");
+        deleteRecursively(tempEntry);
+        if (!tempEntry.mkdirs())
+            throw new IOException("Unable to create " + tempEntry);
+        File outputFolder = new File(targetFilePath).getParentFile();
+        copyFile(new File(targetFilePath), new File(tempEntry, "output.js"));
+        if (sourceMap)
+            copyFile(new File(options_.sourceMapOutputPath), new File(tempEntry, "output.js.map"));
+        if (variableMapOutputPath != null && new File(outputFolder, variableMapOutputPath).isFile())
+            copyFile(new File(outputFolder, variableMapOutputPath), new File(tempEntry, "variable.map"));
+        if (propertyMapOutputPath != null && new File(outputFolder, propertyMapOutputPath).isFile())
+            copyFile(new File(outputFolder, propertyMapOutputPath), new File(tempEntry, "property.map"));
+        saveWarnings(new File(tempEntry, "warnings"));
+
+        File[] oldEntries = cacheDirectory.listFiles();
+        if (oldEntries != null)
+        {
+            for (File oldEntry : oldEntries)
+            {
+                if (oldEntry.getName().startsWith(prefix) && !oldEntry.equals(tempEntry))
+                    deleteRecursively(oldEntry);
+            }
+        }
+        if (!tempEntry.renameTo(entry))
+            throw new IOException("Unable to create " + entry);
+    }
+
+    /**
+     * Stores the warnings of the compilation, formatted as Closure Compiler
+     * reports them.
+     */
+    private void saveWarnings(File file) throws IOException
+    {
+        LightweightMessageFormatter formatter = new LightweightMessageFormatter(compiler_);
+        List<String> warnings = new ArrayList<String>();
+        for (JSError warning : compiler_.getWarnings())
+            warnings.add(warning.format(CheckLevel.WARNING, formatter));
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+        try
+        {
+            out.writeInt(warnings.size());
+            for (String warning : warnings)
+            {
+                byte[] bytes = warning.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+        }
+        finally
+        {
+            out.close();
+        }
+    }
+
+    /**
+     * Reports the warnings of a cached compilation again, so that a cache hit
+     * reports the same warnings as the compilation did.
+     */
+    private static void replayWarnings(File file) throws IOException
+    {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        try
+        {
+            int count = in.readInt();
+            for (int i = 0; i < count; i++)
+            {
+                byte[] bytes = new byte[in.readInt()];
+                in.readFully(bytes);
+                closureLogger.warning(new String(bytes, StandardCharsets.UTF_8));
+            }
+            if (count > 0)
+                closureLogger.warning(String.format("%d error(s), %d warning(s)", 0, count));
+        }
+        finally
+        {
+            in.close();
+        }
+    }
+
+    private static void copyFile(File from, File to) throws IOException
+    {
+        Files.copy(from.toPath(), to.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static void deleteRecursively(File file)
+    {
+        File[] children = file.listFiles();
+        if (children != null)
+        {
+            for (File child : children)
+                deleteRecursively(child);
+        }
+        file.delete();
+    }
+
     @SuppressWarnings( "deprecation" )
     private void initExterns()
     {
         try
         {
-            List<SourceFile> defaultExterns = CommandLineRunner.getDefaultExterns();
-            for (SourceFile defaultExtern : defaultExterns)
+            List<SourceFile> externs;
+            synchronized (JSClosureCompilerWrapper.class)
+            {
+                // reading the default externs from the Closure Compiler jar
+                // is only done once per process
+                if (defaultExterns == null)
+                    defaultExterns = CommandLineRunner.getDefaultExterns();
+                externs = defaultExterns;
+            }
+            for (SourceFile defaultExtern : externs)
             {
                 this.addJSExternsFile(defaultExtern);
             }
@@ -394,6 +787,10 @@ public class JSClosureCompilerWrapper
     @SuppressWarnings("deprecation")
 	public void setOptions(String sourceMapPath, boolean useStrictPublishing, boolean manageDependencies, String projectName)
     {
+        cacheKeyOptions.append(sourceMapPath).append('\n')
+                .append(useStrictPublishing).append('\n')
+                .append(manageDependencies).append('\n')
+                .append(projectName).append('\n');
         if (useStrictPublishing)
         {
             // (erikdebruin) set compiler flags to 'strictest' to allow maximum
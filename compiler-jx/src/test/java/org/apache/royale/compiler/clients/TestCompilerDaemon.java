@@ -0,0 +1,167 @@
+/*
+ *
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.apache.royale.compiler.clients;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Arrays;
+
+import org.apache.royale.compiler.config.Configuration;
+import org.apache.royale.compiler.config.ConfigurationPathResolver;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestCompilerDaemon
+{
+    private CompilerDaemon daemon;
+    private ServerSocket serverSocket;
+    private Thread serverThread;
+
+    @Before
+    public void setUp() throws IOException
+    {
+        daemon = new CompilerDaemon(CompilerDaemon.DEFAULT_MAX_SESSIONS);
+        serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        serverThread = new Thread()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    daemon.serve(serverSocket);
+                }
+                catch (IOException e)
+                {
+                    // closed by tearDown()
+                }
+            }
+        };
+        serverThread.start();
+    }
+
+    @After
+    public void tearDown() throws Exception
+    {
+        serverSocket.close();
+        serverThread.join(10000);
+        daemon.close();
+    }
+
+    @Test
+    public void testUnknownToolStreamsErrorAndExitCode() throws IOException
+    {
+        CompilerDaemonClient client = new CompilerDaemonClient(serverSocket.getLocalPort(), daemon.getToken());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        int exitCode = client.compile("nosuchtool", System.getProperty("user.dir"), new String[] {"-help"}, out, err);
+        assertEquals(CompilerDaemon.EXIT_REQUEST_FAILED, exitCode);
+        assertTrue(err.toString("UTF-8").contains("Unknown tool: nosuchtool"));
+    }
+
+    @Test
+    public void testWrongTokenIsRejected() throws IOException
+    {
+        CompilerDaemonClient client = new CompilerDaemonClient(serverSocket.getLocalPort(), "wrong");
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        int exitCode = client.compile(CompilerDaemon.TOOL_MXMLC, System.getProperty("user.dir"), new String[0],
+                new ByteArrayOutputStream(), err);
+        assertEquals(CompilerDaemon.EXIT_REQUEST_FAILED, exitCode);
+        assertEquals(0, err.size());
+    }
+
+    @Test
+    public void testWorkingDirectoryDoesNotChangeUserDir() throws IOException
+    {
+        String userDir = System.getProperty("user.dir");
+        String workingDirectory = new File(userDir, "target").getAbsolutePath();
+        CompilerDaemonClient client = new CompilerDaemonClient(serverSocket.getLocalPort(), daemon.getToken());
+        client.compile("nosuchtool", workingDirectory, new String[0],
+                new ByteArrayOutputStream(), new ByteArrayOutputStream());
+        assertEquals(userDir, System.getProperty("user.dir"));
+    }
+
+    @Test
+    public void testRelativeFileSpecsResolveAgainstWorkingDirectory() throws Exception
+    {
+        File workingDirectory = new File(System.getProperty("user.dir"), "target");
+        Configuration config = new Configuration();
+        config.setPathResolver(new ConfigurationPathResolver(workingDirectory.getAbsolutePath()));
+        File absolute = new File(System.getProperty("java.io.tmpdir"), "Other.as").getAbsoluteFile();
+        config.setFileSpecs(null, Arrays.asList("src" + File.separator + "Main.as", absolute.getPath()));
+        assertEquals(new File(workingDirectory, "src" + File.separator + "Main.as").getAbsolutePath(),
+                config.getFileSpecs().get(0));
+        assertEquals(absolute.getPath(), config.getTargetFile());
+    }
+
+    @Test
+    public void testInfoFileFindsDaemon() throws Exception
+    {
+        File infoFile = File.createTempFile("TestCompilerDaemon", ".properties");
+        try
+        {
+            daemon.writeInfoFile(infoFile, serverSocket.getLocalPort());
+            CompilerDaemonClient client = CompilerDaemonClient.find(infoFile);
+            assertNotNull(client);
+            int exitCode = client.compile(CompilerDaemon.TOOL_SHUTDOWN, System.getProperty("user.dir"), new String[0],
+                    new ByteArrayOutputStream(), new ByteArrayOutputStream());
+            assertEquals(0, exitCode);
+            serverThread.join(10000);
+            assertTrue(!serverThread.isAlive());
+        }
+        finally
+        {
+            infoFile.delete();
+        }
+    }
+
+    @Test
+    public void testInfoFileIsOnlyReadableByOwner() throws Exception
+    {
+        if (!FileSystems.getDefault().supportedFileAttributeViews().contains("posix"))
+            return;
+        File infoFile = File.createTempFile("TestCompilerDaemon", ".properties");
+        try
+        {
+            // a file of an earlier daemon that others can read
+            Files.setPosixFilePermissions(infoFile.toPath(), PosixFilePermissions.fromString("rw-r--r--"));
+            daemon.writeInfoFile(infoFile, serverSocket.getLocalPort());
+            assertEquals("rw-------",
+                    PosixFilePermissions.toString(Files.getPosixFilePermissions(infoFile.toPath())));
+            assertNotNull(CompilerDaemonClient.find(infoFile));
+        }
+        finally
+        {
+            infoFile.delete();
+        }
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ *
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.apache.royale.compiler.clients;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.royale.compiler.internal.workspaces.Workspace;
+import org.apache.royale.compiler.problems.ICompilerProblem;
+import org.apache.royale.utils.EnvProperties;
+import org.apache.royale.utils.FilenameNormalization;
+import org.apache.royale.utils.TestAdapterFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Builds a project twice with the same {@link IncrementalBuild}, as the OEM
+ * {@code Application} and {@code Library} do for {@code build(true)}.
+ */
+public class TestIncrementalBuild
+{
+    private File projectDir;
+    private File mainFile;
+    private IncrementalBuild build;
+
+    @Before
+    public void setUp() throws IOException
+    {
+        projectDir = new File(TestAdapterFactory.getTestAdapter().getTempDir(), "TestIncrementalBuild");
+        FileUtils.deleteDirectory(projectDir);
+        mainFile = new File(new File(projectDir, "src"), "Main.as");
+        writeMain("first");
+        build = new IncrementalBuild(new MXMLJSC());
+    }
+
+    @After
+    public void tearDown() throws IOException
+    {
+        build.close();
+        FileUtils.deleteDirectory(projectDir);
+    }
+
+    private void writeMain(String value) throws IOException
+    {
+        FileUtils.writeStringToFile(mainFile,
+                "package\n" +
+                "{\n" +
+                "    public class Main\n" +
+                "    {\n" +
+                "        public var value:String = \"" + value + "\";\n" +
+                "    }\n" +
+                "}\n", "UTF-8");
+    }
+
+    private String[] getArgs()
+    {
+        EnvProperties env = EnvProperties.initiate();
+        List<String> args = new ArrayList<String>();
+        args.add("-compiler.targets=JSRoyale");
+        String jsSwcPath = FilenameNormalization.normalize("../compiler-externc/target/js.swc");
+        args.add("-external-library-path=" + jsSwcPath);
+        args.add("-js-output=" + new File(projectDir, "bin").getAbsolutePath());
+        if (env.GOOG != null)
+            args.add("-closure-lib=" + env.GOOG);
+        else
+            args.add("-define=COMPILE::temp,false");
+        args.add(mainFile.getAbsolutePath());
+        return args.toArray(new String[0]);
+    }
+
+    private void compile()
+    {
+        List<ICompilerProblem> problems = new ArrayList<ICompilerProblem>();
+        int exitCode = build.getCompiler().mainNoExit(getArgs(), problems, true);
+        assertEquals(problems.toString(), MXMLJSC.ExitCode.SUCCESS.getCode(), exitCode);
+        build.recordFiles();
+    }
+
+    private String readOutput() throws IOException
+    {
+        Collection<File> files = FileUtils.listFiles(new File(projectDir, "bin"), new String[] {"js"}, true);
+        for (File file : files)
+        {
+            if (file.getName().equals("Main.js"))
+                return FileUtils.readFileToString(file, "UTF-8");
+        }
+        return null;
+    }
+
+    private Workspace getWorkspace()
+    {
+        MXMLJSC compiler = build.getCompiler();
+        if (compiler.lastCompiler instanceof MXMLJSCRoyale)
+            return ((MXMLJSCRoyale)compiler.lastCompiler).workspace;
+        return compiler.workspace;
+    }
+
+    @Test
+    public void testSecondBuildReusesWorkspaceAndSeesEditedFile() throws IOException
+    {
+        compile();
+        Workspace workspace = getWorkspace();
+        assertNotNull(workspace);
+        String output = readOutput();
+        assertNotNull(output);
+        assertTrue(output, output.contains("first"));
+
+        writeMain("second");
+        // file times can be as coarse as seconds
+        mainFile.setLastModified(mainFile.lastModified() + 2000);
+        build.applyFileChanges();
+        compile();
+
+        assertSame(workspace, getWorkspace());
+        output = readOutput();
+        assertTrue(output, output.contains("second"));
+        assertTrue(output, !output.contains("first"));
+    }
+}
@@ -0,0 +1,199 @@
+/*
+ *
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.apache.royale.compiler.clients;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeMap;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.royale.compiler.problems.ICompilerProblem;
+import org.apache.royale.utils.EnvProperties;
+import org.apache.royale.utils.FilenameNormalization;
+import org.apache.royale.utils.TestAdapterFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Compiles the same project with {@code js-parallel-emit} off and on, and
+ * checks that every emitted file is the same.
+ */
+public class TestParallelEmit
+{
+    private static final int CLASS_COUNT = 24;
+
+    private File projectDir;
+    private File srcDir;
+
+    @Before
+    public void setUp() throws IOException
+    {
+        projectDir = new File(TestAdapterFactory.getTestAdapter().getTempDir(), "TestParallelEmit");
+        FileUtils.deleteDirectory(projectDir);
+        srcDir = new File(projectDir, "src");
+        writeProject();
+    }
+
+    @After
+    public void tearDown() throws IOException
+    {
+        FileUtils.deleteDirectory(projectDir);
+    }
+
+    private void writeFile(String path, String text) throws IOException
+    {
+        FileUtils.writeStringToFile(new File(srcDir, path), text, "UTF-8");
+    }
+
+    /**
+     * Writes classes that extend and implement each other, use the language
+     * helpers that set state on the project while they are emitted, and have
+     * metadata that adds names for Closure Compiler to keep.
+     */
+    private void writeProject() throws IOException
+    {
+        writeFile("shapes/IShape.as",
+                "package shapes\n" +
+                "{\n" +
+                "    public interface IShape\n" +
+                "    {\n" +
+                "        function get area():Number;\n" +
+                "    }\n" +
+                "}\n");
+        StringBuilder imports = new StringBuilder();
+        StringBuilder uses = new StringBuilder();
+        for (int i = 0; i < CLASS_COUNT; i++)
+        {
+            String baseClass = i == 0 ? "" : " extends Shape" + (i - 1);
+            writeFile("shapes/Shape" + i + ".as",
+                    "package shapes\n" +
+                    "{\n" +
+                    "    [Bindable]\n" +
+                    "    public class Shape" + i + baseClass + " implements IShape\n" +
+                    "    {\n" +
+                    "        public static const ID:String = \"shape" + i + "\";\n" +
+                    "        public var points:Vector.<int> = new Vector.<int>();\n" +
+                    "        private var _size:uint = " + i + ";\n" +
+                    "        public function Shape" + i + "()\n" +
+                    "        {\n" +
+                    (i == 0 ? "" : "            super();\n") +
+                    "        }\n" +
+                    (i == 0 ? "        public" : "        override public") +
+                    " function get area():Number\n" +
+                    "        {\n" +
+                    "            var other:Object = this;\n" +
+                    "            return (other as IShape) is IShape ? _size * " + i + " : 0;\n" +
+                    "        }\n" +
+                    "    }\n" +
+                    "}\n");
+            imports.append("    import shapes.Shape").append(i).append(";\n");
+            uses.append("            list.push(new Shape").append(i).append("());\n");
+        }
+        writeFile("Main.as",
+                "package\n" +
+                "{\n" +
+                "    import shapes.IShape;\n" +
+                imports +
+                "\n" +
+                "    public class Main\n" +
+                "    {\n" +
+                "        public function Main()\n" +
+                "        {\n" +
+                "            var list:Array = [];\n" +
+                uses +
+                "            for each (var shape:IShape in list)\n" +
+                "            {\n" +
+                "                trace(shape.area);\n" +
+                "            }\n" +
+                "        }\n" +
+                "    }\n" +
+                "}\n");
+    }
+
+    private void compile(String outputName, boolean parallel)
+    {
+        EnvProperties env = EnvProperties.initiate();
+        List<String> args = new ArrayList<String>();
+        args.add("-compiler.targets=JSRoyale");
+        String jsSwcPath = FilenameNormalization.normalize("../compiler-externc/target/js.swc");
+        args.add("-external-library-path=" + jsSwcPath);
+        args.add("-js-output=" + new File(new File(projectDir, outputName), "bin").getAbsolutePath());
+        args.add("-js-parallel-emit=" + parallel);
+        if (env.GOOG != null)
+            args.add("-closure-lib=" + env.GOOG);
+        else
+            args.add("-define=COMPILE::temp,false");
+        args.add(new File(srcDir, "Main.as").getAbsolutePath());
+
+        List<ICompilerProblem> problems = new ArrayList<ICompilerProblem>();
+        int exitCode = new MXMLJSC().mainNoExit(args.toArray(new String[0]), problems, true);
+        assertEquals(problems.toString(), MXMLJSC.ExitCode.SUCCESS.getCode(), exitCode);
+    }
+
+    /**
+     * @return The contents of every file in the output, by its path relative
+     * to the output folder.
+     */
+    private TreeMap<String, byte[]> readOutput(String outputName) throws IOException
+    {
+        File outputDir = new File(new File(projectDir, outputName), "bin");
+        String prefix = outputDir.getAbsolutePath() + File.separator;
+        TreeMap<String, byte[]> result = new TreeMap<String, byte[]>();
+        Collection<File> files = FileUtils.listFiles(outputDir, null, true);
+        for (File file : files)
+        {
+            String path = file.getAbsolutePath().substring(prefix.length());
+            result.put(path, FileUtils.readFileToByteArray(file));
+        }
+        return result;
+    }
+
+    @Test
+    public void testParallelOutputMatchesSerialOutput() throws IOException
+    {
+        // Both outputs are at the same depth, so relative paths in the
+        // source maps are the same.
+        compile("serial", false);
+        compile("parallel", true);
+
+        TreeMap<String, byte[]> serial = readOutput("serial");
+        TreeMap<String, byte[]> parallel = readOutput("parallel");
+        String lastClass = File.separator + "shapes" + File.separator + "Shape" + (CLASS_COUNT - 1) + ".js";
+        boolean hasLastClass = false;
+        for (String path : serial.keySet())
+        {
+            hasLastClass |= path.endsWith(lastClass);
+        }
+        assertTrue(serial.keySet().toString(), hasLastClass);
+        assertEquals(serial.keySet(), parallel.keySet());
+        for (String path : serial.keySet())
+        {
+            assertArrayEquals(path, serial.get(path), parallel.get(path));
+        }
+    }
+}
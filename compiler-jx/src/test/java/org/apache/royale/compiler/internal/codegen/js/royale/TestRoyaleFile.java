@@ -81,6 +81,23 @@ public class TestRoyaleFile extends RoyaleTestBase
                 "royale" + File.separator + "files"), true);
     }
 
+    @Test
+    public void testRoyaleMyControllerStreamedPostProcess()
+    {
+        String fileName = "controllers/MyController";
+
+        IFileNode node = compileAS(fileName, true,
+                new File(TestAdapterFactory.getTestAdapter().getUnitTestBaseDir(),
+                        "royale/files").getPath(),
+                false);
+        
+        asBlockWalker.visitFile(node);
+        
+        // same result as postProcess(String)
+        assertOutPostProcessStreamed(getCodeFromFile(fileName + "_result", true,
+                "royale" + File.separator + "files"), true);
+    }
+
     @Test
     public void testRoyaleMyModel()
     {
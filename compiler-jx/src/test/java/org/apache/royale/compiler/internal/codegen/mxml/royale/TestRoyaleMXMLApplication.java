@@ -21,6 +21,7 @@ package org.apache.royale.compiler.internal.codegen.mxml.royale;
 import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
 
 import org.apache.royale.compiler.clients.MXMLJSC;
 import org.apache.royale.compiler.internal.codegen.js.royale.JSRoyaleEmitter;
@@ -36,6 +37,8 @@ import org.apache.royale.utils.ITestAdapter;
 import org.apache.royale.utils.TestAdapterFactory;
 import org.junit.Test;
 
+import com.google.common.collect.Iterables;
+
 import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
@@ -1119,6 +1122,42 @@ public class TestRoyaleMXMLApplication extends RoyaleTestBase
         assertOutMXMLPostProcess(outTemplate.replaceAll("AppName", appName), true);
     }
 
+    @Test
+    public void testStreamedPostProcessOfMainApplication()
+    {
+        String code = "<basic:Application xmlns:fx=\"http://ns.adobe.com/mxml/2009\" xmlns:basic=\"library://ns.apache.org/royale/basic\">"
+        		+ "<fx:Script><![CDATA["
+        		+ "    public var xml:XML = new XML();\n"
+                + "]]></fx:Script><basic:initialView><basic:View><basic:Label text=\"Hello World\"/></basic:View></basic:initialView></basic:Application>";
+
+        String expected = postProcessMainApplication(code, false);
+        // the info() of the main application is appended to the output
+        assertTrue(expected.contains(".prototype.info = function() {"));
+
+        // emit the same document again with new emitters
+        tearDown();
+        setUp();
+        String streamed = postProcessMainApplication(code, true);
+
+        assertThat(streamed, is(expected));
+    }
+
+    private String postProcessMainApplication(String code, boolean streamed)
+    {
+        IMXMLDocumentNode dnode = (IMXMLDocumentNode) getNode(code,
+        		IMXMLDocumentNode.class, RoyaleTestBase.WRAP_LEVEL_NONE);
+        project.mainCU = Iterables.getOnlyElement(
+                workspace.getCompilationUnits(dnode.getSourcePath(), project));
+
+        ((JSRoyaleEmitter)(mxmlBlockWalker.getASEmitter())).getModel().setCurrentClass(dnode.getDefinition());
+        mxmlBlockWalker.visitDocument(dnode);
+        if (!streamed)
+            return mxmlEmitter.postProcess(writer.toString());
+        StringBuffer output = new StringBuffer(writer.toString());
+        mxmlEmitter.postProcess(output);
+        return output.toString();
+    }
+
     @Test
     public void testFXStringDeclaration()
     {
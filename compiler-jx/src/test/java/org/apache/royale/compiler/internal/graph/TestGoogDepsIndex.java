@@ -0,0 +1,144 @@
+/*
+ *
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.apache.royale.compiler.internal.graph;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.royale.compiler.internal.graph.GoogDepsWriter.FileInfo;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestGoogDepsIndex
+{
+    private File jsFile;
+    private File indexFile;
+
+    @Before
+    public void setUp() throws IOException
+    {
+        jsFile = File.createTempFile("TestGoogDepsIndex", ".js");
+        indexFile = File.createTempFile("TestGoogDepsIndex", ".index");
+        indexFile.delete();
+        FileUtils.write(jsFile, "goog.provide('foo.Bar');\ngoog.require('foo.Baz');\n", Charset.forName("utf8"));
+    }
+
+    @After
+    public void tearDown()
+    {
+        jsFile.delete();
+        indexFile.delete();
+    }
+
+    @Test
+    public void testUnchangedFileIsReusedAfterSaveAndLoad() throws IOException
+    {
+        GoogDepsIndex index = new GoogDepsIndex(indexFile);
+        index.load();
+        assertNull(index.get(jsFile, "foo.Bar"));
+        index.put(jsFile, "foo.Bar", FileUtils.readFileToByteArray(jsFile), createFileInfo());
+        index.save();
+
+        GoogDepsIndex loaded = new GoogDepsIndex(indexFile);
+        loaded.load();
+        FileInfo fi = loaded.get(jsFile, "foo.Bar");
+        assertNotNull(fi);
+        assertEquals(Arrays.asList("foo.Baz"), fi.deps);
+        assertNull(fi.impls);
+        assertEquals(0, fi.googProvideLine);
+        assertTrue(fi.needCSS);
+        assertEquals(1, loaded.getHitCount());
+    }
+
+    @Test
+    public void testSameContentsWithNewTimestampIsReused() throws IOException
+    {
+        GoogDepsIndex index = new GoogDepsIndex(indexFile);
+        index.put(jsFile, "foo.Bar", FileUtils.readFileToByteArray(jsFile), createFileInfo());
+        jsFile.setLastModified(jsFile.lastModified() - 10000);
+        assertNotNull(index.get(jsFile, "foo.Bar"));
+    }
+
+    @Test
+    public void testChangedFileIsScannedAgain() throws IOException
+    {
+        GoogDepsIndex index = new GoogDepsIndex(indexFile);
+        index.put(jsFile, "foo.Bar", FileUtils.readFileToByteArray(jsFile), createFileInfo());
+        FileUtils.write(jsFile, "goog.provide('foo.Bar');\ngoog.require('foo.Qux');\n", Charset.forName("utf8"));
+        jsFile.setLastModified(jsFile.lastModified() - 10000);
+        assertNull(index.get(jsFile, "foo.Bar"));
+        assertEquals(1, index.getMissCount());
+    }
+
+    @Test
+    public void testReturnedFileInfoIsACopy() throws IOException
+    {
+        GoogDepsIndex index = new GoogDepsIndex(indexFile);
+        index.put(jsFile, "foo.Bar", FileUtils.readFileToByteArray(jsFile), createFileInfo());
+        FileInfo fi = index.get(jsFile, "foo.Bar");
+        fi.deps.add("foo.Other");
+        assertEquals(Arrays.asList("foo.Baz"), index.get(jsFile, "foo.Bar").deps);
+    }
+
+    @Test
+    public void testLargeInjectedHTMLIsSaved() throws IOException
+    {
+        // larger than the 64K bytes that DataOutputStream.writeUTF allows
+        StringBuilder html = new StringBuilder();
+        while (html.length() < 100000)
+        {
+            html.append("<script src=\"lib\u00e9.js\"></script>\n");
+        }
+        FileInfo fi = createFileInfo();
+        fi.additionalHTML = new ArrayList<String>(Arrays.asList(html.toString()));
+        GoogDepsIndex index = new GoogDepsIndex(indexFile);
+        index.put(jsFile, "foo.Bar", FileUtils.readFileToByteArray(jsFile), fi);
+        index.save();
+
+        GoogDepsIndex loaded = new GoogDepsIndex(indexFile);
+        loaded.load();
+        FileInfo loadedInfo = loaded.get(jsFile, "foo.Bar");
+        assertNotNull(loadedInfo);
+        assertEquals(Arrays.asList(html.toString()), loadedInfo.additionalHTML);
+    }
+
+    private FileInfo createFileInfo()
+    {
+        FileInfo fi = new FileInfo();
+        fi.deps = new ArrayList<String>(Arrays.asList("foo.Baz"));
+        fi.constructorLine = -1;
+        fi.depsLine = -1;
+        fi.suppressLine = -1;
+        fi.fileoverviewLine = -1;
+        fi.googProvideLine = 0;
+        fi.needCSS = true;
+        return fi;
+    }
+}
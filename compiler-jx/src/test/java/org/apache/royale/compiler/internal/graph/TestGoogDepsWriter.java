@@ -0,0 +1,305 @@
+/*
+ *
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.apache.royale.compiler.internal.graph;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.royale.compiler.clients.problems.ProblemQuery;
+import org.apache.royale.compiler.config.ConfigurationValue;
+import org.apache.royale.compiler.exceptions.ConfigurationException;
+import org.apache.royale.compiler.internal.driver.js.goog.JSGoogConfiguration;
+import org.apache.royale.compiler.internal.projects.RoyaleJSProject;
+import org.apache.royale.compiler.internal.workspaces.Workspace;
+import org.apache.royale.compiler.problems.CircularJSDependencyProblem;
+import org.apache.royale.compiler.problems.FileNotFoundProblem;
+import org.apache.royale.compiler.problems.ICompilerProblem;
+import org.apache.royale.swc.ISWC;
+import org.apache.royale.swc.ISWCFileEntry;
+import org.apache.royale.swc.SWC;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestGoogDepsWriter
+{
+    private File tempDir;
+    private File outputFolder;
+    private Workspace workspace;
+    private RoyaleJSProject project;
+    private ProblemQuery problems;
+
+    @Before
+    public void setUp() throws IOException
+    {
+        tempDir = Files.createTempDirectory("TestGoogDepsWriter").toFile();
+        outputFolder = new File(new File(tempDir, "bin"), "js-debug");
+        workspace = new Workspace();
+        // the project has no sources, so every class is goog.provided
+        project = new RoyaleJSProject(workspace, null);
+        problems = new ProblemQuery();
+    }
+
+    @After
+    public void tearDown() throws IOException
+    {
+        workspace.close();
+        FileUtils.deleteDirectory(tempDir);
+    }
+
+    /**
+     * Writes the .js file of a class to the output folder, as the emitter
+     * would.
+     *
+     * @param baseClassName The class in the @extends annotation, or null.
+     */
+    private void writeClass(String className, String baseClassName, String... requires) throws IOException
+    {
+        StringBuilder sb = new StringBuilder();
+        sb.append("/**\n");
+        sb.append(" * Generated by Apache Royale Compiler\n");
+        sb.append(" * @fileoverview\n");
+        sb.append(" */\n");
+        sb.append("\n");
+        sb.append("goog.provide('").append(className).append("');\n");
+        sb.append("\n");
+        for (String require : requires)
+        {
+            sb.append("goog.require('").append(require).append("');\n");
+        }
+        sb.append("\n");
+        sb.append("/**\n");
+        sb.append(" * @constructor\n");
+        if (baseClassName != null)
+        {
+            sb.append(" * @extends {").append(baseClassName).append("}\n");
+        }
+        sb.append(" */\n");
+        sb.append(className).append(" = function() {};\n");
+        File file = new File(outputFolder, className.replace(".", File.separator) + ".js");
+        FileUtils.writeStringToFile(file, sb.toString(), Charset.forName("utf8"));
+    }
+
+    /**
+     * @return The classes in the order of the files that GoogDepsWriter
+     * lists.
+     */
+    private List<String> getSortedClasses() throws ConfigurationException
+    {
+        JSGoogConfiguration config = new JSGoogConfiguration();
+        // keep the requires, so that the order is the order of the walk
+        config.setRemoveCirculars((ConfigurationValue)null, false);
+        GoogDepsWriter writer = createWriter(config, Collections.<ISWC>emptyList());
+        List<String> files = writer.getListOfFiles(project, new ArrayList<String>(), problems);
+        List<String> classNames = new ArrayList<String>();
+        String prefix = outputFolder.getAbsolutePath() + File.separator;
+        for (String file : files)
+        {
+            assertTrue(file, file.startsWith(prefix) && file.endsWith(".js"));
+            String path = file.substring(prefix.length(), file.length() - ".js".length());
+            classNames.add(path.replace(File.separator, "."));
+        }
+        return classNames;
+    }
+
+    private <T extends ICompilerProblem> List<T> getProblems(Class<T> problemClass)
+    {
+        List<T> result = new ArrayList<T>();
+        for (ICompilerProblem problem : problems.getProblems())
+        {
+            if (problemClass.isInstance(problem))
+                result.add(problemClass.cast(problem));
+        }
+        return result;
+    }
+
+    private GoogDepsWriter createWriter(JSGoogConfiguration config, List<ISWC> swcs)
+    {
+        return new GoogDepsWriter(outputFolder, "Main", config, swcs);
+    }
+
+    /**
+     * Adds the files of a SWC on disk to a {@link SWC}, read from its
+     * archive as the catalog reader's files are.
+     */
+    private static void addFiles(final SWC swc, String... paths)
+    {
+        for (final String path : paths)
+        {
+            swc.addFile(new ISWCFileEntry()
+            {
+                @Override
+                public String getContainingSWCPath()
+                {
+                    return swc.getSWCFile().getAbsolutePath();
+                }
+
+                @Override
+                public String getPath()
+                {
+                    return path;
+                }
+
+                @Override
+                public long getLastModified()
+                {
+                    return 0;
+                }
+
+                @Override
+                public InputStream createInputStream() throws IOException
+                {
+                    return swc.getArchive().getInputStream(path);
+                }
+            });
+        }
+    }
+
+    /**
+     * A long chain is sorted with the deepest class first, as the recursive
+     * walk sorted it.
+     */
+    @Test
+    public void testDeepChainIsSortedDeepestFirst() throws Exception
+    {
+        int n = 2000;
+        writeClass("Main", null, "chain.C0");
+        for (int i = 0; i < n - 1; i++)
+        {
+            writeClass("chain.C" + i, null, "chain.C" + (i + 1));
+        }
+        writeClass("chain.C" + (n - 1), null);
+
+        List<String> expected = new ArrayList<String>();
+        for (int i = n - 1; i >= 0; i--)
+        {
+            expected.add("chain.C" + i);
+        }
+        expected.add("Main");
+        assertEquals(expected, getSortedClasses());
+        assertEquals(problems.getProblems().toString(), 0, problems.getProblems().size());
+    }
+
+    /**
+     * The order of the recursive walk: the base class and its dependencies
+     * first, then the other dependencies in the order of the requires, and a
+     * class that two classes depend on only once.
+     */
+    @Test
+    public void testDiamondIsSortedAsRecursiveWalk() throws Exception
+    {
+        writeClass("Main", "a.C", "a.B", "a.C");
+        writeClass("a.B", null, "a.D");
+        writeClass("a.C", null, "a.D");
+        writeClass("a.D", null);
+
+        assertEquals(Arrays.asList("a.D", "a.C", "a.B", "Main"), getSortedClasses());
+        assertEquals(problems.getProblems().toString(), 0, problems.getProblems().size());
+    }
+
+    @Test
+    public void testInheritanceCycleIsReportedOnce() throws Exception
+    {
+        writeClass("Main", null, "a.A", "b.C");
+        writeClass("a.A", "a.B", "a.B");
+        writeClass("a.B", "a.A", "a.A");
+        // a cycle of requires alone is not a problem
+        writeClass("b.C", null, "b.D");
+        writeClass("b.D", null, "b.C");
+
+        List<String> classNames = getSortedClasses();
+        assertEquals(Arrays.asList("a.B", "a.A", "b.D", "b.C", "Main"), classNames);
+        List<CircularJSDependencyProblem> cycles = getProblems(CircularJSDependencyProblem.class);
+        assertEquals(problems.getProblems().toString(), 1, cycles.size());
+        assertEquals("a.A -> a.B -> a.A", cycles.get(0).cycle);
+        assertEquals(problems.getProblems().toString(), 1, problems.getProblems().size());
+    }
+
+    @Test
+    public void testMissingFileIsReported() throws Exception
+    {
+        writeClass("Main", null, "a.B", "a.Missing");
+        writeClass("a.B", null, "a.Missing");
+
+        assertEquals(Arrays.asList("a.B", "Main"), getSortedClasses());
+        List<FileNotFoundProblem> missing = getProblems(FileNotFoundProblem.class);
+        assertEquals(problems.getProblems().toString(), 1, missing.size());
+        assertEquals("a.Missing", missing.get(0).file);
+        assertEquals(problems.getProblems().toString(), 1, problems.getProblems().size());
+    }
+
+    @Test
+    public void testLargeAssetIsCopiedFromSWC() throws IOException
+    {
+        // Random bytes don't compress, so the asset is inflated from more
+        // than one input buffer.
+        byte[] asset = new byte[40000];
+        new Random(1).nextBytes(asset);
+        String js = "goog.provide('org.apache.royale.Foo');\n";
+        File swcFile = new File(tempDir, "Lib.swc");
+        ZipOutputStream output = new ZipOutputStream(new FileOutputStream(swcFile));
+        try
+        {
+            output.putNextEntry(new ZipEntry("js/out/org/apache/royale/Foo.js"));
+            output.write(js.getBytes("utf8"));
+            output.closeEntry();
+            output.putNextEntry(new ZipEntry("assets/large.png"));
+            output.write(asset);
+            output.closeEntry();
+        }
+        finally
+        {
+            output.close();
+        }
+
+        SWC swc = new SWC(swcFile);
+        addFiles(swc, "js/out/org/apache/royale/Foo.js", "assets/large.png");
+        try
+        {
+            GoogDepsWriter writer = createWriter(new JSGoogConfiguration(), Collections.<ISWC>singletonList(swc));
+            String filePath = writer.getFilePath("org.apache.royale.Foo", true);
+            assertEquals(js, FileUtils.readFileToString(new File(filePath), Charset.forName("utf8")));
+
+            File assetFile = new File(outputFolder, "assets/large.png");
+            assertTrue(assetFile.exists());
+            assertArrayEquals(asset, FileUtils.readFileToByteArray(assetFile));
+        }
+        finally
+        {
+            swc.closeArchive();
+        }
+    }
+}
@@ -255,6 +255,16 @@ public class TestBase implements ITestBase
         assertThat(mCode, is(code));
     }
     
+    protected void assertOutPostProcessStreamed(String code, boolean keepMetadata)
+    {
+        StringBuffer output = new StringBuffer(writer.toString());
+        asEmitter.postProcess(output);
+    	mCode = removeGeneratedString(output.toString());
+    	if (!keepMetadata)
+    		mCode = removeMetadata(mCode);
+        assertThat(mCode, is(code));
+    }
+    
     protected void assertOutMXMLPostProcess(String code, boolean keepMetadata)
     {
     	mCode = removeGeneratedString(mxmlEmitter.postProcess(writer.toString()));
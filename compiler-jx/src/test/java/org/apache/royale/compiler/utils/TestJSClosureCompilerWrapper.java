@@ -0,0 +1,295 @@
+/*
+ *
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.apache.royale.compiler.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.royale.compiler.clients.problems.ProblemQuery;
+import org.apache.royale.compiler.problems.ICompilerProblem;
+import org.apache.royale.compiler.problems.JSCompilerCacheProblem;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the cache of the output of Closure Compiler in
+ * {@link JSClosureCompilerWrapper}.
+ */
+public class TestJSClosureCompilerWrapper
+{
+    private static final Charset UTF8 = Charset.forName("utf8");
+
+    private File tempDir;
+    private File cacheDir;
+    private File outputDir;
+    private File sourceFile;
+    private File targetFile;
+
+    /**
+     * The messages that Closure Compiler logged, which includes the
+     * warnings that a cache hit replays.
+     */
+    private final List<String> loggedWarnings = new ArrayList<String>();
+    private final Logger closureLogger = Logger.getLogger("com.google.javascript.jscomp");
+    private final Handler handler = new Handler()
+    {
+        @Override
+        public void publish(LogRecord record)
+        {
+            synchronized (loggedWarnings)
+            {
+                loggedWarnings.add(record.getMessage());
+            }
+        }
+
+        @Override
+        public void flush()
+        {
+        }
+
+        @Override
+        public void close()
+        {
+        }
+    };
+
+    @Before
+    public void setUp() throws IOException
+    {
+        tempDir = Files.createTempDirectory("TestJSClosureCompilerWrapper").toFile();
+        cacheDir = new File(tempDir, "cache");
+        outputDir = new File(tempDir, "js-release");
+        outputDir.mkdirs();
+        sourceFile = new File(tempDir, "Main.js");
+        targetFile = new File(outputDir, "Main.js");
+        // the debugger statement is a warning with strict publishing
+        writeSource("var Main = function(value) { this.value = value; };\n" +
+                    "Main.prototype.getValue = function() { debugger; return this.value; };\n" +
+                    "window['main'] = new Main(1).getValue();\n");
+        closureLogger.addHandler(handler);
+    }
+
+    @After
+    public void tearDown() throws IOException
+    {
+        closureLogger.removeHandler(handler);
+        FileUtils.deleteDirectory(tempDir);
+    }
+
+    private void writeSource(String source) throws IOException
+    {
+        FileUtils.writeStringToFile(sourceFile, source, UTF8);
+    }
+
+    private JSClosureCompilerWrapper createWrapper(String... args) throws IOException
+    {
+        List<String> argList = new ArrayList<String>();
+        argList.add("--variable_map_output_file vars.txt");
+        argList.add("--property_map_output_file props.txt");
+        argList.addAll(Arrays.asList(args));
+        JSClosureCompilerWrapper wrapper = new JSClosureCompilerWrapper(argList);
+        wrapper.addJSSourceFile(sourceFile.getPath());
+        wrapper.setOptions(targetFile.getPath(), true, false, "Main");
+        wrapper.targetFilePath = targetFile.getPath();
+        wrapper.setSourceMap(true);
+        wrapper.setCacheDirectory(cacheDir);
+        return wrapper;
+    }
+
+    private File getSourceMapFile()
+    {
+        return new File(targetFile.getPath() + ".map");
+    }
+
+    private File getVariableMapFile()
+    {
+        return new File(outputDir, "vars.txt");
+    }
+
+    private File getPropertyMapFile()
+    {
+        return new File(outputDir, "props.txt");
+    }
+
+    private void deleteOutputs()
+    {
+        targetFile.delete();
+        getSourceMapFile().delete();
+        getVariableMapFile().delete();
+        getPropertyMapFile().delete();
+    }
+
+    /**
+     * @return The entries in the cache directory, including ones that are
+     * still being saved.
+     */
+    private List<String> getCacheEntries()
+    {
+        List<String> entries = new ArrayList<String>();
+        String[] names = cacheDir.list();
+        if (names != null)
+            entries.addAll(Arrays.asList(names));
+        return entries;
+    }
+
+    private File getOnlyCacheEntry()
+    {
+        List<String> entries = getCacheEntries();
+        assertEquals(entries.toString(), 1, entries.size());
+        return new File(cacheDir, entries.get(0));
+    }
+
+    private List<String> getWarnings()
+    {
+        List<String> warnings = new ArrayList<String>();
+        synchronized (loggedWarnings)
+        {
+            for (String message : loggedWarnings)
+            {
+                if (message.contains("debugger statement"))
+                    warnings.add(message);
+            }
+            loggedWarnings.clear();
+        }
+        return warnings;
+    }
+
+    private static String read(File file) throws IOException
+    {
+        return FileUtils.readFileToString(file, UTF8);
+    }
+
+    @Test
+    public void testHitRestoresOutputsAndReplaysWarnings() throws IOException
+    {
+        ProblemQuery problems = new ProblemQuery();
+        assertTrue(createWrapper().compile(problems));
+        List<String> warnings = getWarnings();
+        assertFalse(warnings.isEmpty());
+
+        File entry = getOnlyCacheEntry();
+        assertTrue(entry.getName(), entry.getName().startsWith("Main.js-"));
+        assertEquals(read(targetFile), read(new File(entry, "output.js")));
+        assertEquals(read(getSourceMapFile()), read(new File(entry, "output.js.map")));
+        assertEquals(read(getVariableMapFile()), read(new File(entry, "variable.map")));
+        assertEquals(read(getPropertyMapFile()), read(new File(entry, "property.map")));
+
+        // mark the stored output, so that a hit can be told from a compile
+        File cachedOutput = new File(entry, "output.js");
+        FileUtils.writeStringToFile(cachedOutput, read(cachedOutput) + "// cached\n", UTF8);
+        String sourceMap = read(getSourceMapFile());
+        String variableMap = read(getVariableMapFile());
+        String propertyMap = read(getPropertyMapFile());
+        deleteOutputs();
+
+        assertTrue(createWrapper().compile(problems));
+        assertTrue(read(targetFile).endsWith("// cached\n"));
+        assertEquals(sourceMap, read(getSourceMapFile()));
+        assertEquals(variableMap, read(getVariableMapFile()));
+        assertEquals(propertyMap, read(getPropertyMapFile()));
+        assertEquals(warnings, getWarnings());
+        assertEquals(entry, getOnlyCacheEntry());
+        assertEquals(problems.getProblems().toString(), 0, problems.getProblems().size());
+    }
+
+    @Test
+    public void testKeyChangesWithInputs() throws IOException
+    {
+        String key = createWrapper().computeCacheKey();
+        assertEquals(key, createWrapper().computeCacheKey());
+
+        // a source
+        writeSource("window['main'] = 2;\n");
+        String sourceKey = createWrapper().computeCacheKey();
+        assertFalse(key.equals(sourceKey));
+
+        // an extern
+        File externsFile = new File(tempDir, "externs.js");
+        FileUtils.writeStringToFile(externsFile, "var External;\n", UTF8);
+        JSClosureCompilerWrapper wrapper = createWrapper();
+        wrapper.addJSExternsFile(externsFile.getPath());
+        String externsKey = wrapper.computeCacheKey();
+        assertFalse(sourceKey.equals(externsKey));
+
+        FileUtils.writeStringToFile(externsFile, "var OtherExternal;\n", UTF8);
+        wrapper = createWrapper();
+        wrapper.addJSExternsFile(externsFile.getPath());
+        assertFalse(externsKey.equals(wrapper.computeCacheKey()));
+
+        // an argument
+        assertFalse(sourceKey.equals(createWrapper("--compilation_level SIMPLE_OPTIMIZATIONS").computeCacheKey()));
+
+        // an option that is set after the arguments are parsed
+        wrapper = createWrapper();
+        wrapper.setSourceMap(false);
+        assertFalse(sourceKey.equals(wrapper.computeCacheKey()));
+    }
+
+    @Test
+    public void testInterruptedSaveIsNotUsed() throws IOException
+    {
+        JSClosureCompilerWrapper wrapper = createWrapper();
+        String key = wrapper.computeCacheKey();
+
+        // a save that was interrupted before the entry was renamed
+        File tempEntry = new File(cacheDir, "Main.js-" + key + ".tmp");
+        tempEntry.mkdirs();
+        FileUtils.writeStringToFile(new File(tempEntry, "output.js"), "// interrupted\n", UTF8);
+
+        ProblemQuery problems = new ProblemQuery();
+        assertTrue(wrapper.compile(problems));
+        assertFalse(read(targetFile).contains("// interrupted"));
+
+        // the save of this compilation replaces it
+        File entry = getOnlyCacheEntry();
+        assertEquals("Main.js-" + key, entry.getName());
+        assertEquals(read(targetFile), read(new File(entry, "output.js")));
+        assertEquals(problems.getProblems().toString(), 0, problems.getProblems().size());
+    }
+
+    @Test
+    public void testUnusableCacheIsReportedAsWarning() throws IOException
+    {
+        // a file where the cache directory should be
+        FileUtils.writeStringToFile(cacheDir, "", UTF8);
+
+        ProblemQuery problems = new ProblemQuery();
+        assertTrue(createWrapper().compile(problems));
+        assertTrue(targetFile.isFile());
+        List<ICompilerProblem> list = problems.getProblems();
+        assertEquals(list.toString(), 1, list.size());
+        assertTrue(list.get(0) instanceof JSCompilerCacheProblem);
+        assertFalse(problems.hasErrors());
+    }
+}
@@ -55,7 +55,12 @@ import org.apache.royale.compiler.problems.ICompilerProblem;
 import org.apache.royale.compiler.problems.UnreachableBlockProblem;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * The ABCLinker links a sequence of ABC blocks into a single ABC block,
@@ -65,6 +70,9 @@ public class ABCLinker
 {
     public static byte[] linkABC(Iterable<byte[]> inputABCs, int majorVersion, int minorVersion, ABCLinkerSettings settings) throws Exception
     {
+        if (settings.executor != null)
+            return linkABCParallel(inputABCs, majorVersion, minorVersion, settings);
+
         ABCEmitter emitter = new ABCEmitter();
         // ABCs from 4.5 may have non-sensical jumps past the end of a method
         // so allow those, instead of throwin java exceptions
@@ -79,6 +87,118 @@ public class ABCLinker
         return emitter.emit();
     }
 
+    /**
+     * Links the ABCs in two phases. First, each input ABC is parsed, stripped
+     * and optimized into an ABC of its own, on the threads of the
+     * {@link Executor} in the settings. Then the transformed ABCs are merged
+     * into a single ABC on the calling thread, in the order of the input, so
+     * the output does not depend on the order the threads finish in.
+     * <p>
+     * All the transformations are done one method body at a time, so applying
+     * them to each ABC on its own has the same effect as applying them while
+     * merging.
+     */
+    private static byte[] linkABCParallel(Iterable<byte[]> inputABCs, final int majorVersion, final int minorVersion,
+                                          final ABCLinkerSettings settings) throws Exception
+    {
+        final List<byte[]> inputs = new ArrayList<byte[]>();
+        for (byte[] inputABC : inputABCs)
+            inputs.add(inputABC);
+
+        final int count = inputs.size();
+        final byte[][] transformedABCs = new byte[count][];
+        final Throwable[] failures = new Throwable[count];
+        @SuppressWarnings("unchecked")
+        final Collection<ICompilerProblem>[] problems = new Collection[count];
+        final AtomicInteger nextInput = new AtomicInteger();
+        final CountDownLatch done = new CountDownLatch(count);
+
+        // Each thread takes the next input until there are none left. The
+        // calling thread takes inputs too, so the link finishes even if the
+        // executor has no idle threads.
+        final Runnable worker = new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                int i;
+                while ((i = nextInput.getAndIncrement()) < count)
+                {
+                    try
+                    {
+                        problems[i] = new ArrayList<ICompilerProblem>();
+                        transformedABCs[i] = transformABC(inputs.get(i), majorVersion, minorVersion,
+                                                          settings, problems[i]);
+                    }
+                    catch (Throwable t)
+                    {
+                        // Errors are kept too, so that an input that was not
+                        // transformed is never merged.
+                        failures[i] = t;
+                    }
+                    finally
+                    {
+                        done.countDown();
+                    }
+                }
+            }
+        };
+
+        final int threadCount = settings.threadCount > 0 ? settings.threadCount : Runtime.getRuntime().availableProcessors();
+        final int helperCount = Math.min(count, threadCount) - 1;
+        for (int i = 0; i < helperCount; i++)
+            settings.executor.execute(worker);
+        worker.run();
+        done.await();
+
+        for (int i = 0; i < count; i++)
+        {
+            final Throwable failure = failures[i];
+            if (failure instanceof Error)
+                throw (Error)failure;
+            if (failure instanceof Exception)
+                throw (Exception)failure;
+            if (failure != null)
+                throw new Exception(failure);
+            if (settings.problems != null)
+                settings.problems.addAll(problems[i]);
+        }
+
+        // The transformed ABCs only have to be merged, but private namespaces
+        // still have to be merged for inlining.
+        final ABCLinkerSettings mergeSettings = new ABCLinkerSettings();
+        mergeSettings.setEnableInlining(settings.enableInlining);
+
+        ABCEmitter emitter = new ABCEmitter();
+        emitter.setAllowBadJumps(true);
+        emitter.visit(majorVersion, minorVersion);
+        for (byte[] transformedABC : transformedABCs)
+        {
+            ABCParser abcParser = new ABCParser(transformedABC);
+            abcParser.parseABC(new LinkingVisitor(emitter, mergeSettings));
+        }
+        emitter.visitEnd();
+        return emitter.emit();
+    }
+
+    /**
+     * Applies the transformations in the settings to a single ABC.
+     */
+    private static byte[] transformABC(byte[] inputABC, int majorVersion, int minorVersion,
+                                       ABCLinkerSettings settings, Collection<ICompilerProblem> problems) throws Exception
+    {
+        final ABCLinkerSettings abcSettings = settings.copy();
+        abcSettings.setProblemsCollection(problems);
+
+        ABCEmitter emitter = new ABCEmitter();
+        emitter.setAllowBadJumps(true);
+        emitter.visit(majorVersion, minorVersion);
+        ABCParser abcParser = new ABCParser(inputABC);
+        abcParser.parseABC(new LinkingVisitor(emitter, abcSettings));
+        emitter.visitEnd();
+        return emitter.emit();
+    }
+
     public static class ABCLinkerSettings
     {
         private boolean optimize = false;
@@ -93,6 +213,29 @@ public class ABCLinker
         @SuppressWarnings("unused")
         private int majorVersion = ABCConstants.VERSION_ABC_MAJOR_FP10;
         private Collection<ICompilerProblem> problems;
+        private Executor executor = null;
+        private int threadCount = 0;
+
+        /**
+         * @return A copy of these settings.
+         */
+        ABCLinkerSettings copy()
+        {
+            ABCLinkerSettings result = new ABCLinkerSettings();
+            result.optimize = optimize;
+            result.enableInlining = enableInlining;
+            result.stripDebug = stripDebug;
+            result.stripFileAttributeFromGotoDefinitionHelp = stripFileAttributeFromGotoDefinitionHelp;
+            result.stripGotoDefinitionHelp = stripGotoDefinitionHelp;
+            result.removeDeadCode = removeDeadCode;
+            result.meta_names = meta_names;
+            result.minorVersion = minorVersion;
+            result.majorVersion = majorVersion;
+            result.problems = problems;
+            result.executor = executor;
+            result.threadCount = threadCount;
+            return result;
+        }
 
         /**
          * Tell the linker whether it should run the peephole optimizer defaults
@@ -195,6 +338,33 @@ public class ABCLinker
         {
             this.problems = problems;
         }
+
+        /**
+         * Tell the linker to parse and optimize the input ABCs in parallel,
+         * on the threads of an {@link Executor}. The output is equivalent to
+         * the output of a link on a single thread, and it does not depend on
+         * the scheduling of the threads. Defaults to null.
+         * 
+         * @param executor the executor to use, or null to link the ABCs on
+         * the calling thread.
+         */
+        public void setExecutor(Executor executor)
+        {
+            this.executor = executor;
+        }
+
+        /**
+         * Tell the linker how many threads it may use to link the ABCs in
+         * parallel, including the calling thread. Defaults to 0, which uses
+         * one thread per processor.
+         * 
+         * @param threadCount the number of threads, or 0 to use one thread
+         * per processor.
+         */
+        public void setThreadCount(int threadCount)
+        {
+            this.threadCount = threadCount;
+        }
     }
 
     /**
@@ -491,6 +491,18 @@ public class ASC
             return removeDeadCode;
         }
 
+        @Override
+        public boolean getParallelLink()
+        {
+            return false;
+        }
+
+        @Override
+        public boolean getParallelCompression()
+        {
+            return false;
+        }
+
 		@Override
 		public String getSWFMetadataDate() {
 			// TODO Auto-generated method stub
@@ -46,6 +46,10 @@ import org.apache.royale.swc.ISWC;
 import org.apache.royale.swc.io.ISWCWriter;
 import org.apache.royale.swc.io.SWCDirectoryWriter;
 import org.apache.royale.swc.io.SWCWriter;
+import org.apache.royale.swf.Header.Compression;
+import org.apache.royale.swf.ISWF;
+import org.apache.royale.swf.io.ISWFWriter;
+import org.apache.royale.swf.io.ISWFWriterFactory;
 import org.apache.royale.swf.io.SizeReportWritingSWFWriter;
 import org.apache.flex.tools.FlexTool;
 import org.apache.royale.utils.FilenameNormalization;
@@ -224,7 +228,7 @@ public class COMPC extends MXMLC implements FlexTool
             final String path = FilenameNormalization.normalize(outputOptionValue);
             final ISWCWriter swcWriter = new SWCDirectoryWriter(path, useCompression,
                     targetSettings.isDebugEnabled(), targetSettings.isTelemetryEnabled(),
-                    SizeReportWritingSWFWriter.getSWFWriterFactory(targetSettings.getSizeReport()));
+                    getSWFWriterFactory());
             if ((CompilerDiagnosticsConstants.diagnostics & CompilerDiagnosticsConstants.COMPC_PHASES) == CompilerDiagnosticsConstants.COMPC_PHASES)
             	System.out.println("attempting to write swc");
             swcWriter.write(swc);
@@ -246,7 +250,7 @@ public class COMPC extends MXMLC implements FlexTool
             final ISWCWriter swcWriter = new SWCWriter(outputOptionValue, useCompression,
                     targetSettings.isDebugEnabled(), targetSettings.isTelemetryEnabled(),
                     targetSettings.getSWFMetadataDate(), targetSettings.getSWFMetadataDateFormat(),
-                    SizeReportWritingSWFWriter.getSWFWriterFactory(targetSettings.getSizeReport()));
+                    getSWFWriterFactory());
             if ((CompilerDiagnosticsConstants.diagnostics & CompilerDiagnosticsConstants.COMPC_PHASES) == CompilerDiagnosticsConstants.COMPC_PHASES)
             	System.out.println("attempting to write swc");
             swcWriter.write(swc);
@@ -264,6 +268,29 @@ public class COMPC extends MXMLC implements FlexTool
         }
     }
 
+    /**
+     * Creates the factory for the writers of the library SWFs. Like MXMLC,
+     * the SWFs are compressed on the workspace's threads if
+     * {@code -compiler.parallel-compression} is enabled.
+     */
+    private ISWFWriterFactory getSWFWriterFactory()
+    {
+        final ISWFWriterFactory factory = SizeReportWritingSWFWriter.getSWFWriterFactory(
+                targetSettings.getSizeReport());
+        return new ISWFWriterFactory()
+        {
+            @Override
+            public ISWFWriter createSWFWriter(ISWF swf, Compression useCompression,
+                    boolean enableDebug, boolean enableTelemetry)
+            {
+                final ISWFWriter writer = factory.createSWFWriter(swf, useCompression,
+                        enableDebug, enableTelemetry);
+                setCompressionExecutor(writer);
+                return writer;
+            }
+        };
+    }
+
     @Override
     protected void reportTargetCompletion()
     {
@@ -51,7 +51,6 @@ import org.apache.royale.compiler.config.CommandLineConfigurator;
 import org.apache.royale.compiler.config.CompilerDiagnosticsConstants;
 import org.apache.royale.compiler.config.Configuration;
 import org.apache.royale.compiler.config.ConfigurationBuffer;
-import org.apache.royale.compiler.config.ConfigurationPathResolver;
 import org.apache.royale.compiler.config.ConfigurationValue;
 import org.apache.royale.compiler.config.Configurator;
 import org.apache.royale.compiler.config.ICompilerProblemSettings;
@@ -96,6 +95,7 @@ import org.apache.royale.swf.Header;
 import org.apache.royale.swf.ISWF;
 import org.apache.royale.swf.io.ISWFWriter;
 import org.apache.royale.swf.io.SizeReportWritingSWFWriter;
+import org.apache.royale.swf.io.SWFWriter;
 import org.apache.royale.utils.FilenameNormalization;
 
 import com.google.common.base.Function;
@@ -269,6 +269,12 @@ public class MXMLC implements FlexTool
             {
                 waitAndClose();
             }
+            else
+            {
+                // the workspace is kept open for the next build, so write
+                // the profiling report of this build now
+                workspace.writeProfilingReport();
+            }
             
             if (Counter.COUNT_TOKENS || Counter.COUNT_NODES ||
                 Counter.COUNT_DEFINITIONS || Counter.COUNT_SCOPES)
@@ -487,6 +493,12 @@ public class MXMLC implements FlexTool
     public ConfigurationBuffer configBuffer;
 
 	public Class<? extends Configuration> configurationClass = Configuration.class;
+
+    /**
+     * @see Configurator#setWorkingDirectory(String)
+     */
+    public String workingDirectory;
+
     protected Configurator projectConfigurator;
 
     protected ICompilationUnit mainCU;
@@ -573,8 +585,7 @@ public class MXMLC implements FlexTool
                 return false;
             }
 
-            ConfigurationPathResolver resolver = new ConfigurationPathResolver(System.getProperty("user.dir")); 
-            projectConfigurator.setConfigurationPathResolver(resolver);
+            projectConfigurator.setWorkingDirectory(workingDirectory);
             projectConfigurator.setWarnOnRoyaleOnlyOptionUsage(false);
             if (useFlashBuilderProjectFiles(args))
                 projectConfigurator.setConfiguration(FlashBuilderConfigurator.computeFlashBuilderArgs(args, getTargetType().getExtension()), 
@@ -983,10 +994,27 @@ public class MXMLC implements FlexTool
                 targetSettings.getSizeReport()); 
         final ISWFWriter writer = writerFactory.createSWFWriter(swf, compression,
                 targetSettings.isDebugEnabled(), targetSettings.isTelemetryEnabled());
+        setCompressionExecutor(writer);
         
         return writer.writeTo(outputFile);
     }
 
+    /**
+     * Compress the SWF on the workspace's threads if
+     * {@code -compiler.parallel-compression} is enabled. The SWF is
+     * compressed on as many threads as the workspace's other parallel work.
+     * 
+     * @param writer SWF writer
+     */
+    protected void setCompressionExecutor(final ISWFWriter writer)
+    {
+        if (targetSettings.getParallelCompression() && writer instanceof SWFWriter)
+        {
+            ((SWFWriter)writer).setCompressionExecutor(workspace.getExecutorService(),
+                    workspace.getExecutorThreadCount());
+        }
+    }
+
     /**
      * MXMLC uses target file as the main compilation unit and derive the output
      * SWF file name from this file.
@@ -1281,6 +1309,7 @@ public class MXMLC implements FlexTool
                 targetSettings.getSizeReport()); 
         final ISWFWriter writer = writerFactory.createSWFWriter(swfTarget, compression,
                 targetSettings.isDebugEnabled(), targetSettings.isTelemetryEnabled());
+        setCompressionExecutor(writer);
         
         // Write out the SWF, counting how many bytes were written.
         final CountingOutputStream output =
@@ -24,7 +24,6 @@ import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
-import java.util.zip.ZipFile;
 
 import org.antlr.runtime.ANTLRFileStream;
 import org.antlr.runtime.ANTLRInputStream;
@@ -41,7 +40,8 @@ import org.apache.royale.compiler.internal.css.CSSDocument;
 import org.apache.royale.compiler.internal.css.CSSModelTreeType;
 import org.apache.royale.compiler.problems.ICompilerProblem;
 import org.apache.royale.swc.ISWC;
-import org.apache.royale.swc.io.SWCReader;
+import org.apache.royale.swc.SWC;
+import org.apache.royale.swc.io.SWCArchive;
 import org.apache.royale.utils.FilenameNormalization;
 import com.google.common.collect.ImmutableList;
 
@@ -237,12 +237,12 @@ public class CSSDocumentCache extends ConcurrentCacheStoreBase<ICSSDocument> imp
         @Override
         ICSSDocument parse() throws IOException
         {
-            final ZipFile zipFile = new ZipFile(swc.getSWCFile(), ZipFile.OPEN_READ);
+            final SWCArchive archive = ((SWC)swc).getArchive();
             ICSSDocument result = EMPTY_CSS_DOCUMENT;
             InputStream input = null;
             try
             {
-                input = SWCReader.getInputStream(zipFile, cssFileName);
+                input = archive.getInputStream(cssFileName);
                 if (input != null)
                 {
                     final ANTLRInputStream in = new ANTLRInputStream(input);
@@ -256,7 +256,6 @@ public class CSSDocumentCache extends ConcurrentCacheStoreBase<ICSSDocument> imp
             finally
             {
                 IOUtils.closeQuietly(input);
-                zipFile.close();
             }
             return result;
         }
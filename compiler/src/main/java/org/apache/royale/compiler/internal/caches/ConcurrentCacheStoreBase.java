@@ -19,26 +19,95 @@
 
 package org.apache.royale.compiler.internal.caches;
 
-import java.lang.ref.SoftReference;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
 
 import com.google.common.base.Joiner;
 
 /**
  * A key-value pair cache store that supports concurrent access.
+ * <p>
+ * How the entries are stored, and when they are dropped, is decided by an
+ * {@link ICacheStorePolicy}. By default, the values are held by soft
+ * references. A byte budget for a cache can be set with the
+ * {@code royale.cache.<CacheClassName>.budget} system property, or for all of
+ * the caches with the {@code royale.cache.budget} system property. When a
+ * budget is set, the cache uses a {@link WeightedLRUCacheStorePolicy}.
  */
 public abstract class ConcurrentCacheStoreBase<T>
 {
     /**
-     * Initialize the cache store.
+     * System property for the byte budget of every cache store that does not
+     * have its own budget.
+     */
+    public static final String BUDGET_PROPERTY = "royale.cache.budget";
+
+    /**
+     * Estimated size of a cache value in bytes, for caches that don't know
+     * the size of their values.
+     */
+    protected static final long DEFAULT_ENTRY_WEIGHT = 4096;
+
+    /**
+     * Initialize the cache store with the policy configured by the system
+     * properties.
      */
     protected ConcurrentCacheStoreBase()
     {
-        this.cache = new ConcurrentHashMap<CacheStoreKeyBase, SoftReference<T>>();
+        this(null);
     }
 
-    private final ConcurrentMap<CacheStoreKeyBase, SoftReference<T>> cache;
+    /**
+     * Initialize the cache store.
+     * 
+     * @param policy how the entries are stored, or null to use the policy
+     * configured by the system properties.
+     */
+    protected ConcurrentCacheStoreBase(ICacheStorePolicy<T> policy)
+    {
+        if (policy == null)
+            policy = createDefaultPolicy(getClass());
+        this.policy = policy;
+        this.loading = new ConcurrentHashMap<CacheStoreKeyBase, FutureTask<T>>();
+        this.hitCount = new AtomicLong();
+        this.missCount = new AtomicLong();
+        this.evictionCount = new AtomicLong();
+    }
+
+    private final ICacheStorePolicy<T> policy;
+
+    /**
+     * Entries that are being created. Threads that ask for a key that is in
+     * this table wait for the thread that is creating it.
+     */
+    private final ConcurrentMap<CacheStoreKeyBase, FutureTask<T>> loading;
+
+    private final AtomicLong hitCount;
+    private final AtomicLong missCount;
+    private final AtomicLong evictionCount;
+
+    private static <T> ICacheStorePolicy<T> createDefaultPolicy(Class<?> cacheClass)
+    {
+        String budget = System.getProperty("royale.cache." + cacheClass.getSimpleName() + ".budget");
+        if (budget == null)
+            budget = System.getProperty(BUDGET_PROPERTY);
+        if (budget != null)
+        {
+            try
+            {
+                return new WeightedLRUCacheStorePolicy<T>(Long.parseLong(budget.trim()));
+            }
+            catch (IllegalArgumentException e)
+            {
+                // Ignore invalid budget and fall back to soft references.
+            }
+        }
+        return new SoftReferenceCacheStorePolicy<T>();
+    }
 
     /**
      * Get a value from the cache store. If the cache doesn't have a valid
@@ -46,36 +115,92 @@ public abstract class ConcurrentCacheStoreBase<T>
      * <p>
      * The implementation is thread-safe. The API looks like a "read" access,
      * but when the cache doesn't have a hit, it will write an entry to the
-     * cache table. The first attempt queries the cache, so the read-lock allows
-     * parallelized read if no other thread is writing the cache. If there's no
-     * hit, the second attempt is to create a valid entry, store it in the cache
-     * and return it. This requires upgrading the read-lock to a write-lock.
+     * cache table. Only one thread creates the value for a key. Other threads
+     * that ask for the same key at the same time wait for that value instead
+     * of creating their own.
      * 
      * @param key cache key
      * @return cached value
      */
-    public final T get(CacheStoreKeyBase key)
+    public final T get(final CacheStoreKeyBase key)
     {
-        T result = null;
-
-        if (cache.containsKey(key))
+        T result = policy.get(key);
+        if (result != null)
         {
-            result = cache.get(key).get();
+            hitCount.incrementAndGet();
+            return result;
         }
 
         // create entry and store in cache
-        if (result == null)
+        FutureTask<T> task = new FutureTask<T>(new Callable<T>()
         {
-            result = createEntryValue(key);
-            if (result == null)
-                throw new NullPointerException("Null value not allowed in cache store.");
-            cache.put(key, new SoftReference<T>(result));
+            @Override
+            public T call()
+            {
+                return load(key);
+            }
+        });
+        final FutureTask<T> existingTask = loading.putIfAbsent(key, task);
+        if (existingTask == null)
+        {
+            try
+            {
+                task.run();
+            }
+            finally
+            {
+                loading.remove(key, task);
+            }
+        }
+        else
+        {
+            hitCount.incrementAndGet();
+            task = existingTask;
+        }
 
+        try
+        {
+            result = task.get();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+        catch (ExecutionException e)
+        {
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException)cause;
+            if (cause instanceof Error)
+                throw (Error)cause;
+            throw new RuntimeException(cause);
         }
 
         assert result != null : "Expected non-null value from cache.";
         return result;
+    }
+
+    /**
+     * Create an entry and add it to the cache. Only called by the thread that
+     * owns the loading task for the key.
+     */
+    private T load(CacheStoreKeyBase key)
+    {
+        // another thread may have added the entry after the first lookup
+        T result = policy.get(key);
+        if (result != null)
+        {
+            hitCount.incrementAndGet();
+            return result;
+        }
 
+        missCount.incrementAndGet();
+        result = createEntryValue(key);
+        if (result == null)
+            throw new NullPointerException("Null value not allowed in cache store.");
+        evictionCount.addAndGet(policy.put(key, result, getEntryWeight(key, result)));
+        return result;
     }
 
     /**
@@ -86,10 +211,7 @@ public abstract class ConcurrentCacheStoreBase<T>
      */
     public final T remove(CacheStoreKeyBase key)
     {
-        SoftReference<T> entryRef = cache.remove(key);
-        if (entryRef == null)
-            return null;
-        return entryRef.get();
+        return policy.remove(key);
     }
 
     /**
@@ -99,7 +221,47 @@ public abstract class ConcurrentCacheStoreBase<T>
      */
     public int size()
     {
-        return cache.size();
+        return policy.size();
+    }
+
+    /**
+     * @return the number of calls to {@link #get(CacheStoreKeyBase)} that
+     * did not have to create a value.
+     */
+    public long getHitCount()
+    {
+        return hitCount.get();
+    }
+
+    /**
+     * @return the number of values created by
+     * {@link #createEntryValue(CacheStoreKeyBase)}.
+     */
+    public long getMissCount()
+    {
+        return missCount.get();
+    }
+
+    /**
+     * @return the number of entries dropped by the cache policy, either to
+     * stay within its budget or because the garbage collector cleared them.
+     */
+    public long getEvictionCount()
+    {
+        return evictionCount.get() + policy.getCollectedCount();
+    }
+
+    /**
+     * Estimate the size of a cache value in bytes. The estimate is used by
+     * policies with a byte budget.
+     * 
+     * @param key cache key
+     * @param value the value created for the key
+     * @return estimated size of the value in bytes
+     */
+    protected long getEntryWeight(CacheStoreKeyBase key, T value)
+    {
+        return DEFAULT_ENTRY_WEIGHT;
     }
 
     /**
@@ -117,9 +279,12 @@ public abstract class ConcurrentCacheStoreBase<T>
     {
         final StringBuilder result = new StringBuilder();
         result.append(getClass().getSimpleName());
-        result.append(" (").append(cache.size()).append(") {");
-        result.append(Joiner.on(", ").join(cache.keySet()));
-        result.append("} ");
+        result.append(" (").append(policy.size()).append(") {");
+        result.append(Joiner.on(", ").join(policy.keys()));
+        result.append("} hits=").append(getHitCount());
+        result.append(" misses=").append(getMissCount());
+        result.append(" evictions=").append(getEvictionCount());
+        result.append(" ");
         return result.toString();
     }
 }
@@ -56,6 +56,12 @@ public class FileScopeCache extends ConcurrentCacheStoreBase<Collection<IASScope
     {
         protected String scriptName; // non-null
 
+        /**
+         * Size of the ABC code the scopes were built from. It is recorded
+         * when the entry is created, and used to estimate the entry's size.
+         */
+        protected int abcSize;
+
         @Override
         public String generateKey()
         {
@@ -90,6 +96,7 @@ public class FileScopeCache extends ConcurrentCacheStoreBase<Collection<IASScope
     }
     
     private final SWCManager swcManager;
+    private volatile PersistentABCCache persistentABCCache;
 
     /**
      * Get the {@link ASFileScope}s associated with the key.
@@ -103,17 +110,15 @@ public class FileScopeCache extends ConcurrentCacheStoreBase<Collection<IASScope
             throw new IllegalArgumentException("expect FileScopeCacheKey but got " + key.getClass().getSimpleName());
 
         final FileScopeCacheKey fileScopeCacheKey = (FileScopeCacheKey)key;
-        final CacheStoreKeyBase swfCacheKey = SWFCache.createKey(fileScopeCacheKey.swc, fileScopeCacheKey.swfPath);
-        final ITagContainer tags = ((SWFCache)swcManager.getSWFCache()).get(swfCacheKey);
-
-        final DoABCTag abcTag = SWFCache.findDoABCTagByName(tags, fileScopeCacheKey.scriptName);
-        if (abcTag != null)
+        final byte[] abcData = getABCData(fileScopeCacheKey);
+        if (abcData != null)
         {
+            fileScopeCacheKey.abcSize = abcData.length;
             try
             {
                 final ABCScopeBuilder abcScopeBuilder = new ABCScopeBuilder(
                         swcManager.getWorkspace(), 
-                        abcTag.getABCData(), 
+                        abcData, 
                         fileScopeCacheKey.swc.getSWCFile().getCanonicalPath(),
                         SWCFileScopeProvider.getInstance());
                 return abcScopeBuilder.build();
@@ -129,4 +134,61 @@ public class FileScopeCache extends ConcurrentCacheStoreBase<Collection<IASScope
         }
     }
 
+    /**
+     * Get the ABC of the script from the persistent cache if there is one, or
+     * else from the library SWF in the {@link SWFCache}.
+     * 
+     * @return the ABC or null if the library SWF has no such script
+     */
+    private byte[] getABCData(FileScopeCacheKey key)
+    {
+        final PersistentABCCache abcCache = persistentABCCache;
+        if (abcCache != null)
+        {
+            final byte[] abcData = abcCache.getABC(key.swc.getSWCFile(), key.swfPath, key.scriptName);
+            if (abcData != null)
+                return abcData;
+        }
+
+        final CacheStoreKeyBase swfCacheKey = SWFCache.createKey(key.swc, key.swfPath);
+        final ITagContainer tags = ((SWFCache)swcManager.getSWFCache()).get(swfCacheKey);
+        if (abcCache != null)
+            abcCache.put(key.swc.getSWCFile(), key.swfPath, tags);
+
+        final DoABCTag abcTag = SWFCache.findDoABCTagByName(tags, key.scriptName);
+        if (abcTag == null)
+            return null;
+        return abcTag.getABCData();
+    }
+
+    /**
+     * Sets the on-disk cache that the ABC of SWC scripts is read from, so
+     * that the library SWF does not have to be decoded.
+     * 
+     * @param persistentABCCache the cache, or null to always read the ABC
+     * from the library SWF.
+     */
+    public void setPersistentABCCache(PersistentABCCache persistentABCCache)
+    {
+        this.persistentABCCache = persistentABCCache;
+    }
+
+    /**
+     * @return the on-disk cache that the ABC of SWC scripts is read from, or
+     * null.
+     */
+    public PersistentABCCache getPersistentABCCache()
+    {
+        return persistentABCCache;
+    }
+
+    /**
+     * The scopes built from a script are estimated to take up about as much
+     * memory as the ABC code they were built from.
+     */
+    @Override
+    protected long getEntryWeight(CacheStoreKeyBase key, Collection<IASScope> value)
+    {
+        return DEFAULT_ENTRY_WEIGHT + ((FileScopeCacheKey)key).abcSize;
+    }
 }
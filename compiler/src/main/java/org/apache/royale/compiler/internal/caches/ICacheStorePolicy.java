@@ -0,0 +1,79 @@
+/*
+ *
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.apache.royale.compiler.internal.caches;
+
+import java.util.Collection;
+
+/**
+ * Decides how the entries of a {@link ConcurrentCacheStoreBase} are stored,
+ * and which of them are dropped when the cache grows too large.
+ * <p>
+ * Implementations must be thread-safe. {@link ConcurrentCacheStoreBase} makes
+ * sure that only one thread creates the value for a given key at a time, but
+ * different keys are read and written concurrently.
+ */
+public interface ICacheStorePolicy<T>
+{
+    /**
+     * Get a value from the store.
+     *
+     * @param key cache key
+     * @return the value, or null if the store has no entry for the key, or the
+     * entry has been evicted.
+     */
+    T get(CacheStoreKeyBase key);
+
+    /**
+     * Add a value to the store. The policy may evict other entries to make
+     * room for it.
+     *
+     * @param key cache key
+     * @param value cache value, never null
+     * @param weight estimated size of the value in bytes
+     * @return the number of entries that were evicted
+     */
+    int put(CacheStoreKeyBase key, T value, long weight);
+
+    /**
+     * Remove a value from the store.
+     *
+     * @param key cache key
+     * @return value for removed entry if an entry was removed.
+     */
+    T remove(CacheStoreKeyBase key);
+
+    /**
+     * @return the number of entries in the store, including entries that may
+     * have been cleared by the garbage collector.
+     */
+    int size();
+
+    /**
+     * @return a snapshot of the keys in the store.
+     */
+    Collection<CacheStoreKeyBase> keys();
+
+    /**
+     * @return the number of entries that were dropped by the policy itself,
+     * rather than by {@link #put} or {@link #remove}, since the store was
+     * created.
+     */
+    long getCollectedCount();
+}
@@ -20,20 +20,28 @@
 package org.apache.royale.compiler.internal.caches;
 
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.Reader;
 import java.lang.ref.SoftReference;
 import java.util.List;
 
 import org.apache.commons.io.IOUtils;
 
+import org.apache.royale.compiler.common.PrefixMap;
 import org.apache.royale.compiler.filespecs.IFileSpecification;
 import org.apache.royale.compiler.internal.mxml.MXMLData;
 import org.apache.royale.compiler.internal.parsing.mxml.MXMLToken;
 import org.apache.royale.compiler.internal.parsing.mxml.MXMLTokenizer;
+import org.apache.royale.utils.NonLockingStringReader;
 
 /**
  * Concurrent cache for parsed MXML models. The cache is a list of key-value pairs.
  * The key is an {@code IFileSpecificaton} for an MXML file.
  * The value is a {@link SoftReference} to a DOM-like {@link MXMLData} object.
+ * <p>
+ * If a {@link PersistentMXMLTokenCache} is set, the tokens of MXML files are
+ * also kept on disk, so that an MXML file that hasn't changed since an
+ * earlier compiler process doesn't have to be tokenized again.
  */
 public class MXMLDataCache extends ConcurrentCacheStoreBase<MXMLData>
 {
@@ -67,6 +75,26 @@ public class MXMLDataCache extends ConcurrentCacheStoreBase<MXMLData>
         super();
     }
     
+    private volatile PersistentMXMLTokenCache persistentTokenCache;
+
+    /**
+     * @return The on-disk cache of MXML tokens, or null if there isn't one.
+     */
+    public PersistentMXMLTokenCache getPersistentTokenCache()
+    {
+        return persistentTokenCache;
+    }
+
+    /**
+     * Sets the on-disk cache of MXML tokens.
+     * 
+     * @param persistentTokenCache The cache, or null to disable it.
+     */
+    public void setPersistentTokenCache(PersistentMXMLTokenCache persistentTokenCache)
+    {
+        this.persistentTokenCache = persistentTokenCache;
+    }
+
     /**
      * Get the {@code MXMLData} to be associated with the key.
      * 
@@ -78,6 +106,16 @@ public class MXMLDataCache extends ConcurrentCacheStoreBase<MXMLData>
     {
        final IFileSpecification fileSpec = ((MXMLDataCacheKey)key).fileSpec;
     
+        // The text of open documents changes all the time, 
+        // so they are not worth keeping on disk.
+        final PersistentMXMLTokenCache persistentTokenCache = this.persistentTokenCache;
+        if (persistentTokenCache != null && !fileSpec.isOpenDocument())
+        {
+            final MXMLData mxmlData = createEntryValue(fileSpec, persistentTokenCache);
+            if (mxmlData != null)
+                return mxmlData;
+        }
+
         // Tokenize the MXML file. 
         final MXMLTokenizer tokenizer = new MXMLTokenizer(fileSpec);
         try
@@ -101,4 +139,59 @@ public class MXMLDataCache extends ConcurrentCacheStoreBase<MXMLData>
             IOUtils.closeQuietly(tokenizer);
         }
     }
+
+    /**
+     * Builds the {@code MXMLData} for an MXML file from tokens in the on-disk
+     * cache, or tokenizes the file and adds its tokens to the cache.
+     * 
+     * @return The {@code MXMLData}, or null if the file can't be read.
+     */
+    private static MXMLData createEntryValue(IFileSpecification fileSpec, PersistentMXMLTokenCache persistentTokenCache)
+    {
+        final String path = fileSpec.getPath();
+        final String text;
+        try
+        {
+            final Reader reader = fileSpec.createReader();
+            try
+            {
+                text = IOUtils.toString(reader);
+            }
+            finally
+            {
+                IOUtils.closeQuietly(reader);
+            }
+        }
+        catch (IOException e)
+        {
+            return null;
+        }
+
+        final byte[] digest = PersistentMXMLTokenCache.digest(text);
+        final PersistentMXMLTokenCache.Entry entry = persistentTokenCache.get(path, digest);
+        if (entry != null)
+            return new MXMLData(entry.getTokens(), entry.getPrefixMap(), fileSpec);
+
+        final MXMLTokenizer tokenizer = new MXMLTokenizer(fileSpec);
+        try
+        {
+            final List<MXMLToken> tokens = tokenizer.parseTokens(new NonLockingStringReader(text));
+            final PrefixMap prefixMap = tokenizer.getPrefixMap();
+
+            // Only files without problems are cached, because the problems
+            // are not stored. Building MXMLData can change the tokens, so
+            // they are stored first.
+            if (!tokenizer.hasTokenizationProblems())
+                persistentTokenCache.put(path, digest, tokens, prefixMap);
+
+            final MXMLData mxmlData = new MXMLData(tokens, prefixMap, fileSpec);
+            if (tokenizer.hasTokenizationProblems())
+                mxmlData.getProblems().addAll(tokenizer.getTokenizationProblems());
+            return mxmlData;
+        }
+        finally
+        {
+            IOUtils.closeQuietly(tokenizer);
+        }
+    }
 }
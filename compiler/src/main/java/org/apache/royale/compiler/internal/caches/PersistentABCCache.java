@@ -0,0 +1,488 @@
+/*
+ *
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.apache.royale.compiler.internal.caches;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.royale.swf.ITagContainer;
+import org.apache.royale.swf.tags.DoABCTag;
+import org.apache.royale.swf.tags.ITag;
+
+/**
+ * An on-disk cache of the ABC scripts in the library SWFs of SWC files. It is
+ * shared by compiler processes, so that a SWC that doesn't change between
+ * builds does not have to be inflated and decoded by {@link SWFCache} to
+ * build its file scopes.
+ * <p>
+ * Entries are keyed by the MD5 digest of the SWC file, so a SWC that is
+ * copied to a new location, or touched without being changed, still hits.
+ * The digest is remembered in a stamp file together with the modification
+ * time and length of the SWC, so an unchanged SWC is not read to compute it.
+ * <p>
+ * Each entry file is written once, to a temporary file that is then renamed,
+ * and is memory-mapped when it is read.
+ */
+public class PersistentABCCache
+{
+    private static final int MAGIC = 0x52414243; // "RABC"
+    private static final int VERSION = 1;
+
+    private static final String ENTRY_SUFFIX = ".abc";
+    private static final String STAMP_SUFFIX = ".stamp";
+
+    /**
+     * The scripts of one library SWF, mapped from an entry file.
+     */
+    private static final class Entry
+    {
+        Entry(ByteBuffer data, Map<String, int[]> scripts)
+        {
+            this.data = data;
+            this.scripts = scripts;
+        }
+
+        /**
+         * Read-only view of the entry file. Use {@link ByteBuffer#duplicate()}
+         * to read it, because threads share it.
+         */
+        final ByteBuffer data;
+
+        /**
+         * Maps a script name to its offset and length in {@link #data}.
+         */
+        final Map<String, int[]> scripts;
+    }
+
+    /**
+     * The modification time and length of a SWC file, and its digest.
+     */
+    private static final class Stamp
+    {
+        long lastModified;
+        long length;
+        String digest;
+    }
+
+    /**
+     * Placeholder for entry files that don't exist.
+     */
+    private static final Entry MISSING = new Entry(null, null);
+
+    /**
+     * @param directory The directory that the cache files are stored in. It
+     * is created when the first entry is written.
+     */
+    public PersistentABCCache(File directory)
+    {
+        this.directory = directory;
+    }
+
+    private final File directory;
+    private final ConcurrentMap<String, Stamp> stamps = new ConcurrentHashMap<String, Stamp>();
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * @return The directory that the cache files are stored in.
+     */
+    public File getDirectory()
+    {
+        return directory;
+    }
+
+    /**
+     * Gets the ABC of a script in a library SWF.
+     *
+     * @param swcFile The SWC file.
+     * @param swfPath The path of the library SWF in the SWC.
+     * @param scriptName The name of the script's {@code DoABC} tag.
+     * @return The ABC, or null if the library SWF is not in the cache.
+     */
+    public byte[] getABC(File swcFile, String swfPath, String scriptName)
+    {
+        final Entry entry = getEntry(swcFile, swfPath);
+        if (entry == null || entry == MISSING)
+        {
+            misses.incrementAndGet();
+            return null;
+        }
+        final int[] location = entry.scripts.get(scriptName);
+        if (location == null)
+        {
+            misses.incrementAndGet();
+            return null;
+        }
+        final byte[] abc = new byte[location[1]];
+        final ByteBuffer data = entry.data.duplicate();
+        data.position(location[0]);
+        data.get(abc);
+        hits.incrementAndGet();
+        return abc;
+    }
+
+    /**
+     * Adds the ABC scripts of a library SWF to the cache, unless they are
+     * already there.
+     *
+     * @param swcFile The SWC file.
+     * @param swfPath The path of the library SWF in the SWC.
+     * @param tags The tags of the library SWF.
+     */
+    public void put(File swcFile, String swfPath, ITagContainer tags)
+    {
+        final String entryName = getEntryName(swcFile, swfPath);
+        if (entryName == null)
+            return;
+        final Entry existing = entries.get(entryName);
+        if (existing != null && existing != MISSING)
+            return;
+
+        // only the first tag with a name is used, like SWFCache.findDoABCTagByName()
+        final List<DoABCTag> abcTags = new ArrayList<DoABCTag>();
+        final Map<String, DoABCTag> abcTagsByName = new HashMap<String, DoABCTag>();
+        for (final ITag tag : tags)
+        {
+            if (tag instanceof DoABCTag)
+            {
+                final DoABCTag abcTag = (DoABCTag)tag;
+                if (abcTag.getName() != null && abcTag.getABCData() != null
+                        && !abcTagsByName.containsKey(abcTag.getName()))
+                {
+                    abcTagsByName.put(abcTag.getName(), abcTag);
+                    abcTags.add(abcTag);
+                }
+            }
+        }
+
+        try
+        {
+            final File entryFile = new File(directory, entryName + ENTRY_SUFFIX);
+            writeEntry(entryFile, abcTags);
+            entries.put(entryName, readEntry(entryFile));
+        }
+        catch (IOException e)
+        {
+            // The cache is an optimization, so an entry that can't be written
+            // is the same as a miss.
+        }
+    }
+
+    /**
+     * @return The number of scripts that were read from the cache.
+     */
+    public long getHitCount()
+    {
+        return hits.get();
+    }
+
+    /**
+     * @return The number of scripts that were not in the cache.
+     */
+    public long getMissCount()
+    {
+        return misses.get();
+    }
+
+    private Entry getEntry(File swcFile, String swfPath)
+    {
+        final String entryName = getEntryName(swcFile, swfPath);
+        if (entryName == null)
+            return null;
+        Entry entry = entries.get(entryName);
+        if (entry == null)
+        {
+            entry = readEntry(new File(directory, entryName + ENTRY_SUFFIX));
+            final Entry existing = entries.putIfAbsent(entryName, entry);
+            if (existing != null)
+                entry = existing;
+        }
+        return entry;
+    }
+
+    /**
+     * @return The name of the entry file for a library SWF, without a suffix,
+     * or null if the SWC can't be read.
+     */
+    private String getEntryName(File swcFile, String swfPath)
+    {
+        final String digest = getDigest(swcFile);
+        if (digest == null)
+            return null;
+        return digest + "-" + toHex(md5(swfPath.getBytes(StandardCharsets.UTF_8)), 4);
+    }
+
+    private String getDigest(File swcFile)
+    {
+        final String path = swcFile.getAbsolutePath();
+        final long lastModified = swcFile.lastModified();
+        final long length = swcFile.length();
+
+        Stamp stamp = stamps.get(path);
+        if (stamp != null && stamp.lastModified == lastModified && stamp.length == length)
+            return stamp.digest;
+
+        final File stampFile = new File(directory, toHex(md5(path.getBytes(StandardCharsets.UTF_8)), 16) + STAMP_SUFFIX);
+        stamp = readStamp(stampFile);
+        if (stamp == null || stamp.lastModified != lastModified || stamp.length != length)
+        {
+            stamp = new Stamp();
+            stamp.lastModified = lastModified;
+            stamp.length = length;
+            try
+            {
+                stamp.digest = toHex(md5(swcFile), 16);
+            }
+            catch (IOException e)
+            {
+                return null;
+            }
+            try
+            {
+                writeStamp(stampFile, stamp);
+            }
+            catch (IOException e)
+            {
+                // The digest is computed again next time.
+            }
+        }
+        stamps.put(path, stamp);
+        return stamp.digest;
+    }
+
+    private static Entry readEntry(File entryFile)
+    {
+        if (!entryFile.isFile())
+            return MISSING;
+        try
+        {
+            final RandomAccessFile file = new RandomAccessFile(entryFile, "r");
+            try
+            {
+                final MappedByteBuffer data = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, file.length());
+                if (data.getInt() != MAGIC || data.getInt() != VERSION)
+                    return MISSING;
+                final int n = data.getInt();
+                final Map<String, int[]> scripts = new HashMap<String, int[]>(n * 2);
+                for (int i = 0; i < n; i++)
+                {
+                    final byte[] name = new byte[data.getShort() & 0xFFFF];
+                    data.get(name);
+                    final int offset = data.getInt();
+                    final int length = data.getInt();
+                    if (offset < 0 || length < 0 || offset + length > data.limit())
+                        return MISSING;
+                    scripts.put(new String(name, StandardCharsets.UTF_8), new int[] {offset, length});
+                }
+                return new Entry(data.asReadOnlyBuffer(), scripts);
+            }
+            finally
+            {
+                // The mapping stays valid after the file is closed.
+                file.close();
+            }
+        }
+        catch (IOException e)
+        {
+            return MISSING;
+        }
+        catch (RuntimeException e)
+        {
+            // truncated or corrupt entry file
+            return MISSING;
+        }
+    }
+
+    private void writeEntry(File entryFile, List<DoABCTag> abcTags) throws IOException
+    {
+        if (entryFile.isFile())
+            return;
+        if (!directory.exists())
+            directory.mkdirs();
+
+        final List<byte[]> names = new ArrayList<byte[]>(abcTags.size());
+        int headerLength = 12;
+        for (final DoABCTag abcTag : abcTags)
+        {
+            final byte[] name = abcTag.getName().getBytes(StandardCharsets.UTF_8);
+            if (name.length > 0xFFFF)
+                throw new IOException("Script name is too long: " + abcTag.getName());
+            names.add(name);
+            headerLength += 2 + name.length + 8;
+        }
+
+        final File tempFile = File.createTempFile(entryFile.getName(), ".tmp", directory);
+        final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+        try
+        {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(abcTags.size());
+            int offset = headerLength;
+            for (int i = 0; i < abcTags.size(); i++)
+            {
+                final byte[] name = names.get(i);
+                final int length = abcTags.get(i).getABCData().length;
+                out.writeShort(name.length);
+                out.write(name);
+                out.writeInt(offset);
+                out.writeInt(length);
+                offset += length;
+            }
+            for (final DoABCTag abcTag : abcTags)
+            {
+                out.write(abcTag.getABCData());
+            }
+        }
+        finally
+        {
+            out.close();
+        }
+        // another process may have written the same entry in the meantime,
+        // which is fine, because it has the same contents
+        if (!tempFile.renameTo(entryFile))
+        {
+            tempFile.delete();
+            if (!entryFile.isFile())
+                throw new IOException("Failed to write " + entryFile.getPath());
+        }
+    }
+
+    private static Stamp readStamp(File stampFile)
+    {
+        if (!stampFile.isFile())
+            return null;
+        try
+        {
+            final DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(stampFile)));
+            try
+            {
+                if (in.readInt() != MAGIC || in.readInt() != VERSION)
+                    return null;
+                final Stamp stamp = new Stamp();
+                stamp.lastModified = in.readLong();
+                stamp.length = in.readLong();
+                stamp.digest = in.readUTF();
+                return stamp;
+            }
+            finally
+            {
+                in.close();
+            }
+        }
+        catch (IOException e)
+        {
+            return null;
+        }
+    }
+
+    private void writeStamp(File stampFile, Stamp stamp) throws IOException
+    {
+        if (!directory.exists())
+            directory.mkdirs();
+        final File tempFile = File.createTempFile(stampFile.getName(), ".tmp", directory);
+        final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+        try
+        {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(stamp.lastModified);
+            out.writeLong(stamp.length);
+            out.writeUTF(stamp.digest);
+        }
+        finally
+        {
+            out.close();
+        }
+        stampFile.delete();
+        if (!tempFile.renameTo(stampFile))
+            tempFile.delete();
+    }
+
+    private static MessageDigest createMD5()
+    {
+        try
+        {
+            return MessageDigest.getInstance("MD5");
+        }
+        catch (NoSuchAlgorithmException e)
+        {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static byte[] md5(byte[] bytes)
+    {
+        return createMD5().digest(bytes);
+    }
+
+    private static byte[] md5(File file) throws IOException
+    {
+        final MessageDigest md5 = createMD5();
+        final InputStream in = new FileInputStream(file);
+        try
+        {
+            final byte[] buffer = new byte[65536];
+            int n;
+            while ((n = in.read(buffer)) != -1)
+            {
+                md5.update(buffer, 0, n);
+            }
+        }
+        finally
+        {
+            in.close();
+        }
+        return md5.digest();
+    }
+
+    private static String toHex(byte[] bytes, int count)
+    {
+        final StringBuilder result = new StringBuilder(count * 2);
+        for (int i = 0; i < count && i < bytes.length; i++)
+        {
+            result.append(Character.forDigit((bytes[i] >> 4) & 0xF, 16));
+            result.append(Character.forDigit(bytes[i] & 0xF, 16));
+        }
+        return result.toString();
+    }
+}
@@ -0,0 +1,440 @@
+/*
+ *
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.apache.royale.compiler.internal.caches;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.royale.compiler.common.MutablePrefixMap;
+import org.apache.royale.compiler.common.PrefixMap;
+import org.apache.royale.compiler.common.VersionInfo;
+import org.apache.royale.compiler.internal.parsing.mxml.MXMLToken;
+import org.apache.royale.compiler.parsing.MXMLTokenTypes;
+
+/**
+ * An on-disk cache of the tokens of MXML files. It is shared by compiler
+ * processes, so that an MXML file that doesn't change between builds, or
+ * between IDE sessions, does not have to be tokenized again to build its
+ * {@code MXMLData}.
+ * <p>
+ * There is one entry file for each MXML file path. The entry records the MD5
+ * digest of the file's text, and is only used if the text still has that
+ * digest. Entries are also ignored if they were written by a compiler with
+ * different MXML token types.
+ * <p>
+ * Each entry file is written to a temporary file that is then renamed, so
+ * concurrent compiler processes can share the directory.
+ */
+public class PersistentMXMLTokenCache
+{
+    private static final int MAGIC = 0x524D544B; // "RMTK"
+    private static final int VERSION = 1;
+
+    private static final String ENTRY_SUFFIX = ".mxmltokens";
+
+    /**
+     * Identifies the compiler that wrote an entry. The token types are
+     * generated from the MXML grammar, so they are part of the stamp.
+     */
+    private static final String COMPILER_STAMP = computeCompilerStamp();
+
+    private static final byte NO_SOURCE_PATH = 0;
+    private static final byte FILE_SOURCE_PATH = 1;
+    private static final byte OTHER_SOURCE_PATH = 2;
+
+    /**
+     * The cached tokens of an MXML file.
+     */
+    public static final class Entry
+    {
+        Entry(List<MXMLToken> tokens, PrefixMap prefixMap)
+        {
+            this.tokens = tokens;
+            this.prefixMap = prefixMap;
+        }
+
+        private final List<MXMLToken> tokens;
+        private final PrefixMap prefixMap;
+
+        /**
+         * @return The tokens, as returned by {@code MXMLTokenizer.parseTokens()}.
+         */
+        public List<MXMLToken> getTokens()
+        {
+            return tokens;
+        }
+
+        /**
+         * @return The prefix map of the root tag, or null if there isn't one.
+         */
+        public PrefixMap getPrefixMap()
+        {
+            return prefixMap;
+        }
+    }
+
+    /**
+     * @param directory The directory that the cache files are stored in. It
+     * is created when the first entry is written.
+     */
+    public PersistentMXMLTokenCache(File directory)
+    {
+        this.directory = directory;
+    }
+
+    private final File directory;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * @return The directory that the cache files are stored in.
+     */
+    public File getDirectory()
+    {
+        return directory;
+    }
+
+    /**
+     * Computes the digest that identifies the text of an MXML file.
+     *
+     * @param text The text of the MXML file.
+     * @return The digest to pass to {@link #get(String, byte[])} and
+     * {@link #put(String, byte[], List, PrefixMap)}.
+     */
+    public static byte[] digest(String text)
+    {
+        return createMD5().digest(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Gets the tokens of an MXML file.
+     *
+     * @param path The path of the MXML file.
+     * @param digest The digest of the text of the MXML file.
+     * @return The cached tokens, or null if the file with this text is not in
+     * the cache.
+     */
+    public Entry get(String path, byte[] digest)
+    {
+        final Entry entry = readEntry(getEntryFile(path), path, digest);
+        if (entry == null)
+            misses.incrementAndGet();
+        else
+            hits.incrementAndGet();
+        return entry;
+    }
+
+    /**
+     * Adds the tokens of an MXML file to the cache, replacing the tokens of
+     * an older version of the file.
+     *
+     * @param path The path of the MXML file.
+     * @param digest The digest of the text of the MXML file.
+     * @param tokens The tokens of the MXML file.
+     * @param prefixMap The prefix map of the root tag, or null.
+     */
+    public void put(String path, byte[] digest, List<MXMLToken> tokens, PrefixMap prefixMap)
+    {
+        try
+        {
+            writeEntry(getEntryFile(path), path, digest, tokens, prefixMap);
+        }
+        catch (IOException e)
+        {
+            // The cache is an optimization, so an entry that can't be written
+            // is the same as a miss.
+        }
+    }
+
+    /**
+     * @return The number of MXML files whose tokens were read from the cache.
+     */
+    public long getHitCount()
+    {
+        return hits.get();
+    }
+
+    /**
+     * @return The number of MXML files that were not in the cache.
+     */
+    public long getMissCount()
+    {
+        return misses.get();
+    }
+
+    private File getEntryFile(String path)
+    {
+        return new File(directory, toHex(createMD5().digest(path.getBytes(StandardCharsets.UTF_8))) + ENTRY_SUFFIX);
+    }
+
+    private static Entry readEntry(File entryFile, String path, byte[] digest)
+    {
+        if (!entryFile.isFile())
+            return null;
+        try
+        {
+            final DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(entryFile), 65536));
+            try
+            {
+                if (in.readInt() != MAGIC || in.readInt() != VERSION)
+                    return null;
+                if (!COMPILER_STAMP.equals(in.readUTF()) || !path.equals(in.readUTF()))
+                    return null;
+                final byte[] entryDigest = new byte[in.readUnsignedByte()];
+                in.readFully(entryDigest);
+                if (!Arrays.equals(digest, entryDigest))
+                    return null;
+
+                MutablePrefixMap prefixMap = null;
+                final int prefixCount = in.readInt();
+                if (prefixCount >= 0)
+                {
+                    prefixMap = new MutablePrefixMap();
+                    for (int i = 0; i < prefixCount; i++)
+                    {
+                        final String prefix = in.readUTF();
+                        final String namespace = in.readUTF();
+                        prefixMap.add(prefix, namespace);
+                    }
+                }
+
+                final int tokenCount = in.readInt();
+                final List<MXMLToken> tokens = new ArrayList<MXMLToken>(tokenCount);
+                for (int i = 0; i < tokenCount; i++)
+                {
+                    tokens.add(readToken(in, path));
+                }
+                return new Entry(tokens, prefixMap);
+            }
+            finally
+            {
+                in.close();
+            }
+        }
+        catch (IOException e)
+        {
+            // truncated or corrupt entry file
+            return null;
+        }
+        catch (RuntimeException e)
+        {
+            return null;
+        }
+    }
+
+    private static MXMLToken readToken(DataInputStream in, String path) throws IOException
+    {
+        final int type = in.readInt();
+        final int start = in.readInt();
+        final int end = in.readInt();
+        final int line = in.readInt();
+        final int column = in.readInt();
+        final int endLine = in.readInt();
+        final int endColumn = in.readInt();
+        final int localStart = in.readInt();
+        final int localEnd = in.readInt();
+
+        final String sourcePath;
+        switch (in.readByte())
+        {
+            case FILE_SOURCE_PATH:
+                sourcePath = path;
+                break;
+            case OTHER_SOURCE_PATH:
+                sourcePath = in.readUTF();
+                break;
+            default:
+                sourcePath = null;
+                break;
+        }
+
+        final int textLength = in.readInt();
+        final String text;
+        if (textLength < 0)
+        {
+            text = null;
+        }
+        else
+        {
+            final byte[] bytes = new byte[textLength];
+            in.readFully(bytes);
+            text = new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        // The constructor uses the start and end offsets as local offsets.
+        final MXMLToken token = new MXMLToken(type, localStart, localEnd, line, column, text);
+        token.setStart(start);
+        token.setEnd(end);
+        token.setEndLine(endLine);
+        token.setEndColumn(endColumn);
+        token.setSourcePath(sourcePath);
+        return token;
+    }
+
+    private void writeEntry(File entryFile, String path, byte[] digest,
+                            List<MXMLToken> tokens, PrefixMap prefixMap) throws IOException
+    {
+        if (!directory.exists())
+            directory.mkdirs();
+
+        final File tempFile = File.createTempFile(entryFile.getName(), ".tmp", directory);
+        final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile), 65536));
+        try
+        {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeUTF(COMPILER_STAMP);
+            out.writeUTF(path);
+            out.writeByte(digest.length);
+            out.write(digest);
+
+            if (prefixMap == null)
+            {
+                out.writeInt(-1);
+            }
+            else
+            {
+                final String[] prefixes = prefixMap.getAllPrefixes();
+                out.writeInt(prefixes.length);
+                for (final String prefix : prefixes)
+                {
+                    out.writeUTF(prefix);
+                    out.writeUTF(prefixMap.getNamespaceForPrefix(prefix));
+                }
+            }
+
+            out.writeInt(tokens.size());
+            for (final MXMLToken token : tokens)
+            {
+                writeToken(out, token, path);
+            }
+        }
+        finally
+        {
+            out.close();
+        }
+
+        entryFile.delete();
+        if (!tempFile.renameTo(entryFile))
+        {
+            tempFile.delete();
+            throw new IOException("Failed to write " + entryFile.getPath());
+        }
+    }
+
+    private static void writeToken(DataOutputStream out, MXMLToken token, String path) throws IOException
+    {
+        out.writeInt(token.getType());
+        out.writeInt(token.getStart());
+        out.writeInt(token.getEnd());
+        out.writeInt(token.getLine());
+        out.writeInt(token.getColumn());
+        out.writeInt(token.getEndLine());
+        out.writeInt(token.getEndColumn());
+        out.writeInt(token.getLocalStart());
+        out.writeInt(token.getLocalEnd());
+
+        final String sourcePath = token.getSourcePath();
+        if (sourcePath == null)
+        {
+            out.writeByte(NO_SOURCE_PATH);
+        }
+        else if (sourcePath.equals(path))
+        {
+            out.writeByte(FILE_SOURCE_PATH);
+        }
+        else
+        {
+            out.writeByte(OTHER_SOURCE_PATH);
+            out.writeUTF(sourcePath);
+        }
+
+        final CharSequence text = token.getCharSequence();
+        if (text == null)
+        {
+            out.writeInt(-1);
+        }
+        else
+        {
+            final byte[] bytes = text.toString().getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    private static String computeCompilerStamp()
+    {
+        int tokenTypes = 0;
+        for (final Field field : MXMLTokenTypes.class.getFields())
+        {
+            if (field.getType() == int.class && Modifier.isStatic(field.getModifiers()))
+            {
+                try
+                {
+                    // the order of the fields is unspecified, so add them up
+                    tokenTypes += field.getName().hashCode() * 31 + field.getInt(null);
+                }
+                catch (IllegalAccessException e)
+                {
+                    // public fields of an interface are accessible
+                }
+            }
+        }
+        return VersionInfo.getRoyaleVersion() + "." + VersionInfo.getBuild() + ":" + Integer.toHexString(tokenTypes);
+    }
+
+    private static MessageDigest createMD5()
+    {
+        try
+        {
+            return MessageDigest.getInstance("MD5");
+        }
+        catch (NoSuchAlgorithmException e)
+        {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static String toHex(byte[] bytes)
+    {
+        final StringBuilder result = new StringBuilder(bytes.length * 2);
+        for (final byte b : bytes)
+        {
+            result.append(Character.forDigit((b >> 4) & 0xF, 16));
+            result.append(Character.forDigit(b & 0xF, 16));
+        }
+        return result.toString();
+    }
+}
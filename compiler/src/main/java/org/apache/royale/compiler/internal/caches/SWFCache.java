@@ -27,13 +27,13 @@ import java.lang.ref.SoftReference;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
-import java.util.zip.ZipFile;
 
 import org.apache.royale.compiler.caches.ISWFCache;
 import org.apache.royale.compiler.problems.FileInLibraryNotFoundProblem;
 import org.apache.royale.swc.ISWC;
 import org.apache.royale.swc.SWC;
 import org.apache.royale.swc.SWCManager;
+import org.apache.royale.swc.io.SWCArchive;
 import org.apache.royale.swc.io.SWCReader;
 import org.apache.royale.swf.ITagContainer;
 import org.apache.royale.swf.io.SWFReader;
@@ -85,19 +85,18 @@ public class SWFCache extends ConcurrentCacheStoreBase<ITagContainer> implements
         @Override
         void readSWF(SWFReader swfReader) throws IOException
         {
-            ZipFile zipFile = null;
+            InputStream swfInputStream = null;
             try
             {
                 // Load library SWF inside a SWC.
-                zipFile = new ZipFile(swc.getSWCFile(), ZipFile.OPEN_READ);
-                InputStream swfInputStream = SWCReader.getInputStream(zipFile, swfPath);
+                SWCArchive archive = ((SWC)swc).getArchive();
+                swfInputStream = archive.getInputStream(swfPath);
                 if (swfInputStream != null)
                 {
-                    swfInputStream = new BufferedInputStream(swfInputStream);
-                    swfReader.readFrom(swfInputStream, SWCReader.getReportingPath( 
+                    swfReader.readFrom(new BufferedInputStream(swfInputStream), SWCReader.getReportingPath( 
                             swc.getSWCFile().getAbsolutePath(), swfPath));
                 }
-                else if (swc instanceof SWC)
+                else
                 {
                     ((SWC)swc).addProblem(new FileInLibraryNotFoundProblem(swfPath, 
                             swc.getSWCFile().getAbsolutePath()));
@@ -105,8 +104,9 @@ public class SWFCache extends ConcurrentCacheStoreBase<ITagContainer> implements
             }
             finally
             {
-                // closes the input steam as well as the zip file.
-                zipFile.close();
+                // returns the inflater of the stream to the pool
+                if (swfInputStream != null)
+                    swfInputStream.close();
             }
         }
     }
@@ -256,6 +256,26 @@ public class SWFCache extends ConcurrentCacheStoreBase<ITagContainer> implements
         }
     }
 
+    /**
+     * The size of a library SWF is dominated by its ABC code, so the weight
+     * of an entry is the size of its {@code DoABC} tags.
+     */
+    @Override
+    protected long getEntryWeight(CacheStoreKeyBase key, ITagContainer value)
+    {
+        long weight = DEFAULT_ENTRY_WEIGHT;
+        for (final ITag tag : value)
+        {
+            if (tag instanceof DoABCTag)
+            {
+                final byte[] abcData = ((DoABCTag)tag).getABCData();
+                if (abcData != null)
+                    weight += abcData.length;
+            }
+        }
+        return weight;
+    }
+
     /**
      * Read the {@code InputStream} from SWF file URI.
      * 
@@ -0,0 +1,90 @@
+/*
+ *
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.apache.royale.compiler.internal.caches;
+
+import java.lang.ref.SoftReference;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The default {@link ICacheStorePolicy}. Values are held by
+ * {@link SoftReference}s, so the garbage collector decides when they are
+ * dropped. The cache size is not bounded.
+ */
+public final class SoftReferenceCacheStorePolicy<T> implements ICacheStorePolicy<T>
+{
+    public SoftReferenceCacheStorePolicy()
+    {
+        this.cache = new ConcurrentHashMap<CacheStoreKeyBase, SoftReference<T>>();
+        this.collectedCount = new AtomicLong();
+    }
+
+    private final ConcurrentMap<CacheStoreKeyBase, SoftReference<T>> cache;
+    private final AtomicLong collectedCount;
+
+    @Override
+    public T get(CacheStoreKeyBase key)
+    {
+        final SoftReference<T> entryRef = cache.get(key);
+        if (entryRef == null)
+            return null;
+        final T result = entryRef.get();
+        if (result == null && cache.remove(key, entryRef))
+            collectedCount.incrementAndGet();
+        return result;
+    }
+
+    @Override
+    public int put(CacheStoreKeyBase key, T value, long weight)
+    {
+        cache.put(key, new SoftReference<T>(value));
+        return 0;
+    }
+
+    @Override
+    public T remove(CacheStoreKeyBase key)
+    {
+        final SoftReference<T> entryRef = cache.remove(key);
+        if (entryRef == null)
+            return null;
+        return entryRef.get();
+    }
+
+    @Override
+    public int size()
+    {
+        return cache.size();
+    }
+
+    @Override
+    public Collection<CacheStoreKeyBase> keys()
+    {
+        return new ArrayList<CacheStoreKeyBase>(cache.keySet());
+    }
+
+    @Override
+    public long getCollectedCount()
+    {
+        return collectedCount.get();
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ *
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.apache.royale.compiler.internal.caches;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * An {@link ICacheStorePolicy} that holds its values strongly, up to a budget
+ * of estimated bytes. When the budget is exceeded, the least recently used
+ * entries are evicted first.
+ * <p>
+ * Unlike {@link SoftReferenceCacheStorePolicy}, the entries are not cleared
+ * all at once when the JVM runs low on memory, so a long-running process keeps
+ * its most recently used entries.
+ */
+public final class WeightedLRUCacheStorePolicy<T> implements ICacheStorePolicy<T>
+{
+    private static final class Entry<T>
+    {
+        Entry(T value, long weight)
+        {
+            this.value = value;
+            this.weight = weight;
+        }
+
+        final T value;
+        final long weight;
+    }
+
+    /**
+     * @param maxWeight the budget of estimated bytes for all of the entries.
+     * An entry that is larger than the budget by itself is still added, but it
+     * evicts every other entry.
+     */
+    public WeightedLRUCacheStorePolicy(long maxWeight)
+    {
+        if (maxWeight <= 0)
+            throw new IllegalArgumentException("maxWeight must be positive.");
+        this.maxWeight = maxWeight;
+        // access-order, so that iteration starts at the least recently used entry
+        this.cache = new LinkedHashMap<CacheStoreKeyBase, Entry<T>>(16, 0.75f, true);
+    }
+
+    private final long maxWeight;
+    private final LinkedHashMap<CacheStoreKeyBase, Entry<T>> cache;
+    private long totalWeight;
+
+    @Override
+    public synchronized T get(CacheStoreKeyBase key)
+    {
+        final Entry<T> entry = cache.get(key);
+        if (entry == null)
+            return null;
+        return entry.value;
+    }
+
+    @Override
+    public synchronized int put(CacheStoreKeyBase key, T value, long weight)
+    {
+        final Entry<T> previous = cache.put(key, new Entry<T>(value, weight));
+        if (previous != null)
+            totalWeight -= previous.weight;
+        totalWeight += weight;
+
+        int evicted = 0;
+        final Iterator<Map.Entry<CacheStoreKeyBase, Entry<T>>> iterator = cache.entrySet().iterator();
+        while (totalWeight > maxWeight && iterator.hasNext())
+        {
+            final Map.Entry<CacheStoreKeyBase, Entry<T>> eldest = iterator.next();
+            // never evict the entry that is being added
+            if (eldest.getKey().equals(key))
+                continue;
+            totalWeight -= eldest.getValue().weight;
+            iterator.remove();
+            evicted++;
+        }
+        return evicted;
+    }
+
+    @Override
+    public synchronized T remove(CacheStoreKeyBase key)
+    {
+        final Entry<T> entry = cache.remove(key);
+        if (entry == null)
+            return null;
+        totalWeight -= entry.weight;
+        return entry.value;
+    }
+
+    @Override
+    public synchronized int size()
+    {
+        return cache.size();
+    }
+
+    @Override
+    public synchronized Collection<CacheStoreKeyBase> keys()
+    {
+        return new ArrayList<CacheStoreKeyBase>(cache.keySet());
+    }
+
+    @Override
+    public long getCollectedCount()
+    {
+        return 0;
+    }
+
+    /**
+     * @return the sum of the estimated sizes of the entries in the store.
+     */
+    public synchronized long getTotalWeight()
+    {
+        return totalWeight;
+    }
+
+    /**
+     * @return the budget of estimated bytes for all of the entries.
+     */
+    public long getMaxWeight()
+    {
+        return maxWeight;
+    }
+}
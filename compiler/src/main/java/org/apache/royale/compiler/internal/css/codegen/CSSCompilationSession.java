@@ -49,6 +49,7 @@ import org.apache.royale.compiler.internal.css.CSSNamespaceDefinition;
 import org.apache.royale.compiler.internal.css.CSSProperty;
 import org.apache.royale.compiler.internal.css.CSSRule;
 import org.apache.royale.compiler.internal.css.CSSSelector;
+import org.apache.royale.compiler.internal.css.semantics.CSSRuleIndex;
 import org.apache.royale.compiler.internal.css.semantics.CSSSemanticAnalyzer;
 import org.apache.royale.compiler.internal.css.codegen.CSSEmitter;
 import org.apache.royale.compiler.internal.units.EmbedCompilationUnit;
@@ -93,6 +94,7 @@ public class CSSCompilationSession
     public CSSCompilationSession()
     {
         resolvedSelectors = new LinkedHashMap<ICSSSelector, String>();
+        ruleIndices = new HashMap<ICSSDocument, CSSRuleIndex>();
         inheritingStyles = new LinkedHashSet<String>();
         resolvedEmbedProperties = new HashMap<CSSFunctionCallPropertyValue, EmbedCompilationUnit>();
         activatedRules = new HashSet<ICSSRule>();
@@ -115,6 +117,14 @@ public class CSSCompilationSession
      */
     public final Map<ICSSSelector, String> resolvedSelectors;
 
+    /**
+     * A map of CSS documents to the indices of their rules by the class qnames
+     * that the rules match. CSS documents are tested against more classes
+     * several times while the dependencies of a target are found, so their
+     * selectors are only resolved once.
+     */
+    public final Map<ICSSDocument, CSSRuleIndex> ruleIndices;
+
     /**
      * A set of inheriting style names.
      */
@@ -0,0 +1,144 @@
+/*
+ *
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.apache.royale.compiler.internal.css.semantics;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.royale.compiler.css.ICSSDocument;
+import org.apache.royale.compiler.css.ICSSRule;
+import org.apache.royale.compiler.css.ICSSSelector;
+import org.apache.royale.compiler.projects.IRoyaleProject;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * An index of the rules in a CSS document by the class qnames that their
+ * subject selectors resolve to. It is built once for each CSS document in a
+ * {@code CSSCompilationSession}, so that finding the rules that match a set of
+ * class definitions is a lookup for each qname instead of a test of each rule.
+ * <p>
+ * A rule matches if any of its subject selectors match one of the classes.
+ * Wildcard selectors such as {@code global}, {@code *} and {@code .style}
+ * match every set of classes, so rules with them are kept in a separate
+ * bucket that is always matched. An optional class selector
+ * ({@code .opt_qname_style}) is indexed by the qname in its name.
+ */
+public class CSSRuleIndex
+{
+    /**
+     * Build the index of a CSS document.
+     *
+     * @param project The project.
+     * @param cssDocument The CSS document.
+     * @param resolvedSelectors A map of the selectors in the document
+     * resolved to class qnames.
+     */
+    public CSSRuleIndex(final IRoyaleProject project,
+                        final ICSSDocument cssDocument,
+                        final ImmutableMap<ICSSSelector, String> resolvedSelectors)
+    {
+        assert cssDocument != null : "Expected CSS document";
+        assert resolvedSelectors != null : "Expected a map of selectors resolved to class definitions.";
+
+        this.rules = cssDocument.getRules();
+        this.rulesByQName = new HashMap<String, BitSet>();
+        this.wildcardRules = new BitSet(rules.size());
+
+        for (int i = 0; i < rules.size(); i++)
+        {
+            final ICSSRule rule = rules.get(i);
+            if (!project.isPlatformRule(rule))
+                continue;
+
+            for (final ICSSSelector selector : rule.getSelectorGroup())
+            {
+                // The first wildcard selector in a group decides whether the
+                // rule matches. Combinator selectors are ignored.
+                if (CSSSemanticAnalyzer.isWildcardSelector(selector))
+                {
+                    final String optionalName = CSSSemanticAnalyzer.getOptionalSelectorName(selector);
+                    if (optionalName == null)
+                        wildcardRules.set(i);
+                    else
+                        add(optionalName, i);
+                    break;
+                }
+                final String qname = resolvedSelectors.get(selector);
+                if (qname != null)
+                    add(qname, i);
+            }
+        }
+    }
+
+    /**
+     * The rules of the CSS document.
+     */
+    private final ImmutableList<ICSSRule> rules;
+
+    /**
+     * Map from class qnames to the indices of the rules that they match.
+     */
+    private final Map<String, BitSet> rulesByQName;
+
+    /**
+     * The indices of the rules that match any set of classes.
+     */
+    private final BitSet wildcardRules;
+
+    private void add(final String qname, final int ruleIndex)
+    {
+        BitSet ruleIndices = rulesByQName.get(qname);
+        if (ruleIndices == null)
+        {
+            ruleIndices = new BitSet(rules.size());
+            rulesByQName.put(qname, ruleIndices);
+        }
+        ruleIndices.set(ruleIndex);
+    }
+
+    /**
+     * Find the rules that match a set of classes.
+     *
+     * @param qnames The qnames of the classes.
+     * @return The matched rules, in the order of the CSS document.
+     */
+    public ImmutableSet<ICSSRule> getMatchedRules(final Collection<String> qnames)
+    {
+        final BitSet matched = (BitSet)wildcardRules.clone();
+        for (final String qname : qnames)
+        {
+            final BitSet ruleIndices = rulesByQName.get(qname);
+            if (ruleIndices != null)
+                matched.or(ruleIndices);
+        }
+
+        final ImmutableSet.Builder<ICSSRule> builder = new ImmutableSet.Builder<ICSSRule>();
+        for (int i = matched.nextSetBit(0); i >= 0; i = matched.nextSetBit(i + 1))
+        {
+            builder.add(rules.get(i));
+        }
+        return builder.build();
+    }
+}
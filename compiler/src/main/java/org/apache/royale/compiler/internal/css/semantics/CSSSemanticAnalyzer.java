@@ -341,80 +341,6 @@ public class CSSSemanticAnalyzer
         return builder.build();
     }
 
-    /**
-     * A {@link Predicate} that filters {@link ICSSSelector}'s matched by a
-     * given set of class definitions. This is created for
-     * {@link Collections2#filter(Collection, Predicate)}.
-     */
-    private static class MatchedCSSRulePredicate implements Predicate<ICSSRule>
-    {
-        /**
-         * The project
-         */
-        private final IRoyaleProject project;
-
-        /**
-         * QNames of the definitions to be matched by the CSS rules.
-         */
-        private final ImmutableSet<String> qnames;
-
-        /**
-         * A map of selectors resolved to class definitions.
-         */
-        private final ImmutableMap<ICSSSelector, String> resolvedSelectors;
-
-        /**
-         * Create a predicate for filtering matched CSS rules.
-         * 
-         * @param qnames A set of class definitions to be matched by the
-         * CSS rules.
-         * @param resolvedSelectors A map of selectors resolved to class
-         * definitions.
-         */
-        public MatchedCSSRulePredicate(final ImmutableSet<String> qnames, IRoyaleProject project,
-                                       final ImmutableMap<ICSSSelector, String> resolvedSelectors)
-        {
-            assert qnames != null : "Expected a set of definition for the CSS rules to match.";
-            assert resolvedSelectors != null : "Expected a map of selectors resolved to class definitions.";
-            this.qnames = qnames;
-            this.resolvedSelectors = resolvedSelectors;
-            this.project = project;
-        }
-
-        /**
-         * Return true if any of the <b>subject</b> selectors in the
-         * {@code rule}'s selector group match any definitions in
-         * {@link #qnames}. Combinator selectors are ignored.
-         */
-        @Override
-        public boolean apply(final ICSSRule rule)
-        {
-        	if (!project.isPlatformRule(rule))
-        		return false;
-        	
-            for (final ICSSSelector selector : rule.getSelectorGroup())
-            {
-                if (isWildcardSelector(selector))
-                {
-                	String selName = getOptionalSelectorName(selector);
-                	if (selName == null) return true;
-                    return qnames.contains(selName);
-                }
-                final String qname = resolvedSelectors.get(selector);
-                if (qnames.contains(qname))
-                    return true;
-            }
-            return false;
-        }
-        
-        @Override
-        public boolean test(ICSSRule input)
-        {
-            return apply(input);
-        }
-
-    }
-
     /**
      * This predicate is created for {@code -compatibility-version=3} mode. In
      * Flex 3, the selectors don't have namespace specifiers. Under the
@@ -498,26 +424,29 @@ public class CSSSemanticAnalyzer
             final Collection<ICompilerProblem> problems)
     {
         final boolean isFlex3CSS = royaleProject.getCSSManager().isFlex3CSS();
-        final ImmutableMap<ICSSSelector, String> resolvedSelectors =
-                resolveSelectors(royaleProject, cssDocument, problems, royaleProject, isFlex3CSS);
-        final Predicate<ICSSRule> predicate;
+
+        // Selectors are resolved and indexed the first time a document is
+        // matched in the session. The CSS code generation uses the resolved
+        // selectors later, so they are cached on the session.
+        CSSRuleIndex ruleIndex = session.ruleIndices.get(cssDocument);
+        if (ruleIndex == null)
+        {
+            final ImmutableMap<ICSSSelector, String> resolvedSelectors =
+                    resolveSelectors(royaleProject, cssDocument, problems, royaleProject, isFlex3CSS);
+            ruleIndex = new CSSRuleIndex(royaleProject, cssDocument, resolvedSelectors);
+            session.ruleIndices.put(cssDocument, ruleIndex);
+            session.resolvedSelectors.putAll(resolvedSelectors);
+        }
+
         if (isFlex3CSS)
         {
             final ImmutableSet<String> simpleNames =
                     ImmutableSet.copyOf(transform(qnames, QNAME_TO_SIMPLE_NAME));
-            predicate = new Flex3CSSRulePredicate(simpleNames);
+            return ImmutableSet.copyOf(filter(cssDocument.getRules(), new Flex3CSSRulePredicate(simpleNames)));
         }
-        else
-        {
-            predicate = new MatchedCSSRulePredicate(qnames, royaleProject, resolvedSelectors);
-        }
-
-        // Cache the result of selector resolution on the session. 
-        // The CSS code generation will use this map later.
-        session.resolvedSelectors.putAll(resolvedSelectors);
 
         // Find rules with selectors that match types in a given definition set.
-        return ImmutableSet.copyOf(filter(cssDocument.getRules(), predicate));
+        return ruleIndex.getMatchedRules(qnames);
     }
 
     /**
@@ -19,8 +19,11 @@
 
 package org.apache.royale.compiler.internal.mxml;
 
+import java.io.File;
+
 import org.apache.royale.compiler.filespecs.IFileSpecification;
 import org.apache.royale.compiler.internal.caches.MXMLDataCache;
+import org.apache.royale.compiler.internal.caches.PersistentMXMLTokenCache;
 import org.apache.royale.compiler.mxml.IMXMLDataManager;
 
 /**
@@ -46,6 +49,23 @@ public class MXMLDataManager implements IMXMLDataManager
     // This cache supports concurrent access by multiple threads.
     private final MXMLDataCache mxmlDataCache;
     
+    /**
+     * Sets the directory of the on-disk cache of MXML tokens, which is shared
+     * by compiler processes. Once an MXML file has been tokenized, later
+     * processes build its {@code MXMLData} without tokenizing it again, as
+     * long as its text doesn't change.
+     * 
+     * @param directory the cache directory, or null to disable the cache
+     */
+    public void setPersistentCacheDirectory(File directory)
+    {
+        final PersistentMXMLTokenCache current = mxmlDataCache.getPersistentTokenCache();
+        if (directory == null)
+            mxmlDataCache.setPersistentTokenCache(null);
+        else if (current == null || !current.getDirectory().equals(directory))
+            mxmlDataCache.setPersistentTokenCache(new PersistentMXMLTokenCache(directory));
+    }
+
     @Override
     public MXMLData get(IFileSpecification fileSpec)
     {
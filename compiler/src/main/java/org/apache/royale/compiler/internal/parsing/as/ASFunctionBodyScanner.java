@@ -0,0 +1,848 @@
+/*
+ *
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.apache.royale.compiler.internal.parsing.as;
+
+import java.io.IOException;
+
+import org.apache.royale.compiler.constants.IASKeywordConstants;
+
+/**
+ * Finds the "}" that closes a function body by looking at characters instead
+ * of tokens, so that the body of a deferred function can be skipped without
+ * building any {@link ASToken}s.
+ * <p>
+ * The scanner follows the rules of {@code RawASTokenizer} for comments,
+ * string literals, regular expression literals and {@code Vector} types, so
+ * that it finds the same "}" as the tokenizer. Anything that the tokenizer
+ * would treat in a special way is not skipped: E4X literals, {@code include}
+ * directives and anything that the tokenizer would report as a problem. The
+ * caller then falls back to skipping the body token by token.
+ */
+abstract class ASFunctionBodyScanner implements ASTokenTypes
+{
+    /**
+     * Returned by {@link #findBlockClose(int)} if the body can't be skipped at
+     * the character level.
+     */
+    static final int NOT_FOUND = -1;
+
+    /**
+     * Returned by {@link #charAt(int)} at the end of the input.
+     */
+    protected static final int EOF = -1;
+
+    /**
+     * Gets a character of the input.
+     *
+     * @param index Index of the character.
+     * @return The character, or {@link #EOF}.
+     * @throws IOException Error reading the input.
+     */
+    protected abstract int charAt(int index) throws IOException;
+
+    /**
+     * Finds the "}" that closes the block that starts right before
+     * {@code start}.
+     *
+     * @param start Index of the first character after the "{".
+     * @return Index of the "}", or {@link #NOT_FOUND} if the block has no
+     * tokens or can't be skipped at the character level.
+     * @throws IOException Error reading the input.
+     */
+    final int findBlockClose(final int start) throws IOException
+    {
+        int depth = 0;
+        int lastTokenType = TOKEN_BLOCK_OPEN;
+        boolean hasTokens = false;
+        int typedDepth = 0;
+        boolean typedLiteral = false;
+
+        int i = start;
+        while (true)
+        {
+            final int c = charAt(i);
+            if (c == EOF)
+                return NOT_FOUND;
+
+            if (typedDepth > 0)
+            {
+                // the inside of "Vector.<...>" and "new <...>"
+                if (isWhiteSpace(c))
+                {
+                    i++;
+                }
+                else if (isIdentifierStart(c, i))
+                {
+                    i = skipIdentifier(i);
+                    lastTokenType = TOKEN_IDENTIFIER;
+                }
+                else if (c == '.' && charAt(i + 1) == '<')
+                {
+                    typedDepth++;
+                    i += 2;
+                    lastTokenType = TOKEN_TYPED_COLLECTION_OPEN;
+                }
+                else if (c == '.')
+                {
+                    i++;
+                    lastTokenType = TOKEN_OPERATOR_MEMBER_ACCESS;
+                }
+                else if (c == '*')
+                {
+                    i++;
+                    lastTokenType = TOKEN_OPERATOR_STAR;
+                }
+                else if (c == '>')
+                {
+                    typedDepth--;
+                    i++;
+                    lastTokenType = typedDepth == 0 && typedLiteral ?
+                                    TOKEN_TYPED_LITERAL_CLOSE :
+                                    TOKEN_TYPED_COLLECTION_CLOSE;
+                }
+                else
+                {
+                    // the tokenizer leaves the type and scans the character again
+                    typedDepth = 0;
+                }
+                continue;
+            }
+
+            if (isWhiteSpace(c))
+            {
+                i++;
+                continue;
+            }
+
+            final int c1;
+            switch (c)
+            {
+                case '{':
+                    depth++;
+                    i++;
+                    lastTokenType = TOKEN_BLOCK_OPEN;
+                    break;
+
+                case '}':
+                    if (depth == 0)
+                        return hasTokens ? i : NOT_FOUND;
+                    depth--;
+                    i++;
+                    lastTokenType = TOKEN_BLOCK_CLOSE;
+                    break;
+
+                case '"':
+                case '\'':
+                    i = skipString(i, c);
+                    if (i == NOT_FOUND)
+                        return NOT_FOUND;
+                    lastTokenType = TOKEN_LITERAL_STRING;
+                    break;
+
+                case '/':
+                    c1 = charAt(i + 1);
+                    if (c1 == '/')
+                    {
+                        // comments are not tokens, so the last token type stays
+                        i = skipLineComment(i + 2);
+                        continue;
+                    }
+                    if (c1 == '*')
+                    {
+                        // "/**" and "/**/" are ASDoc comment tokens
+                        final boolean isASDoc = charAt(i + 2) == '*';
+                        i = skipBlockComment(i + 2);
+                        if (i == NOT_FOUND)
+                            return NOT_FOUND;
+                        if (!isASDoc)
+                            continue;
+                        lastTokenType = TOKEN_ASDOC_COMMENT;
+                        break;
+                    }
+                    final int regexEnd = ASToken.canPreceedRegex(lastTokenType) ? matchRegex(i) : NOT_FOUND;
+                    if (regexEnd != NOT_FOUND)
+                    {
+                        i = regexEnd;
+                        lastTokenType = TOKEN_LITERAL_REGEXP;
+                    }
+                    else if (c1 == '=')
+                    {
+                        i += 2;
+                        lastTokenType = TOKEN_OPERATOR_DIVISION_ASSIGNMENT;
+                    }
+                    else
+                    {
+                        i++;
+                        lastTokenType = TOKEN_OPERATOR_DIVISION;
+                    }
+                    break;
+
+                case '<':
+                    c1 = charAt(i + 1);
+                    if (c1 == '<')
+                    {
+                        if (charAt(i + 2) == '=')
+                        {
+                            i += 3;
+                            lastTokenType = TOKEN_OPERATOR_BITWISE_LEFT_SHIFT_ASSIGNMENT;
+                        }
+                        else
+                        {
+                            i += 2;
+                            lastTokenType = TOKEN_OPERATOR_BITWISE_LEFT_SHIFT;
+                        }
+                        break;
+                    }
+                    if (c1 == '=')
+                    {
+                        i += 2;
+                        lastTokenType = TOKEN_OPERATOR_LESS_THAN_EQUALS;
+                        break;
+                    }
+                    // E4X literals have their own rules for "{" and "}"
+                    if (ASToken.canPreceedE4X(lastTokenType))
+                        return NOT_FOUND;
+                    int xmlListEnd = i + 1;
+                    while (isWhiteSpace(charAt(xmlListEnd)))
+                        xmlListEnd++;
+                    if (charAt(xmlListEnd) == '>')
+                    {
+                        // the tokenizer makes "<" from all of "< >"
+                        i = xmlListEnd + 1;
+                        lastTokenType = TOKEN_OPERATOR_LESS_THAN;
+                    }
+                    else if (lastTokenType == TOKEN_KEYWORD_NEW)
+                    {
+                        typedDepth = 1;
+                        typedLiteral = true;
+                        i++;
+                        lastTokenType = TOKEN_TYPED_LITERAL_OPEN;
+                    }
+                    else
+                    {
+                        i++;
+                        lastTokenType = TOKEN_OPERATOR_LESS_THAN;
+                    }
+                    break;
+
+                case '>':
+                    if (charAt(i + 1) == '>')
+                    {
+                        if (charAt(i + 2) == '>')
+                        {
+                            if (charAt(i + 3) == '=')
+                            {
+                                i += 4;
+                                lastTokenType = TOKEN_OPERATOR_BITWISE_UNSIGNED_RIGHT_SHIFT_ASSIGNMENT;
+                            }
+                            else
+                            {
+                                i += 3;
+                                lastTokenType = TOKEN_OPERATOR_BITWISE_UNSIGNED_RIGHT_SHIFT;
+                            }
+                        }
+                        else if (charAt(i + 2) == '=')
+                        {
+                            i += 3;
+                            lastTokenType = TOKEN_OPERATOR_BITWISE_RIGHT_SHIFT_ASSIGNMENT;
+                        }
+                        else
+                        {
+                            i += 2;
+                            lastTokenType = TOKEN_OPERATOR_BITWISE_RIGHT_SHIFT;
+                        }
+                    }
+                    else if (charAt(i + 1) == '=')
+                    {
+                        i += 2;
+                        lastTokenType = TOKEN_OPERATOR_GREATER_THAN_EQUALS;
+                    }
+                    else
+                    {
+                        i++;
+                        lastTokenType = TOKEN_OPERATOR_GREATER_THAN;
+                    }
+                    break;
+
+                case '.':
+                    c1 = charAt(i + 1);
+                    if (c1 == '<')
+                    {
+                        typedDepth = 1;
+                        typedLiteral = false;
+                        i += 2;
+                        lastTokenType = TOKEN_TYPED_COLLECTION_OPEN;
+                    }
+                    else if (c1 == '.')
+                    {
+                        if (charAt(i + 2) == '.')
+                        {
+                            i += 3;
+                            lastTokenType = TOKEN_ELLIPSIS;
+                        }
+                        else
+                        {
+                            i += 2;
+                            lastTokenType = TOKEN_OPERATOR_DESCENDANT_ACCESS;
+                        }
+                    }
+                    else if (isDigit(c1))
+                    {
+                        i = skipNumber(i);
+                        lastTokenType = TOKEN_LITERAL_NUMBER;
+                    }
+                    else
+                    {
+                        i++;
+                        lastTokenType = TOKEN_OPERATOR_MEMBER_ACCESS;
+                    }
+                    break;
+
+                case '*':
+                    if (charAt(i + 1) == '=')
+                    {
+                        i += 2;
+                        lastTokenType = lastTokenType == TOKEN_COLON ?
+                                        HIDDEN_TOKEN_STAR_ASSIGNMENT :
+                                        TOKEN_OPERATOR_MULTIPLICATION_ASSIGNMENT;
+                    }
+                    else
+                    {
+                        i++;
+                        lastTokenType = TOKEN_OPERATOR_STAR;
+                    }
+                    break;
+
+                case '!':
+                    if (charAt(i + 1) == '=')
+                    {
+                        if (charAt(i + 2) == '=')
+                        {
+                            i += 3;
+                            lastTokenType = TOKEN_OPERATOR_STRICT_NOT_EQUAL;
+                        }
+                        else
+                        {
+                            i += 2;
+                            lastTokenType = TOKEN_OPERATOR_NOT_EQUAL;
+                        }
+                    }
+                    else
+                    {
+                        i++;
+                        lastTokenType = TOKEN_OPERATOR_LOGICAL_NOT;
+                    }
+                    break;
+
+                case '=':
+                    if (charAt(i + 1) == '=')
+                    {
+                        if (charAt(i + 2) == '=')
+                        {
+                            i += 3;
+                            lastTokenType = TOKEN_OPERATOR_STRICT_EQUAL;
+                        }
+                        else
+                        {
+                            i += 2;
+                            lastTokenType = TOKEN_OPERATOR_EQUAL;
+                        }
+                    }
+                    else
+                    {
+                        i++;
+                        lastTokenType = TOKEN_OPERATOR_ASSIGNMENT;
+                    }
+                    break;
+
+                case '&':
+                    c1 = charAt(i + 1);
+                    if (c1 == '&')
+                    {
+                        if (charAt(i + 2) == '=')
+                        {
+                            i += 3;
+                            lastTokenType = TOKEN_OPERATOR_LOGICAL_AND_ASSIGNMENT;
+                        }
+                        else
+                        {
+                            i += 2;
+                            lastTokenType = TOKEN_OPERATOR_LOGICAL_AND;
+                        }
+                    }
+                    else if (c1 == '=')
+                    {
+                        i += 2;
+                        lastTokenType = TOKEN_OPERATOR_BITWISE_AND_ASSIGNMENT;
+                    }
+                    else
+                    {
+                        i++;
+                        lastTokenType = TOKEN_OPERATOR_BITWISE_AND;
+                    }
+                    break;
+
+                case '|':
+                    c1 = charAt(i + 1);
+                    if (c1 == '|')
+                    {
+                        if (charAt(i + 2) == '=')
+                        {
+                            i += 3;
+                            lastTokenType = TOKEN_OPERATOR_LOGICAL_OR_ASSIGNMENT;
+                        }
+                        else
+                        {
+                            i += 2;
+                            lastTokenType = TOKEN_OPERATOR_LOGICAL_OR;
+                        }
+                    }
+                    else if (c1 == '=')
+                    {
+                        i += 2;
+                        lastTokenType = TOKEN_OPERATOR_BITWISE_OR_ASSIGNMENT;
+                    }
+                    else
+                    {
+                        i++;
+                        lastTokenType = TOKEN_OPERATOR_BITWISE_OR;
+                    }
+                    break;
+
+                case '+':
+                    c1 = charAt(i + 1);
+                    if (c1 == '+')
+                    {
+                        i += 2;
+                        lastTokenType = TOKEN_OPERATOR_INCREMENT;
+                    }
+                    else if (c1 == '=')
+                    {
+                        i += 2;
+                        lastTokenType = TOKEN_OPERATOR_PLUS_ASSIGNMENT;
+                    }
+                    else
+                    {
+                        i++;
+                        lastTokenType = TOKEN_OPERATOR_PLUS;
+                    }
+                    break;
+
+                case '-':
+                    c1 = charAt(i + 1);
+                    if (c1 == '-')
+                    {
+                        i += 2;
+                        lastTokenType = TOKEN_OPERATOR_DECREMENT;
+                    }
+                    else if (c1 == '=')
+                    {
+                        i += 2;
+                        lastTokenType = TOKEN_OPERATOR_MINUS_ASSIGNMENT;
+                    }
+                    else
+                    {
+                        i++;
+                        lastTokenType = TOKEN_OPERATOR_MINUS;
+                    }
+                    break;
+
+                case '%':
+                    if (charAt(i + 1) == '=')
+                    {
+                        i += 2;
+                        lastTokenType = TOKEN_OPERATOR_MODULO_ASSIGNMENT;
+                    }
+                    else
+                    {
+                        i++;
+                        lastTokenType = TOKEN_OPERATOR_MODULO;
+                    }
+                    break;
+
+                case '^':
+                    if (charAt(i + 1) == '=')
+                    {
+                        i += 2;
+                        lastTokenType = TOKEN_OPERATOR_BITWISE_XOR_ASSIGNMENT;
+                    }
+                    else
+                    {
+                        i++;
+                        lastTokenType = TOKEN_OPERATOR_BITWISE_XOR;
+                    }
+                    break;
+
+                case ':':
+                    if (charAt(i + 1) == ':')
+                    {
+                        i += 2;
+                        lastTokenType = TOKEN_OPERATOR_NS_QUALIFIER;
+                    }
+                    else
+                    {
+                        i++;
+                        lastTokenType = TOKEN_COLON;
+                    }
+                    break;
+
+                case '(':
+                    i++;
+                    lastTokenType = TOKEN_PAREN_OPEN;
+                    break;
+
+                case ')':
+                    i++;
+                    lastTokenType = TOKEN_PAREN_CLOSE;
+                    break;
+
+                case '[':
+                    i++;
+                    lastTokenType = TOKEN_SQUARE_OPEN;
+                    break;
+
+                case ']':
+                    i++;
+                    lastTokenType = TOKEN_SQUARE_CLOSE;
+                    break;
+
+                case ';':
+                    i++;
+                    lastTokenType = TOKEN_SEMICOLON;
+                    break;
+
+                case ',':
+                    i++;
+                    lastTokenType = TOKEN_COMMA;
+                    break;
+
+                case '?':
+                    i++;
+                    lastTokenType = TOKEN_OPERATOR_TERNARY;
+                    break;
+
+                case '@':
+                    i++;
+                    lastTokenType = TOKEN_OPERATOR_ATSIGN;
+                    break;
+
+                case '~':
+                    i++;
+                    lastTokenType = TOKEN_OPERATOR_BITWISE_NOT;
+                    break;
+
+                default:
+                    if (isDigit(c))
+                    {
+                        i = skipNumber(i);
+                        lastTokenType = TOKEN_LITERAL_NUMBER;
+                    }
+                    else if (isIdentifierStart(c, i))
+                    {
+                        final int end = skipIdentifier(i);
+                        lastTokenType = getIdentifierTokenType(i, end);
+                        // "include" directives change the offsets of the
+                        // tokens that follow them
+                        if (lastTokenType == TOKEN_KEYWORD_INCLUDE)
+                            return NOT_FOUND;
+                        i = end;
+                    }
+                    else
+                    {
+                        // the tokenizer reports a bad character
+                        return NOT_FOUND;
+                    }
+                    break;
+            }
+            hasTokens = true;
+        }
+    }
+
+    /**
+     * @return The type of the token that {@code RawASTokenizer} builds for an
+     * identifier, or {@link ASTokenTypes#TOKEN_KEYWORD_INCLUDE} for
+     * "include".
+     */
+    private int getIdentifierTokenType(final int start, final int end) throws IOException
+    {
+        switch (end - start)
+        {
+            case 3:
+                if (matches(start, IASKeywordConstants.NEW))
+                    return TOKEN_KEYWORD_NEW;
+                break;
+            case 5:
+                if (matches(start, IASKeywordConstants.THROW))
+                    return TOKEN_KEYWORD_THROW;
+                break;
+            case 6:
+                if (matches(start, IASKeywordConstants.RETURN))
+                    return TOKEN_KEYWORD_RETURN;
+                break;
+            case 7:
+                if (matches(start, IASKeywordConstants.INCLUDE))
+                    return TOKEN_KEYWORD_INCLUDE;
+                break;
+        }
+        return TOKEN_IDENTIFIER;
+    }
+
+    private boolean matches(final int start, final String text) throws IOException
+    {
+        for (int i = 0; i < text.length(); i++)
+        {
+            if (charAt(start + i) != text.charAt(i))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return Index after the closing quote, or {@link #NOT_FOUND} if the
+     * string isn't closed on the same line.
+     */
+    private int skipString(int i, final int quote) throws IOException
+    {
+        i++;
+        while (true)
+        {
+            final int c = charAt(i);
+            if (c == EOF || isLineTerminator(c))
+                return NOT_FOUND;
+            i++;
+            if (c == quote)
+                return i;
+            if (c == '\\')
+            {
+                // an escaped line terminator continues the string
+                final int escaped = charAt(i);
+                if (escaped == EOF)
+                    return NOT_FOUND;
+                i++;
+                if (escaped == '\r' && charAt(i) == '\n')
+                    i++;
+            }
+        }
+    }
+
+    /**
+     * @return Index after the line terminator of a "//" comment.
+     */
+    private int skipLineComment(int i) throws IOException
+    {
+        while (true)
+        {
+            final int c = charAt(i);
+            if (c == EOF)
+                return i;
+            if (c == '\r' || c == '\n')
+                return i + 1;
+            i++;
+        }
+    }
+
+    /**
+     * @return Index after the closing "*&#47;", or {@link #NOT_FOUND} if the
+     * comment isn't closed.
+     */
+    private int skipBlockComment(int i) throws IOException
+    {
+        while (true)
+        {
+            final int c = charAt(i);
+            if (c == EOF)
+                return NOT_FOUND;
+            i++;
+            if (c == '*' && charAt(i) == '/')
+                return i + 1;
+        }
+    }
+
+    /**
+     * Matches the regular expression literal pattern of
+     * {@code RawASTokenizer}.
+     *
+     * @return Index after the flags of the regular expression, or
+     * {@link #NOT_FOUND} if there isn't one at {@code i}.
+     */
+    private int matchRegex(int i) throws IOException
+    {
+        i++;
+        boolean first = true;
+        while (true)
+        {
+            final int c = charAt(i);
+            if (c == EOF || c == '\n' || c == '\r')
+                return NOT_FOUND;
+            if (c == '/')
+            {
+                if (first)
+                    return NOT_FOUND;
+                i++;
+                while (charAt(i) != EOF && Character.isJavaIdentifierPart((char)charAt(i)))
+                    i++;
+                return i;
+            }
+            if (c == '*' && first)
+                return NOT_FOUND;
+            if (c == '\\')
+            {
+                if (charAt(i + 1) == EOF)
+                    return NOT_FOUND;
+                i += 2;
+            }
+            else if (c == '[')
+            {
+                i++;
+                while (true)
+                {
+                    final int classChar = charAt(i);
+                    if (classChar == EOF || classChar == '\n' || classChar == '\r')
+                        return NOT_FOUND;
+                    i++;
+                    if (classChar == ']')
+                        break;
+                    if (classChar == '\\')
+                    {
+                        if (charAt(i) == EOF)
+                            return NOT_FOUND;
+                        i++;
+                    }
+                }
+            }
+            else
+            {
+                i++;
+            }
+            first = false;
+        }
+    }
+
+    /**
+     * @return Index after a decimal or hexadecimal number literal.
+     */
+    private int skipNumber(int i) throws IOException
+    {
+        if (charAt(i) == '0' && (charAt(i + 1) == 'x' || charAt(i + 1) == 'X') && isHexDigit(charAt(i + 2)))
+        {
+            i += 2;
+            while (isHexDigit(charAt(i)))
+                i++;
+            return i;
+        }
+        while (isDigit(charAt(i)))
+            i++;
+        if (charAt(i) == '.')
+        {
+            i++;
+            while (isDigit(charAt(i)))
+                i++;
+        }
+        final int e = charAt(i);
+        if (e == 'e' || e == 'E')
+        {
+            int exponent = i + 1;
+            if (charAt(exponent) == '+' || charAt(exponent) == '-')
+                exponent++;
+            if (isDigit(charAt(exponent)))
+            {
+                i = exponent;
+                while (isDigit(charAt(i)))
+                    i++;
+            }
+        }
+        return i;
+    }
+
+    private boolean isIdentifierStart(final int c, final int i) throws IOException
+    {
+        return Character.isJavaIdentifierStart((char)c) || (c == '\\' && isUnicodeEscape(i + 1));
+    }
+
+    /**
+     * @return Index after an identifier.
+     */
+    private int skipIdentifier(int i) throws IOException
+    {
+        while (true)
+        {
+            final int c = charAt(i);
+            if (c == EOF)
+                return i;
+            if (c == '\\' && isUnicodeEscape(i + 1))
+                i += 6;
+            else if (Character.isJavaIdentifierPart((char)c))
+                i++;
+            else
+                return i;
+        }
+    }
+
+    private boolean isUnicodeEscape(final int i) throws IOException
+    {
+        return charAt(i) == 'u' &&
+               isHexDigit(charAt(i + 1)) &&
+               isHexDigit(charAt(i + 2)) &&
+               isHexDigit(charAt(i + 3)) &&
+               isHexDigit(charAt(i + 4));
+    }
+
+    private static boolean isDigit(final int c)
+    {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isHexDigit(final int c)
+    {
+        return (c >= '0' && c <= '9') || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F');
+    }
+
+    private static boolean isLineTerminator(final int c)
+    {
+        return c == '\n' || c == '\r' || c == '\u2028' || c == '\u2029';
+    }
+
+    /**
+     * Matches {@code WHITE_SPACE_CHAR} of {@code RawASTokenizer}.
+     */
+    private static boolean isWhiteSpace(final int c)
+    {
+        switch (c)
+        {
+            case ' ':
+            case '\t':
+            case '\b':
+            case '\n':
+            case '\r':
+            case '\f':
+            case '\u00A0':
+            case '\u1680':
+            case '\u180E':
+            case '\u2028':
+            case '\u2029':
+            case '\u202F':
+            case '\u205F':
+            case '\u3000':
+                return true;
+            default:
+                return c >= '\u2000' && c <= '\u200A';
+        }
+    }
+}
@@ -66,6 +66,7 @@ import org.apache.royale.compiler.config.CompilerDiagnosticsConstants;
 import org.apache.royale.compiler.constants.IASKeywordConstants;
 import org.apache.royale.compiler.constants.IASLanguageConstants;
 import org.apache.royale.compiler.constants.IMetaAttributeConstants;
+import org.apache.royale.compiler.filespecs.FileSpecification;
 import org.apache.royale.compiler.filespecs.IFileSpecification;
 import org.apache.royale.compiler.internal.filespecs.StringFileSpecification;
 import org.apache.royale.compiler.internal.parsing.TokenBase;
@@ -276,6 +277,10 @@ abstract class BaseASParser extends LLkParser implements IProblemReporter
 
             final ASParser parser = new ASParser(fileSpecGetter.getWorkspace(), buffer);
             parser.deferFunctionBody = deferFunctionBody;
+            // Only a plain file can be read again from the workspace when
+            // the deferred function bodies are parsed.
+            if (deferFunctionBody == DeferFunctionBody.ENABLED && !(spec instanceof FileSpecification))
+                ((BaseASParser)parser).setFunctionBodySource(spec.createReader(), 0);
             parser.setProjectConfigVariables(variables);
             parser.setFilename(spec.getPath());
             parser.setAllowEmbeds(allowEmbeds);
@@ -335,6 +340,8 @@ abstract class BaseASParser extends LLkParser implements IProblemReporter
      * @param postProcess Post process steps.
      * @param followIncludes True if includes are followed.
      * @param includeHandler The include handler to use.
+     * @param deferFunctionBody Whether the function bodies in the fragment
+     * are parsed lazily.
      * @return The resulting AST subtree generated from the ActionScript
      * fragment.
      */
@@ -351,7 +358,8 @@ abstract class BaseASParser extends LLkParser implements IProblemReporter
             final IProjectConfigVariables variables,
             final EnumSet<PostProcessStep> postProcess,
             final boolean followIncludes,
-            final IncludeHandler includeHandler)
+            final IncludeHandler includeHandler,
+            final DeferFunctionBody deferFunctionBody)
     {
         assert fragment != null;
         assert path != null;
@@ -376,6 +384,13 @@ abstract class BaseASParser extends LLkParser implements IProblemReporter
             parser.setFileNodeAccumulator(fileNodeAccumulator);
             parser.setFilename(path);
             parser.setProjectConfigVariables(variables);
+            if (deferFunctionBody == DeferFunctionBody.ENABLED)
+            {
+                // The fragment offsets don't match the source file, so the
+                // function body text is always cached from the fragment.
+                parser.deferFunctionBody = deferFunctionBody;
+                ((BaseASParser)parser).setFunctionBodySource(new StringReader(fragment), offset);
+            }
 
             // Initialize depth of {...} to be positive number so that nested
             // package/class definitions can be detected.
@@ -421,7 +436,8 @@ abstract class BaseASParser extends LLkParser implements IProblemReporter
      * @param blockOpenToken "{" of the function body.
      * @param problems Compiler problems.
      * @param workspace Current workspace.
-     * @param fileNode AS file node.
+     * @param fileNode AS file node, or MXML file node for functions in
+     * script tags.
      * @param configProcessor Configuration variables.
      */
     public static void parseFunctionBody(
@@ -431,7 +447,7 @@ abstract class BaseASParser extends LLkParser implements IProblemReporter
             final ASToken blockOpenToken,
             final Collection<ICompilerProblem> problems,
             final IWorkspace workspace,
-            final FileNode fileNode,
+            final IFileNodeAccumulator fileNode,
             final ConfigProcessor configProcessor)
     {
         assert container != null;
@@ -501,6 +517,10 @@ abstract class BaseASParser extends LLkParser implements IProblemReporter
      * <p>
      * Both {@code MXMLScopeBuilder} and {@code MXMLScriptNode} use
      * this parser entry point. Different post-process tasks are requested.
+     * <p>
+     * When {@code deferFunctionBody} is enabled, the function body text is
+     * cached from the compilable text of the script, because the MXML source
+     * can't be read again using the token offsets.
      */
     public static ScopedBlockNode parseInlineScript(
             final IFileNodeAccumulator fileNodeAccumulator,
@@ -509,7 +529,8 @@ abstract class BaseASParser extends LLkParser implements IProblemReporter
             final ASScope containingScope,
             final IProjectConfigVariables variables,
             final IncludeHandler includeHandler,
-            final EnumSet<PostProcessStep> postProcess)
+            final EnumSet<PostProcessStep> postProcess,
+            final DeferFunctionBody deferFunctionBody)
     {
         assert mxmlTextData != null : "MXMLTextData can't be null.";
         assert includeHandler != null : "IncludeHandler can't be null.";
@@ -547,6 +568,11 @@ abstract class BaseASParser extends LLkParser implements IProblemReporter
             parser.setFilename(scriptSourcePath);
             parser.setProjectConfigVariables(variables);
             parser.setFileNodeAccumulator(fileNodeAccumulator);
+            if (deferFunctionBody == DeferFunctionBody.ENABLED)
+            {
+                parser.deferFunctionBody = deferFunctionBody;
+                ((BaseASParser)parser).setFunctionBodySource(new StringReader(scriptContent), compilableTextStart);
+            }
             while (buffer.LA(1) != ASTokenTypes.EOF)
                 parser.directive(container, NO_END_TOKEN);
             problems.addAll(tokenizer.getTokenizationProblems());
@@ -838,8 +864,9 @@ abstract class BaseASParser extends LLkParser implements IProblemReporter
     private boolean allowErrorsInContext = true;
 
     /**
-     * True if the current input source is an ActionScript file, as opposed to
-     * AS3 scripts in MXML or other synthesized source fragments.
+     * Enabled if the function bodies of the current input source are skipped
+     * and parsed when they are needed. Synthesized source fragments always
+     * parse their function bodies.
      */
     protected DeferFunctionBody deferFunctionBody = DeferFunctionBody.DISABLED;
 
@@ -851,13 +878,23 @@ abstract class BaseASParser extends LLkParser implements IProblemReporter
      * This optimization is turned off if there's an {@code include} directive
      * in the function body.
      */
-    private final Reader secondaryReader;
+    private Reader secondaryReader;
 
     /**
      * Character offset into the {@link #secondaryReader}.
      */
     private int secondaryReaderPosition = 0;
 
+    /**
+     * True if the {@link #secondaryReader} reads the source text that is being
+     * parsed, and the source can't be read again from the workspace. The
+     * function body text is then always cached, and kept on the function node
+     * after the function body is parsed.
+     *
+     * @see #setFunctionBodySource(Reader, int)
+     */
+    private boolean retainFunctionBodyText = false;
+
     /**
      * Number of nested "packages".
      */
@@ -1055,6 +1092,24 @@ abstract class BaseASParser extends LLkParser implements IProblemReporter
         return errors;
     }
 
+    /**
+     * Capture the function body text from the given reader instead of the
+     * source file in the workspace. This is needed when the text being parsed
+     * can't be read again from the workspace using the token offsets, for
+     * example ActionScript in an MXML script tag, or a source that isn't a
+     * plain file.
+     * 
+     * @param reader A reader of the same text as the token buffer.
+     * @param offset The local offset of the first character of the text.
+     */
+    private void setFunctionBodySource(final Reader reader, final int offset)
+    {
+        IOUtils.closeQuietly(secondaryReader);
+        secondaryReader = reader;
+        secondaryReaderPosition = offset;
+        retainFunctionBodyText = true;
+    }
+
     /**
      * Close the parser and release resources.
      */
@@ -2528,10 +2583,15 @@ abstract class BaseASParser extends LLkParser implements IProblemReporter
      * the function body on-the-fly. The text is stored on the corresponding
      * {@link FunctionNode}.
      * <p>
+     * When possible, the function body is skipped by scanning its characters
+     * (see {@link ASFunctionBodyScanner}), so that its tokens are only built
+     * when the function body is parsed later.
+     * <p>
      * This feature is turn on only <b>all</b> of the following conditions are
      * true:
      * <ul>
-     * <li>The source is from a readable ActionScript source file.</li>
+     * <li>The feature is enabled for the source (see
+     * {@link DeferFunctionBody}).</li>
      * <li>The function is not a function closure.</li>
      * <li>The source file is not an in-memory compilation (see
      * {@link IInvisibleCompilationUnit}) unit in the editor.</li>
@@ -2553,6 +2613,21 @@ abstract class BaseASParser extends LLkParser implements IProblemReporter
             functionNode.getParent() instanceof FunctionObjectNode)
             return;
 
+        // Find the "}" of the function body by scanning characters, so that
+        // no tokens are built for the function body. If the function body
+        // can't be skipped that way, skip its tokens.
+        if (buffer instanceof StreamingTokenBuffer &&
+            ((StreamingTokenBuffer)buffer).skipBlockContents())
+        {
+            assert LA(1) == TOKEN_BLOCK_CLOSE : "Expected '}' after the skipped function body.";
+            final ASToken closeT = LT(1);
+            final StringBuilder functionBodyText = tryGetFunctionBodyText(openT, false, closeT);
+            functionNode.setFunctionBodyInfo(openT, closeT, configProcessor, functionBodyText, retainFunctionBodyText);
+            if (fileNodeAccumulator != null)
+                fileNodeAccumulator.addDeferredFunctionNode(functionNode);
+            return;
+        }
+
         // If the first token in the function body is "}" or "EOF", the function
         // body is empty. There's nothing to skip.
         if (LA(1) == TOKEN_BLOCK_CLOSE || LA(1) == EOF)
@@ -2590,8 +2665,11 @@ abstract class BaseASParser extends LLkParser implements IProblemReporter
         assert prevToken != null : "Function body must have at least one token if we reached here.";
 
         final StringBuilder functionBodyText = tryGetFunctionBodyText(openT, functionBodyHasInclude, prevToken);
-        functionNode.setFunctionBodyInfo(openT, prevToken, configProcessor, functionBodyText);
-        fileNodeAccumulator.addDeferredFunctionNode(functionNode);
+        functionNode.setFunctionBodyInfo(openT, prevToken, configProcessor, functionBodyText, retainFunctionBodyText);
+        // There's no accumulator when the syntax tree is only built to
+        // populate scopes.
+        if (fileNodeAccumulator != null)
+            fileNodeAccumulator.addDeferredFunctionNode(functionNode);
     }
 
     /**
@@ -2609,8 +2687,19 @@ abstract class BaseASParser extends LLkParser implements IProblemReporter
             final boolean functionBodyHasInclude,
             final ASToken lastToken)
     {
+        // When the text is retained, the "include" directives are cached as
+        // text, and processed again when the function body is parsed. This
+        // requires the "}" of the function body to be in the same source.
+        final boolean canCacheText;
+        if (!functionBodyHasInclude)
+            canCacheText = true;
+        else if (retainFunctionBodyText)
+            canCacheText = LA(1) != TOKEN_BLOCK_CLOSE || openT.getSourcePath().equals(LT(1).getSourcePath());
+        else
+            canCacheText = false;
+
         final StringBuilder functionBodyText;
-        if (secondaryReader != null && !functionBodyHasInclude)
+        if (secondaryReader != null && canCacheText)
         {
             // Get function body text
             functionBodyText = new StringBuilder();
@@ -2623,20 +2712,24 @@ abstract class BaseASParser extends LLkParser implements IProblemReporter
                 assert skip == readerSkip : "The buffer didn't skip full length.";
 
                 // Read text till the end of the function body (including the 
-                // closing curly if there is one).
-                final ASToken endToken;
+                // closing curly if there is one). If the function body isn't
+                // closed and the text is retained, read the rest of the text.
+                final int endOffset;
                 if (LA(1) == TOKEN_BLOCK_CLOSE)
-                    endToken = LT(1);
+                    endOffset = LT(1).getLocalEnd();
+                else if (retainFunctionBodyText)
+                    endOffset = Integer.MAX_VALUE;
                 else
-                    endToken = lastToken;
+                    endOffset = lastToken.getLocalEnd();
 
-                for (int position = openT.getLocalEnd(); position < endToken.getLocalEnd(); position++)
+                int position = openT.getLocalEnd();
+                for (int c; position < endOffset && (c = secondaryReader.read()) != -1; position++)
                 {
-                    functionBodyText.append((char)secondaryReader.read());
+                    functionBodyText.append((char)c);
                 }
 
                 // Update secondary reader position to the end of the function body.
-                secondaryReaderPosition = endToken.getLocalEnd();
+                secondaryReaderPosition = position;
             }
             catch (IOException e)
             {
@@ -1342,6 +1342,35 @@ public class StreamingASTokenizer implements ASTokenTypes, IASTokenizer, Closeab
         return null;
     }
 
+    /**
+     * Skips the contents of the block whose "{" was the last token returned by
+     * {@link #next()}, without building tokens for them. This is only possible
+     * if no token after the "{" has been read ahead, and the "{" is not in an
+     * included file.
+     *
+     * @return True if the contents were skipped, and the next token is the "}"
+     * of the block.
+     */
+    public boolean skipBlockContents()
+    {
+        if (forkIncludeTokenizer != null || bufferSize > 0)
+            return false;
+        if (lastToken == null || lastToken.getType() != TOKEN_BLOCK_OPEN)
+            return false;
+        if (ascIncludeImaginaryTokens != null && ascIncludeImaginaryTokens.hasNext())
+            return false;
+
+        try
+        {
+            return tokenizer.skipBlockContents();
+        }
+        catch (IOException e)
+        {
+            // Reading the tokens will report the problem.
+            return false;
+        }
+    }
+
     /**
      * Error recovery: convert the given keyword token into an identifier token,
      * and log a syntax error.
@@ -36,6 +36,13 @@ public final class StreamingTokenBuffer extends BaseRepairingTokenBuffer impleme
      */
     private static final int REWIND_BUFFER_SIZE = 10;
 
+    /**
+     * If false, {@link #skipBlockContents()} never skips, so that function
+     * bodies are skipped token by token. Tests turn it off to compare both
+     * ways of skipping.
+     */
+    static volatile boolean scanBlockContents = true;
+
     private final StreamingASTokenizer tokenizer;
     private final ArrayList<ASToken> buffer;
     private int bufferSize;
@@ -62,6 +69,21 @@ public final class StreamingTokenBuffer extends BaseRepairingTokenBuffer impleme
         return tokenizer.getSourcePath();
     }
 
+    /**
+     * Skips the contents of the block whose "{" was consumed last, without
+     * building tokens for them.
+     *
+     * @return True if the contents were skipped, and the next token is the "}"
+     * of the block.
+     * @see StreamingASTokenizer#skipBlockContents()
+     */
+    public boolean skipBlockContents()
+    {
+        if (!scanBlockContents || bufferSize > 0 || nextIsSemicolon)
+            return false;
+        return tokenizer.skipBlockContents();
+    }
+
     @Override
     public final boolean insertSemicolon(final boolean isNextToken)
     {
@@ -480,7 +480,8 @@ public class MXMLScopeBuilder
                         project.getProjectConfigVariables(),
                         EnumSet.of(PostProcessStep.CALCULATE_OFFSETS, PostProcessStep.POPULATE_SCOPE),
                         true,
-                        includeHandler);
+                        includeHandler,
+                        compilationUnit.getDeferFunctionBody());
 
                 fileScope.addSourceDependency(sourcePath);
             }
@@ -523,7 +524,8 @@ public class MXMLScopeBuilder
                                 currentClassScope,
                                 project.getProjectConfigVariables(),
                                 includeHandler,
-                                postProcess);
+                                postProcess,
+                                compilationUnit.getDeferFunctionBody());
                         assert node != null : "Expected node from ASParser.getScopesFromInlineScript().";
                         nodes.add(node);
                     }
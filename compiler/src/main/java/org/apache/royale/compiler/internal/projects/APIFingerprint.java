@@ -0,0 +1,266 @@
+/*
+ *
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.apache.royale.compiler.internal.projects;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.apache.royale.compiler.definitions.IClassDefinition;
+import org.apache.royale.compiler.definitions.IConstantDefinition;
+import org.apache.royale.compiler.definitions.IDefinition;
+import org.apache.royale.compiler.definitions.IFunctionDefinition;
+import org.apache.royale.compiler.definitions.IInterfaceDefinition;
+import org.apache.royale.compiler.definitions.INamespaceDefinition;
+import org.apache.royale.compiler.definitions.IParameterDefinition;
+import org.apache.royale.compiler.definitions.IScopedDefinition;
+import org.apache.royale.compiler.definitions.metadata.IMetaTag;
+import org.apache.royale.compiler.definitions.metadata.IMetaTagAttribute;
+import org.apache.royale.compiler.definitions.references.INamespaceReference;
+import org.apache.royale.compiler.internal.definitions.VariableDefinition;
+import org.apache.royale.compiler.internal.scopes.ASScope;
+import org.apache.royale.compiler.scopes.IASScope;
+import org.apache.royale.compiler.tree.as.IASNode;
+import org.apache.royale.compiler.tree.as.IIdentifierNode;
+import org.apache.royale.compiler.tree.as.ILiteralNode;
+import org.apache.royale.compiler.units.requests.IFileScopeRequestResult;
+
+/**
+ * Computes a fingerprint of the part of a compilation unit that other
+ * compilation units can depend on: its externally visible definitions, their
+ * non-private members, and the signatures, modifiers, namespaces and metadata
+ * of all of them. Function bodies and private members are not part of the
+ * fingerprint, so an edit that touches only them leaves it unchanged.
+ * <p>
+ * The fingerprint is computed from the unresolved type references, together
+ * with the imports of the scopes, so it can be computed without resolving any
+ * reference, and therefore while the workspace is idle.
+ */
+public final class APIFingerprint
+{
+    private APIFingerprint()
+    {
+    }
+
+    /**
+     * Computes the fingerprint of the definitions in a file scope.
+     *
+     * @param fileScopeResult The file scope of a compilation unit.
+     * @return The fingerprint, or null if the compilation unit has a
+     * definition that other compilation units may depend on in ways that are
+     * not captured by a fingerprint, such as an inline function.
+     */
+    public static String compute(IFileScopeRequestResult fileScopeResult)
+    {
+        Set<String> imports = new TreeSet<String>();
+        for (IASScope scope : fileScopeResult.getScopes())
+        {
+            addImports(scope, imports);
+        }
+
+        List<String> descriptions = new ArrayList<String>();
+        for (IDefinition definition : fileScopeResult.getExternallyVisibleDefinitions())
+        {
+            addImports(definition.getContainingScope(), imports);
+            String description = describeWithMembers(definition, imports);
+            if (description == null)
+                return null;
+            descriptions.add(description);
+        }
+        Collections.sort(descriptions);
+
+        StringBuilder builder = new StringBuilder();
+        for (String importName : imports)
+        {
+            builder.append("import ").append(importName).append('\n');
+        }
+        for (String description : descriptions)
+        {
+            builder.append(description);
+        }
+        return hash(builder.toString());
+    }
+
+    private static String describeWithMembers(IDefinition definition, Set<String> imports)
+    {
+        StringBuilder builder = new StringBuilder();
+        if (!describe(definition, builder))
+            return null;
+
+        if (definition instanceof IClassDefinition || definition instanceof IInterfaceDefinition)
+        {
+            IASScope scope = ((IScopedDefinition)definition).getContainedScope();
+            addImports(scope, imports);
+
+            List<String> members = new ArrayList<String>();
+            for (IDefinition member : scope.getAllLocalDefinitions())
+            {
+                if (member.isPrivate() || member.isImplicit())
+                    continue;
+                StringBuilder memberBuilder = new StringBuilder("  ");
+                if (!describe(member, memberBuilder))
+                    return null;
+                members.add(memberBuilder.toString());
+            }
+            Collections.sort(members);
+            for (String member : members)
+            {
+                builder.append(member);
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Appends one line that describes a definition.
+     *
+     * @return false if the definition can't be described by a fingerprint.
+     */
+    private static boolean describe(IDefinition definition, StringBuilder builder)
+    {
+        builder.append(definition.getClass().getSimpleName());
+        builder.append(' ');
+        builder.append(definition.getQualifiedName());
+
+        INamespaceReference namespace = definition.getNamespaceReference();
+        if (namespace != null)
+        {
+            builder.append(" ns=").append(namespace.getBaseName());
+            if (namespace instanceof INamespaceDefinition)
+                builder.append('(').append(((INamespaceDefinition)namespace).getURI()).append(')');
+        }
+        builder.append(" mods=").append(definition.getModifiers());
+        builder.append(" type=").append(definition.getTypeAsDisplayString());
+
+        if (definition instanceof IClassDefinition)
+        {
+            IClassDefinition classDefinition = (IClassDefinition)definition;
+            builder.append(" extends=").append(classDefinition.getBaseClassAsDisplayString());
+            builder.append(" implements=").append(Arrays.toString(classDefinition.getImplementedInterfacesAsDisplayStrings()));
+        }
+        else if (definition instanceof IInterfaceDefinition)
+        {
+            IInterfaceDefinition interfaceDefinition = (IInterfaceDefinition)definition;
+            builder.append(" extends=").append(Arrays.toString(interfaceDefinition.getExtendedInterfacesAsDisplayStrings()));
+        }
+        else if (definition instanceof IFunctionDefinition)
+        {
+            IFunctionDefinition functionDefinition = (IFunctionDefinition)definition;
+            // the body of an inline function is compiled into its callers
+            if (functionDefinition.isInline())
+                return false;
+            builder.append(" returns=").append(functionDefinition.getReturnTypeAsDisplayString());
+            builder.append(" params=(");
+            for (IParameterDefinition parameter : functionDefinition.getParameters())
+            {
+                builder.append(parameter.getBaseName());
+                builder.append(':').append(parameter.getTypeAsDisplayString());
+                if (parameter.isRest())
+                    builder.append("...");
+                if (parameter.hasDefaultValue())
+                    builder.append("=?");
+                builder.append(',');
+            }
+            builder.append(')');
+        }
+        else if (definition instanceof INamespaceDefinition)
+        {
+            builder.append(" uri=").append(((INamespaceDefinition)definition).getURI());
+        }
+        else if (definition instanceof IConstantDefinition && definition instanceof VariableDefinition)
+        {
+            // the values of constants may be folded into the code that uses them
+            VariableDefinition constant = (VariableDefinition)definition;
+            builder.append(" value=");
+            if (constant.getInitializer() != null)
+                describeExpression(constant.getInitializer(), builder);
+            else
+                builder.append(constant.resolveInitialValue(null));
+        }
+
+        for (IMetaTag metaTag : definition.getAllMetaTags())
+        {
+            // holds a source position, not part of the API
+            if (IMetaTag.GO_TO_DEFINITION_HELP.equals(metaTag.getTagName()))
+                continue;
+            builder.append(" [").append(metaTag.getTagName());
+            for (IMetaTagAttribute attribute : metaTag.getAllAttributes())
+            {
+                builder.append(' ').append(attribute.getKey()).append('=').append(attribute.getValue());
+            }
+            builder.append(']');
+        }
+        builder.append('\n');
+        return true;
+    }
+
+    /**
+     * Describes an expression by its node types, names and literal values,
+     * but not by its position, which changes with any edit before it.
+     */
+    private static void describeExpression(IASNode node, StringBuilder builder)
+    {
+        builder.append(node.getNodeID());
+        if (node instanceof IIdentifierNode)
+            builder.append(':').append(((IIdentifierNode)node).getName());
+        else if (node instanceof ILiteralNode)
+            builder.append(':').append(((ILiteralNode)node).getValue());
+        builder.append('(');
+        for (int i = 0; i < node.getChildCount(); i++)
+        {
+            describeExpression(node.getChild(i), builder);
+            builder.append(',');
+        }
+        builder.append(')');
+    }
+
+    private static void addImports(IASScope scope, Set<String> imports)
+    {
+        if (scope instanceof ASScope)
+            imports.addAll(Arrays.asList(((ASScope)scope).getImports()));
+    }
+
+    private static String hash(String text)
+    {
+        MessageDigest digest;
+        try
+        {
+            digest = MessageDigest.getInstance("SHA-256");
+        }
+        catch (NoSuchAlgorithmException e)
+        {
+            throw new RuntimeException(e);
+        }
+        byte[] bytes = digest.digest(text.getBytes(StandardCharsets.UTF_8));
+        StringBuilder builder = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes)
+        {
+            builder.append(Character.forDigit((b >> 4) & 0xf, 16));
+            builder.append(Character.forDigit(b & 0xf, 16));
+        }
+        return builder.toString();
+    }
+}
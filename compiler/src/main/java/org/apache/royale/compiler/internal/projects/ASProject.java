@@ -359,6 +359,15 @@ public abstract class ASProject extends CompilerProject implements IASProject
         return libraryPathManager.getFileEntryFromLibraryPath(file);
     }
 
+    /**
+     * Get an index of the files in the SWCs on the library path.
+     * @return The index of the files on the library path.
+     */
+    public SWCFileEntryIndex getLibraryFileEntryIndex()
+    {
+        return libraryPathManager.getFileEntryIndex();
+    }
+
     public IASDocBundleDelegate getASDocBundleDelegate()
     {
         return asDocBundleDelegate;
@@ -381,6 +390,12 @@ public abstract class ASProject extends CompilerProject implements IASProject
      */
     public void setCompatibilityVersion(int major, int minor, int revision)
     {
+        if (major == compatibilityVersionMajor &&
+            minor == compatibilityVersionMinor &&
+            revision == compatibilityVersionRevision)
+        {
+            return;
+        }
         compatibilityVersionMajor = major;
         compatibilityVersionMinor = minor;
         compatibilityVersionRevision = revision;
@@ -148,6 +148,12 @@ public abstract class CompilerProject implements ICompilerProject
      */
     private boolean enableInlining;
 
+    /**
+     * If true, function bodies in MXML script tags and in ActionScript
+     * sources that are not plain files are also parsed when they are needed.
+     */
+    private boolean deferFunctionBodies = false;
+
     private final boolean useAS3;
 
     /**
@@ -946,10 +952,40 @@ public abstract class CompilerProject implements ICompilerProject
      */
     public void setEnableInlining(boolean enableInlining)
     {
+        if (this.enableInlining == enableInlining)
+            return;
         this.enableInlining = enableInlining;
         clean();
     }
     
+    /**
+     * Gets a boolean that indicates whether or not function bodies in MXML
+     * script tags and in ActionScript sources that are not plain files are
+     * parsed lazily. Function bodies in ActionScript files are always parsed
+     * lazily.
+     * 
+     * @return true if function bodies are parsed when they are needed.
+     */
+    public boolean getDeferFunctionBodies()
+    {
+        return deferFunctionBodies;
+    }
+
+    /**
+     * Set whether or not function bodies in MXML script tags and in
+     * ActionScript sources that are not plain files are parsed lazily.
+     * 
+     * @param deferFunctionBodies true to parse function bodies when they are
+     * needed, false to parse them with the rest of the file.
+     */
+    public void setDeferFunctionBodies(boolean deferFunctionBodies)
+    {
+        if (this.deferFunctionBodies == deferFunctionBodies)
+            return;
+        this.deferFunctionBodies = deferFunctionBodies;
+        clean();
+    }
+    
     /**
      * Add AST to cache.  By default, not added to any cache.
      * 
@@ -623,6 +623,44 @@ public final class DependencyGraph
         return result;
     }
 
+    /**
+     * Computes the part of {@link #computeInvalidationSet(Iterable)} that
+     * must be cleaned even if the {@link APIFingerprint} of each of the
+     * specified {@link ICompilationUnit}'s is unchanged: the
+     * {@link ICompilationUnit}'s themselves and the {@link ICompilationUnit}'s
+     * that depend on them directly, with any type of dependency.
+     * <p>
+     * The direct dependents refer to the definitions of the
+     * {@link ICompilationUnit}'s that are cleaned, so they have to be cleaned
+     * too. The dependents of those dependents only have to be cleaned if the
+     * API changed.
+     * <p>
+     * This method is not thread safe and must not be called while any
+     * compilation is occurring in any project in the workspace associated with
+     * the specified compilation units.
+     * 
+     * @param roots {@link ICompilationUnit}'s that are known to need cleaning
+     * @return Set of {@link ICompilationUnit}'s that should be cleaned,
+     * whether or not the API changed.
+     */
+    public static Set<ICompilationUnit> computeDirectInvalidationSet(Iterable<ICompilationUnit> roots)
+    {
+        HashSet<ICompilationUnit> result = new HashSet<ICompilationUnit>();
+        for (ICompilationUnit unit : roots)
+        {
+            assert unit instanceof CompilationUnitBase;
+            CompilationUnitBase compilationUnit = (CompilationUnitBase)unit;
+            if (result.add(compilationUnit))
+            {
+                for (Edge edge : compilationUnit.getProject().getDependencyGraph().getIncomingEdges(compilationUnit))
+                {
+                    result.add(edge.getFrom());
+                }
+            }
+        }
+        return result;
+    }
+
     /**
      * Add a  {@link ICompilationUnit} to the dependency graph.
      * @param cu {@link ICompilationUnit} to add to the dependency graph
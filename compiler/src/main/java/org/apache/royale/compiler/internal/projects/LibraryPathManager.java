@@ -153,6 +153,12 @@ public final class LibraryPathManager
      */
     private final Map<String, String> libraryFilePaths;
 
+    /**
+     * Index of the files in the SWCs on the library path. It is built on
+     * demand, and thrown away when the library path or a SWC on it changes.
+     */
+    private volatile SWCFileEntryIndex fileEntryIndex;
+
     /**
      * Create {@code SWCCompilationUnit} objects from the given SWC files. These
      * compilation units will be added to the project.
@@ -259,6 +265,7 @@ public final class LibraryPathManager
         computeAddRemoveSet(swcFilePathStrings, swcFilesToAdd, swcFilesToRemove);
 
         // update the library path map
+        fileEntryIndex = null;
         libraryFilePaths.clear();
         for (final FileID path : swcFilePaths)
         {
@@ -544,6 +551,7 @@ public final class LibraryPathManager
         if (swcFilePaths.isEmpty())
             return false;
 
+        fileEntryIndex = null;
         updateLibraryPath(swcFilePaths, swcFilePaths);
         return true;
     }
@@ -555,6 +563,7 @@ public final class LibraryPathManager
      */
     protected void invalidate(ISWC swc)
     {
+        fileEntryIndex = null;
         String swcFilename = swc.getSWCFile().getAbsolutePath();
         final Collection<ICompilationUnit> unitsToRemove = flashProject.getCompilationUnits(swcFilename);
 
@@ -580,17 +589,27 @@ public final class LibraryPathManager
      */
     public ISWCFileEntry getFileEntryFromLibraryPath(String filename)
     {
-        ImmutableList<ISWC> swcs = getLibrarySWCs();
+        return getFileEntryIndex().getFile(filename);
+    }
 
-        ISWCFileEntry fileEntry = null;
-        for (ISWC swc : swcs)
+    /**
+     * Get the index of the files in the SWCs on the library path.
+     * <p>
+     * The index is built on the first lookup after
+     * {@link #setLibraryPath(File[])} or {@code invalidate()} threw the
+     * previous one away.
+     * 
+     * @return The index of the files on the library path.
+     */
+    public SWCFileEntryIndex getFileEntryIndex()
+    {
+        SWCFileEntryIndex index = fileEntryIndex;
+        if (index == null)
         {
-            fileEntry = swc.getFile(filename);
-            if (fileEntry != null)
-                break;
+            index = new SWCFileEntryIndex(getLibrarySWCs());
+            fileEntryIndex = index;
         }
-
-        return fileEntry;
+        return index;
     }
 
     /**
@@ -1618,6 +1618,11 @@ public class RoyaleProject extends ASProject implements IRoyaleProject, ICompile
     public void setLocales(Collection<String> locales) 
     {
         assert locales != null : "Locales cannot be set to null";
+        if (this.locales != null &&
+            new ArrayList<String>(this.locales).equals(new ArrayList<String>(locales)))
+        {
+            return;
+        }
         this.locales = Collections.unmodifiableCollection(locales);
         clean();
     }
@@ -1639,6 +1644,8 @@ public class RoyaleProject extends ASProject implements IRoyaleProject, ICompile
     @Override
     public void setLocaleDependentResources(Map<String, String> localeDependentResources) 
     {
+        if (this.localeDependentPaths.equals(localeDependentResources))
+            return;
         this.localeDependentPaths.clear();
         this.localeDependentPaths.putAll(localeDependentResources);
         clean();
@@ -1796,6 +1803,8 @@ public class RoyaleProject extends ASProject implements IRoyaleProject, ICompile
     @Override
     public void setActionScriptFileEncoding(String encoding)
     {
+        if (encoding != null && encoding.equals(actionScriptFileEncoding))
+            return;
         actionScriptFileEncoding = encoding;
         clean();
     }
@@ -1808,10 +1817,19 @@ public class RoyaleProject extends ASProject implements IRoyaleProject, ICompile
 
     private boolean isTranspiling;
     
+    /**
+     * The defines from the last call to {@link #setDefineDirectives(Map)}, so
+     * that setting the same defines again does not clean the project.
+     */
+    private Map<String, String> lastDefineDirectives;
+    
     @Override
     public void setDefineDirectives(Map<String, String> defines)
     {
     	overrideDefines(defines);
+        if (defines.equals(lastDefineDirectives))
+            return;
+        lastDefineDirectives = new HashMap<String, String>(defines);
         // TODO: This seems strange. Each call to the setter
         // adds new defines. How do you get rid of the old ones?
         addConfigVariables(defines);
@@ -1839,6 +1857,8 @@ public class RoyaleProject extends ASProject implements IRoyaleProject, ICompile
     @Override
     public void setExtensionLibraries(Map<File, List<String>> extensions)
     {
+        if (getExtensionLibraries().equals(extensions != null ? extensions : Collections.<File, List<String>>emptyMap()))
+            return;
         this.extensions = extensions;
         clean();
     }
@@ -1902,6 +1922,13 @@ public class RoyaleProject extends ASProject implements IRoyaleProject, ICompile
     @Override
     public void setRuntimeSharedLibraryPath(List<RSLSettings> rslSettings)
     {
+        // RSLSettings has no equals(), so only an empty path can be detected
+        // as unchanged.
+        if (getRuntimeSharedLibraryPath().isEmpty() && (rslSettings == null || rslSettings.isEmpty()))
+        {
+            this.rslSettingsList = rslSettings;
+            return;
+        }
         this.rslSettingsList = rslSettings;
         clean();
     }
@@ -1915,11 +1942,30 @@ public class RoyaleProject extends ASProject implements IRoyaleProject, ICompile
      */
     public void setThemeFiles(final List<IFileSpecification> files)
     {
+        final ImmutableList<IFileSpecification> newThemeFiles;
         if (files != null)
-            this.themeFiles = ImmutableList.copyOf(files);
+            newThemeFiles = ImmutableList.copyOf(files);
         else
-            this.themeFiles = ImmutableList.of();
-        clean();
+            newThemeFiles = ImmutableList.of();
+        final boolean changed = themeFilesDiffer(this.themeFiles, newThemeFiles);
+        this.themeFiles = newThemeFiles;
+        if (changed)
+            clean();
+    }
+
+    /**
+     * Determines if two lists of theme files have different paths.
+     */
+    private static boolean themeFilesDiffer(List<IFileSpecification> oldFiles, List<IFileSpecification> newFiles)
+    {
+        if (oldFiles.size() != newFiles.size())
+            return true;
+        for (int i = 0; i < oldFiles.size(); i++)
+        {
+            if (!oldFiles.get(i).getPath().equals(newFiles.get(i).getPath()))
+                return true;
+        }
+        return false;
     }
 
     /**
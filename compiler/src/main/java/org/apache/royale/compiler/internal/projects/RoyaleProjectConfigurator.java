@@ -36,14 +36,21 @@ import org.apache.royale.compiler.internal.as.codegen.BindableHelper;
 import org.apache.royale.compiler.internal.config.RoyaleTargetSettings;
 import org.apache.royale.compiler.internal.definitions.ClassDefinition;
 import org.apache.royale.compiler.internal.embedding.transcoders.DataTranscoder;
+import org.apache.royale.compiler.internal.mxml.MXMLDataManager;
 import org.apache.royale.compiler.internal.units.FXGCompilationUnit;
+import org.apache.royale.compiler.internal.workspaces.TraceProfilingDelegate;
+import org.apache.royale.compiler.internal.workspaces.Workspace;
+import org.apache.royale.compiler.mxml.IMXMLDataManager;
 import org.apache.royale.compiler.mxml.IMXMLTypeConstants;
 import org.apache.royale.compiler.mxml.IMXMLNamespaceMapping;
 import org.apache.royale.compiler.problems.ANELibraryNotAllowedProblem;
 import org.apache.royale.compiler.projects.IRoyaleProject;
 import org.apache.royale.compiler.projects.ICompilerProject;
 import org.apache.royale.compiler.targets.ITargetSettings;
+import org.apache.royale.compiler.workspaces.WorkspaceExecutorStrategy;
 import org.apache.royale.swc.ISWC;
+import org.apache.royale.swc.ISWCManager;
+import org.apache.royale.swc.SWCManager;
 import org.apache.royale.utils.FilenameNormalization;
 
 /**
@@ -273,6 +280,7 @@ public class RoyaleProjectConfigurator extends Configurator
             project.setAllowPrivateConstructors(configuration.getCompilerAllowPrivateConstructors());
 
             project.setStrictIdentifierNames(configuration.getCompilerStrictIdentifierNames());
+            project.setDeferFunctionBodies(configuration.getCompilerDeferFunctionBodies());
             
             project.setSwfDebugfileAlias(configuration.getSwfDebugfileAlias());
             if (configuration.getSwfDebugfileAlias() != null)
@@ -312,6 +320,10 @@ public class RoyaleProjectConfigurator extends Configurator
         setupThemeFiles(royaleProject);
         setupRoyale(royaleProject);
         setupCodegenOptions(royaleProject);
+        setupWorkspaceExecutor(royaleProject);
+        setupProfiling(royaleProject);
+        setupSWCCache(royaleProject);
+        setupMXMLCache(royaleProject);
         royaleProject.setRuntimeSharedLibraryPath(getRSLSettingsFromConfiguration(configuration));
             
         if (!setupProjectLibraries(royaleProject))
@@ -492,6 +504,61 @@ public class RoyaleProjectConfigurator extends Configurator
         royaleProject.setEnableInlining(configuration.isInliningEnabled());
     }
     
+    /**
+     * Setup {@code -workspace-executor} and {@code -workspace-threads}. The
+     * workspace keeps its own thread pool if neither is set.
+     */
+    private void setupWorkspaceExecutor(RoyaleProject royaleProject)
+    {
+        WorkspaceExecutorStrategy strategy = configuration.getWorkspaceExecutor();
+        int threadCount = configuration.getWorkspaceThreads();
+        if (strategy == null && threadCount == 0)
+            return;
+        if (strategy == null)
+            strategy = WorkspaceExecutorStrategy.THREAD_POOL;
+        royaleProject.getWorkspace().setExecutorStrategy(strategy, threadCount);
+    }
+    
+    /**
+     * Setup {@code -profile-report}. A profiling delegate that was already set
+     * on the workspace is kept.
+     */
+    private void setupProfiling(RoyaleProject royaleProject)
+    {
+        File profileReport = configuration.getProfileReport();
+        Workspace workspace = royaleProject.getWorkspace();
+        if (profileReport == null || workspace.getProfilingDelegate() != null)
+            return;
+        workspace.setProfilingDelegate(new TraceProfilingDelegate(profileReport,
+                configuration.getProfileReportCount()));
+    }
+    
+    /**
+     * Setup {@code -swc-cache-directory}.
+     */
+    private void setupSWCCache(RoyaleProject royaleProject)
+    {
+        File swcCacheDirectory = configuration.getSwcCacheDirectory();
+        if (swcCacheDirectory == null)
+            return;
+        ISWCManager swcManager = royaleProject.getWorkspace().getSWCManager();
+        if (swcManager instanceof SWCManager)
+            ((SWCManager)swcManager).setPersistentCacheDirectory(swcCacheDirectory);
+    }
+    
+    /**
+     * Setup {@code -mxml-cache-directory}.
+     */
+    private void setupMXMLCache(RoyaleProject royaleProject)
+    {
+        File mxmlCacheDirectory = configuration.getMxmlCacheDirectory();
+        if (mxmlCacheDirectory == null)
+            return;
+        IMXMLDataManager mxmlDataManager = royaleProject.getWorkspace().getMXMLDataManager();
+        if (mxmlDataManager instanceof MXMLDataManager)
+            ((MXMLDataManager)mxmlDataManager).setPersistentCacheDirectory(mxmlCacheDirectory);
+    }
+    
     /**
      * Setup theme files.
      */
@@ -0,0 +1,158 @@
+/*
+ *
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.apache.royale.compiler.internal.projects;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.royale.swc.ISWC;
+import org.apache.royale.swc.ISWCFileEntry;
+
+/**
+ * An index of the files in a list of SWCs, so that a file can be found
+ * without asking each SWC in turn.
+ * <p>
+ * As with a search of the SWCs in order, a file that is in more than one SWC
+ * is found in the first of them.
+ */
+public final class SWCFileEntryIndex
+{
+    private static final String JS_SRC = "js/src/";
+    private static final String JS_OUT = "js/out/";
+
+    /**
+     * Constructor.
+     *
+     * @param swcs The SWCs to index, in the order in which they are searched.
+     */
+    public SWCFileEntryIndex(List<ISWC> swcs)
+    {
+        this.swcs = swcs;
+        this.files = new HashMap<String, ISWCFileEntry>();
+        this.classFiles = new HashMap<String, ISWCFileEntry>();
+        this.fileSWCs = new HashMap<ISWCFileEntry, ISWC>();
+
+        for (ISWC swc : swcs)
+        {
+            // The JavaScript files of a class may be in js/src or js/out,
+            // and js/src is preferred within a SWC.
+            Map<String, ISWCFileEntry> swcClassFiles = new HashMap<String, ISWCFileEntry>();
+            for (Map.Entry<String, ISWCFileEntry> entry : swc.getFiles().entrySet())
+            {
+                String path = entry.getKey();
+                ISWCFileEntry fileEntry = entry.getValue();
+                if (!files.containsKey(path))
+                {
+                    files.put(path, fileEntry);
+                    fileSWCs.put(fileEntry, swc);
+                }
+
+                String normalizedPath = path.replace('\\', '/');
+                if (normalizedPath.startsWith(JS_SRC))
+                {
+                    swcClassFiles.put(normalizedPath.substring(JS_SRC.length()), fileEntry);
+                }
+                else if (normalizedPath.startsWith(JS_OUT))
+                {
+                    String classPath = normalizedPath.substring(JS_OUT.length());
+                    if (!swcClassFiles.containsKey(classPath))
+                        swcClassFiles.put(classPath, fileEntry);
+                }
+            }
+            for (Map.Entry<String, ISWCFileEntry> entry : swcClassFiles.entrySet())
+            {
+                if (!classFiles.containsKey(entry.getKey()))
+                {
+                    classFiles.put(entry.getKey(), entry.getValue());
+                    fileSWCs.put(entry.getValue(), swc);
+                }
+            }
+        }
+    }
+
+    private final List<ISWC> swcs;
+
+    /**
+     * Maps the path of a file in a SWC to the file.
+     */
+    private final Map<String, ISWCFileEntry> files;
+
+    /**
+     * Maps a path like "org/apache/royale/Foo.js", relative to js/src or
+     * js/out, to the file.
+     */
+    private final Map<String, ISWCFileEntry> classFiles;
+
+    /**
+     * Maps the indexed files to their SWCs.
+     */
+    private final Map<ISWCFileEntry, ISWC> fileSWCs;
+
+    /**
+     * @param swcs A list of SWCs.
+     * @return true if this index was built from the same SWC objects, in the
+     * same order.
+     */
+    public boolean isIndexOf(List<ISWC> swcs)
+    {
+        if (swcs.size() != this.swcs.size())
+            return false;
+        for (int i = 0; i < swcs.size(); i++)
+        {
+            if (swcs.get(i) != this.swcs.get(i))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Find a file by its path in the SWC.
+     *
+     * @param path The path of the file, relative to the root of the SWC.
+     * @return The file in the first SWC that has it, or null.
+     */
+    public ISWCFileEntry getFile(String path)
+    {
+        return files.get(path);
+    }
+
+    /**
+     * Find a JavaScript file of a class in the js/src or js/out folder of a
+     * SWC.
+     *
+     * @param className The qualified name of the class.
+     * @param extension The extension of the file, such as ".js" or ".js.map".
+     * @return The file in the first SWC that has it, or null.
+     */
+    public ISWCFileEntry getClassFile(String className, String extension)
+    {
+        return classFiles.get(className.replace('.', '/') + extension);
+    }
+
+    /**
+     * @param fileEntry A file returned by this index.
+     * @return The SWC that contains the file.
+     */
+    public ISWC getSWC(ISWCFileEntry fileEntry)
+    {
+        return fileSWCs.get(fileEntry);
+    }
+}
@@ -92,8 +92,11 @@ import org.apache.royale.compiler.workspaces.IWorkspace;
  * <code>import</code> or <code>use namespace</code> directives.
  * <p>
  * Since multiple compilation units need to concurrently access a project scope,
- * it uses a ReadWriteLock to allow either multiple readers with no writer or a
- * single writer with no readers.
+ * its definitions are kept in a {@link ConcurrentDefinitionStore}, which name
+ * resolution reads without locking. Changes to the project scope are
+ * serialized by a write lock, and replace definition sets instead of modifying
+ * them, so a lookup sees each definition set either before or after a change.
+ * The shadow sets and other data structures are guarded by a ReadWriteLock.
  * <p>
  * A project scope can store a special kind of definition called a <i>definition
  * promise</i>, represented by <code>ASProjectScope.DefinitionPromise</code>.
@@ -208,7 +211,7 @@ public class ASProjectScope extends ASScopeBase
             comps[i] = scopeRequest.getRequestee();
         }
         // Hold the lock until we're done adding all the definitions
-        // so that no look ups occur when we're in the middle of adding definitions to the project.
+        // so that no other changes occur when we're in the middle of adding definitions to the project.
         writeLock.lock();
         try
         {
@@ -225,8 +228,10 @@ public class ASProjectScope extends ASScopeBase
     private final CompilerProject project;
 
     // Locks for controlling concurrent access to a project scope.
-    // When accessing this project scope's fSymbolsToDefinitionSets map
-    // or its scopeToCompilationUnitMap map, we lock readLock to allow
+    // Every change to this project scope's definition store locks writeLock.
+    // Lookups in the definition store don't lock, since the store never
+    // modifies a definition set that a reader may have.
+    // When accessing the shadow sets or validImports, we lock readLock to allow
     // multiple-readers-and-no-writers or lock writeLock to allow
     // no-readers-and-one-writer.
     private final ReadWriteLock readWriteLock;
@@ -299,6 +304,7 @@ public class ASProjectScope extends ASScopeBase
 
         qnameToShadowedDefinitions = null;
 
+        definitionStore = new ConcurrentDefinitionStore();
         super.addDefinitionToStore(ClassDefinition.getAnyTypeClassDefinition());
         super.addDefinitionToStore(ClassDefinition.getVoidClassDefinition());
     }
@@ -319,109 +325,81 @@ public class ASProjectScope extends ASScopeBase
         return definitionPromise;
     }
 
-    private IDefinitionSet replacePromisesWithDefinitions(IDefinitionSet definitionSet)
+    private static boolean containsPromise(IDefinitionSet definitionSet)
     {
-        // If the existing definition set is a SmallDefinitionSet or a LargeDefinitionSet,
-        // we can return the same set with the promises replaced by actual definitions.
-        // If the existing definition set is a promise acting as its own set-of-size-1,
-        // then we have to return a different set (the actual definition acting as its
-        // own set-of-size-1.
-        IDefinitionSet returnedDefinitionSet = definitionSet;
-        
         int n = definitionSet.getSize();
         for (int i = 0; i < n; i++)
         {
-            IDefinition definition = definitionSet.getDefinition(i);
-            if (definition instanceof DefinitionPromise)
-            {
-                DefinitionPromise promise = (DefinitionPromise)definition;
-
-                // Release the writeLock before calling getActualDefinition(),
-                // otherwise we can deadlock on the getFileScopeRequest().
-                writeLock.unlock();
-                try
-                {
-                    definition = promise.getActualDefinition();
-                }
-                finally
-                {
-                    writeLock.lock();
-                }
-
-                if (definition != null)
-                {
-                    // Before replacing the promise, we need to check that the
-                    // promise hasn't already been replaced by another thread
-                    // between giving up the write lock, parsing, and getting
-                    // the lock again.
-                    if (definitionSet.getDefinition(i) == promise)
-                    {
-                        if (definitionSet.getMaxSize() == 1)
-                            returnedDefinitionSet = (DefinitionBase)definition;
-                        else
-                            ((IMutableDefinitionSet)definitionSet).replaceDefinition(i, definition);
-                        
-                        if (shouldBeCached(definition))
-                            setBuiltinDefinition(definition);
-                    }
-                }
-            }
+            if (definitionSet.getDefinition(i) instanceof DefinitionPromise)
+                return true;
         }
-        
-        return returnedDefinitionSet;
+        return false;
     }
 
-    @Override
-    public IDefinitionSet getLocalDefinitionSetByName(String name)
+    private IDefinitionSet replacePromisesWithDefinitions(String name, IDefinitionSet definitionSet)
     {
-        IDefinitionSet definitionSet = null;
-        boolean containsPromise = false;
+        // Get the actual definitions before taking the writeLock,
+        // otherwise we can deadlock on the getFileScopeRequest().
+        int n = definitionSet.getSize();
+        IDefinition[] actualDefinitions = new IDefinition[n];
+        for (int i = 0; i < n; i++)
+        {
+            IDefinition definition = definitionSet.getDefinition(i);
+            if (definition instanceof DefinitionPromise)
+                actualDefinitions[i] = ((DefinitionPromise)definition).getActualDefinition();
+        }
 
-        readLock.lock();
+        writeLock.lock();
         try
         {
-            // Get the definition set from the store.
-            definitionSet = super.getLocalDefinitionSetByName(name);
-
-            // Does it contain any promises?
-            if (definitionSet != null)
+            // Before replacing a promise, we need to check that the
+            // promise hasn't already been replaced or removed by another
+            // thread while we were parsing.
+            ConcurrentDefinitionStore store = (ConcurrentDefinitionStore)definitionStore;
+            for (int i = 0; i < n; i++)
             {
-                int n = definitionSet.getSize();
-                for (int i = 0; i < n; i++)
+                IDefinition definition = actualDefinitions[i];
+                if (definition != null && containsDefinition(store.getDefinitionSetByName(name), definitionSet.getDefinition(i)))
                 {
-                    IDefinition definition = definitionSet.getDefinition(i);
-                    if (definition instanceof DefinitionPromise)
-                    {
-                        containsPromise = true;
-                        break;
-                    }
+                    store.replaceDefinition(definitionSet.getDefinition(i), definition);
+
+                    if (shouldBeCached(definition))
+                        setBuiltinDefinition(definition);
                 }
             }
+            return store.getDefinitionSetByName(name);
         }
         finally
         {
-            readLock.unlock();
+            writeLock.unlock();
         }
+    }
 
-        IDefinitionSet returnedDefinitionSet = definitionSet;
-
-        if (containsPromise)
+    private static boolean containsDefinition(IDefinitionSet definitionSet, IDefinition definition)
+    {
+        if (definitionSet == null)
+            return false;
+        int n = definitionSet.getSize();
+        for (int i = 0; i < n; i++)
         {
-            // Note that we lock for writing only if there is a promise to replace.
-            writeLock.lock();
-            try
-            {
-                returnedDefinitionSet = replacePromisesWithDefinitions(definitionSet);
-                if (returnedDefinitionSet != definitionSet)
-                    definitionStore.putDefinitionSetByName(name, returnedDefinitionSet);
-            }
-            finally
-            {
-                writeLock.unlock();
-            }
+            if (definitionSet.getDefinition(i) == definition)
+                return true;
         }
+        return false;
+    }
+
+    @Override
+    public IDefinitionSet getLocalDefinitionSetByName(String name)
+    {
+        // Get the definition set from the store.
+        // This doesn't need a lock, since the store never modifies a set.
+        IDefinitionSet definitionSet = super.getLocalDefinitionSetByName(name);
 
-        return returnedDefinitionSet;
+        // Note that we lock for writing only if there is a promise to replace.
+        if (definitionSet != null && containsPromise(definitionSet))
+            return replacePromisesWithDefinitions(name, definitionSet);
+
+        return definitionSet;
     }
 
     private static boolean referenceMatchesQName(IWorkspace workspace, IResolvedQualifiersReference reference, String qualifiedName)
@@ -473,39 +451,31 @@ public class ASProjectScope extends ASScopeBase
     {
         Set<ICompilationUnit> compilationUnits = new HashSet<ICompilationUnit>();
         IWorkspace workspace = project.getWorkspace();
-        readLock.lock();
-        try
+        for (IResolvedQualifiersReference reference : references)
         {
-            for (IResolvedQualifiersReference reference : references)
+            String baseName = reference.getName();
+            // use super.getDefinitionSetByName so we don't turn definition promises into
+            // actual definitions.  Doing so would require parsing files which would be slow.
+            IDefinitionSet definitionSet = super.getLocalDefinitionSetByName(baseName);
+            ICompilationUnit cu = null;
+            if (definitionSet != null)
             {
-                String baseName = reference.getName();
-                // use super.getDefinitionSetByName so we don't turn definition promises into
-                // actual definitions.  Doing so would require parsing files which would be slow.
-                IDefinitionSet definitionSet = super.getLocalDefinitionSetByName(baseName);
-                ICompilationUnit cu = null;
-                if (definitionSet != null)
+                int n = definitionSet.getSize();
+                for (int i = 0; i < n; i++)
                 {
-                    int n = definitionSet.getSize();
-                    for (int i = 0; i < n; i++)
+                    IDefinition definition = definitionSet.getDefinition(i);
+                    String definitionQualifiedName = definition.getQualifiedName();
+                    if (referenceMatchesQName(workspace, reference, definitionQualifiedName))
                     {
-                        IDefinition definition = definitionSet.getDefinition(i);
-                        String definitionQualifiedName = definition.getQualifiedName();
-                        if (referenceMatchesQName(workspace, reference, definitionQualifiedName))
-                        {
-                            cu = getCompilationUnitForDefinition(definition);
-                            assert cu != null : "All symbol table entries should have a corresponding CU!";
-                            compilationUnits.add(cu);
-                        }
-
+                        cu = getCompilationUnitForDefinition(definition);
+                        assert cu != null : "All symbol table entries should have a corresponding CU!";
+                        compilationUnits.add(cu);
                     }
+
                 }
-                if (cu == null && unresolvedReferences != null)
-                    unresolvedReferences.add(reference);
             }
-        }
-        finally
-        {
-            readLock.unlock();
+            if (cu == null && unresolvedReferences != null)
+                unresolvedReferences.add(reference);
         }
         return compilationUnits;
     }
@@ -526,35 +496,27 @@ public class ASProjectScope extends ASScopeBase
     public Set<ICompilationUnit> getCompilationUnitsByDefinitionName(String name)
     {
         Set<ICompilationUnit> compilationUnits = new HashSet<ICompilationUnit>();
-        readLock.lock();
-        try
+        IDefinitionSet definitionSet = super.getLocalDefinitionSetByName(name);
+        if (definitionSet != null)
         {
-            IDefinitionSet definitionSet = super.getLocalDefinitionSetByName(name);
-            if (definitionSet != null)
+            int n = definitionSet.getSize();
+            for (int i = 0; i < n; i++)
             {
-                int n = definitionSet.getSize();
-                for (int i = 0; i < n; i++)
+                IDefinition definition = definitionSet.getDefinition(i);
+                ICompilationUnit compilationUnit;
+                if (definition instanceof DefinitionPromise)
                 {
-                    IDefinition definition = definitionSet.getDefinition(i);
-                    ICompilationUnit compilationUnit;
-                    if (definition instanceof DefinitionPromise)
-                    {
-                        compilationUnit = ((DefinitionPromise)definition).getCompilationUnit();
-                    }
-                    else
-                    {
-                        IASScope containingScope = definition.getContainingScope();
-                        compilationUnit = getCompilationUnitForScope(containingScope);
-                    }
-                    assert (compilationUnit != null); // should always be able to find our compilation unit
-                    compilationUnits.add(compilationUnit);
+                    compilationUnit = ((DefinitionPromise)definition).getCompilationUnit();
+                }
+                else
+                {
+                    IASScope containingScope = definition.getContainingScope();
+                    compilationUnit = getCompilationUnitForScope(containingScope);
                 }
+                assert (compilationUnit != null); // should always be able to find our compilation unit
+                compilationUnits.add(compilationUnit);
             }
         }
-        finally
-        {
-            readLock.unlock();
-        }
 
         return compilationUnits;
     }
@@ -644,8 +606,10 @@ public class ASProjectScope extends ASScopeBase
         {
             // Note: The override of getLocalDefinitionSetByName() in this class
             // will convert definition promises to actual definitions.
+            // The set is null if the name was removed in the meantime.
             IDefinitionSet set = getLocalDefinitionSetByName(name);
-            result.add(set);
+            if (set != null)
+                result.add(set);
         }
 
         return result;
@@ -663,6 +627,8 @@ public class ASProjectScope extends ASScopeBase
             // Note: The override of getLocalDefinitionSetByName() in this class
             // will convert definition promises to actual definitions.
             IDefinitionSet set = getLocalDefinitionSetByName(name);
+            if (set == null)
+                continue;
             int n = set.getSize();
             for (int i = 0; i < n; i++)
             {
@@ -710,31 +676,23 @@ public class ASProjectScope extends ASScopeBase
      */
     private DefinitionBase findVisibleDefinition(IDefinition definition)
     {
-        readLock.lock();
-        try
+        String newDefinitionQName = definition.getQualifiedName();
+        String newDefBaseName = definition.getBaseName();
+        // It's important that we use super.getLocalDefinitionSetByName() here;
+        // we don't want to cause getActualDefinition() to be called on
+        // any definition promises.
+        IDefinitionSet defSet = super.getLocalDefinitionSetByName(newDefBaseName);
+        if (defSet != null)
         {
-            String newDefinitionQName = definition.getQualifiedName();
-            String newDefBaseName = definition.getBaseName();
-            // It's important that we use super.getLocalDefinitionSetByName() here;
-            // we don't want to cause getActualDefinition() to be called on
-            // any definition promises.
-            IDefinitionSet defSet = super.getLocalDefinitionSetByName(newDefBaseName);
-            if (defSet != null)
+            int nDefs = defSet.getSize();
+            for (int i = 0; i < nDefs; ++i)
             {
-                int nDefs = defSet.getSize();
-                for (int i = 0; i < nDefs; ++i)
-                {
-                    IDefinition existingDef = defSet.getDefinition(i);
-                    String existingDefQName = existingDef.getQualifiedName();
-                    if (existingDefQName.equals(newDefinitionQName))
-                        return (DefinitionBase)existingDef;
-                }
+                IDefinition existingDef = defSet.getDefinition(i);
+                String existingDefQName = existingDef.getQualifiedName();
+                if (existingDefQName.equals(newDefinitionQName))
+                    return (DefinitionBase)existingDef;
             }
         }
-        finally
-        {
-            readLock.unlock();
-        }
         return null;
     }
 
@@ -916,9 +874,12 @@ public class ASProjectScope extends ASScopeBase
 
             if (shouldAddDef)
             {
+                // Replace the existing definition in a single change,
+                // so that lookups always find one of them.
                 if (existingDef != null)
-                    super.removeDefinition(existingDef);
-                addDefinitionToStore(def);
+                    replaceDefinitionInStore(existingDef, def);
+                else
+                    addDefinitionToStore(def);
             }
 
             assert (def instanceof DefinitionPromise) || (getCompilationUnitForScope(def.getContainingScope()) != null);
@@ -941,7 +902,17 @@ public class ASProjectScope extends ASScopeBase
     protected void addDefinitionToStore(IDefinition def)
     {
         super.addDefinitionToStore(def);
+        definitionAddedToStore(def);
+    }
 
+    private void replaceDefinitionInStore(IDefinition oldDef, IDefinition newDef)
+    {
+        ((ConcurrentDefinitionStore)definitionStore).replaceDefinition(oldDef, newDef);
+        definitionAddedToStore(newDef);
+    }
+
+    private void definitionAddedToStore(IDefinition def)
+    {
         if (!(def instanceof DefinitionPromise) && shouldBeCached(def))
             setBuiltinDefinition(def);
 
@@ -1072,19 +1043,22 @@ public class ASProjectScope extends ASScopeBase
                 if (!(visibleDefinition instanceof DefinitionPromise) && shouldBeCached(visibleDefinition))
                     removeBuiltinDefinition(visibleDefinition);
 
-                // The definition we are removing is not shadowed by another
-                // definition, so remove the definition from the definition store.
-                super.removeDefinition(definition);
-
                 // Next we need to see if the definition we are removing
                 // shadows some other definition.
                 Set<IDefinition> shadowedDefs = getShadowedDefinitions(definition);
-                if (shadowedDefs != null)
+                if (shadowedDefs == null)
+                {
+                    // The definition we are removing is not shadowed by another
+                    // definition, so remove the definition from the definition store.
+                    super.removeDefinition(definition);
+                }
+                else
                 {
                     // The definition we are removing shadows at least one other
                     // definition, so we need find the definition that was shadowed
                     // with the highest priority, remove that definition from the
-                    // shadow set, and add that definition to the definition store.
+                    // shadow set, and put that definition in the place of the
+                    // definition we are removing in the definition store.
                     IDefinition nextDef;
                     if (shadowedDefs.size() == 1)
                     {
@@ -1112,7 +1086,7 @@ public class ASProjectScope extends ASScopeBase
                         nextDef = shadowedDefsArr[0];
                         shadowedDefs.remove(nextDef);
                     }
-                    addDefinitionToStore(nextDef);
+                    replaceDefinitionInStore(definition, nextDef);
                 }
                 return;
             }
@@ -1274,18 +1248,12 @@ public class ASProjectScope extends ASScopeBase
             assert compilationUnit.getProject() == getProject();
             return compilationUnit;
         }
-        readLock.lock();
-        try
-        {
-            assert fileScope instanceof SWCFileScope : "only SWCFileScope should be in swcFileScopeToCompilationUnitMap";
-            ICompilationUnit swcCompilationUnit = swcFileScopeToCompilationUnitMap.get(fileScope);
-            assert (swcCompilationUnit == null) || (swcCompilationUnit.getProject() == getProject());
-            return swcCompilationUnit;
-        }
-        finally
-        {
-            readLock.unlock();
-        }
+        // swcFileScopeToCompilationUnitMap is a concurrent map,
+        // so it can be read without a lock.
+        assert fileScope instanceof SWCFileScope : "only SWCFileScope should be in swcFileScopeToCompilationUnitMap";
+        ICompilationUnit swcCompilationUnit = swcFileScopeToCompilationUnitMap.get(fileScope);
+        assert (swcCompilationUnit == null) || (swcCompilationUnit.getProject() == getProject());
+        return swcCompilationUnit;
     }
     
     /**
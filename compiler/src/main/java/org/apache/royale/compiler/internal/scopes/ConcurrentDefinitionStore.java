@@ -0,0 +1,208 @@
+/*
+ *
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.apache.royale.compiler.internal.scopes;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.royale.compiler.definitions.IDefinition;
+import org.apache.royale.compiler.scopes.IDefinitionSet;
+
+/**
+ * An implementation of {@link IDefinitionStore} that can be read without
+ * locking while it is being modified. It is used by {@link ASProjectScope},
+ * which many threads read during name resolution.
+ * <p>
+ * Like {@link LargeDefinitionStore}, this implementation extends a map whose
+ * keys are base names and whose values are definition sets. Definition sets
+ * are never modified after they are put into the map. Instead, each change
+ * puts a modified copy of the set into the map, so a reader always sees a
+ * complete set from before or after a change.
+ * <p>
+ * Modifications must still be serialized by the caller, since each one reads
+ * the current set before replacing it.
+ */
+@SuppressWarnings("serial")
+public final class ConcurrentDefinitionStore extends ConcurrentHashMap<String, IDefinitionSet> implements IDefinitionStore
+{
+    /**
+     * Constructor.
+     */
+    public ConcurrentDefinitionStore()
+    {
+        super();
+    }
+
+    @Override
+    public int getCapacity()
+    {
+        return Integer.MAX_VALUE;
+    }
+
+    @Override
+    public IDefinitionStore createLargerStore()
+    {
+        // This store can already store an unlimited number of definition sets.
+        return this;
+    }
+
+    @Override
+    public boolean add(IDefinition definition)
+    {
+        String baseName = definition.getBaseName();
+        IDefinitionSet oldDefinitionSet = get(baseName);
+
+        // Add the new definition to a copy of the old set,
+        // and put the copy into the map.
+        IDefinitionSet newDefinitionSet =
+            SmallDefinitionStoreBase.addDefinitionToSet(copyDefinitionSet(oldDefinitionSet, null), definition);
+        put(baseName, newDefinitionSet);
+
+        return true;
+    }
+
+    @Override
+    public boolean remove(IDefinition definition)
+    {
+        String baseName = definition.getBaseName();
+        IDefinitionSet oldDefinitionSet = get(baseName);
+
+        // If not found, return false to indicate that the definition wasn't found
+        // in this store.
+        if (oldDefinitionSet == null)
+            return false;
+
+        IDefinitionSet newDefinitionSet = copyDefinitionSet(oldDefinitionSet, definition);
+        if (newDefinitionSet == null)
+            remove(baseName);
+        else
+            put(baseName, newDefinitionSet);
+
+        return true;
+    }
+
+    /**
+     * Replaces a definition with another definition with the same base name,
+     * in a single change, so that a reader always sees one of them. The new
+     * definition takes the place of the old one in its definition set.
+     *
+     * @param oldDefinition The definition to replace.
+     * @param newDefinition The definition to replace it with.
+     */
+    public void replaceDefinition(IDefinition oldDefinition, IDefinition newDefinition)
+    {
+        assert oldDefinition.getBaseName().equals(newDefinition.getBaseName()) : "Base name must match";
+
+        String baseName = oldDefinition.getBaseName();
+        IDefinitionSet oldDefinitionSet = get(baseName);
+        IDefinitionSet newDefinitionSet = null;
+        boolean replaced = false;
+        if (oldDefinitionSet != null)
+        {
+            int n = oldDefinitionSet.getSize();
+            for (int i = 0; i < n; i++)
+            {
+                IDefinition definition = oldDefinitionSet.getDefinition(i);
+                if (definition == oldDefinition)
+                {
+                    definition = newDefinition;
+                    replaced = true;
+                }
+                newDefinitionSet = SmallDefinitionStoreBase.addDefinitionToSet(newDefinitionSet, definition);
+            }
+        }
+        if (!replaced)
+            newDefinitionSet = SmallDefinitionStoreBase.addDefinitionToSet(newDefinitionSet, newDefinition);
+        put(baseName, newDefinitionSet);
+    }
+
+    /**
+     * Copies a definition set. Only the sets that are created by the copy are
+     * modified, never the set that is copied.
+     *
+     * @param definitionSet The set to copy, which may be null.
+     * @param excludedDefinition A definition to leave out of the copy, or
+     * null.
+     * @return The copy, which is null if it is empty. A set-of-size-1 is not
+     * copied, because adding a definition to it creates a new set anyway.
+     */
+    private static IDefinitionSet copyDefinitionSet(IDefinitionSet definitionSet, IDefinition excludedDefinition)
+    {
+        if (definitionSet == null)
+            return null;
+        if (definitionSet.getMaxSize() == 1)
+            return definitionSet == excludedDefinition ? null : definitionSet;
+
+        IDefinitionSet copy = null;
+        int n = definitionSet.getSize();
+        for (int i = 0; i < n; i++)
+        {
+            IDefinition definition = definitionSet.getDefinition(i);
+            if (definition != excludedDefinition)
+                copy = SmallDefinitionStoreBase.addDefinitionToSet(copy, definition);
+        }
+        return copy;
+    }
+
+    @Override
+    public IDefinitionSet getDefinitionSetByName(String baseName)
+    {
+        // Just look the definition set up in the map.
+        return get(baseName);
+    }
+
+    @Override
+    public void putDefinitionSetByName(String baseName, IDefinitionSet set)
+    {
+        // The set must not be modified after this.
+        put(baseName, set);
+    }
+
+    @Override
+    public Collection<String> getAllNames()
+    {
+        // The base names are the keys of the map.
+        return keySet();
+    }
+
+    @Override
+    public Collection<IDefinitionSet> getAllDefinitionSets()
+    {
+        // The definition sets are the values of the map.
+        return values();
+    }
+
+    @Override
+    public Collection<IDefinition> getAllDefinitions()
+    {
+        List<IDefinition> list = new ArrayList<IDefinition>();
+
+        // Loop over the definition sets, which are the values of the map.
+        for (IDefinitionSet definitionSet : values())
+        {
+            // Add all the definitions in the set to the list.
+            SmallDefinitionStoreBase.addDefinitionsToList(list, definitionSet);
+        }
+
+        return list;
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ *
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.apache.royale.compiler.internal.targets;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.royale.compiler.config.CompilerDiagnosticsConstants;
+
+/**
+ * The dependency discovery loop of {@link RoyaleAppSWFTarget}, which links
+ * the compilation units that are reachable from the roots and the
+ * compilation units that the rules of the activated style sheets select.
+ * <p>
+ * The loop terminates when no more dependencies are introduced by CSS. Each
+ * pass only walks the compilation units found by the previous pass, and only
+ * tests their definitions against the style sheets that were already tested.
+ * Matching a rule only needs one of its subjects to be linked, so the rules
+ * that match the new definitions are the only rules that the pass can add. The
+ * Flex 3 rule filter needs every selector in a group to match, so in that mode
+ * each pass still tests all definitions.
+ * <p>
+ * The loop doesn't depend on the project, so that it can be tested on its own.
+ *
+ * @param <U> The type of compilation units.
+ * @param <D> The type of definitions.
+ * @param <S> The type of style sheets.
+ */
+abstract class CSSDependencyDiscovery<U, D, S>
+{
+    /**
+     * @param testAllDefinitions If true, each pass tests all the definitions
+     * found so far against all the style sheets.
+     */
+    CSSDependencyDiscovery(boolean testAllDefinitions)
+    {
+        this.testAllDefinitions = testAllDefinitions;
+        this.allCompilationUnits = new HashSet<U>();
+        this.allCSSDependencies = new HashSet<U>();
+    }
+
+    private final boolean testAllDefinitions;
+    private final Set<U> allCompilationUnits;
+    private final Set<U> allCSSDependencies;
+
+    /**
+     * Walks the dependencies of the roots, skipping the compilation units that
+     * were already visited.
+     *
+     * @param roots The roots of this pass.
+     * @param visitedCompilationUnits The compilation units that were visited by
+     * earlier passes. The compilation units found by this pass must be added to
+     * it.
+     * @return The compilation units found by this pass.
+     */
+    protected abstract Set<U> getDependentCompilationUnits(Collection<U> roots, Set<U> visitedCompilationUnits)
+            throws InterruptedException;
+
+    /**
+     * Activates the style sheets that the new compilation units bring in, such
+     * as the {@code defaults.css} of their SWCs.
+     */
+    protected abstract void activateStyleSheets(Collection<U> newCompilationUnits);
+
+    /**
+     * @return All the activated style sheets.
+     */
+    protected abstract Collection<S> getActivatedStyleSheets();
+
+    /**
+     * @return The externally visible definitions of the compilation units.
+     */
+    protected abstract List<D> getDefinitions(Collection<U> compilationUnits) throws InterruptedException;
+
+    /**
+     * @return The compilation units selected by the rules of the style sheet
+     * whose subjects are in the definitions.
+     */
+    protected abstract Collection<U> getDependentCompilationUnitsFromCSS(S styleSheet, Collection<D> definitions);
+
+    /**
+     * Runs the dependency discovery loop.
+     *
+     * @param roots Compilation units known to be linked in.
+     */
+    final void run(Collection<U> roots) throws InterruptedException
+    {
+        final boolean logPasses = (CompilerDiagnosticsConstants.diagnostics & CompilerDiagnosticsConstants.CSS_DEPENDENCIES) == CompilerDiagnosticsConstants.CSS_DEPENDENCIES;
+        final long startTime = System.nanoTime();
+        int passCount = 0;
+
+        allCompilationUnits.addAll(roots);
+        final Set<U> visitedCompilationUnits = new HashSet<U>();
+        final Set<S> testedStyleSheets = new HashSet<S>();
+        final List<D> allDefinitions = new ArrayList<D>();
+        Collection<U> newRoots = roots;
+        do
+        {
+            final long passStartTime = System.nanoTime();
+            passCount++;
+
+            // Get all non-CSS dependencies of the new compilation units.
+            final Set<U> newCompilationUnits = getDependentCompilationUnits(newRoots, visitedCompilationUnits);
+            allCompilationUnits.addAll(newCompilationUnits);
+
+            activateStyleSheets(newCompilationUnits);
+
+            final List<D> newDefinitions = getDefinitions(newCompilationUnits);
+            allDefinitions.addAll(newDefinitions);
+            final Collection<U> cssDependencies = new HashSet<U>();
+            int testedStyleSheetCount = 0;
+            for (final S styleSheet : getActivatedStyleSheets())
+            {
+                // A newly activated style sheet is tested against all the
+                // definitions found so far.
+                final boolean isNewStyleSheet = testedStyleSheets.add(styleSheet);
+                final Collection<D> definitions =
+                        (isNewStyleSheet || testAllDefinitions) ? allDefinitions : newDefinitions;
+                if (!isNewStyleSheet && definitions.isEmpty())
+                    continue;
+                testedStyleSheetCount++;
+                cssDependencies.addAll(getDependentCompilationUnitsFromCSS(styleSheet, definitions));
+            }
+            allCSSDependencies.addAll(cssDependencies);
+
+            // If there's more dependencies introduced by CSS, the loop continues.
+            cssDependencies.removeAll(visitedCompilationUnits);
+            newRoots = cssDependencies;
+            allCompilationUnits.addAll(cssDependencies);
+
+            if (logPasses)
+            {
+                System.out.println("CSS dependency pass " + passCount + ": " +
+                        newCompilationUnits.size() + " new compilation units, " +
+                        newDefinitions.size() + " new definitions, " +
+                        testedStyleSheetCount + " style sheets tested, " +
+                        cssDependencies.size() + " new CSS dependencies in " +
+                        (System.nanoTime() - passStartTime) / 1000000 + "ms");
+            }
+        }
+        while (!newRoots.isEmpty());
+
+        if (logPasses)
+        {
+            System.out.println("CSS dependencies found in " + passCount + " passes in " +
+                    (System.nanoTime() - startTime) / 1000000 + "ms");
+        }
+    }
+
+    /**
+     * @return All the compilation units found by {@link #run}, including the
+     * roots.
+     */
+    final Set<U> getAllCompilationUnits()
+    {
+        return allCompilationUnits;
+    }
+
+    /**
+     * @return All the compilation units selected by CSS rules.
+     */
+    final Set<U> getAllCSSDependencies()
+    {
+        return allCSSDependencies;
+    }
+}
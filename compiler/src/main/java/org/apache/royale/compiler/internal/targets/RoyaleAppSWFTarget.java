@@ -505,57 +505,64 @@ public class RoyaleAppSWFTarget extends AppSWFTarget
         
         // The dependency discovery loop. 
         // It terminates when no more dependencies are introduced by CSS.
-        boolean done = false;
-        while (!done)
+        final CSSDependencyDiscovery<ICompilationUnit, IDefinition, ICSSDocument> discovery =
+                new CSSDependencyDiscovery<ICompilationUnit, IDefinition, ICSSDocument>(cssManager.isFlex3CSS())
         {
-            //LoggingProfiler.onStartIteration();
-            
-            // Get all non-CSS dependencies.
-            final Set<ICompilationUnit> dependencies =
-                    getDependentCompilationUnits(allCompilationUnitsInTarget, problems);
-            //LoggingProfiler.onCompilationUnitDependenciesChanged(allCompilationUnitsInTarget, dependencies);
-            allCompilationUnitsInTarget.addAll(dependencies);
-
-            // Get all activated defaults.css from SWCs.
-            final Map<ICSSDocument, File> activatedDefaultCSSList =
-                        getAllDefaultCSS(cssManager, allCompilationUnitsInTarget);
-            for (final Map.Entry<ICSSDocument, File> entry : activatedDefaultCSSList.entrySet())
+            @Override
+            protected Set<ICompilationUnit> getDependentCompilationUnits(Collection<ICompilationUnit> roots,
+                    Set<ICompilationUnit> visitedCompilationUnits) throws InterruptedException
             {
-                activatedStyleSheets.addLibraryCSS(entry.getKey(), entry.getValue().getAbsolutePath());
+                return RoyaleAppSWFTarget.this.getDependentCompilationUnits(roots, visitedCompilationUnits, problems);
             }
-            //LoggingProfiler.onDefaultsCSSCollectionChanged(activatedStyleSheets);
 
-            // Get all dependencies introduced by defaults.css from SWCs. 
-            final ImmutableList<IDefinition> definitions =
-                        Target.getAllExternallyVisibleDefinitions(allCompilationUnitsInTarget);
-            final Collection<ICompilationUnit> cssDependencies = new HashSet<ICompilationUnit>();
-            for (final ICSSDocument cssDocument : activatedStyleSheets.all())
+            @Override
+            protected void activateStyleSheets(Collection<ICompilationUnit> newCompilationUnits)
             {
-                // Side-effects of this method:
-                // 1. Resolve all type selectors in the CSS model to IClassDefinition definitions.
-                // 2. Activate CSS rules whose subject is in the definition set.
-                final Collection<ICompilationUnit> dependentCUListFromCSS =
-                        cssManager.getDependentCompilationUnitsFromCSS(
-                                delegate.cssCompilationSession,
-                                cssDocument,
-                                definitions,
-                                problems);
-                cssDependencies.addAll(dependentCUListFromCSS);
-                //LoggingProfiler.onCSSDependenciesChanged(dependentCUListFromCSS);
+                // Get all activated defaults.css from SWCs.
+                final Map<ICSSDocument, File> activatedDefaultCSSList =
+                        getAllDefaultCSS(cssManager, newCompilationUnits);
+                for (final Map.Entry<ICSSDocument, File> entry : activatedDefaultCSSList.entrySet())
+                {
+                    activatedStyleSheets.addLibraryCSS(entry.getKey(), entry.getValue().getAbsolutePath());
+                }
+            }
+
+            @Override
+            protected Collection<ICSSDocument> getActivatedStyleSheets()
+            {
+                return activatedStyleSheets.all();
+            }
+
+            @Override
+            protected List<IDefinition> getDefinitions(Collection<ICompilationUnit> compilationUnits)
+                    throws InterruptedException
+            {
+                return Target.getAllExternallyVisibleDefinitions(compilationUnits);
             }
 
-            // If there's more dependencies introduced by CSS, the loop continues.
-            done = !allCompilationUnitsInTarget.addAll(cssDependencies);
-            if (done)
+            @Override
+            protected Collection<ICompilationUnit> getDependentCompilationUnitsFromCSS(ICSSDocument cssDocument,
+                    Collection<IDefinition> definitions)
             {
-            	ClassDefinition rootDef = getRootClassDefinition();
-	            ICompilationUnit rootClassCompilationUnit = project.getScope().getCompilationUnitForDefinition(rootDef);
-	            DependencyGraph graph = royaleProject.getDependencyGraph();
-	            for (ICompilationUnit cu : cssDependencies)
-	            {
-	            	graph.addDependency(rootClassCompilationUnit, cu, DependencyType.EXPRESSION);
-	            }
+                // Side-effects of this method:
+                // 1. Resolve all type selectors in the CSS model to IClassDefinition definitions.
+                // 2. Activate CSS rules whose subject is in the definition set.
+                return cssManager.getDependentCompilationUnitsFromCSS(
+                        delegate.cssCompilationSession,
+                        cssDocument,
+                        definitions,
+                        problems);
             }
+        };
+        discovery.run(compilationUnits);
+        allCompilationUnitsInTarget.addAll(discovery.getAllCompilationUnits());
+
+        ClassDefinition rootDef = getRootClassDefinition();
+        ICompilationUnit rootClassCompilationUnit = project.getScope().getCompilationUnitForDefinition(rootDef);
+        DependencyGraph graph = royaleProject.getDependencyGraph();
+        for (ICompilationUnit cu : discovery.getAllCSSDependencies())
+        {
+            graph.addDependency(rootClassCompilationUnit, cu, DependencyType.EXPRESSION);
         }
 
         delegate.cssCompilationSession.cssDocuments.addAll(activatedStyleSheets.sort());
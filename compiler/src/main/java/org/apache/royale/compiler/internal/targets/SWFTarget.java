@@ -728,6 +728,11 @@ public abstract class SWFTarget extends Target implements ISWFTarget
         linkSettings.setStripFileAttributeFromGotoDefinitionHelp(settings.isOptimized());
         linkSettings.setProblemsCollection(this.problemCollection);
         linkSettings.setRemoveDeadCode(settings.getRemoveDeadCode());
+        if (settings.getParallelLink())
+        {
+            linkSettings.setExecutor(project.getWorkspace().getExecutorService());
+            linkSettings.setThreadCount(project.getWorkspace().getExecutorThreadCount());
+        }
         
         Collection<String> metadataNames = getASMetadataNames();
         if (settings.isDebugEnabled() && metadataNames != null)
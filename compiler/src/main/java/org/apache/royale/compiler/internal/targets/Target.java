@@ -328,9 +328,74 @@ public abstract class Target implements ITarget
             final Collection<ICompilerProblem> problems)
             throws InterruptedException
     {
-       
-        final HashSet<ICompilationUnit> workSet = new HashSet<ICompilationUnit>();
         final HashSet<ICompilationUnit> visitedSet = new HashSet<ICompilationUnit>();
+        if (!visitDependentCompilationUnits(compilationUnits, visitedSet, visitedSet, problems))
+            return Collections.emptySet();
+
+        TreeSet<ICompilationUnit> sortedSet = new TreeSet<ICompilationUnit>(new Comparator<ICompilationUnit>()
+        {
+            @Override
+            public int compare(ICompilationUnit o1, ICompilationUnit o2)
+            {
+                return o1.getName().compareTo(o2.getName());
+            }
+        });
+        sortedSet.addAll(visitedSet);
+//        System.out.println("visited set");
+//        for (ICompilationUnit visited : sortedSet)
+//        	System.out.println(visited.getName());
+//        System.out.println("end visited set");
+        return sortedSet;
+    }
+
+    /**
+     * Computes the {@link ICompilationUnit}'s that are reachable from a
+     * collection of root compilation units, but that were not found by an
+     * earlier call. Unlike {@link #getDependentCompilationUnits(Collection, Collection)},
+     * the dependencies of the compilation units that were visited before are
+     * not walked again, so targets that find more roots in several passes
+     * only pay for the new compilation units in each pass.
+     * 
+     * @param compilationUnits A collection of root compilation units.
+     * @param visitedCompilationUnits The compilation units that were visited
+     * by earlier calls. The compilation units found by this call are added to
+     * it.
+     * @param problems Problems building compilation units.
+     * @return Set of the {@link ICompilationUnit}'s found by this call.
+     * @throws InterruptedException
+     */
+    protected final Set<ICompilationUnit> getDependentCompilationUnits(
+            final Collection<ICompilationUnit> compilationUnits,
+            final Set<ICompilationUnit> visitedCompilationUnits,
+            final Collection<ICompilerProblem> problems)
+            throws InterruptedException
+    {
+        final HashSet<ICompilationUnit> newSet = new HashSet<ICompilationUnit>();
+        if (!visitDependentCompilationUnits(compilationUnits, visitedCompilationUnits, newSet, problems))
+            return Collections.emptySet();
+        return newSet;
+    }
+
+    /**
+     * Walks the dependencies of the root compilation units, skipping the
+     * compilation units that were already visited.
+     * 
+     * @param compilationUnits A collection of root compilation units.
+     * @param visitedSet The compilation units that were already visited. The
+     * compilation units found by this call are added to it.
+     * @param newSet The compilation units found by this call are added to it.
+     * @param problems Problems building compilation units.
+     * @return False if the build was cancelled.
+     * @throws InterruptedException
+     */
+    private boolean visitDependentCompilationUnits(
+            final Collection<ICompilationUnit> compilationUnits,
+            final Set<ICompilationUnit> visitedSet,
+            final Set<ICompilationUnit> newSet,
+            final Collection<ICompilerProblem> problems)
+            throws InterruptedException
+    {
+        final HashSet<ICompilationUnit> workSet = new HashSet<ICompilationUnit>();
 
         int numCompUnitRemoved = 0;
         
@@ -342,6 +407,8 @@ public abstract class Target implements ITarget
 
             if (visitedSet.add(currentUnit))
             {
+                newSet.add(currentUnit);
+
                 //Increment num of the comp units removed from the workset, 
                 //so that we can calculate the total number of compilation units.
                 //The reason we only increment it in this if block is that if 
@@ -358,6 +425,8 @@ public abstract class Target implements ITarget
                     
                 for (ICompilationUnit cu : newCompilationUnitWork)
                 {
+                    if (visitedSet.contains(cu))
+                        continue;
                     workSet.add(cu);
                     cu.startBuildAsync(getTargetType());
                 }
@@ -365,24 +434,11 @@ public abstract class Target implements ITarget
                 
                 //Update the progress since we completed semantic analysis for one 
                 //compilation unit and possibly found more compilation units.
-                if(!updateProgress((workSet.size()+numCompUnitRemoved), visitedSet.size(), 50))
-                    return Collections.emptySet();
+                if(!updateProgress((workSet.size()+numCompUnitRemoved), newSet.size(), 50))
+                    return false;
             }
         }
-        TreeSet<ICompilationUnit> sortedSet = new TreeSet<ICompilationUnit>(new Comparator<ICompilationUnit>()
-        {
-            @Override
-            public int compare(ICompilationUnit o1, ICompilationUnit o2)
-            {
-                return o1.getName().compareTo(o2.getName());
-            }
-        });
-        sortedSet.addAll(visitedSet);
-//        System.out.println("visited set");
-//        for (ICompilationUnit visited : sortedSet)
-//        	System.out.println(visited.getName());
-//        System.out.println("end visited set");
-        return sortedSet;
+        return true;
     }
     
     protected DirectDependencies getDirectDependencies(ICompilationUnit cu) throws InterruptedException
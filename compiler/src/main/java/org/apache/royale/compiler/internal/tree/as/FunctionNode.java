@@ -70,6 +70,8 @@ import org.apache.royale.compiler.tree.as.ICommonClassNode;
 import org.apache.royale.compiler.tree.as.IContainerNode;
 import org.apache.royale.compiler.tree.as.IDefinitionNode;
 import org.apache.royale.compiler.tree.as.IExpressionNode;
+import org.apache.royale.compiler.tree.as.IFileNode;
+import org.apache.royale.compiler.tree.as.IFileNodeAccumulator;
 import org.apache.royale.compiler.tree.as.IFunctionNode;
 import org.apache.royale.compiler.tree.as.INamespaceDecorationNode;
 import org.apache.royale.compiler.tree.as.IParameterNode;
@@ -163,6 +165,13 @@ public class FunctionNode extends BaseTypedDefinitionNode implements IFunctionNo
      */
     private String functionBodyText;
 
+    /**
+     * True if {@link #functionBodyText} is kept after the function body is
+     * parsed, because the function body can't be reloaded from the file. This
+     * is the case for functions in MXML script tags.
+     */
+    private boolean isBodyTextRetained = false;
+
 
     /**
      * Save the problems until later if we were parsed from somewhere we don't have a problems collection
@@ -826,11 +835,13 @@ public class FunctionNode extends BaseTypedDefinitionNode implements IFunctionNo
             final String sourcePath = getSourcePath();
             assert sourcePath != null && !sourcePath.isEmpty() : "Source path not set.";
 
-            final FileNode fileNode = (FileNode)getAncestorOfType(FileNode.class);
-            assert fileNode != null : "FileNode not found: function " + getName();
-            final IWorkspace workspace = fileNode.getWorkspace();
+            // The containing file node is an MXMLFileNode if the function
+            // is declared in an MXML script tag.
+            final IFileNode fileNode = (IFileNode)getAncestorOfType(IFileNode.class);
+            assert fileNode instanceof IFileNodeAccumulator : "FileNode not found: function " + getName();
+            final ASFileScope fileScope = (ASFileScope)fileNode.getScope();
+            final IWorkspace workspace = fileScope.getWorkspace();
 
-            ASFileScope fileScope = fileNode.getFileScope();
             fileScope.addParsedFunctionBodies(this);
 
             try
@@ -869,14 +880,15 @@ public class FunctionNode extends BaseTypedDefinitionNode implements IFunctionNo
                         openT,
                         functionLocalProblems,
                         workspace,
-                        fileNode,
+                        (IFileNodeAccumulator)fileNode,
                         configProcessor);
                 filterObsoleteProblems(fileNode, functionLocalProblems);
                 problems.addAll(functionLocalProblems);
 
                 // dispose cached function body info
                 
-                functionBodyText = null;
+                if (!isBodyTextRetained)
+                    functionBodyText = null;
                 
                 // We should release "openT" as well. However, incremental compilation
                 // needs this to redo code-generation.
@@ -913,7 +925,7 @@ public class FunctionNode extends BaseTypedDefinitionNode implements IFunctionNo
      * @param fileNode AST root node.
      * @param problems compiler problems found in the deferred function body.
      */
-    private void filterObsoleteProblems(FileNode fileNode, Collection<ICompilerProblem> localProblems)
+    private void filterObsoleteProblems(IFileNode fileNode, Collection<ICompilerProblem> localProblems)
     {
         final int functionStartLine = this.getLine();
         final Collection<ICompilerProblem> problems = fileNode.getProblems();
@@ -1005,8 +1017,8 @@ public class FunctionNode extends BaseTypedDefinitionNode implements IFunctionNo
             final ScopedBlockNode contents = getScopedNode();
             if (contents.getChildCount() > 0)
             {
-                final FileNode fileNode = (FileNode)getAncestorOfType(FileNode.class);
-                ASFileScope fileScope = fileNode.getFileScope();
+                final IFileNode fileNode = (IFileNode)getAncestorOfType(IFileNode.class);
+                ASFileScope fileScope = (ASFileScope)fileNode.getScope();
                 fileScope.removeParsedFunctionBodies(this);
 
                 contents.removeAllChildren();
@@ -1052,11 +1064,14 @@ public class FunctionNode extends BaseTypedDefinitionNode implements IFunctionNo
 
     /**
      * Store the function body text on the function node so that the AST nodes
-     * can be rebuilt later.
+     * can be rebuilt later. If {@code retainBodyCache} is true, the text is
+     * kept after the function body is parsed, so that the function body can
+     * be rebuilt again after it's discarded.
      */
     public final void setFunctionBodyInfo(ASToken openT, ASToken lastTokenInBody,
                                           ConfigProcessor configProcessor,
-                                          StringBuilder bodyCache)
+                                          StringBuilder bodyCache,
+                                          boolean retainBodyCache)
     {
         assert openT != null : "Open curly token can't be null";
         assert openT.getType() == ASTokenTypes.TOKEN_BLOCK_OPEN : "Expected '{' token.";
@@ -1067,6 +1082,7 @@ public class FunctionNode extends BaseTypedDefinitionNode implements IFunctionNo
         this.configProcessor = configProcessor;
         this.isBodyDeferred = true;
         
+        this.isBodyTextRetained = retainBodyCache && bodyCache != null;
         if (bodyCache == null)
             this.functionBodyText = null;
         else
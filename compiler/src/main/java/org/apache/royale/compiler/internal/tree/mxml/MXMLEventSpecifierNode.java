@@ -30,6 +30,7 @@ import org.apache.royale.compiler.definitions.references.IReference;
 import org.apache.royale.compiler.internal.definitions.DefinitionBase;
 import org.apache.royale.compiler.internal.definitions.mxml.MXMLEventHandlerScope;
 import org.apache.royale.compiler.internal.parsing.as.ASParser;
+import org.apache.royale.compiler.internal.parsing.as.DeferFunctionBody;
 import org.apache.royale.compiler.internal.parsing.as.IncludeHandler;
 import org.apache.royale.compiler.internal.parsing.as.OffsetLookup;
 import org.apache.royale.compiler.internal.projects.RoyaleProject;
@@ -174,7 +175,8 @@ class MXMLEventSpecifierNode extends MXMLSpecifierNodeBase
                 project.getProjectConfigVariables(),
                 EnumSet.of(PostProcessStep.CALCULATE_OFFSETS, PostProcessStep.POPULATE_SCOPE),
                 true, //follow includes 
-                includeHandler);
+                includeHandler,
+                DeferFunctionBody.DISABLED);
         builder.getFileNode().updateIncludeTreeLastModified(includeHandler.getLastModified());
         processHandlerCode(builder, Collections.singletonList(node));
     }
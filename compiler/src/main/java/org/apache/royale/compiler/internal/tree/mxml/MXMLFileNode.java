@@ -23,6 +23,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
@@ -42,6 +43,7 @@ import org.apache.royale.compiler.internal.scopes.ASFileScope;
 import org.apache.royale.compiler.internal.scopes.MXMLFileScope;
 import org.apache.royale.compiler.internal.targets.ITargetAttributes;
 import org.apache.royale.compiler.internal.targets.TargetAttributesMap;
+import org.apache.royale.compiler.internal.tree.as.ConfigConditionBlockNode;
 import org.apache.royale.compiler.internal.tree.as.FunctionNode;
 import org.apache.royale.compiler.internal.tree.as.ImportNode;
 import org.apache.royale.compiler.internal.units.MXMLCompilationUnit;
@@ -73,6 +75,7 @@ import org.apache.royale.compiler.tree.as.IImportNode;
 import org.apache.royale.compiler.tree.as.IScopedNode;
 import org.apache.royale.compiler.tree.mxml.IMXMLDocumentNode;
 import org.apache.royale.compiler.tree.mxml.IMXMLFileNode;
+import org.apache.royale.compiler.tree.mxml.IMXMLScriptNode;
 import org.apache.royale.compiler.tree.mxml.IMXMLStyleNode;
 
 public class MXMLFileNode extends MXMLNodeBase implements IMXMLFileNode, IScopedNode, IFileNode, IFileNodeAccumulator
@@ -86,6 +89,7 @@ public class MXMLFileNode extends MXMLNodeBase implements IMXMLFileNode, IScoped
         importNodes = new LinkedList<IImportNode>();
         embedNodes = new LinkedList<IEmbedResolver>();
         requiredResourceBundles = new HashSet<String>();
+        deferredFunctionNodes = new HashSet<FunctionNode>();
     }
 
     private RoyaleProject project;
@@ -120,6 +124,17 @@ public class MXMLFileNode extends MXMLNodeBase implements IMXMLFileNode, IScoped
 
     private CSSCompilationSession cssCompilationSession;
 
+    /**
+     * The {@code FunctionNode}s in script tags whose body nodes are deferred.
+     */
+    private final Set<FunctionNode> deferredFunctionNodes;
+
+    /**
+     * Problems found when the deferred function bodies are parsed. This is the
+     * problem collection of the syntax tree request.
+     */
+    private Collection<ICompilerProblem> deferredFunctionProblems;
+
     void initialize(MXMLTreeBuilder builder)
     {
         IFileSpecification fileSpec = builder.getFileSpecification();
@@ -127,6 +142,7 @@ public class MXMLFileNode extends MXMLNodeBase implements IMXMLFileNode, IScoped
         project = builder.getProject();
         qname = builder.getQName();
         fileScope = builder.getFileScope();
+        deferredFunctionProblems = builder.getProblems();
 
         // When parsing the MXML for AST construction, ad-hoc IncludeHandler are created in
         // order to please the MXML lexer and to keep the AST node offsets in-sync with
@@ -559,13 +575,47 @@ public class MXMLFileNode extends MXMLNodeBase implements IMXMLFileNode, IScoped
     @Override
     public void addDeferredFunctionNode(FunctionNode functionNode)
     {
-        throw new UnsupportedOperationException("Functions should never be deferred in MXML document.");
+        assert functionNode != null : "Function node can't be null.";
+        deferredFunctionNodes.add(functionNode);
     }
 
     @Override
-    public void populateFunctionNodes()
+    public synchronized void populateFunctionNodes()
     {
-        // Do nothing. Function bodies are never deferred for non-AS documents.
+        for (final FunctionNode fn : deferredFunctionNodes)
+        {
+            fn.parseFunctionBody(deferredFunctionProblems);
+        }
+    }
+
+    /**
+     * Parse the deferred function bodies of the functions that aren't
+     * methods declared directly in a script tag. Only methods are parsed on
+     * demand by the code generators.
+     */
+    public synchronized void parseRequiredFunctionBodies()
+    {
+        Iterator<FunctionNode> iter = deferredFunctionNodes.iterator();
+
+        while (iter.hasNext())
+        {
+            FunctionNode fn = iter.next();
+
+            // Functions inside a disabled config block can't be parsed
+            // properly later, and they are never needed.
+            ConfigConditionBlockNode configBlock = (ConfigConditionBlockNode)fn.getAncestorOfType(ConfigConditionBlockNode.class);
+            if (configBlock != null && configBlock.getChildCount() == 0)
+            {
+                iter.remove();
+                continue;
+            }
+
+            if (fn.getParent() instanceof IMXMLScriptNode)
+                continue;
+
+            fn.parseFunctionBody(deferredFunctionProblems);
+            iter.remove();
+        }
     }
     
     @Override
@@ -36,6 +36,7 @@ import org.apache.royale.compiler.internal.parsing.ISourceFragment;
 import org.apache.royale.compiler.internal.parsing.SourceFragment;
 import org.apache.royale.compiler.internal.parsing.as.ASParser;
 import org.apache.royale.compiler.internal.parsing.as.ASToken;
+import org.apache.royale.compiler.internal.parsing.as.DeferFunctionBody;
 import org.apache.royale.compiler.internal.parsing.as.IncludeHandler;
 import org.apache.royale.compiler.internal.parsing.as.OffsetLookup;
 import org.apache.royale.compiler.internal.parsing.as.StreamingASTokenizer;
@@ -672,7 +673,8 @@ public abstract class MXMLNodeBase extends NodeBase implements IMXMLNode
                             project.getProjectConfigVariables(),
                             EnumSet.of(PostProcessStep.CALCULATE_OFFSETS, buildOrReconnect),
                             true, //follow includes 
-                            includeHandler
+                            includeHandler,
+                            DeferFunctionBody.DISABLED
                             );
                     ((MXMLFileNode)ancestorFileNode).updateIncludeTreeLastModified(includeHandler.getLastModified());
                     nodes.add(node);
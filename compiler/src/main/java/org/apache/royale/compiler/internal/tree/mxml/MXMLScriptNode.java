@@ -156,7 +156,8 @@ class MXMLScriptNode extends MXMLNodeBase implements IMXMLScriptNode
                             project.getProjectConfigVariables(),
                             EnumSet.of(PostProcessStep.CALCULATE_OFFSETS, PostProcessStep.RECONNECT_DEFINITIONS),
                             true /* follow includes */,
-                            includeHandler);
+                            includeHandler,
+                            builder.getCompilationUnit().getDeferFunctionBody());
 
                     builder.getFileNode().updateIncludeTreeLastModified(includeHandler.getLastModified());
 
@@ -251,7 +252,8 @@ class MXMLScriptNode extends MXMLNodeBase implements IMXMLScriptNode
                                 classScope,
                                 project.getProjectConfigVariables(),
                                 includeHandler,
-                                postProcess);
+                                postProcess,
+                                builder.getCompilationUnit().getDeferFunctionBody());
                         MXMLFileNode filenode = builder.getFileNode();
                         filenode.updateIncludeTreeLastModified(includeHandler.getLastModified());
                         assert node != null : "Expected node from ASParser.getScopesFromInlineScript().";
@@ -284,16 +284,15 @@ public class ASCompilationUnit extends CompilationUnitBase
      */
     protected FileNode createFileNode(IFileSpecification specification)
     {
-        // Only defer function body if the compilation unit is from an actual AS 
-        // file, and the compilation unit is not "invisible" (currently not 
-        // open in IDE). "isInvisible" means the compilation unit is invisible 
-        // to semantic analyzer. It, however, is "visible" to the user in the 
-        // IDE.
+        // Function bodies in an actual AS file are always deferred, unless
+        // the compilation unit is "invisible". Function bodies from other
+        // sources are only deferred if the project enables it, and they are
+        // cached by the parser, because they can't be reloaded from the file.
         final DeferFunctionBody deferFunctionBody;
-        if(!isInvisible() && specification instanceof FileSpecification)
+        if (!isInvisible() && specification instanceof FileSpecification)
             deferFunctionBody = DeferFunctionBody.ENABLED;
         else
-            deferFunctionBody = DeferFunctionBody.DISABLED;
+            deferFunctionBody = getDeferFunctionBody();
 
         final IASProject flashProject;
         if(getProject() instanceof IASProject)
@@ -54,6 +54,8 @@ import org.apache.royale.compiler.internal.css.semantics.CSSSemanticAnalyzer;
 import org.apache.royale.compiler.embedding.EmbedAttribute;
 import org.apache.royale.compiler.internal.embedding.EmbedData;
 import org.apache.royale.compiler.internal.graph.LinkReportWriter;
+import org.apache.royale.compiler.internal.parsing.as.DeferFunctionBody;
+import org.apache.royale.compiler.internal.projects.APIFingerprint;
 import org.apache.royale.compiler.internal.projects.ASProject;
 import org.apache.royale.compiler.internal.projects.CompilerProject;
 import org.apache.royale.compiler.internal.projects.DefinitionPriority;
@@ -750,6 +752,29 @@ public abstract class CompilationUnitBase implements ICompilationUnit
         return true;
     }
 
+    /**
+     * Computes the {@link APIFingerprint} of this compilation unit from its
+     * current file scope. This never builds the file scope, so it is safe to
+     * call while the workspace is idle.
+     * 
+     * @return The fingerprint, or null if the file scope has not been built
+     * or the compilation unit can't be fingerprinted.
+     */
+    public String getAPIFingerprintIfBuilt()
+    {
+        try
+        {
+            IRequest<IFileScopeRequestResult, ICompilationUnit> req = fileScopeRequest.get();
+            if (req != null && req.isDone())
+                return APIFingerprint.compute(req.get());
+        }
+        catch (InterruptedException e)
+        {
+            // this should never happen, as req is only ever called when it's already done.
+        }
+        return null;
+    }
+
     /**
      * This method is used to update the Workspace
      * includeFilesToIncludingCompilationUnitMapping map when a file get's cleaned.  It
@@ -1146,6 +1171,23 @@ public abstract class CompilationUnitBase implements ICompilationUnit
         return invisibleCURef != null;
     }
 
+    /**
+     * Function bodies are only deferred if the project enables it, and the
+     * compilation unit is not "invisible" (currently not open in IDE).
+     * "isInvisible" means the compilation unit is invisible to semantic
+     * analyzer. It, however, is "visible" to the user in the IDE.
+     * 
+     * @return Whether the function bodies in the ActionScript of this
+     * compilation unit are parsed lazily.
+     */
+    public DeferFunctionBody getDeferFunctionBody()
+    {
+        if (!isInvisible() && getProject().getDeferFunctionBodies())
+            return DeferFunctionBody.ENABLED;
+        else
+            return DeferFunctionBody.DISABLED;
+    }
+
     protected Map<String, String> getEncodedDebugFiles() throws InterruptedException
     {
         assert (this instanceof ASCompilationUnit || this instanceof MXMLCompilationUnit) : "getEncodedDebugFiles should only be called by AS or MXML compilation units";
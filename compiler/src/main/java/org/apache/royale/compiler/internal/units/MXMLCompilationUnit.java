@@ -119,6 +119,10 @@ public class MXMLCompilationUnit extends CompilationUnitBase
                     }
                 }
             }
+
+            // Methods in script tags are parsed on demand by the code
+            // generators. Parse the other deferred function bodies now.
+            ((MXMLFileNode)fileNode).parseRequiredFunctionBodies();
             
             // Start CSS semantic analysis. 
             final Function<IMXMLStyleNode, ICSSDocument> parseMXMLStyleNode = new Function<IMXMLStyleNode, ICSSDocument>()
@@ -160,6 +160,9 @@ public class WatchThread extends Thread
 		// for better performance
 		WatchKey watchKey = watchService.take();
 		
+		long earlyCutoffCandidateCount = workspace.getEarlyCutoffCandidateCount();
+		long earlyCutoffSkipCount = workspace.getEarlyCutoffSkipCount();
+
 		Set<ICompilationUnit> changedCUs = new HashSet<ICompilationUnit>();
 		while (watchKey != null)
 		{
@@ -169,6 +172,14 @@ public class WatchThread extends Thread
 			watchKey = watchService.poll();
 		}
 
+		earlyCutoffCandidateCount = workspace.getEarlyCutoffCandidateCount() - earlyCutoffCandidateCount;
+		earlyCutoffSkipCount = workspace.getEarlyCutoffSkipCount() - earlyCutoffSkipCount;
+		if (earlyCutoffCandidateCount > 0)
+		{
+			System.out.println("Skipped " + earlyCutoffSkipCount + " of " + earlyCutoffCandidateCount
+					+ " indirect dependents because the API of the changed files was unchanged.");
+		}
+
 		recompile(changedCUs);
 	}
 
@@ -238,6 +249,7 @@ public class WatchThread extends Thread
 		{
 			writer.write(changedCUs);
 		}
+		workspace.writeProfilingReport();
 
 		if (problems.hasFilteredProblems())
 		{
@@ -0,0 +1,386 @@
+/*
+ *
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.apache.royale.compiler.internal.workspaces;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.apache.royale.compiler.units.ICompilationUnit;
+import org.apache.royale.compiler.units.ICompilationUnit.Operation;
+import org.apache.royale.compiler.workspaces.IWorkspaceProfilingDelegate;
+
+/**
+ * An {@link IWorkspaceProfilingDelegate} that records the wall time, CPU time
+ * and allocated bytes of each operation on each compilation unit.
+ * <p>
+ * When it is flushed, it writes the operations as a Chrome trace-event JSON
+ * file, which can be opened in {@code chrome://tracing} or Perfetto, and a
+ * summary of the slowest compilation units next to it. A workspace that is
+ * kept open for more than one build is flushed after each build, so the report
+ * is of the operations of the last build. Closing the delegate writes the
+ * report if it has not been written since the last operation completed.
+ * <p>
+ * Operations on one compilation unit often request operations on other
+ * compilation units on the same thread. The time spent in those nested
+ * operations is not counted in the "self" time of the outer operation. The
+ * CPU time and allocated bytes of an operation do include nested operations.
+ */
+public class TraceProfilingDelegate implements IWorkspaceProfilingDelegate, Flushable, Closeable
+{
+    /**
+     * A completed operation.
+     */
+    private static final class Event
+    {
+        String unitName;
+        Operation operation;
+        long threadId;
+        long startNanos;
+        long wallNanos;
+        long selfNanos;
+        long cpuNanos;
+        long allocatedBytes;
+    }
+
+    /**
+     * An operation that has started, but not completed yet.
+     */
+    private static final class Frame
+    {
+        ICompilationUnit unit;
+        Operation operation;
+        long startNanos;
+        long startCPUNanos;
+        long startAllocatedBytes;
+        long childNanos;
+    }
+
+    /**
+     * Totals for one compilation unit, for the summary.
+     */
+    private static final class UnitTotals
+    {
+        String unitName;
+        long selfNanos;
+        long cpuNanos;
+        long allocatedBytes;
+        final Map<Operation, Long> selfNanosByOperation = new EnumMap<Operation, Long>(Operation.class);
+    }
+
+    /**
+     * Suffix of the summary file, which is written next to the trace file.
+     */
+    public static final String SUMMARY_FILE_SUFFIX = ".summary.txt";
+
+    /**
+     * @param traceFile The Chrome trace-event JSON file to write when this
+     * delegate is flushed.
+     * @param summaryCount The number of compilation units to list in the
+     * summary.
+     */
+    public TraceProfilingDelegate(File traceFile, int summaryCount)
+    {
+        this.traceFile = traceFile;
+        this.summaryCount = summaryCount;
+        this.events = new ConcurrentLinkedQueue<Event>();
+        this.originNanos = System.nanoTime();
+
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean.isCurrentThreadCpuTimeSupported() && !bean.isThreadCpuTimeEnabled())
+            bean.setThreadCpuTimeEnabled(true);
+        threadBean = bean;
+        if (bean instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean)bean).isThreadAllocatedMemorySupported())
+        {
+            allocationBean = (com.sun.management.ThreadMXBean)bean;
+            allocationBean.setThreadAllocatedMemoryEnabled(true);
+        }
+        else
+        {
+            allocationBean = null;
+        }
+    }
+
+    private final File traceFile;
+    private final int summaryCount;
+    private final ConcurrentLinkedQueue<Event> events;
+    private final long originNanos;
+    private final ThreadMXBean threadBean;
+    private final com.sun.management.ThreadMXBean allocationBean;
+
+    /**
+     * Whether the report has been written at least once.
+     */
+    private boolean written;
+
+    private final ThreadLocal<Deque<Frame>> frames = new ThreadLocal<Deque<Frame>>()
+    {
+        @Override
+        protected Deque<Frame> initialValue()
+        {
+            return new ArrayDeque<Frame>();
+        }
+    };
+
+    @Override
+    public void operationStarted(ICompilationUnit cu, Operation operation)
+    {
+        Frame frame = new Frame();
+        frame.unit = cu;
+        frame.operation = operation;
+        frame.startCPUNanos = getCurrentThreadCPUNanos();
+        frame.startAllocatedBytes = getCurrentThreadAllocatedBytes();
+        frame.startNanos = System.nanoTime();
+        frames.get().push(frame);
+    }
+
+    @Override
+    public void operationCompleted(ICompilationUnit cu, Operation operation)
+    {
+        long endNanos = System.nanoTime();
+        Deque<Frame> stack = frames.get();
+
+        // Some operations don't stop their profile when they throw, so discard
+        // any frames that were left open above the one that is completing.
+        Frame frame = null;
+        for (Iterator<Frame> i = stack.iterator(); i.hasNext();)
+        {
+            Frame f = i.next();
+            if (f.unit == cu && f.operation == operation)
+            {
+                frame = f;
+                break;
+            }
+        }
+        if (frame == null)
+            return;
+        while (stack.peek() != frame)
+            stack.pop();
+        stack.pop();
+
+        Event event = new Event();
+        event.unitName = cu.getName();
+        event.operation = operation;
+        event.threadId = Thread.currentThread().getId();
+        event.startNanos = frame.startNanos - originNanos;
+        event.wallNanos = endNanos - frame.startNanos;
+        event.selfNanos = Math.max(0, event.wallNanos - frame.childNanos);
+        event.cpuNanos = Math.max(0, getCurrentThreadCPUNanos() - frame.startCPUNanos);
+        event.allocatedBytes = Math.max(0, getCurrentThreadAllocatedBytes() - frame.startAllocatedBytes);
+        events.add(event);
+
+        Frame parent = stack.peek();
+        if (parent != null)
+            parent.childNanos += event.wallNanos;
+    }
+
+    private long getCurrentThreadCPUNanos()
+    {
+        if (!threadBean.isCurrentThreadCpuTimeSupported())
+            return 0;
+        return threadBean.getCurrentThreadCpuTime();
+    }
+
+    private long getCurrentThreadAllocatedBytes()
+    {
+        if (allocationBean == null)
+            return 0;
+        return allocationBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * Writes the trace and the summary of the operations that completed since
+     * the last time the report was written, replacing the previous report.
+     */
+    @Override
+    public synchronized void flush() throws IOException
+    {
+        List<Event> snapshot = new ArrayList<Event>();
+        for (Event event = events.poll(); event != null; event = events.poll())
+        {
+            snapshot.add(event);
+        }
+        writeTrace(snapshot, traceFile);
+        writeSummary(snapshot, new File(traceFile.getPath() + SUMMARY_FILE_SUFFIX));
+        written = true;
+    }
+
+    /**
+     * Writes the trace and the summary, unless they were already written and
+     * no operation has completed since.
+     */
+    @Override
+    public synchronized void close() throws IOException
+    {
+        if (!written || !events.isEmpty())
+            flush();
+    }
+
+    private void writeTrace(List<Event> snapshot, File file) throws IOException
+    {
+        Writer out = openWriter(file);
+        try
+        {
+            out.write("{\"traceEvents\":[\n");
+            boolean first = true;
+            for (Event event : snapshot)
+            {
+                if (!first)
+                    out.write(",\n");
+                first = false;
+                out.write("{\"name\":");
+                writeJSONString(out, event.unitName);
+                out.write(",\"cat\":\"");
+                out.write(event.operation.name());
+                out.write("\",\"ph\":\"X\",\"pid\":1,\"tid\":");
+                out.write(Long.toString(event.threadId));
+                out.write(",\"ts\":");
+                out.write(Long.toString(event.startNanos / 1000));
+                out.write(",\"dur\":");
+                out.write(Long.toString(event.wallNanos / 1000));
+                out.write(",\"args\":{\"selfMicros\":");
+                out.write(Long.toString(event.selfNanos / 1000));
+                out.write(",\"cpuMicros\":");
+                out.write(Long.toString(event.cpuNanos / 1000));
+                out.write(",\"allocatedBytes\":");
+                out.write(Long.toString(event.allocatedBytes));
+                out.write("}}");
+            }
+            out.write("\n],\"displayTimeUnit\":\"ms\"}\n");
+        }
+        finally
+        {
+            out.close();
+        }
+    }
+
+    private void writeSummary(List<Event> snapshot, File file) throws IOException
+    {
+        Map<String, UnitTotals> totalsByUnit = new HashMap<String, UnitTotals>();
+        for (Event event : snapshot)
+        {
+            UnitTotals totals = totalsByUnit.get(event.unitName);
+            if (totals == null)
+            {
+                totals = new UnitTotals();
+                totals.unitName = event.unitName;
+                totalsByUnit.put(event.unitName, totals);
+            }
+            totals.selfNanos += event.selfNanos;
+            totals.cpuNanos += event.cpuNanos;
+            totals.allocatedBytes += event.allocatedBytes;
+            Long operationNanos = totals.selfNanosByOperation.get(event.operation);
+            totals.selfNanosByOperation.put(event.operation,
+                    (operationNanos != null ? operationNanos : 0L) + event.selfNanos);
+        }
+
+        List<UnitTotals> sorted = new ArrayList<UnitTotals>(totalsByUnit.values());
+        Collections.sort(sorted, new Comparator<UnitTotals>()
+        {
+            @Override
+            public int compare(UnitTotals a, UnitTotals b)
+            {
+                return Long.compare(b.selfNanos, a.selfNanos);
+            }
+        });
+
+        Writer out = openWriter(file);
+        try
+        {
+            out.write("Slowest compilation units by self time (");
+            out.write(Integer.toString(Math.min(summaryCount, sorted.size())));
+            out.write(" of ");
+            out.write(Integer.toString(sorted.size()));
+            out.write(")\n\n");
+            out.write(String.format("%10s %10s %12s  %s%n", "self ms", "cpu ms", "alloc KB", "unit"));
+            for (int i = 0; i < summaryCount && i < sorted.size(); i++)
+            {
+                UnitTotals totals = sorted.get(i);
+                out.write(String.format("%10d %10d %12d  %s%n",
+                        totals.selfNanos / 1000000,
+                        totals.cpuNanos / 1000000,
+                        totals.allocatedBytes / 1024,
+                        totals.unitName));
+                for (Map.Entry<Operation, Long> entry : totals.selfNanosByOperation.entrySet())
+                {
+                    out.write(String.format("%10d %10s %12s    %s%n",
+                            entry.getValue() / 1000000, "", "", entry.getKey().name()));
+                }
+            }
+        }
+        finally
+        {
+            out.close();
+        }
+    }
+
+    private static Writer openWriter(File file) throws IOException
+    {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null)
+            parent.mkdirs();
+        return new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), "utf8"));
+    }
+
+    private static void writeJSONString(Writer out, String value) throws IOException
+    {
+        out.write('"');
+        if (value != null)
+        {
+            for (int i = 0; i < value.length(); i++)
+            {
+                char c = value.charAt(i);
+                if (c == '"' || c == '\\')
+                {
+                    out.write('\\');
+                    out.write(c);
+                }
+                else if (c < 0x20)
+                {
+                    out.write(String.format("\\u%04x", (int)c));
+                }
+                else
+                {
+                    out.write(c);
+                }
+            }
+        }
+        out.write('"');
+    }
+}
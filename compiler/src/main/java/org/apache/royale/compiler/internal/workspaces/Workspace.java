@@ -19,8 +19,12 @@
 
 package org.apache.royale.compiler.internal.workspaces;
 
+import java.io.Closeable;
 import java.io.File;
+import java.io.Flushable;
+import java.io.IOException;
 import java.lang.ref.WeakReference;
+import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -34,9 +38,12 @@ import java.util.Map.Entry;
 import java.util.Set;
 import java.util.WeakHashMap;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantLock;
@@ -52,6 +59,7 @@ import org.apache.royale.compiler.internal.definitions.references.ReferenceCache
 import org.apache.royale.compiler.internal.embedding.EmbedData;
 import org.apache.royale.compiler.internal.mxml.MXMLDataManager;
 import org.apache.royale.compiler.internal.parsing.as.NilASDocDelegate;
+import org.apache.royale.compiler.internal.projects.APIFingerprint;
 import org.apache.royale.compiler.internal.projects.CompilerProject;
 import org.apache.royale.compiler.internal.projects.DependencyGraph;
 import org.apache.royale.compiler.internal.projects.ASProject;
@@ -69,6 +77,7 @@ import org.apache.royale.compiler.units.requests.IFileScopeRequestResult;
 import org.apache.royale.compiler.workspaces.IInvalidationListener;
 import org.apache.royale.compiler.workspaces.IWorkspace;
 import org.apache.royale.compiler.workspaces.IWorkspaceProfilingDelegate;
+import org.apache.royale.compiler.workspaces.WorkspaceExecutorStrategy;
 import org.apache.royale.compiler.workspaces.IInvalidationListener.InvalidatedDefinition;
 import org.apache.royale.swc.ISWCManager;
 import org.apache.royale.swc.SWCManager;
@@ -93,7 +102,7 @@ public final class Workspace implements IWorkspace
         assert assertionsEnabled = true; // intentional side effect
     }
 
-    private ExecutorService executorService;
+    private volatile ExecutorService executorService;
     protected final Map<CompilerProject, Object> projects;
     private IWorkspaceProfilingDelegate profilingDelegate;
     private final Set<IInvalidationListener> invalidationListeners;
@@ -148,21 +157,50 @@ public final class Workspace implements IWorkspace
      */
     private IASDocDelegate asDocDelegate;
 
+    /**
+     * Number of compilation units whose invalidation waited for the
+     * {@link APIFingerprint} of a changed compilation unit, and the number of
+     * those that were not cleaned because the fingerprint was unchanged.
+     */
+    private final AtomicLong earlyCutoffCandidateCount = new AtomicLong();
+    private final AtomicLong earlyCutoffSkipCount = new AtomicLong();
+
     /**
      * Constructor
      */
     public Workspace()
     {
-        // Limit the number of threads to the number of processors
-        // If you want to run single threaded, update getNumberOfThreadToUse()
-        this(new ThreadPoolExecutor(0, getNumberOfThreadToUse(),
-                                    60L, TimeUnit.SECONDS,
-                                    new SynchronousQueue<Runnable>(),
-                                    new ThreadPoolExecutor.CallerRunsPolicy()));
+        this(WorkspaceExecutorStrategy.THREAD_POOL);
 
 //        this(Executors.newCachedThreadPool(), indexingDelegate);
     }
 
+    /**
+     * Constructor
+     * 
+     * @param strategy The kind of thread pool to use to do background work in
+     * this workspace.
+     */
+    public Workspace(WorkspaceExecutorStrategy strategy)
+    {
+        this(strategy, 0);
+    }
+
+    /**
+     * Constructor
+     * 
+     * @param strategy The kind of thread pool to use to do background work in
+     * this workspace.
+     * @param threadCount The number of threads, or 0 for the default of 16
+     * threads.
+     */
+    public Workspace(WorkspaceExecutorStrategy strategy, int threadCount)
+    {
+        this(createExecutorService(strategy, threadCount));
+        executorStrategy = strategy;
+        executorThreadCount = threadCount;
+    }
+
     /**
      * Constructor
      * 
@@ -213,10 +251,126 @@ public final class Workspace implements IWorkspace
          * 
          * TODO: we should run some more benchmark on a many core system and a many core + hyper-threading.
          * I suspect we may find that those systems can use more cores...
+         * Until then, use -workspace-threads to try a different number.
          */
-        return 16;
+        return DEFAULT_THREAD_COUNT;
+    }
+
+    /**
+     * The number of threads that a workspace uses if no thread count is
+     * configured.
+     */
+    static final int DEFAULT_THREAD_COUNT = 16;
+
+    /**
+     * Creates an {@link ExecutorService} for a workspace.
+     * 
+     * @param strategy The kind of thread pool to create.
+     * @param threadCount The number of threads, or 0 for the default of 16
+     * threads. Ignored by
+     * {@link WorkspaceExecutorStrategy#VIRTUAL_THREADS}.
+     * @return A new {@link ExecutorService}.
+     */
+    public static ExecutorService createExecutorService(WorkspaceExecutorStrategy strategy, int threadCount)
+    {
+        return createExecutorService(strategy, threadCount, VIRTUAL_THREAD_EXECUTOR_FACTORY);
+    }
+
+    /**
+     * The factory method of {@link Executors} that creates an
+     * {@link ExecutorService} with a virtual thread per task, in Java 21 and
+     * newer.
+     */
+    static final String VIRTUAL_THREAD_EXECUTOR_FACTORY = "newVirtualThreadPerTaskExecutor";
+
+    /**
+     * Creates an {@link ExecutorService} for a workspace.
+     * 
+     * @param virtualThreadFactory The name of the factory method of
+     * {@link Executors} that creates an {@link ExecutorService} with virtual
+     * threads. Tests pass a name that doesn't exist to check the fallback on
+     * JVMs without virtual threads.
+     */
+    static ExecutorService createExecutorService(WorkspaceExecutorStrategy strategy, int threadCount,
+            String virtualThreadFactory)
+    {
+        if (threadCount <= 0)
+            threadCount = getNumberOfThreadToUse();
+
+        switch (strategy)
+        {
+            case VIRTUAL_THREADS:
+            {
+                ExecutorService es = createVirtualThreadExecutorService(virtualThreadFactory);
+                if (es != null)
+                    return es;
+                // virtual threads need Java 21, so fall back to work stealing
+                return createWorkStealingExecutorService(threadCount);
+            }
+            case WORK_STEALING:
+                return createWorkStealingExecutorService(threadCount);
+            case THREAD_POOL:
+            default:
+                // Limit the number of threads
+                return new ThreadPoolExecutor(0, threadCount,
+                                              60L, TimeUnit.SECONDS,
+                                              new SynchronousQueue<Runnable>(),
+                                              new ThreadPoolExecutor.CallerRunsPolicy());
+        }
+    }
+
+    private static ExecutorService createWorkStealingExecutorService(int threadCount)
+    {
+        // Futures returned by a ForkJoinPool are ForkJoinTasks. When a worker
+        // thread blocks on one of them, the pool runs other queued tasks or
+        // adds a thread, so requests that wait on other requests can't
+        // deadlock the pool.
+        return new ForkJoinPool(threadCount, ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, false);
+    }
+
+    private static ExecutorService createVirtualThreadExecutorService(String factoryName)
+    {
+        try
+        {
+            Method factory = Executors.class.getMethod(factoryName);
+            return (ExecutorService)factory.invoke(null);
+        }
+        catch (Exception e)
+        {
+            return null;
+        }
+    }
+
+    /**
+     * Replaces the {@link ExecutorService} of this workspace. Work that was
+     * already submitted to the old {@link ExecutorService} finishes on it.
+     * This should only be called when the workspace is not building.
+     * 
+     * @param strategy The kind of thread pool to use.
+     * @param threadCount The number of threads, or 0 for the default of 16
+     * threads.
+     */
+    public void setExecutorStrategy(WorkspaceExecutorStrategy strategy, int threadCount)
+    {
+        // a workspace that is reused for several builds is configured again
+        // for each build, so keep the thread pool if nothing changed
+        if (strategy == executorStrategy && threadCount == executorThreadCount)
+            return;
+        ExecutorService oldExecutorService = executorService;
+        executorService = createExecutorService(strategy, threadCount);
+        executorStrategy = strategy;
+        executorThreadCount = threadCount;
+        if (oldExecutorService != null)
+            oldExecutorService.shutdown();
     }
 
+    /**
+     * The arguments of the last call to
+     * {@link #setExecutorStrategy(WorkspaceExecutorStrategy, int)}.
+     */
+    private WorkspaceExecutorStrategy executorStrategy;
+    private int executorThreadCount;
+
     /**
      * Gets the {@link ExecutorService} to use in this workspace.
      * 
@@ -227,6 +381,19 @@ public final class Workspace implements IWorkspace
         return executorService;
     }
 
+    /**
+     * Gets the number of threads that work submitted to the
+     * {@link ExecutorService} of this workspace should be split across.
+     * 
+     * @return The thread count that was passed to
+     * {@link #setExecutorStrategy(WorkspaceExecutorStrategy, int)}, or the
+     * default thread count if none was.
+     */
+    public int getExecutorThreadCount()
+    {
+        return executorThreadCount > 0 ? executorThreadCount : getNumberOfThreadToUse();
+    }
+
     private CompilerProject[] getProjects()
     {
         return projects.keySet().toArray(new CompilerProject[0]);
@@ -240,6 +407,11 @@ public final class Workspace implements IWorkspace
 
     @Override
     public void endIdleState(Map<ICompilerProject, Set<ICompilationUnit>> cusToUpdate)
+    {
+        endIdleState(cusToUpdate, null);
+    }
+
+    private void endIdleState(Map<ICompilerProject, Set<ICompilationUnit>> cusToUpdate, PendingInvalidation pendingInvalidation)
     {
         buildSync.startAllowingFileScopeRequests();
         try
@@ -248,6 +420,9 @@ public final class Workspace implements IWorkspace
             {
                 ((CompilerProject)e.getKey()).updatePublicAndInternalDefinitions(e.getValue());
             }
+
+            if (pendingInvalidation != null)
+                finishInvalidation(pendingInvalidation);
         }
         catch (InterruptedException e1)
         {
@@ -343,14 +518,61 @@ public final class Workspace implements IWorkspace
         return packageNamespaceDefinitionCache;
     }
 
+    /**
+     * Writes the reports of the {@link IWorkspaceProfilingDelegate}, if it is
+     * {@link Flushable}. A workspace that is kept open for more than one
+     * build, such as one in a watch or daemon session, calls this at the end
+     * of each build instead of {@link #close()}.
+     */
+    public void writeProfilingReport()
+    {
+        if (profilingDelegate instanceof Flushable)
+        {
+            try
+            {
+                ((Flushable)profilingDelegate).flush();
+            }
+            catch (IOException e)
+            {
+                e.printStackTrace();
+            }
+        }
+    }
+
     /**
      * Close the workspace. It is illegal to use the workspace after it has been
      * closed.
+     * <p>
+     * If the {@link IWorkspaceProfilingDelegate} is {@link Closeable}, it is
+     * closed too, so that it can write its reports. The tasks that are still
+     * running on the {@link ExecutorService} are waited for first, so that
+     * their operations are in the reports.
      */
     public void close()
     {
-        executorService.shutdown();
+        ExecutorService oldExecutorService = executorService;
+        oldExecutorService.shutdown();
         executorService = null;
+
+        if (profilingDelegate instanceof Closeable)
+        {
+            try
+            {
+                oldExecutorService.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+            try
+            {
+                ((Closeable)profilingDelegate).close();
+            }
+            catch (IOException e)
+            {
+                e.printStackTrace();
+            }
+        }
     }
 
     private final Collection<ICompilationUnit> collectAssociatedCompilationUnits(IFileSpecification file)
@@ -387,17 +609,55 @@ public final class Workspace implements IWorkspace
     }
 
     private final void invalidate(IFileSpecification fileSpec, Collection<ICompilationUnit> compilationUnits, Map<ICompilerProject, Set<ICompilationUnit>> cusToUpdate)
+    {
+        invalidate(fileSpec, compilationUnits, cusToUpdate, false);
+    }
+
+    /**
+     * Cleans the specified compilation units and the compilation units that
+     * depend on them.
+     * 
+     * @param allowEarlyCutoff If true, and the {@link APIFingerprint} of each
+     * of the specified compilation units is known, only the units that depend
+     * on them directly are cleaned now. The rest of the dependents are
+     * returned, to be cleaned by {@link #finishInvalidation(PendingInvalidation)}
+     * if the API changed.
+     * @return The dependents that were not cleaned yet, or null.
+     */
+    private final PendingInvalidation invalidate(IFileSpecification fileSpec, Collection<ICompilationUnit> compilationUnits, Map<ICompilerProject, Set<ICompilationUnit>> cusToUpdate, boolean allowEarlyCutoff)
     {
         mxmlDataManager.invalidate(fileSpec);
         // Tell the SWC manager the SWC file is invalid.
         getSWCManager().remove(new File(fileSpec.getPath()));
         
         if (compilationUnits.size() == 0)
-            return;
+            return null;
 
         Set<ICompilationUnit> unitsToInvalidate = new HashSet<ICompilationUnit>();
         unitsToInvalidate.addAll(compilationUnits);
-        Set<ICompilationUnit> unitsToClean = Sets.<ICompilationUnit>union(DependencyGraph.computeInvalidationSet(unitsToInvalidate), getCompilationUnitsDependingOnMissingDefinitions(unitsToInvalidate));
+        Set<ICompilationUnit> unitsDependingOnMissingDefinitions = getCompilationUnitsDependingOnMissingDefinitions(unitsToInvalidate);
+        Set<ICompilationUnit> invalidationSet = DependencyGraph.computeInvalidationSet(unitsToInvalidate);
+
+        // The whole invalidation set has to be computed before anything is
+        // cleaned, as cleaning removes the edges of the dependency graph.
+        PendingInvalidation pendingInvalidation = null;
+        if (allowEarlyCutoff)
+        {
+            Map<ICompilationUnit, String> fingerprints = getAPIFingerprints(unitsToInvalidate);
+            if (fingerprints != null)
+            {
+                Set<ICompilationUnit> directInvalidationSet = DependencyGraph.computeDirectInvalidationSet(unitsToInvalidate);
+                Set<ICompilationUnit> pendingUnits = new HashSet<ICompilationUnit>(Sets.difference(invalidationSet, directInvalidationSet));
+                pendingUnits.removeAll(unitsDependingOnMissingDefinitions);
+                if (!pendingUnits.isEmpty())
+                {
+                    pendingInvalidation = new PendingInvalidation(fingerprints, pendingUnits);
+                    invalidationSet = directInvalidationSet;
+                }
+            }
+        }
+
+        Set<ICompilationUnit> unitsToClean = Sets.<ICompilationUnit>union(invalidationSet, unitsDependingOnMissingDefinitions);
 
         
         notifyInvalidationListener(unitsToClean);
@@ -410,6 +670,13 @@ public final class Workspace implements IWorkspace
             compilationUnit.clean(invalidatedSWCFiles, cusToUpdate, clearCUFileScope);
         }
 
+        invalidateLibraries(invalidatedSWCFiles);
+
+        return pendingInvalidation;
+    }
+
+    private static void invalidateLibraries(Map<ICompilerProject, Set<File>> invalidatedSWCFiles)
+    {
         // invalidate any library files in the project
         for (Map.Entry<ICompilerProject, Set<File>> e : invalidatedSWCFiles.entrySet())
         {
@@ -418,6 +685,113 @@ public final class Workspace implements IWorkspace
         }
     }
 
+    /**
+     * @return The current {@link APIFingerprint} of each of the compilation
+     * units, or null if any of them is unknown.
+     */
+    private static Map<ICompilationUnit, String> getAPIFingerprints(Collection<ICompilationUnit> compilationUnits)
+    {
+        Map<ICompilationUnit, String> fingerprints = new HashMap<ICompilationUnit, String>();
+        for (ICompilationUnit compilationUnit : compilationUnits)
+        {
+            if (!(compilationUnit instanceof CompilationUnitBase))
+                return null;
+            String fingerprint = ((CompilationUnitBase)compilationUnit).getAPIFingerprintIfBuilt();
+            if (fingerprint == null)
+                return null;
+            fingerprints.put(compilationUnit, fingerprint);
+        }
+        return fingerprints;
+    }
+
+    /**
+     * Cleans the dependents that {@link #invalidate} left out, unless the
+     * {@link APIFingerprint} of every changed compilation unit is the same as
+     * before the change. This is called while file scope requests are allowed,
+     * so that the new file scopes of the changed compilation units can be
+     * built.
+     */
+    private void finishInvalidation(PendingInvalidation pendingInvalidation)
+    {
+        earlyCutoffCandidateCount.addAndGet(pendingInvalidation.units.size());
+        if (!isAPIChanged(pendingInvalidation.fingerprints))
+        {
+            earlyCutoffSkipCount.addAndGet(pendingInvalidation.units.size());
+            return;
+        }
+
+        notifyInvalidationListener(pendingInvalidation.units);
+
+        // The file scopes of these units are kept, so nothing
+        // needs to be updated in the project scopes.
+        Map<ICompilerProject, Set<ICompilationUnit>> cusToUpdate = new HashMap<ICompilerProject, Set<ICompilationUnit>>();
+        Map<ICompilerProject, Set<File>> invalidatedSWCFiles = new HashMap<ICompilerProject, Set<File>>();
+        for (ICompilationUnit compilationUnit : pendingInvalidation.units)
+        {
+            compilationUnit.clean(invalidatedSWCFiles, cusToUpdate, false);
+        }
+        invalidateLibraries(invalidatedSWCFiles);
+    }
+
+    private static boolean isAPIChanged(Map<ICompilationUnit, String> fingerprints)
+    {
+        for (Map.Entry<ICompilationUnit, String> e : fingerprints.entrySet())
+        {
+            CompilationUnitBase compilationUnit = (CompilationUnitBase)e.getKey();
+            try
+            {
+                compilationUnit.getFileScopeRequest().get();
+            }
+            catch (InterruptedException ex)
+            {
+                Thread.currentThread().interrupt();
+                return true;
+            }
+            if (!e.getValue().equals(compilationUnit.getAPIFingerprintIfBuilt()))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return The number of compilation units that depend indirectly on a
+     * changed file, and were only cleaned if the API of the file changed.
+     */
+    public long getEarlyCutoffCandidateCount()
+    {
+        return earlyCutoffCandidateCount.get();
+    }
+
+    /**
+     * @return The number of compilation units that depend indirectly on a
+     * changed file, and were not cleaned because the API of the file was
+     * unchanged.
+     */
+    public long getEarlyCutoffSkipCount()
+    {
+        return earlyCutoffSkipCount.get();
+    }
+
+    /**
+     * The dependents of changed compilation units that are only cleaned if the
+     * API of one of the changed compilation units changed.
+     */
+    private static final class PendingInvalidation
+    {
+        PendingInvalidation(Map<ICompilationUnit, String> fingerprints, Set<ICompilationUnit> units)
+        {
+            this.fingerprints = fingerprints;
+            this.units = units;
+        }
+
+        /**
+         * The fingerprints of the changed compilation units, before the change.
+         */
+        final Map<ICompilationUnit, String> fingerprints;
+
+        final Set<ICompilationUnit> units;
+    }
+
     private void notifyInvalidationListener(Collection<ICompilationUnit> unitsToClean)
     {
         if (invalidationListeners.isEmpty())
@@ -516,19 +890,20 @@ public final class Workspace implements IWorkspace
         // paths passed into this function need to have been normalized 
         assert (changedFile.getPath().equals(FilenameNormalization.normalize(changedFile.getPath()))) : "Path not normalized";
         Map<ICompilerProject, Set<ICompilationUnit>> cusToUpdate = new HashMap<ICompilerProject, Set<ICompilationUnit>>();
+        PendingInvalidation pendingInvalidation = null;
         startIdleState();
         try
         {
             Collection<ICompilationUnit> relatedCompilationUnits = collectAssociatedCompilationUnits(changedFile);
             HashSet<ICompilationUnit> compilationUnitsToInvalidate = new HashSet<ICompilationUnit>();
             compilationUnitsToInvalidate.addAll(relatedCompilationUnits);
-            invalidate(changedFile, relatedCompilationUnits, cusToUpdate);
+            pendingInvalidation = invalidate(changedFile, relatedCompilationUnits, cusToUpdate, true);
 
             pathToFileSpecMap.put(changedFile.getPath(), changedFile);        
         }
         finally
         {
-            endIdleState(cusToUpdate);
+            endIdleState(cusToUpdate, pendingInvalidation);
         }
     }
 
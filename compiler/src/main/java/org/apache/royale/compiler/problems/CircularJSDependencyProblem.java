@@ -0,0 +1,42 @@
+/*
+ *
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.apache.royale.compiler.problems;
+
+/**
+ * Compiler problem that indicates that the @extends and @implements
+ * annotations in the generated JavaScript form a cycle, so there is no order
+ * in which the files can be loaded.
+ */
+public final class CircularJSDependencyProblem extends CompilerProblem
+{
+    public static final String DESCRIPTION =
+        "Circular dependency found while ordering JavaScript files: ${cycle}";
+
+    public static final int errorCode = 1556;
+
+    public CircularJSDependencyProblem(String cycle)
+    {
+        super();
+        this.cycle = cycle;
+    }
+
+    /// The classes in the cycle, separated by " -> ".
+    public final String cycle;
+}
@@ -0,0 +1,48 @@
+/*
+ *
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.apache.royale.compiler.problems;
+
+import java.io.File;
+
+import org.apache.royale.compiler.problems.annotations.DefaultSeverity;
+
+/**
+ * Compiler problem that indicates that the output of Closure Compiler could
+ * not be read from or saved to the js-compiler-cache-directory. The output
+ * is still compiled, so this is only a warning.
+ */
+@DefaultSeverity(CompilerProblemSeverity.WARNING)
+public final class JSCompilerCacheProblem extends CompilerProblem
+{
+    public static final String DESCRIPTION =
+        "Unable to use the Closure Compiler cache in ${directory}: ${message}";
+
+    public static final int warningCode = 1557;
+
+    public JSCompilerCacheProblem(File directory, Throwable throwable)
+    {
+        super();
+        this.directory = directory.getPath();
+        this.message = throwable.getMessage();
+    }
+
+    public final String directory;
+    public final String message;
+}
@@ -328,4 +328,16 @@ public abstract class TargetSettingsProxy implements ITargetSettings
     {
         return baseTargetSettings.getRemoveDeadCode();
     }
+
+    @Override
+    public boolean getParallelLink()
+    {
+        return baseTargetSettings.getParallelLink();
+    }
+
+    @Override
+    public boolean getParallelCompression()
+    {
+        return baseTargetSettings.getParallelCompression();
+    }
 }
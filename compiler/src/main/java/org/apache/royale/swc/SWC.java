@@ -29,8 +29,10 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import org.apache.commons.io.IOUtils;
 import org.apache.royale.compiler.problems.ICompilerProblem;
 import org.apache.royale.swc.dita.IDITAList;
+import org.apache.royale.swc.io.SWCArchive;
 
 /**
  * Implementation of {@code ISWC}. It contains the in-memory model of a SWC
@@ -62,6 +64,11 @@ public class SWC implements ISWC
     private boolean isANE;
     private final Collection<ICompilerProblem> problems = new ArrayList<ICompilerProblem>();
 
+    /**
+     * The archive of the SWC file, or null if it is not open.
+     */
+    private SWCArchive archive;
+
     public void addComponent(ISWCComponent component)
     {
         assert component != null;
@@ -191,6 +198,35 @@ public class SWC implements ISWC
         return isANE;
     }
     
+    /**
+     * Get the archive of the SWC file, to read the files in it. The archive is
+     * opened on first use, and shared by everything that reads from this SWC
+     * until {@link #closeArchive()} is called.
+     * 
+     * @return The archive of the SWC file.
+     * @throws IOException The SWC file can't be opened.
+     */
+    public synchronized SWCArchive getArchive() throws IOException
+    {
+        // A thread that is interrupted while it reads from the archive
+        // doesn't close it for the other threads, because the archive opens
+        // its file again.
+        if (archive == null)
+            archive = new SWCArchive(swcFile);
+        return archive;
+    }
+
+    /**
+     * Close the archive of the SWC file, so that the file can be replaced.
+     * Streams that were already created can still be read, and the archive is
+     * opened again if it is needed.
+     */
+    public synchronized void closeArchive()
+    {
+        IOUtils.closeQuietly(archive);
+        archive = null;
+    }
+
     /**
      * For debugging only.
      */
@@ -28,8 +28,8 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.zip.ZipFile;
 
+import org.apache.royale.swc.io.SWCArchive;
 import org.apache.royale.swc.io.SWCReader;
 import org.apache.royale.swf.ISWF;
 import org.apache.royale.swf.io.ISWFReader;
@@ -107,11 +107,11 @@ public class SWCLibrary implements ISWCLibrary
     @Override
     public void readSWFInputStream(ISWFReader swfReader, ISWC swc)
     {
-        ZipFile swcFile = null;
+        InputStream swcFileInputStream = null;
         try
         {
-            swcFile = new ZipFile(swc.getSWCFile());
-            InputStream swcFileInputStream = SWCReader.getInputStream(swcFile, path);
+            SWCArchive swcFile = ((SWC)swc).getArchive();
+            swcFileInputStream = swcFile.getInputStream(path);
             if(swcFileInputStream != null) {
                 final InputStream inputStream = new BufferedInputStream(swcFileInputStream);
                 swfReader.readFrom(inputStream, SWCReader.getReportingPath(
@@ -124,11 +124,12 @@ public class SWCLibrary implements ISWCLibrary
         }
         finally
         {
-            if (swcFile != null)
+            if (swcFileInputStream != null)
             {
                 try
                 {
-                    swcFile.close();
+                    // returns the inflater of the stream to the pool
+                    swcFileInputStream.close();
                 }
                 catch (IOException e)
                 {
@@ -31,6 +31,7 @@ import org.apache.royale.compiler.internal.caches.CSSDocumentCache;
 import org.apache.royale.compiler.internal.caches.CacheStoreKeyBase;
 import org.apache.royale.compiler.internal.caches.ConcurrentCacheStoreBase;
 import org.apache.royale.compiler.internal.caches.FileScopeCache;
+import org.apache.royale.compiler.internal.caches.PersistentABCCache;
 import org.apache.royale.compiler.internal.caches.SWFCache;
 import org.apache.royale.compiler.workspaces.IWorkspace;
 import org.apache.royale.swc.io.SWCReader;
@@ -122,6 +123,22 @@ public class SWCManager extends ConcurrentCacheStoreBase<ISWC> implements ISWCMa
         return workspace;
     }
 
+    /**
+     * Sets the directory of the on-disk cache of the ABC in SWC files, which
+     * is shared by compiler processes. Once a SWC has been read, later
+     * processes build its file scopes without decoding its library SWF.
+     * 
+     * @param directory the cache directory, or null to disable the cache
+     */
+    public void setPersistentCacheDirectory(File directory)
+    {
+        final PersistentABCCache current = fileScopeCache.getPersistentABCCache();
+        if (directory == null)
+            fileScopeCache.setPersistentABCCache(null);
+        else if (current == null || !current.getDirectory().equals(directory))
+            fileScopeCache.setPersistentABCCache(new PersistentABCCache(directory));
+    }
+
     @Override
     protected ISWC createEntryValue(CacheStoreKeyBase key)
     {
@@ -171,6 +188,10 @@ public class SWCManager extends ConcurrentCacheStoreBase<ISWC> implements ISWCMa
 
         for (String fileInSWC : removedSWC.getFiles().keySet())
             swfCache.remove(SWFCache.createKey(removedSWC, fileInSWC));
+
+        // The SWC file may be replaced, so don't keep it open.
+        if (removedSWC instanceof SWC)
+            ((SWC)removedSWC).closeArchive();
     }
 
     @Override
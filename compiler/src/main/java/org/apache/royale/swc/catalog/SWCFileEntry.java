@@ -21,23 +21,24 @@ package org.apache.royale.swc.catalog;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.zip.ZipFile;
 
 import org.apache.royale.swc.ISWCFileEntry;
-import org.apache.royale.swc.io.SWCReader;
+import org.apache.royale.swc.SWC;
 
 /**
  * A file in a SWC archive.
  */
 class SWCFileEntry implements ISWCFileEntry
 {
-    public SWCFileEntry(String containingSWCPath, String path, long mod)
+    public SWCFileEntry(SWC swc, String containingSWCPath, String path, long mod)
     {
+        this.swc = swc;
         this.containingSWCPath = containingSWCPath;
         this.path = path;
         this.mod = mod;
     }
 
+    private final SWC swc;
     private final String containingSWCPath;
     private final String path;
     private final long mod;
@@ -63,8 +64,7 @@ class SWCFileEntry implements ISWCFileEntry
     @Override
     public InputStream createInputStream() throws IOException
     {
-        ZipFile swcFile = new ZipFile(containingSWCPath);
-        InputStream inputStream = SWCReader.getInputStream(swcFile, path);
-        return inputStream;
+        // The archive is shared by all the files of the SWC.
+        return swc.getArchive().getInputStream(path);
     }
 }
@@ -208,7 +208,7 @@ public class StAXCatalogReader implements ICatalogXMLConstants
                     if (modString != null)
                         mod = Long.parseLong(modString);
 
-                    SWCFileEntry fileEntry = new SWCFileEntry(containingSWCFile, path, mod);
+                    SWCFileEntry fileEntry = new SWCFileEntry(swc, containingSWCFile, path, mod);
                     swc.addFile(fileEntry);
                 }
                 else if (tagName.equals(TAG_DIGEST))
@@ -0,0 +1,629 @@
+/*
+ *
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.apache.royale.swc.io;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+
+/**
+ * Read access to the files in a SWC archive, as an alternative to
+ * {@link java.util.zip.ZipFile}.
+ * <p>
+ * The central directory of the archive is read once, when the archive is
+ * opened. The compressed data of a file is read when a stream is created for
+ * it: a {@code STORED} file is read as it is, and a {@code DEFLATED} file is
+ * inflated as it is read, with an {@link Inflater} and an input buffer that
+ * are taken from a pool and returned to it when the stream is closed. Streams
+ * remain readable after the archive is closed.
+ * <p>
+ * The archive is not memory-mapped. A mapping is only released when it is
+ * garbage collected, and until then, the file can't be replaced or deleted on
+ * Windows, which would break rebuilding a SWC that is on the library path of a
+ * project in a long-lived workspace.
+ * <p>
+ * An archive may be read by several threads. A {@link FileChannel} is closed
+ * when a thread that reads from it is interrupted, so when a read fails
+ * because another thread was interrupted, the file is opened again and the
+ * read is retried. The interrupted thread itself gets a
+ * {@link java.nio.channels.ClosedByInterruptException}.
+ * <p>
+ * {@link #transferTo(Entry, WritableByteChannel)} copies the compressed bytes
+ * of a file without inflating them, which {@link SWCArchiveWriter} uses to
+ * copy files from one SWC into another.
+ * <p>
+ * ZIP64 archives are not supported. SWCs are never that large.
+ */
+public class SWCArchive implements Closeable
+{
+    static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+    static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+    static final int END_HEADER_SIGNATURE = 0x06054b50;
+    static final int LOCAL_HEADER_SIZE = 30;
+    static final int CENTRAL_HEADER_SIZE = 46;
+    static final int END_HEADER_SIZE = 22;
+
+    private static final int MAX_COMMENT_SIZE = 0xffff;
+    private static final int INPUT_BUFFER_SIZE = 8192;
+
+    /**
+     * Inflaters and their input buffers, which are shared by all archives.
+     */
+    private static final ConcurrentLinkedQueue<InflaterBuffer> inflaterPool =
+        new ConcurrentLinkedQueue<InflaterBuffer>();
+
+    /**
+     * Open a SWC archive.
+     *
+     * @param file The SWC file.
+     * @throws IOException The file can't be read, or it is not a ZIP archive.
+     */
+    public SWCArchive(File file) throws IOException
+    {
+        this.file = file;
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try
+        {
+            size = channel.size();
+            entries = Collections.unmodifiableMap(readCentralDirectory(size));
+        }
+        catch (IOException e)
+        {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private final File file;
+
+    /**
+     * The size of the file when it was opened. The file is only opened again
+     * if it still has this size.
+     */
+    private final long size;
+
+    /**
+     * The open file. It is replaced when it is opened again.
+     */
+    private volatile FileChannel channel;
+
+    /**
+     * true once {@link #close()} was called.
+     */
+    private boolean closed;
+
+    /**
+     * Maps the names of the files to their entries, in the order of the
+     * central directory.
+     */
+    private final Map<String, Entry> entries;
+
+    /**
+     * @return The SWC file.
+     */
+    public File getFile()
+    {
+        return file;
+    }
+
+    /**
+     * @return The entries of the files in the archive, in the order in which
+     * they are listed in the archive.
+     */
+    public Collection<Entry> getEntries()
+    {
+        return entries.values();
+    }
+
+    /**
+     * @param name The name of a file in the archive.
+     * @return The entry of the file, or null if the archive has no such file.
+     */
+    public Entry getEntry(String name)
+    {
+        return entries.get(name);
+    }
+
+    /**
+     * Get the {@code InputStream} of a file in the archive.
+     *
+     * @param name The name of the file in the archive.
+     * @return The uncompressed contents of the file, or null if the archive
+     * has no such file.
+     * @throws IOException Error reading the file.
+     */
+    public InputStream getInputStream(String name) throws IOException
+    {
+        Entry entry = getEntry(name);
+        if (entry == null)
+            return null;
+        return getInputStream(entry);
+    }
+
+    /**
+     * Get the {@code InputStream} of a file in the archive.
+     *
+     * @param entry An entry of this archive.
+     * @return The uncompressed contents of the file.
+     * @throws IOException Error reading the file.
+     */
+    public InputStream getInputStream(Entry entry) throws IOException
+    {
+        ByteBuffer data = read(getDataOffset(entry), (int)entry.compressedSize);
+        switch (entry.method)
+        {
+            case ZipEntry.STORED:
+                return new ByteBufferInputStream(data);
+            case ZipEntry.DEFLATED:
+                return new InflatingInputStream(data, entry.size);
+            default:
+                throw new ZipException("Unsupported compression method " + entry.method +
+                                       " of " + entry.name + " in " + file);
+        }
+    }
+
+    /**
+     * Copy the compressed bytes of a file in the archive to a channel. They
+     * are copied by the operating system, if it can, without being read into
+     * memory.
+     * <p>
+     * Unlike the other reads, the copy is not retried if another thread
+     * closes the file by being interrupted, because the bytes that were
+     * already written to the target can't be known.
+     *
+     * @param entry An entry of this archive.
+     * @param target The channel to write to.
+     * @throws IOException Error reading the file or writing to the channel.
+     */
+    public void transferTo(Entry entry, WritableByteChannel target) throws IOException
+    {
+        long position = getDataOffset(entry);
+        long end = position + entry.compressedSize;
+        while (position < end)
+        {
+            long count = channel.transferTo(position, end - position, target);
+            if (count <= 0)
+                throw new EOFException("Unexpected end of " + file);
+            position += count;
+        }
+    }
+
+    /**
+     * @return false if the archive was closed.
+     */
+    public synchronized boolean isOpen()
+    {
+        return !closed;
+    }
+
+    /**
+     * Closes the file. Streams that were created before can still be read.
+     */
+    @Override
+    public synchronized void close() throws IOException
+    {
+        closed = true;
+        channel.close();
+    }
+
+    /**
+     * Opens the file again after a read from it failed because it was
+     * closed.
+     *
+     * @param failedChannel The channel that the read failed on.
+     * @param e The exception that the read failed with, which is rethrown if
+     * the archive was closed, the current thread was interrupted, or the file
+     * changed.
+     * @return The channel to retry the read on.
+     */
+    private synchronized FileChannel reopen(FileChannel failedChannel, ClosedChannelException e) throws IOException
+    {
+        if (closed || Thread.currentThread().isInterrupted())
+            throw e;
+        if (channel == failedChannel)
+        {
+            FileChannel newChannel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+            if (newChannel.size() != size)
+            {
+                newChannel.close();
+                throw e;
+            }
+            channel = newChannel;
+        }
+        return channel;
+    }
+
+    private Map<String, Entry> readCentralDirectory(long size) throws IOException
+    {
+        // The end of central directory record is followed by a comment of up
+        // to 64K, so search for it backwards from the end.
+        int tailSize = (int)Math.min(size, END_HEADER_SIZE + MAX_COMMENT_SIZE);
+        ByteBuffer tail = read(size - tailSize, tailSize);
+        int end = -1;
+        for (int i = tailSize - END_HEADER_SIZE; i >= 0; i--)
+        {
+            if (tail.getInt(i) == END_HEADER_SIGNATURE)
+            {
+                end = i;
+                break;
+            }
+        }
+        if (end == -1)
+            throw new ZipException("Not a ZIP archive: " + file);
+
+        int entryCount = getUnsignedShort(tail, end + 10);
+        long directorySize = getUnsignedInt(tail, end + 12);
+        long directoryOffset = getUnsignedInt(tail, end + 16);
+        if (entryCount == 0xffff || directorySize == 0xffffffffL || directoryOffset == 0xffffffffL)
+            throw new ZipException("ZIP64 archives are not supported: " + file);
+        if (directoryOffset + directorySize > size)
+            throw new ZipException("Invalid central directory in " + file);
+
+        ByteBuffer directory = read(directoryOffset, (int)directorySize);
+        Map<String, Entry> result = new LinkedHashMap<String, Entry>(entryCount * 4 / 3 + 1);
+        int position = 0;
+        for (int i = 0; i < entryCount; i++)
+        {
+            if (position + CENTRAL_HEADER_SIZE > directorySize ||
+                directory.getInt(position) != CENTRAL_HEADER_SIGNATURE)
+            {
+                throw new ZipException("Invalid central directory in " + file);
+            }
+            int nameLength = getUnsignedShort(directory, position + 28);
+            int extraLength = getUnsignedShort(directory, position + 30);
+            int commentLength = getUnsignedShort(directory, position + 32);
+            byte[] nameBytes = new byte[nameLength];
+            ByteBuffer nameBuffer = directory.duplicate();
+            nameBuffer.position(position + CENTRAL_HEADER_SIZE);
+            nameBuffer.get(nameBytes);
+
+            Entry entry = new Entry(new String(nameBytes, StandardCharsets.UTF_8),
+                                    getUnsignedShort(directory, position + 10),
+                                    getUnsignedInt(directory, position + 16),
+                                    getUnsignedInt(directory, position + 20),
+                                    getUnsignedInt(directory, position + 24),
+                                    getUnsignedInt(directory, position + 42));
+            if (entry.compressedSize == 0xffffffffL || entry.size == 0xffffffffL ||
+                entry.localHeaderOffset == 0xffffffffL)
+            {
+                throw new ZipException("ZIP64 archives are not supported: " + file);
+            }
+            // As with ZipFile, the first of several files with the same
+            // name is found.
+            if (!result.containsKey(entry.name))
+                result.put(entry.name, entry);
+
+            position += CENTRAL_HEADER_SIZE + nameLength + extraLength + commentLength;
+        }
+        return result;
+    }
+
+    /**
+     * The data of a file follows its local header, whose extra field may
+     * differ from the one in the central directory, so the local header is
+     * read the first time the data is.
+     */
+    private long getDataOffset(Entry entry) throws IOException
+    {
+        long dataOffset = entry.dataOffset;
+        if (dataOffset == -1)
+        {
+            ByteBuffer header = read(entry.localHeaderOffset, LOCAL_HEADER_SIZE);
+            if (header.getInt(0) != LOCAL_HEADER_SIGNATURE)
+                throw new ZipException("Invalid local header of " + entry.name + " in " + file);
+            dataOffset = entry.localHeaderOffset + LOCAL_HEADER_SIZE +
+                         getUnsignedShort(header, 26) + getUnsignedShort(header, 28);
+            entry.dataOffset = dataOffset;
+        }
+        return dataOffset;
+    }
+
+    /**
+     * Reads a part of the archive.
+     *
+     * @return A little-endian buffer whose position is 0 and whose limit is
+     * the length.
+     */
+    private ByteBuffer read(long position, int length) throws IOException
+    {
+        ByteBuffer result = ByteBuffer.allocate(length);
+        FileChannel channel = this.channel;
+        while (result.hasRemaining())
+        {
+            int count;
+            try
+            {
+                count = channel.read(result, position + result.position());
+            }
+            catch (ClosedChannelException e)
+            {
+                // The position of the buffer is where the read stopped.
+                channel = reopen(channel, e);
+                continue;
+            }
+            if (count < 0)
+                throw new EOFException("Unexpected end of " + file);
+        }
+        result.flip();
+        return result.order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static int getUnsignedShort(ByteBuffer buffer, int index)
+    {
+        return buffer.getShort(index) & 0xffff;
+    }
+
+    private static long getUnsignedInt(ByteBuffer buffer, int index)
+    {
+        return buffer.getInt(index) & 0xffffffffL;
+    }
+
+    /**
+     * A file in a {@link SWCArchive}, as listed in its central directory.
+     */
+    public static final class Entry
+    {
+        private Entry(String name, int method, long crc, long compressedSize, long size, long localHeaderOffset)
+        {
+            this.name = name;
+            this.method = method;
+            this.crc = crc;
+            this.compressedSize = compressedSize;
+            this.size = size;
+            this.localHeaderOffset = localHeaderOffset;
+        }
+
+        private final String name;
+        private final int method;
+        private final long crc;
+        private final long compressedSize;
+        private final long size;
+        private final long localHeaderOffset;
+
+        /**
+         * The offset of the data of the file, or -1 if it has not been read
+         * from the local header yet.
+         */
+        private volatile long dataOffset = -1;
+
+        /**
+         * @return The name of the file.
+         */
+        public String getName()
+        {
+            return name;
+        }
+
+        /**
+         * @return {@link ZipEntry#STORED} or {@link ZipEntry#DEFLATED}.
+         */
+        public int getMethod()
+        {
+            return method;
+        }
+
+        /**
+         * @return The CRC-32 of the uncompressed data.
+         */
+        public long getCrc()
+        {
+            return crc;
+        }
+
+        /**
+         * @return The size of the compressed data.
+         */
+        public long getCompressedSize()
+        {
+            return compressedSize;
+        }
+
+        /**
+         * @return The size of the uncompressed data.
+         */
+        public long getSize()
+        {
+            return size;
+        }
+
+        @Override
+        public String toString()
+        {
+            return name;
+        }
+    }
+
+    /**
+     * Reads a {@code STORED} file.
+     */
+    private static final class ByteBufferInputStream extends InputStream
+    {
+        ByteBufferInputStream(ByteBuffer data)
+        {
+            this.data = data;
+        }
+
+        private final ByteBuffer data;
+
+        @Override
+        public int read()
+        {
+            return data.hasRemaining() ? data.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len)
+        {
+            if (len == 0)
+                return 0;
+            if (!data.hasRemaining())
+                return -1;
+            int count = Math.min(len, data.remaining());
+            data.get(b, off, count);
+            return count;
+        }
+
+        @Override
+        public long skip(long n)
+        {
+            int count = (int)Math.max(0, Math.min(n, data.remaining()));
+            data.position(data.position() + count);
+            return count;
+        }
+
+        @Override
+        public int available()
+        {
+            return data.remaining();
+        }
+    }
+
+    /**
+     * An inflater and its input buffer.
+     */
+    private static final class InflaterBuffer
+    {
+        final Inflater inflater = new Inflater(true);
+        final byte[] input = new byte[INPUT_BUFFER_SIZE];
+    }
+
+    /**
+     * Inflates a {@code DEFLATED} file as it is read.
+     */
+    private static final class InflatingInputStream extends InputStream
+    {
+        InflatingInputStream(ByteBuffer data, long size)
+        {
+            this.data = data;
+            this.size = size;
+            InflaterBuffer pooled = inflaterPool.poll();
+            this.inflaterBuffer = pooled != null ? pooled : new InflaterBuffer();
+        }
+
+        private final ByteBuffer data;
+        private final long size;
+        private InflaterBuffer inflaterBuffer;
+        private boolean dummyByteSupplied;
+
+        @Override
+        public int read() throws IOException
+        {
+            byte[] b = new byte[1];
+            return read(b, 0, 1) == -1 ? -1 : b[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException
+        {
+            if (inflaterBuffer == null)
+                throw new IOException("Stream closed");
+            if (len == 0)
+                return 0;
+
+            // Like the streams of ZipFile for small files, fill the whole
+            // buffer if the file is long enough, because some callers read
+            // a file with one call to read().
+            Inflater inflater = inflaterBuffer.inflater;
+            int total = 0;
+            try
+            {
+                while (total < len)
+                {
+                    int count = inflater.inflate(b, off + total, len - total);
+                    total += count;
+                    if (count == 0)
+                    {
+                        if (inflater.finished() || inflater.needsDictionary())
+                            break;
+                        if (inflater.needsInput())
+                            fill(inflater);
+                    }
+                }
+            }
+            catch (DataFormatException e)
+            {
+                String message = e.getMessage();
+                throw new ZipException(message != null ? message : "Invalid ZLIB data format");
+            }
+            return total == 0 ? -1 : total;
+        }
+
+        private void fill(Inflater inflater) throws IOException
+        {
+            byte[] input = inflaterBuffer.input;
+            int count = Math.min(data.remaining(), input.length);
+            if (count > 0)
+            {
+                data.get(input, 0, count);
+                inflater.setInput(input, 0, count);
+            }
+            else if (!dummyByteSupplied)
+            {
+                // An inflater without the ZLIB header may need an extra byte
+                // at the end of the input.
+                dummyByteSupplied = true;
+                input[0] = 0;
+                inflater.setInput(input, 0, 1);
+            }
+            else
+            {
+                throw new EOFException("Unexpected end of ZLIB input stream");
+            }
+        }
+
+        @Override
+        public int available()
+        {
+            if (inflaterBuffer == null)
+                return 0;
+            long remaining = size - inflaterBuffer.inflater.getBytesWritten();
+            return (int)Math.max(0, Math.min(remaining, Integer.MAX_VALUE));
+        }
+
+        @Override
+        public void close()
+        {
+            if (inflaterBuffer != null)
+            {
+                inflaterBuffer.inflater.reset();
+                inflaterPool.offer(inflaterBuffer);
+                inflaterBuffer = null;
+            }
+        }
+    }
+}
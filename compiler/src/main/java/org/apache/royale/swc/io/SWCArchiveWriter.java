@@ -0,0 +1,259 @@
+/*
+ *
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.apache.royale.swc.io;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+
+/**
+ * Writes a SWC archive whose files are either {@code STORED}, like the files
+ * that {@link SWCWriter} writes, or copied from another {@link SWCArchive} as
+ * they are, without inflating or deflating them. A SWC can therefore be
+ * repackaged by copying the files it keeps and writing a new central
+ * directory.
+ * <p>
+ * ZIP64 archives are not supported.
+ */
+public class SWCArchiveWriter implements Closeable
+{
+    private static final int VERSION_MADE_BY = 20;
+    private static final int VERSION_STORED = 10;
+    private static final int VERSION_DEFLATED = 20;
+
+    /**
+     * The names of the files are encoded as UTF-8, as with
+     * {@link java.util.zip.ZipOutputStream}.
+     */
+    private static final int FLAG_UTF8 = 0x0800;
+
+    /**
+     * Create a SWC archive, replacing the file if it exists.
+     *
+     * @param file The SWC file.
+     * @throws IOException The file can't be created.
+     */
+    public SWCArchiveWriter(File file) throws IOException
+    {
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+        this.entries = new ArrayList<WrittenEntry>();
+        this.names = new HashSet<String>();
+    }
+
+    private final FileChannel channel;
+
+    /**
+     * The entries of the central directory, in the order of the files.
+     */
+    private final List<WrittenEntry> entries;
+
+    private final Set<String> names;
+
+    /**
+     * Write a file as a {@code STORED} file.
+     *
+     * @param name The name of the file in the archive.
+     * @param time The modification time of the file, in milliseconds since the
+     * epoch.
+     * @param data The contents of the file.
+     * @throws IOException Error writing the file.
+     */
+    public void putEntry(String name, long time, byte[] data) throws IOException
+    {
+        CRC32 crc = new CRC32();
+        crc.update(data);
+        WrittenEntry entry = new WrittenEntry(name, ZipEntry.STORED, time, crc.getValue(),
+                                              data.length, data.length, channel.position());
+        writeLocalHeader(entry);
+        writeFully(ByteBuffer.wrap(data));
+    }
+
+    /**
+     * Copy a file from another archive, without inflating it. Its compression
+     * method, CRC-32 and sizes are kept.
+     *
+     * @param archive The archive to copy the file from.
+     * @param sourceEntry An entry of that archive.
+     * @param time The modification time of the file, in milliseconds since the
+     * epoch.
+     * @throws IOException Error reading or writing the file.
+     */
+    public void copyEntry(SWCArchive archive, SWCArchive.Entry sourceEntry, long time) throws IOException
+    {
+        WrittenEntry entry = new WrittenEntry(sourceEntry.getName(), sourceEntry.getMethod(), time,
+                                              sourceEntry.getCrc(), sourceEntry.getCompressedSize(),
+                                              sourceEntry.getSize(), channel.position());
+        writeLocalHeader(entry);
+        archive.transferTo(sourceEntry, channel);
+    }
+
+    /**
+     * Write the central directory, and close the file.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        try
+        {
+            long directoryOffset = channel.position();
+            for (WrittenEntry entry : entries)
+            {
+                byte[] name = entry.name.getBytes(StandardCharsets.UTF_8);
+                ByteBuffer header = allocate(SWCArchive.CENTRAL_HEADER_SIZE + name.length);
+                header.putInt(SWCArchive.CENTRAL_HEADER_SIGNATURE);
+                header.putShort((short)VERSION_MADE_BY);
+                putEntryFields(header, entry, name.length);
+                header.putShort((short)0); // comment length
+                header.putShort((short)0); // disk number
+                header.putShort((short)0); // internal attributes
+                header.putInt(0); // external attributes
+                header.putInt((int)entry.localHeaderOffset);
+                header.put(name);
+                header.flip();
+                writeFully(header);
+            }
+            long directorySize = channel.position() - directoryOffset;
+            if (entries.size() >= 0xffff || channel.position() >= 0xffffffffL)
+                throw new ZipException("ZIP64 archives are not supported");
+
+            ByteBuffer end = allocate(SWCArchive.END_HEADER_SIZE);
+            end.putInt(SWCArchive.END_HEADER_SIGNATURE);
+            end.putShort((short)0); // disk number
+            end.putShort((short)0); // disk of the central directory
+            end.putShort((short)entries.size());
+            end.putShort((short)entries.size());
+            end.putInt((int)directorySize);
+            end.putInt((int)directoryOffset);
+            end.putShort((short)0); // comment length
+            end.flip();
+            writeFully(end);
+        }
+        finally
+        {
+            channel.close();
+        }
+    }
+
+    private void writeLocalHeader(WrittenEntry entry) throws IOException
+    {
+        if (!names.add(entry.name))
+            throw new ZipException("duplicate entry: " + entry.name);
+        if (entry.compressedSize >= 0xffffffffL || entry.size >= 0xffffffffL ||
+            entry.localHeaderOffset >= 0xffffffffL)
+        {
+            throw new ZipException("ZIP64 archives are not supported");
+        }
+        entries.add(entry);
+
+        byte[] name = entry.name.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer header = allocate(SWCArchive.LOCAL_HEADER_SIZE + name.length);
+        header.putInt(SWCArchive.LOCAL_HEADER_SIGNATURE);
+        putEntryFields(header, entry, name.length);
+        header.put(name);
+        header.flip();
+        writeFully(header);
+    }
+
+    /**
+     * Puts the fields that the local and central headers have in common, from
+     * the version needed to extract to the length of the extra field.
+     */
+    private static void putEntryFields(ByteBuffer header, WrittenEntry entry, int nameLength)
+    {
+        header.putShort((short)(entry.method == ZipEntry.STORED ? VERSION_STORED : VERSION_DEFLATED));
+        header.putShort((short)FLAG_UTF8);
+        header.putShort((short)entry.method);
+        header.putInt((int)entry.dosTime);
+        header.putInt((int)entry.crc);
+        header.putInt((int)entry.compressedSize);
+        header.putInt((int)entry.size);
+        header.putShort((short)nameLength);
+        header.putShort((short)0); // extra field length
+    }
+
+    private void writeFully(ByteBuffer buffer) throws IOException
+    {
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+    }
+
+    private static ByteBuffer allocate(int size)
+    {
+        return ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Converts a time to the MS-DOS date and time of a ZIP entry, in the local
+     * time zone, as {@link ZipEntry#setTime(long)} does.
+     */
+    private static long toDosTime(long time)
+    {
+        Calendar cal = Calendar.getInstance();
+        cal.setTimeInMillis(time);
+        int year = cal.get(Calendar.YEAR);
+        if (year < 1980)
+            return (1 << 21) | (1 << 16);
+        return (year - 1980) << 25 |
+               (cal.get(Calendar.MONTH) + 1) << 21 |
+               cal.get(Calendar.DAY_OF_MONTH) << 16 |
+               cal.get(Calendar.HOUR_OF_DAY) << 11 |
+               cal.get(Calendar.MINUTE) << 5 |
+               cal.get(Calendar.SECOND) >> 1;
+    }
+
+    /**
+     * A file that was written to the archive.
+     */
+    private static final class WrittenEntry
+    {
+        WrittenEntry(String name, int method, long time, long crc, long compressedSize, long size, long localHeaderOffset)
+        {
+            this.name = name;
+            this.method = method;
+            this.dosTime = toDosTime(time);
+            this.crc = crc;
+            this.compressedSize = compressedSize;
+            this.size = size;
+            this.localHeaderOffset = localHeaderOffset;
+        }
+
+        final String name;
+        final int method;
+        final long dosTime;
+        final long crc;
+        final long compressedSize;
+        final long size;
+        final long localHeaderOffset;
+    }
+}
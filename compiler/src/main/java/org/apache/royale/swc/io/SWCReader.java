@@ -37,7 +37,7 @@ import org.apache.royale.swc.catalog.StAXCatalogReader;
 import org.apache.royale.swc.dita.IDITAList;
 
 /**
- * Read a SWC file using Java ZIP utilities. The {@code SWCReader} owns the
+ * Read a SWC file using {@link SWCArchive}. The {@code SWCReader} owns the
  * result {@linkplain ISWC} object.
  */
 public class SWCReader implements ISWCReader
@@ -86,14 +86,15 @@ public class SWCReader implements ISWCReader
             return;
         }
 
-        ZipFile zipFile = null;
+        SWCArchive archive = null;
         catalogReader = null;
         try
         {
             try
             {
-                zipFile = new ZipFile(swcFile, ZipFile.OPEN_READ);
-                final InputStream catalogInputStream = getInputStream(zipFile, CATALOG_XML);
+                // The archive stays open for the other readers of the SWC.
+                archive = swc.getArchive();
+                final InputStream catalogInputStream = archive.getInputStream(CATALOG_XML);
                 if (catalogInputStream == null)
                 {
                     swc.addProblem(new FileInLibraryNotFoundProblem(swcFile.getAbsolutePath(), CATALOG_XML));
@@ -115,7 +116,7 @@ public class SWCReader implements ISWCReader
             try
             {
                 //might not exist, so wrap in a try catch
-                final InputStream ditaInputStream = getInputStream(zipFile, DITA_MANIFEST);
+                final InputStream ditaInputStream = archive.getInputStream(DITA_MANIFEST);
                 if(ditaInputStream != null)
                 {
                     try
@@ -137,7 +138,7 @@ public class SWCReader implements ISWCReader
             
             // The swc is an considered an ANE if it contains a 
             // META-INF/AIR/extension.xml file.
-            swc.setIsANE(zipFile.getEntry(ANE_EXTENSION_XML) != null);
+            swc.setIsANE(archive.getEntry(ANE_EXTENSION_XML) != null);
             
         }
         finally
@@ -146,9 +147,6 @@ public class SWCReader implements ISWCReader
             {
                 if (catalogReader != null)
                     catalogReader.close();
-                
-                if (zipFile != null)
-                    zipFile.close();
             }
             catch (Exception e)
             {
@@ -0,0 +1,209 @@
+/*
+ *
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.apache.royale.swf.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Adler32;
+import java.util.zip.Deflater;
+
+/**
+ * Writes a ZLIB stream of a byte array, compressing blocks of the array on
+ * several threads, in the style of pigz.
+ * <p>
+ * Each block is compressed into raw deflate data on its own. The last 32K of
+ * the previous block are set as the preset dictionary of a block, so matches
+ * can still refer back across the block boundary, and every block except the
+ * last ends with a sync flush, so it ends on a byte boundary. The compressed
+ * blocks are then concatenated into one deflate stream between a ZLIB header
+ * and the Adler-32 checksum of the whole array. The result can be read by any
+ * ZLIB decoder, and it does not depend on the number of threads.
+ */
+public class ParallelDeflater
+{
+    /**
+     * The number of uncompressed bytes in each block.
+     */
+    public static final int BLOCK_SIZE = 128 * 1024;
+
+    /**
+     * The size of the deflate window, which is the most that a block can use
+     * from the previous block.
+     */
+    private static final int DICTIONARY_SIZE = 32 * 1024;
+
+    /**
+     * @param level the compression level, from {@link Deflater}.
+     * @param executor the executor that compresses the blocks.
+     * @param threadCount the most threads to compress on at once, including
+     * the calling thread.
+     */
+    public ParallelDeflater(int level, Executor executor, int threadCount)
+    {
+        this.level = level;
+        this.executor = executor;
+        this.threadCount = Math.max(1, threadCount);
+    }
+
+    private final int level;
+    private final Executor executor;
+    private final int threadCount;
+
+    /**
+     * Compress bytes into a ZLIB stream.
+     *
+     * @param bytes the array that contains the bytes to compress.
+     * @param length the number of bytes to compress, from the start of the
+     * array.
+     * @param output the stream that the ZLIB stream is written to.
+     * @throws IOException if the output can't be written.
+     * @throws InterruptedException if the thread is interrupted while the
+     * blocks are compressed.
+     */
+    public void deflate(final byte[] bytes, final int length, OutputStream output)
+            throws IOException, InterruptedException
+    {
+        final int blockCount = Math.max(1, (length + BLOCK_SIZE - 1) / BLOCK_SIZE);
+        final byte[][] blocks = new byte[blockCount][];
+        final AtomicInteger nextBlock = new AtomicInteger();
+        final CountDownLatch done = new CountDownLatch(blockCount);
+
+        // Each thread takes the next block until there are none left. The
+        // calling thread takes blocks too, so the compression finishes even
+        // if the executor has no idle threads.
+        final Runnable worker = new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                int i;
+                while ((i = nextBlock.getAndIncrement()) < blockCount)
+                {
+                    try
+                    {
+                        blocks[i] = deflateBlock(bytes, length, i, i == blockCount - 1);
+                    }
+                    finally
+                    {
+                        done.countDown();
+                    }
+                }
+            }
+        };
+
+        final int helperCount = Math.min(blockCount, threadCount) - 1;
+        for (int i = 0; i < helperCount; i++)
+            executor.execute(worker);
+        worker.run();
+
+        // The checksum is computed while the blocks are compressed.
+        final Adler32 adler = new Adler32();
+        adler.update(bytes, 0, length);
+        done.await();
+
+        writeHeader(output);
+        for (int i = 0; i < blockCount; i++)
+        {
+            if (blocks[i] == null)
+                throw new IOException("Failed to compress block " + i);
+            output.write(blocks[i]);
+        }
+        final long checksum = adler.getValue();
+        output.write((int)(checksum >> 24));
+        output.write((int)(checksum >> 16));
+        output.write((int)(checksum >> 8));
+        output.write((int)checksum);
+    }
+
+    /**
+     * Compress one block into raw deflate data.
+     */
+    private byte[] deflateBlock(byte[] bytes, int length, int blockIndex, boolean isLast)
+    {
+        final int start = blockIndex * BLOCK_SIZE;
+        final int end = Math.min(length, start + BLOCK_SIZE);
+        final Deflater deflater = new Deflater(level, true);
+        try
+        {
+            if (start > 0)
+            {
+                final int dictionaryStart = Math.max(0, start - DICTIONARY_SIZE);
+                deflater.setDictionary(bytes, dictionaryStart, start - dictionaryStart);
+            }
+            deflater.setInput(bytes, start, end - start);
+
+            final ByteArrayOutputStream result = new ByteArrayOutputStream(end - start + 64);
+            final byte[] buffer = new byte[16 * 1024];
+            if (isLast)
+            {
+                deflater.finish();
+                while (!deflater.finished())
+                {
+                    final int count = deflater.deflate(buffer);
+                    result.write(buffer, 0, count);
+                }
+            }
+            else
+            {
+                // A sync flush ends the block on a byte boundary without
+                // marking it as the last block of the stream. The flush is
+                // complete when the deflater doesn't fill the buffer.
+                int count;
+                do
+                {
+                    count = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+                    result.write(buffer, 0, count);
+                }
+                while (count == buffer.length);
+            }
+            return result.toByteArray();
+        }
+        finally
+        {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Write the two byte ZLIB header for a 32K window and the compression
+     * level.
+     */
+    private void writeHeader(OutputStream output) throws IOException
+    {
+        final int cmf = 0x78;
+        final int levelFlags;
+        if (level == Deflater.DEFAULT_COMPRESSION || level == 6)
+            levelFlags = 2;
+        else if (level < 2)
+            levelFlags = 0;
+        else if (level < 6)
+            levelFlags = 1;
+        else
+            levelFlags = 3;
+        int flg = levelFlags << 6;
+        flg += (31 - ((cmf << 8) + flg) % 31) % 31;
+        output.write(cmf);
+        output.write(flg);
+    }
+}
@@ -31,6 +31,7 @@ import java.util.Collection;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.Set;
+import java.util.concurrent.Executor;
 import java.util.zip.Deflater;
 import java.util.zip.DeflaterOutputStream;
 
@@ -95,7 +96,8 @@ import com.google.common.primitives.Ints;
 /**
  * The implementation of SWF tag, type encoding logic. The SWF file body are
  * buffered in memory using {@code IOutputBitStream}. ZLIB compression is
- * optional. If enabled, compression is on-the-fly via a filtered output stream.
+ * optional. If enabled, compression is on-the-fly via a filtered output stream,
+ * or in blocks on several threads if a compression executor is set.
  */
 public class SWFWriter implements ISWFWriter
 {
@@ -271,6 +273,10 @@ public class SWFWriter implements ISWFWriter
     // Prevent writing out the same tag twice.
     private Set<ITag> writtenTags;
 
+    // Compresses ZLIB blocks on several threads if not null.
+    private Executor compressionExecutor;
+    private int compressionThreadCount;
+
     /**
      * Create a SWF writer.
      * 
@@ -302,6 +308,23 @@ public class SWFWriter implements ISWFWriter
         computeCharacterID();
     }
 
+    /**
+     * Compress ZLIB SWFs in blocks on the threads of an {@link Executor}. The
+     * blocks form a single ZLIB stream, so the SWF is as valid as one
+     * compressed on a single thread, and only slightly larger. LZMA SWFs are
+     * still compressed on a single thread, because the SWF format requires a
+     * single LZMA stream.
+     * 
+     * @param executor the executor, or null to compress on the calling thread
+     * @param threadCount the most threads to compress on at once, including
+     * the calling thread
+     */
+    public void setCompressionExecutor(Executor executor, int threadCount)
+    {
+        this.compressionExecutor = executor;
+        this.compressionThreadCount = threadCount;
+    }
+
     /**
      * Compute the character ID for all the {@code ICharacterTag}s.
      */
@@ -2646,6 +2669,15 @@ public class SWFWriter implements ISWFWriter
                 case ZLIB:
                 {
                     int compressionLevel = enableDebug ? Deflater.BEST_SPEED : Deflater.BEST_COMPRESSION;
+                    if (compressionExecutor != null && compressionThreadCount > 1
+                            && outputBuffer.size() > ParallelDeflater.BLOCK_SIZE)
+                    {
+                        ParallelDeflater parallelDeflater = new ParallelDeflater(compressionLevel,
+                                compressionExecutor, compressionThreadCount);
+                        parallelDeflater.deflate(outputBuffer.getBytes(), outputBuffer.size(), output);
+                        output.flush();
+                        break;
+                    }
                     Deflater deflater = new Deflater(compressionLevel);
                     DeflaterOutputStream deflaterStream = new DeflaterOutputStream(output, deflater);
                     deflaterStream.write(outputBuffer.getBytes(), 0, outputBuffer.size());
@@ -2668,6 +2700,11 @@ public class SWFWriter implements ISWFWriter
         {
             throw new RuntimeException(e);
         }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
     }
 
     /**
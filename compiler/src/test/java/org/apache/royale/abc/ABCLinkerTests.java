@@ -0,0 +1,151 @@
+/*
+ *
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.apache.royale.abc;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.royale.abc.instructionlist.InstructionList;
+import org.apache.royale.abc.semantics.MethodInfo;
+import org.apache.royale.abc.semantics.Name;
+import org.apache.royale.abc.semantics.Namespace;
+import org.apache.royale.abc.visitors.IScriptVisitor;
+import org.apache.royale.abc.visitors.ITraitVisitor;
+import org.apache.royale.abc.visitors.ITraitsVisitor;
+import org.apache.royale.compiler.internal.abc.FunctionGeneratorHelper;
+import org.apache.royale.compiler.problems.ICompilerProblem;
+import org.junit.Test;
+
+/**
+ * JUnit tests for {@link ABCLinker}.
+ */
+public class ABCLinkerTests
+{
+    private static final int INPUT_COUNT = 24;
+
+    /**
+     * Emits an ABC with a script that has a private slot, and a method with
+     * debug opcodes and unreachable code for the linker to strip.
+     */
+    private static byte[] createABC(int index) throws Exception
+    {
+        ABCEmitter emitter = new ABCEmitter();
+        emitter.visit(ABCConstants.VERSION_ABC_MAJOR_FP10, ABCConstants.VERSION_ABC_MINOR_FP10);
+
+        Namespace privateNs = new Namespace(ABCConstants.CONSTANT_PrivateNs, "Script" + index + ".as$0");
+        Namespace packageNs = new Namespace(ABCConstants.CONSTANT_PackageNs, "test");
+
+        InstructionList body = new InstructionList();
+        body.addInstruction(ABCConstants.OP_debugfile, "Script" + index + ".as");
+        body.addInstruction(ABCConstants.OP_debugline, 3);
+        body.addInstruction(ABCConstants.OP_getlocal0);
+        body.addInstruction(ABCConstants.OP_pop);
+        body.addInstruction(ABCConstants.OP_pushstring, "value" + index);
+        body.addInstruction(ABCConstants.OP_returnvalue);
+        body.addInstruction(ABCConstants.OP_pushstring, "unreachable" + index);
+        body.addInstruction(ABCConstants.OP_returnvalue);
+        MethodInfo method = new MethodInfo();
+        method.setMethodName("f" + index);
+        method.setReturnType(new Name("String"));
+        FunctionGeneratorHelper.generateFunction(emitter, method, body);
+
+        InstructionList init = new InstructionList();
+        init.addInstruction(ABCConstants.OP_getlocal0);
+        init.addInstruction(ABCConstants.OP_pushscope);
+        init.addInstruction(ABCConstants.OP_debugline, 1);
+        init.addInstruction(ABCConstants.OP_returnvoid);
+        MethodInfo scriptInit = new MethodInfo();
+        FunctionGeneratorHelper.generateFunction(emitter, scriptInit, init);
+
+        IScriptVisitor sv = emitter.visitScript();
+        sv.visit();
+        ITraitsVisitor traits = sv.visitTraits();
+        traits.visit();
+        ITraitVisitor slot = traits.visitSlotTrait(ABCConstants.TRAIT_Var, new Name(privateNs, "v" + index),
+                                                   ITraitsVisitor.RUNTIME_SLOT, new Name("int"), index);
+        slot.visitStart();
+        slot.visitEnd();
+        ITraitVisitor methodTrait = traits.visitMethodTrait(ABCConstants.TRAIT_Method, new Name(packageNs, "f" + index),
+                                                            0, method);
+        methodTrait.visitStart();
+        methodTrait.visitEnd();
+        traits.visitEnd();
+        sv.visitInit(scriptInit);
+        sv.visitEnd();
+
+        emitter.visitEnd();
+        return emitter.emit();
+    }
+
+    private static List<byte[]> createABCs() throws Exception
+    {
+        List<byte[]> result = new ArrayList<byte[]>();
+        for (int i = 0; i < INPUT_COUNT; i++)
+            result.add(createABC(i));
+        return result;
+    }
+
+    private static ABCLinker.ABCLinkerSettings createSettings(List<ICompilerProblem> problems)
+    {
+        ABCLinker.ABCLinkerSettings settings = new ABCLinker.ABCLinkerSettings();
+        settings.setOptimize(true);
+        settings.setStripDebugOpcodes(true);
+        settings.setRemoveDeadCode(true);
+        settings.setProblemsCollection(problems);
+        return settings;
+    }
+
+    @Test
+    public void testParallelLinkMatchesSerialLink() throws Exception
+    {
+        List<byte[]> inputs = createABCs();
+
+        List<ICompilerProblem> serialProblems = new ArrayList<ICompilerProblem>();
+        byte[] serial = ABCLinker.linkABC(inputs, ABCConstants.VERSION_ABC_MAJOR_FP10,
+                ABCConstants.VERSION_ABC_MINOR_FP10, createSettings(serialProblems));
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try
+        {
+            for (int threadCount : new int[] {0, 1, 2, 4, INPUT_COUNT * 2})
+            {
+                List<ICompilerProblem> parallelProblems = new ArrayList<ICompilerProblem>();
+                ABCLinker.ABCLinkerSettings settings = createSettings(parallelProblems);
+                settings.setExecutor(executor);
+                settings.setThreadCount(threadCount);
+                byte[] parallel = ABCLinker.linkABC(inputs, ABCConstants.VERSION_ABC_MAJOR_FP10,
+                        ABCConstants.VERSION_ABC_MINOR_FP10, settings);
+                assertArrayEquals(serial, parallel);
+                assertThat("problems with " + threadCount + " threads",
+                        parallelProblems.size(), is(serialProblems.size()));
+            }
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+}
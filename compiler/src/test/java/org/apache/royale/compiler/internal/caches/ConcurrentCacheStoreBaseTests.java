@@ -0,0 +1,146 @@
+/*
+ *
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.apache.royale.compiler.internal.caches;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class ConcurrentCacheStoreBaseTests
+{
+    private static final class Key extends CacheStoreKeyBase
+    {
+        Key(String name)
+        {
+            this.name = name;
+        }
+
+        private final String name;
+
+        @Override
+        public String generateKey()
+        {
+            return name;
+        }
+    }
+
+    private static class TestCache extends ConcurrentCacheStoreBase<String>
+    {
+        TestCache(ICacheStorePolicy<String> policy)
+        {
+            super(policy);
+        }
+
+        final AtomicInteger created = new AtomicInteger();
+
+        @Override
+        protected String createEntryValue(CacheStoreKeyBase key)
+        {
+            created.incrementAndGet();
+            return key.generateKey() + "-value";
+        }
+
+        @Override
+        protected long getEntryWeight(CacheStoreKeyBase key, String value)
+        {
+            return 10;
+        }
+    }
+
+    @Test
+    public void testWeightedLRUEvictsLeastRecentlyUsed()
+    {
+        final TestCache cache = new TestCache(new WeightedLRUCacheStorePolicy<String>(25));
+        cache.get(new Key("a"));
+        cache.get(new Key("b"));
+        // "a" is now more recently used than "b"
+        cache.get(new Key("a"));
+        cache.get(new Key("c"));
+
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictionCount());
+        assertEquals(3, cache.getMissCount());
+        assertEquals(1, cache.getHitCount());
+
+        cache.get(new Key("a"));
+        assertEquals(3, cache.created.get());
+        cache.get(new Key("b"));
+        assertEquals(4, cache.created.get());
+    }
+
+    @Test
+    public void testConcurrentGetCreatesValueOnce() throws InterruptedException
+    {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final TestCache cache = new TestCache(new SoftReferenceCacheStorePolicy<String>())
+        {
+            @Override
+            protected String createEntryValue(CacheStoreKeyBase key)
+            {
+                started.countDown();
+                try
+                {
+                    release.await();
+                }
+                catch (InterruptedException e)
+                {
+                    throw new RuntimeException(e);
+                }
+                return super.createEntryValue(key);
+            }
+        };
+
+        final String[] results = new String[2];
+        final Thread first = new Thread()
+        {
+            @Override
+            public void run()
+            {
+                results[0] = cache.get(new Key("a"));
+            }
+        };
+        final Thread second = new Thread()
+        {
+            @Override
+            public void run()
+            {
+                results[1] = cache.get(new Key("a"));
+            }
+        };
+        first.start();
+        started.await();
+        second.start();
+        // give the second thread a chance to find the pending entry
+        Thread.sleep(100);
+        release.countDown();
+        first.join();
+        second.join();
+
+        assertEquals(1, cache.created.get());
+        assertSame(results[0], results[1]);
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.getHitCount());
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ *
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.apache.royale.compiler.internal.caches;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.royale.compiler.problems.ICompilerProblem;
+import org.apache.royale.swf.ITagContainer;
+import org.apache.royale.swf.tags.DoABCTag;
+import org.apache.royale.swf.tags.ITag;
+import org.junit.Test;
+
+import com.google.common.io.Files;
+
+public class PersistentABCCacheTests
+{
+    private static ITagContainer createTags(final DoABCTag... abcTags)
+    {
+        final List<ITag> tags = new ArrayList<ITag>();
+        Collections.addAll(tags, abcTags);
+        return new ITagContainer()
+        {
+            @Override
+            public Iterator<ITag> iterator()
+            {
+                return tags.iterator();
+            }
+
+            @Override
+            public Collection<ICompilerProblem> getProblems()
+            {
+                return Collections.emptyList();
+            }
+        };
+    }
+
+    private static File createSWC(File directory, String name, byte[] contents) throws IOException
+    {
+        final File swc = new File(directory, name);
+        final FileOutputStream out = new FileOutputStream(swc);
+        try
+        {
+            out.write(contents);
+        }
+        finally
+        {
+            out.close();
+        }
+        return swc;
+    }
+
+    @Test
+    public void testEntriesAreSharedBetweenInstances() throws IOException
+    {
+        final File tempDir = Files.createTempDir();
+        final File cacheDir = new File(tempDir, "cache");
+        final File swc = createSWC(tempDir, "a.swc", new byte[] {1, 2, 3});
+
+        final PersistentABCCache first = new PersistentABCCache(cacheDir);
+        assertNull(first.getABC(swc, "library.swf", "A"));
+        first.put(swc, "library.swf", createTags(
+                new DoABCTag(1, "A", new byte[] {10, 11}),
+                new DoABCTag(1, "B", new byte[] {20}),
+                new DoABCTag(1, "A", new byte[] {99})));
+        assertArrayEquals(new byte[] {10, 11}, first.getABC(swc, "library.swf", "A"));
+
+        // a new instance, like a new compiler process, reads the entry from disk
+        final PersistentABCCache second = new PersistentABCCache(cacheDir);
+        assertArrayEquals(new byte[] {10, 11}, second.getABC(swc, "library.swf", "A"));
+        assertArrayEquals(new byte[] {20}, second.getABC(swc, "library.swf", "B"));
+        assertNull(second.getABC(swc, "other.swf", "A"));
+        assertEquals(2, second.getHitCount());
+        assertEquals(1, second.getMissCount());
+
+        // a copy of the same SWC has the same digest
+        final File copy = createSWC(tempDir, "copy.swc", new byte[] {1, 2, 3});
+        assertArrayEquals(new byte[] {20}, second.getABC(copy, "library.swf", "B"));
+    }
+
+    @Test
+    public void testChangedSWCMisses() throws IOException
+    {
+        final File tempDir = Files.createTempDir();
+        final File cacheDir = new File(tempDir, "cache");
+        final File swc = createSWC(tempDir, "a.swc", new byte[] {1, 2, 3});
+
+        final PersistentABCCache cache = new PersistentABCCache(cacheDir);
+        cache.put(swc, "library.swf", createTags(new DoABCTag(1, "A", new byte[] {10})));
+
+        createSWC(tempDir, "a.swc", new byte[] {1, 2, 3, 4});
+        assertNull(new PersistentABCCache(cacheDir).getABC(swc, "library.swf", "A"));
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ *
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.apache.royale.compiler.internal.caches;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.royale.compiler.common.MutablePrefixMap;
+import org.apache.royale.compiler.internal.parsing.mxml.MXMLToken;
+import org.apache.royale.compiler.parsing.MXMLTokenTypes;
+import org.junit.Test;
+
+import com.google.common.io.Files;
+
+public class PersistentMXMLTokenCacheTests
+{
+    private static final String PATH = "/src/Main.mxml";
+    private static final String TEXT = "<s:Application xmlns:s=\"library://ns.adobe.com/flex/spark\"/>";
+
+    private static List<MXMLToken> createTokens()
+    {
+        final List<MXMLToken> tokens = new ArrayList<MXMLToken>();
+        final MXMLToken open = new MXMLToken(MXMLTokenTypes.TOKEN_OPEN_TAG_START, 0, 14, 0, 0, "<s:Application");
+        open.setEndLine(0);
+        open.setEndColumn(14);
+        open.setSourcePath(PATH);
+        tokens.add(open);
+        // a token whose offsets were adjusted after tokenizing
+        final MXMLToken name = new MXMLToken(MXMLTokenTypes.TOKEN_NAME, 15, 22, 0, 15, "xmlns:s");
+        name.setStart(115);
+        name.setEnd(122);
+        name.setSourcePath("/src/Other.mxml");
+        tokens.add(name);
+        tokens.add(new MXMLToken(MXMLTokenTypes.TOKEN_TAG_END, 60, 62, 0, 60, null));
+        return tokens;
+    }
+
+    @Test
+    public void testEntriesAreSharedBetweenInstances()
+    {
+        final File cacheDir = new File(Files.createTempDir(), "cache");
+        final byte[] digest = PersistentMXMLTokenCache.digest(TEXT);
+
+        final PersistentMXMLTokenCache first = new PersistentMXMLTokenCache(cacheDir);
+        assertNull(first.get(PATH, digest));
+        final MutablePrefixMap prefixMap = new MutablePrefixMap();
+        prefixMap.add("s", "library://ns.adobe.com/flex/spark");
+        first.put(PATH, digest, createTokens(), prefixMap);
+
+        // a new instance, like a new compiler process, reads the entry from disk
+        final PersistentMXMLTokenCache second = new PersistentMXMLTokenCache(cacheDir);
+        final PersistentMXMLTokenCache.Entry entry = second.get(PATH, digest);
+        assertNotNull(entry);
+        assertEquals(1, second.getHitCount());
+        assertEquals(0, second.getMissCount());
+        assertEquals("library://ns.adobe.com/flex/spark", entry.getPrefixMap().getNamespaceForPrefix("s"));
+
+        final List<MXMLToken> expected = createTokens();
+        final List<MXMLToken> actual = entry.getTokens();
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++)
+        {
+            final MXMLToken e = expected.get(i);
+            final MXMLToken a = actual.get(i);
+            assertEquals(e.getType(), a.getType());
+            assertEquals(e.getStart(), a.getStart());
+            assertEquals(e.getEnd(), a.getEnd());
+            assertEquals(e.getLocalStart(), a.getLocalStart());
+            assertEquals(e.getLocalEnd(), a.getLocalEnd());
+            assertEquals(e.getLine(), a.getLine());
+            assertEquals(e.getColumn(), a.getColumn());
+            assertEquals(e.getEndLine(), a.getEndLine());
+            assertEquals(e.getEndColumn(), a.getEndColumn());
+            assertEquals(e.getSourcePath(), a.getSourcePath());
+            assertEquals(e.getText(), a.getText());
+        }
+    }
+
+    @Test
+    public void testChangedTextMisses()
+    {
+        final File cacheDir = new File(Files.createTempDir(), "cache");
+        final PersistentMXMLTokenCache cache = new PersistentMXMLTokenCache(cacheDir);
+        cache.put(PATH, PersistentMXMLTokenCache.digest(TEXT), createTokens(), null);
+
+        assertNull(cache.get(PATH, PersistentMXMLTokenCache.digest(TEXT + " ")));
+        assertNull(cache.get("/src/Other.mxml", PersistentMXMLTokenCache.digest(TEXT)));
+
+        final PersistentMXMLTokenCache.Entry entry = cache.get(PATH, PersistentMXMLTokenCache.digest(TEXT));
+        assertNotNull(entry);
+        assertNull(entry.getPrefixMap());
+    }
+}
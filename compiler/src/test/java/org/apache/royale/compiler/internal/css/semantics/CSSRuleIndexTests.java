@@ -0,0 +1,104 @@
+/*
+ *
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.apache.royale.compiler.internal.css.semantics;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.royale.compiler.css.ICSSDocument;
+import org.apache.royale.compiler.css.ICSSRule;
+import org.apache.royale.compiler.css.ICSSSelector;
+import org.apache.royale.compiler.internal.css.CSSBaseTests;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * JUnit tests for {@link CSSRuleIndex}.
+ */
+public class CSSRuleIndexTests extends CSSBaseTests {
+
+	private static final String EOL = "\n\t\t";
+
+	private static final String CODE =
+		    " custom|A { a: 1; } " + EOL +
+		    " .highlight { b: 2; } " + EOL +
+		    " custom|B, custom|C { c: 3; } " + EOL +
+		    " .opt_test-D_style { d: 4; } " + EOL +
+		    " custom|A custom|E { e: 5; } ";
+
+	/**
+	 * Resolve each type selector to "test." and its element name, instead of
+	 * looking it up in a manifest.
+	 */
+	private ImmutableMap<ICSSSelector, String> resolveSelectors(ICSSDocument document)
+	{
+		final ImmutableMap.Builder<ICSSSelector, String> builder = new ImmutableMap.Builder<ICSSSelector, String>();
+		for (final ICSSSelector selector : CSSSemanticAnalyzer.getAllSelectors(document, project))
+		{
+			if (!CSSSemanticAnalyzer.isWildcardSelector(selector))
+				builder.put(selector, "test." + selector.getElementName());
+		}
+		return builder.build();
+	}
+
+	private List<String> getMatchedProperties(String... qnames)
+	{
+		final ICSSDocument document = getCSSNodeBase(CODE);
+		final CSSRuleIndex index = new CSSRuleIndex(project, document, resolveSelectors(document));
+		final ImmutableSet<ICSSRule> rules = index.getMatchedRules(Arrays.asList(qnames));
+		final List<String> properties = new ArrayList<String>();
+		for (final ICSSRule rule : rules)
+		{
+			properties.add(rule.getProperties().get(0).getName());
+		}
+		return properties;
+	}
+
+	@Test
+	public void CSSRuleIndexTests_wildcard_rules_always_match()
+	{
+		assertThat("matched", getMatchedProperties(), is(Arrays.asList("b")));
+	}
+
+	@Test
+	public void CSSRuleIndexTests_type_selectors()
+	{
+		assertThat("matched", getMatchedProperties("test.A"), is(Arrays.asList("a", "b")));
+		assertThat("matched", getMatchedProperties("test.C"), is(Arrays.asList("b", "c")));
+	}
+
+	@Test
+	public void CSSRuleIndexTests_optional_class_selector()
+	{
+		assertThat("matched", getMatchedProperties("test.D"), is(Arrays.asList("b", "d")));
+	}
+
+	@Test
+	public void CSSRuleIndexTests_subject_of_descendant_selector()
+	{
+		assertThat("matched", getMatchedProperties("test.E", "test.B", "test.A"), is(Arrays.asList("a", "b", "c", "e")));
+	}
+}
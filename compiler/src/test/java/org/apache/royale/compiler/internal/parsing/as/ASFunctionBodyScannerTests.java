@@ -0,0 +1,137 @@
+/*
+ *
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.apache.royale.compiler.internal.parsing.as;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+
+import org.junit.Test;
+
+public class ASFunctionBodyScannerTests
+{
+    /**
+     * @param source Source that starts with "{".
+     * @return The index of the "}" that the scanner found, or
+     * {@link ASFunctionBodyScanner#NOT_FOUND}.
+     */
+    private static int findBlockClose(final String source) throws IOException
+    {
+        final ASFunctionBodyScanner scanner = new ASFunctionBodyScanner()
+        {
+            @Override
+            protected int charAt(int index)
+            {
+                return index < source.length() ? source.charAt(index) : EOF;
+            }
+        };
+        return scanner.findBlockClose(1);
+    }
+
+    private static void assertSkipped(final String body) throws IOException
+    {
+        final String source = "{" + body + "} trailing }";
+        assertEquals(body, body.length() + 1, findBlockClose(source));
+    }
+
+    private static void assertNotSkipped(final String body) throws IOException
+    {
+        assertEquals(body, ASFunctionBodyScanner.NOT_FOUND, findBlockClose("{" + body + "} trailing }"));
+    }
+
+    @Test
+    public void testNestedBlocks() throws IOException
+    {
+        assertSkipped("if (a) { b(); } else { for (;;) { c(); } }");
+        assertSkipped("var o:Object = {a: {b: 1}};");
+    }
+
+    @Test
+    public void testStrings() throws IOException
+    {
+        assertSkipped("trace(\"}\");");
+        assertSkipped("trace('{');");
+        assertSkipped("trace(\"\\\"}\");");
+        assertSkipped("trace('\\'{', \"'}\");");
+        assertSkipped("trace(\"a\\\nb}\");");
+    }
+
+    @Test
+    public void testComments() throws IOException
+    {
+        assertSkipped("a(); // }\n");
+        assertSkipped("a(); /* } */");
+        assertSkipped("/** } */ a();");
+        assertSkipped("/**/ a();");
+        assertSkipped("a(); /*/ } */");
+    }
+
+    @Test
+    public void testRegularExpressions() throws IOException
+    {
+        assertSkipped("var r:RegExp = /}/g;");
+        assertSkipped("return /[}\\/]/;");
+        assertSkipped("s.replace(/\\}/, '');");
+        // a division, so the string that follows is a real string
+        assertSkipped("var x:Number = a / b; trace('/}');");
+        assertSkipped("x = (a) / 2 + b / 3; y = '}';");
+    }
+
+    @Test
+    public void testVectors() throws IOException
+    {
+        assertSkipped("var v:Vector.<Vector.<int>> = new <Vector.<int>>[];");
+        assertSkipped("var v:Vector.<*> = new Vector.<*>(); return v;");
+    }
+
+    @Test
+    public void testOperators() throws IOException
+    {
+        assertSkipped("a >>>= 1; b <<= 2; c = d < e ? f >= g : h <= i; j ||= k &&= l;");
+        assertSkipped("var a:* = b; c *= 2; d::e = f..g; h(...rest);");
+    }
+
+    @Test
+    public void testEmptyBodyIsNotSkipped() throws IOException
+    {
+        assertNotSkipped("");
+        assertNotSkipped(" // comment\n /* comment */ ");
+    }
+
+    @Test
+    public void testUnsupportedContentIsNotSkipped() throws IOException
+    {
+        // E4X literals
+        assertNotSkipped("var x:XML = <a>{b}</a>;");
+        assertNotSkipped("return <></>;");
+        // include directives change the offsets of the following tokens
+        assertNotSkipped("include \"a.as\";");
+        // things that the tokenizer reports as problems
+        assertNotSkipped("trace(\"a\nb\");");
+        assertNotSkipped("a(); /* }");
+        assertNotSkipped("a(); #");
+    }
+
+    @Test
+    public void testUnclosedBodyIsNotSkipped() throws IOException
+    {
+        assertEquals(ASFunctionBodyScanner.NOT_FOUND, findBlockClose("{ a(); { b(); }"));
+    }
+}
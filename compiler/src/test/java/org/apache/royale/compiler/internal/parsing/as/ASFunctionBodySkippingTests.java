@@ -0,0 +1,211 @@
+/*
+ *
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.apache.royale.compiler.internal.parsing.as;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+
+import org.apache.royale.compiler.filespecs.FileSpecification;
+import org.apache.royale.compiler.internal.semantics.PostProcessStep;
+import org.apache.royale.compiler.internal.tree.as.FileNode;
+import org.apache.royale.compiler.internal.tree.as.FunctionNode;
+import org.apache.royale.compiler.internal.workspaces.Workspace;
+import org.apache.royale.compiler.problems.ICompilerProblem;
+import org.apache.royale.compiler.tree.as.IASNode;
+import org.junit.Test;
+
+/**
+ * Checks that skipping deferred function bodies by scanning their characters
+ * builds the same syntax trees as skipping their tokens.
+ */
+public class ASFunctionBodySkippingTests
+{
+    private static final String[] CORPUS = new String[]
+    {
+        "package a.b",
+        "{",
+        "    public class Corpus",
+        "    {",
+        "        private static const PATTERN:RegExp = /\\{[^}]*\\}/g;",
+        "",
+        "        public function Corpus()",
+        "        {",
+        "            var s:String = \"{ not a block }\";",
+        "            var t:String = '}}}';",
+        "            if (s.length > 0) { t += \"{\"; }",
+        "        }",
+        "",
+        "        public function regex(value:String):String",
+        "        {",
+        "            var r:RegExp = /}\\/{/gi;",
+        "            var half:Number = value.length / 2; var q:String = \"/}\";",
+        "            return value.replace(/[{}]/g, \"\") + q;",
+        "        }",
+        "",
+        "        public function e4x():XML",
+        "        {",
+        "            var x:XML = <root attr=\"{'}'}\"><child>{1 + 2}</child></root>;",
+        "            return x;",
+        "        }",
+        "",
+        "        protected function nested(a:int):Function",
+        "        {",
+        "            function local():int { return a; }",
+        "            var f:Function = function():void { trace(\"}\"); };",
+        "            /* } */ // {",
+        "            return f;",
+        "        }",
+        "",
+        "        public function get vector():Vector.<Vector.<String>>",
+        "        {",
+        "            return new <Vector.<String>>[new <String>[\"}\"]];",
+        "        }",
+        "",
+        "        public function afterE4X():Object",
+        "        {",
+        "            return {a: {b: \"}\"}, c: '{'};",
+        "        }",
+        "    }",
+        "}",
+        "function helper():void",
+        "{",
+        "    trace(\"multi\\",
+        "line }\");",
+        "}"
+    };
+
+    @Test
+    public void testLF() throws IOException
+    {
+        assertSameTrees(join("\n"));
+    }
+
+    @Test
+    public void testCRLF() throws IOException
+    {
+        assertSameTrees(join("\r\n"));
+    }
+
+    private static String join(String lineSeparator)
+    {
+        StringBuilder result = new StringBuilder();
+        for (String line : CORPUS)
+            result.append(line).append(lineSeparator);
+        return result.toString();
+    }
+
+    private static void assertSameTrees(String source) throws IOException
+    {
+        File file = File.createTempFile("ASFunctionBodySkippingTests", ".as");
+        try
+        {
+            Writer out = new OutputStreamWriter(Files.newOutputStream(file.toPath()), StandardCharsets.UTF_8);
+            out.write(source);
+            out.close();
+
+            String scanned;
+            String tokenized;
+            boolean oldScanBlockContents = StreamingTokenBuffer.scanBlockContents;
+            try
+            {
+                StreamingTokenBuffer.scanBlockContents = true;
+                scanned = parse(file);
+                StreamingTokenBuffer.scanBlockContents = false;
+                tokenized = parse(file);
+            }
+            finally
+            {
+                StreamingTokenBuffer.scanBlockContents = oldScanBlockContents;
+            }
+            assertTrue(scanned, scanned.contains("deferred"));
+            assertEquals(tokenized, scanned);
+        }
+        finally
+        {
+            file.delete();
+        }
+    }
+
+    /**
+     * Parses a file with deferred function bodies, then parses the function
+     * bodies.
+     *
+     * @return The offsets and positions of the nodes of both trees.
+     */
+    private static String parse(File file)
+    {
+        Workspace workspace = new Workspace();
+        try
+        {
+            FileNode fileNode = ASParser.parseFile(new FileSpecification(file.getPath()), workspace,
+                    EnumSet.of(PostProcessStep.CALCULATE_OFFSETS), null, true, true, false,
+                    Collections.<String> emptyList(), DeferFunctionBody.ENABLED, null, null);
+            fileNode.runPostProcess(EnumSet.of(PostProcessStep.POPULATE_SCOPE));
+
+            StringBuilder result = new StringBuilder();
+            dump(fileNode, "", result);
+            List<ICompilerProblem> problems = new ArrayList<ICompilerProblem>();
+            if (fileNode.getProblems() != null)
+                problems.addAll(fileNode.getProblems());
+            parseFunctionBodies(fileNode, problems);
+            result.append("--\n");
+            dump(fileNode, "", result);
+            for (ICompilerProblem problem : problems)
+                result.append(problem.getClass().getSimpleName()).append(' ').append(problem.getStart()).append('\n');
+            return result.toString();
+        }
+        finally
+        {
+            workspace.close();
+        }
+    }
+
+    private static void parseFunctionBodies(IASNode node, List<ICompilerProblem> problems)
+    {
+        if (node instanceof FunctionNode)
+            ((FunctionNode)node).parseFunctionBody(problems);
+        for (int i = 0; i < node.getChildCount(); i++)
+            parseFunctionBodies(node.getChild(i), problems);
+    }
+
+    private static void dump(IASNode node, String indent, StringBuilder result)
+    {
+        result.append(indent).append(node.getNodeID())
+              .append(' ').append(node.getAbsoluteStart()).append('-').append(node.getAbsoluteEnd())
+              .append(' ').append(node.getLine()).append(':').append(node.getColumn())
+              .append('-').append(node.getEndLine()).append(':').append(node.getEndColumn());
+        if (node instanceof FunctionNode && !((FunctionNode)node).hasBeenParsed())
+            result.append(" deferred");
+        result.append('\n');
+        for (int i = 0; i < node.getChildCount(); i++)
+            dump(node.getChild(i), indent + "  ", result);
+    }
+}
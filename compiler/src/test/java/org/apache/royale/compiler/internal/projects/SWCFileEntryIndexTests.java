@@ -0,0 +1,169 @@
+/*
+ *
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.apache.royale.compiler.internal.projects;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.royale.compiler.internal.workspaces.Workspace;
+import org.apache.royale.swc.ISWC;
+import org.apache.royale.swc.ISWCFileEntry;
+import org.apache.royale.swc.SWC;
+import org.apache.royale.utils.TestAdapterFactory;
+import org.junit.Test;
+
+/**
+ * JUnit tests for {@link SWCFileEntryIndex}.
+ */
+public class SWCFileEntryIndexTests
+{
+    private static SWC newSWC(String name, String... paths)
+    {
+        SWC swc = new SWC(new File(name + ".swc"));
+        for (String path : paths)
+            swc.addFile(path, 0, new byte[0]);
+        return swc;
+    }
+
+    private static SWCFileEntryIndex newIndex(ISWC... swcs)
+    {
+        return new SWCFileEntryIndex(Arrays.asList(swcs));
+    }
+
+    @Test
+    public void testFirstSWCWins()
+    {
+        SWC first = newSWC("first", "defaults.css", "js/out/a/Foo.js");
+        SWC second = newSWC("second", "defaults.css", "js/out/a/Foo.js", "js/out/a/Bar.js");
+        SWCFileEntryIndex index = newIndex(first, second);
+
+        assertThat(index.getFile("defaults.css") == first.getFile("defaults.css"), is(true));
+        assertThat(index.getSWC(index.getFile("defaults.css")) == first, is(true));
+        assertThat(index.getClassFile("a.Foo", ".js") == first.getFile("js/out/a/Foo.js"), is(true));
+        assertThat(index.getSWC(index.getClassFile("a.Foo", ".js")) == first, is(true));
+
+        // A file that is only in a later SWC is found there.
+        assertThat(index.getClassFile("a.Bar", ".js") == second.getFile("js/out/a/Bar.js"), is(true));
+        assertThat(index.getSWC(index.getClassFile("a.Bar", ".js")) == second, is(true));
+
+        assertThat(index.getFile("missing.css") == null, is(true));
+        assertThat(index.getClassFile("a.Missing", ".js") == null, is(true));
+    }
+
+    @Test
+    public void testFirstSWCWinsOverJSSrcOfLaterSWC()
+    {
+        SWC first = newSWC("first", "js/out/a/Foo.js");
+        SWC second = newSWC("second", "js/src/a/Foo.js");
+        SWCFileEntryIndex index = newIndex(first, second);
+
+        assertThat(index.getClassFile("a.Foo", ".js") == first.getFile("js/out/a/Foo.js"), is(true));
+    }
+
+    @Test
+    public void testJSSrcPreferredOverJSOut()
+    {
+        SWC swc = newSWC("lib", "js/out/a/Foo.js", "js/src/a/Foo.js", "js/out/a/Foo.js.map");
+        SWCFileEntryIndex index = newIndex(swc);
+
+        assertThat(index.getClassFile("a.Foo", ".js") == swc.getFile("js/src/a/Foo.js"), is(true));
+        assertThat(index.getClassFile("a.Foo", ".js.map") == swc.getFile("js/out/a/Foo.js.map"), is(true));
+
+        // The order of the entries in the SWC doesn't matter.
+        SWC reversed = newSWC("reversed", "js/src/a/Foo.js", "js/out/a/Foo.js");
+        assertThat(newIndex(reversed).getClassFile("a.Foo", ".js") == reversed.getFile("js/src/a/Foo.js"), is(true));
+    }
+
+    @Test
+    public void testBackslashEntryNames()
+    {
+        SWC swc = newSWC("lib", "js\\src\\a\\b\\Foo.js", "js\\out\\a\\Bar.js");
+        SWCFileEntryIndex index = newIndex(swc);
+
+        assertThat(index.getClassFile("a.b.Foo", ".js") == swc.getFile("js\\src\\a\\b\\Foo.js"), is(true));
+        assertThat(index.getClassFile("a.Bar", ".js") == swc.getFile("js\\out\\a\\Bar.js"), is(true));
+        assertThat(index.getSWC(index.getClassFile("a.Bar", ".js")) == swc, is(true));
+        // Files are found by the path they have in the SWC.
+        assertThat(index.getFile("js\\out\\a\\Bar.js") == swc.getFile("js\\out\\a\\Bar.js"), is(true));
+    }
+
+    @Test
+    public void testIsIndexOf()
+    {
+        SWC first = newSWC("first");
+        SWC second = newSWC("second");
+        SWCFileEntryIndex index = newIndex(first, second);
+
+        assertThat(index.isIndexOf(Arrays.<ISWC>asList(first, second)), is(true));
+        assertThat(index.isIndexOf(Arrays.<ISWC>asList(second, first)), is(false));
+        assertThat(index.isIndexOf(Arrays.<ISWC>asList(first)), is(false));
+        assertThat(index.isIndexOf(Arrays.<ISWC>asList(first, newSWC("second"))), is(false));
+    }
+
+    @Test
+    public void testProjectIndexRebuiltWhenLibraryPathChanges()
+    {
+        Workspace workspace = new Workspace();
+        try
+        {
+            RoyaleProject project = new RoyaleProject(workspace);
+            List<File> libraries = TestAdapterFactory.getTestAdapter().getLibraries(false);
+            project.setLibraries(libraries);
+
+            SWCFileEntryIndex index = project.getLibraryFileEntryIndex();
+            assertThat(project.getLibraryFileEntryIndex() == index, is(true));
+
+            // The SWC objects are the same, but a file in the SWC may have
+            // changed, so the index is rebuilt.
+            ISWC swc = workspace.getSWCManager().get(libraries.get(0));
+            project.invalidateLibrary(swc);
+            SWCFileEntryIndex invalidatedIndex = project.getLibraryFileEntryIndex();
+            assertThat(invalidatedIndex != index, is(true));
+            assertThat(project.getLibraryFileEntryIndex() == invalidatedIndex, is(true));
+
+            String path = swc.getFiles().isEmpty() ? null : swc.getFiles().keySet().iterator().next();
+            if (path != null)
+                assertThat(invalidatedIndex.getFile(path) != null, is(true));
+
+            project.setLibraries(Collections.<File>emptyList());
+            SWCFileEntryIndex emptyIndex = project.getLibraryFileEntryIndex();
+            assertThat(emptyIndex != invalidatedIndex, is(true));
+            assertThat(emptyIndex.isIndexOf(new ArrayList<ISWC>()), is(true));
+            if (path != null)
+                assertThat(emptyIndex.getFile(path) == null, is(true));
+
+            project.setLibraries(libraries);
+            SWCFileEntryIndex restoredIndex = project.getLibraryFileEntryIndex();
+            assertThat(restoredIndex != emptyIndex, is(true));
+            if (path != null)
+                assertThat(restoredIndex.getFile(path) != null, is(true));
+        }
+        finally
+        {
+            workspace.close();
+        }
+    }
+}
@@ -0,0 +1,334 @@
+/*
+ *
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.apache.royale.compiler.internal.scopes;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.royale.compiler.definitions.IDefinition;
+import org.apache.royale.compiler.internal.definitions.VariableDefinition;
+import org.apache.royale.compiler.internal.projects.DefinitionPriority;
+import org.apache.royale.compiler.internal.projects.DefinitionPriority.BasePriority;
+import org.apache.royale.compiler.internal.projects.RoyaleProject;
+import org.apache.royale.compiler.internal.scopes.ASProjectScope.DefinitionPromise;
+import org.apache.royale.compiler.internal.workspaces.Workspace;
+import org.apache.royale.compiler.scopes.IDefinitionSet;
+import org.apache.royale.compiler.units.ICompilationUnit;
+import org.apache.royale.compiler.units.requests.IFileScopeRequestResult;
+import org.apache.royale.compiler.units.requests.IRequest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * JUnit tests for the changes that {@link ASProjectScope} makes to its
+ * {@link ConcurrentDefinitionStore}, which lookups read without locking.
+ * <p>
+ * The definitions are the definition promises of stub compilation units, so
+ * the tests need no source files.
+ */
+public class ASProjectScopeTests
+{
+    /**
+     * The parts of a compilation unit that the project scope uses for
+     * definition promises and shadowing.
+     */
+    private static final class StubCompilationUnit implements InvocationHandler
+    {
+        StubCompilationUnit(BasePriority basePriority, String qname)
+        {
+            this.priority = new DefinitionPriority(basePriority, 0);
+            this.compilationUnit = (ICompilationUnit)Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[] {ICompilationUnit.class}, this);
+            this.promise = ASProjectScope.createDefinitionPromise(qname, compilationUnit);
+            this.actualDefinition = new VariableDefinition(promise.getBaseName());
+        }
+
+        final DefinitionPriority priority;
+        final ICompilationUnit compilationUnit;
+        final DefinitionPromise promise;
+        final IDefinition actualDefinition;
+
+        /**
+         * Runs while the promise is being resolved, outside the lock of the
+         * project scope.
+         */
+        Runnable onResolve;
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args)
+        {
+            String name = method.getName();
+            if (name.equals("getDefinitionPriority"))
+                return priority;
+            if (name.equals("getDefinitionPromises"))
+                return Collections.<IDefinition>singletonList(promise);
+            if (name.equals("getFileScopeRequest"))
+                return newFileScopeRequest();
+            if (name.equals("hashCode"))
+                return System.identityHashCode(proxy);
+            if (name.equals("equals"))
+                return proxy == args[0];
+            if (name.equals("toString"))
+                return "StubCompilationUnit " + promise.getQualifiedName();
+            throw new UnsupportedOperationException(name);
+        }
+
+        private IRequest<IFileScopeRequestResult, ICompilationUnit> newFileScopeRequest()
+        {
+            return new IRequest<IFileScopeRequestResult, ICompilationUnit>()
+            {
+                @Override
+                public IFileScopeRequestResult get()
+                {
+                    if (onResolve != null)
+                        onResolve.run();
+                    return (IFileScopeRequestResult)Proxy.newProxyInstance(getClass().getClassLoader(),
+                            new Class<?>[] {IFileScopeRequestResult.class}, new InvocationHandler()
+                    {
+                        @Override
+                        public Object invoke(Object proxy, Method method, Object[] args)
+                        {
+                            if (method.getName().equals("getMainDefinition"))
+                                return actualDefinition;
+                            throw new UnsupportedOperationException(method.getName());
+                        }
+                    });
+                }
+
+                @Override
+                public boolean isDone()
+                {
+                    return true;
+                }
+
+                @Override
+                public long getTimeStamp()
+                {
+                    return 0;
+                }
+
+                @Override
+                public ICompilationUnit getRequestee()
+                {
+                    return compilationUnit;
+                }
+            };
+        }
+    }
+
+    private Workspace workspace;
+    private ASProjectScope scope;
+
+    @Before
+    public void setUp()
+    {
+        workspace = new Workspace();
+        scope = new RoyaleProject(workspace).getScope();
+    }
+
+    @After
+    public void tearDown()
+    {
+        workspace.close();
+    }
+
+    /**
+     * @return The definitions of the set, without resolving promises.
+     */
+    private List<IDefinition> getDefinitions(String baseName)
+    {
+        List<IDefinition> list = new ArrayList<IDefinition>();
+        IDefinitionSet definitionSet = scope.definitionStore.getDefinitionSetByName(baseName);
+        if (definitionSet != null)
+        {
+            int n = definitionSet.getSize();
+            for (int i = 0; i < n; i++)
+                list.add(definitionSet.getDefinition(i));
+        }
+        return list;
+    }
+
+    @Test
+    public void testShadowingReplacesVisibleDefinitionInPlace()
+    {
+        StubCompilationUnit library = new StubCompilationUnit(BasePriority.LIBRARY_PATH, "a.Foo");
+        StubCompilationUnit other = new StubCompilationUnit(BasePriority.LIBRARY_PATH, "b.Foo");
+        StubCompilationUnit source = new StubCompilationUnit(BasePriority.SOURCE_PATH, "a.Foo");
+        scope.addDefinition(library.promise);
+        scope.addDefinition(other.promise);
+
+        // Removing the shadowed definition and adding the shadowing one
+        // would move it after b.Foo.
+        scope.addDefinition(source.promise);
+        assertThat(getDefinitions("Foo"), is(Arrays.<IDefinition>asList(source.promise, other.promise)));
+        assertThat(scope.getShadowedDefinitions(source.promise).contains(library.promise), is(true));
+
+        scope.removeDefinition(source.promise);
+        assertThat(getDefinitions("Foo"), is(Arrays.<IDefinition>asList(library.promise, other.promise)));
+        assertThat(scope.getShadowedDefinitions(library.promise) == null, is(true));
+    }
+
+    @Test
+    public void testShadowedDefinitionIsNotVisible()
+    {
+        StubCompilationUnit library = new StubCompilationUnit(BasePriority.LIBRARY_PATH, "a.Foo");
+        StubCompilationUnit source = new StubCompilationUnit(BasePriority.SOURCE_PATH, "a.Foo");
+        scope.addDefinition(source.promise);
+        scope.addDefinition(library.promise);
+        assertThat(getDefinitions("Foo"), is(Arrays.<IDefinition>asList(source.promise)));
+
+        // Removing a shadowed definition doesn't change the store.
+        IDefinitionSet set = scope.definitionStore.getDefinitionSetByName("Foo");
+        scope.removeDefinition(library.promise);
+        assertThat(scope.definitionStore.getDefinitionSetByName("Foo") == set, is(true));
+        assertThat(scope.getShadowedDefinitions(source.promise) == null, is(true));
+
+        scope.removeDefinition(source.promise);
+        assertThat(getDefinitions("Foo").isEmpty(), is(true));
+    }
+
+    /**
+     * Lookups don't lock, so a lookup during a change must find the name
+     * either before or after the change, never missing.
+     */
+    @Test
+    public void testLookupDuringShadowingAlwaysFindsName() throws InterruptedException
+    {
+        final StubCompilationUnit library = new StubCompilationUnit(BasePriority.LIBRARY_PATH, "a.Foo");
+        final StubCompilationUnit source = new StubCompilationUnit(BasePriority.SOURCE_PATH, "a.Foo");
+        scope.addDefinition(library.promise);
+
+        final AtomicBoolean done = new AtomicBoolean();
+        final AtomicBoolean missing = new AtomicBoolean();
+        Thread reader = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                while (!done.get())
+                {
+                    if (scope.getCompilationUnitsByDefinitionName("Foo").isEmpty())
+                        missing.set(true);
+                }
+            }
+        });
+        reader.start();
+        try
+        {
+            for (int i = 0; i < 20000; i++)
+            {
+                scope.addDefinition(source.promise);
+                scope.removeDefinition(source.promise);
+            }
+        }
+        finally
+        {
+            done.set(true);
+            reader.join();
+        }
+        assertThat("name missing during a change", missing.get(), is(false));
+    }
+
+    @Test
+    public void testPromiseReplacedByActualDefinition()
+    {
+        StubCompilationUnit library = new StubCompilationUnit(BasePriority.LIBRARY_PATH, "a.Foo");
+        scope.addDefinition(library.promise);
+
+        IDefinitionSet set = scope.getLocalDefinitionSetByName("Foo");
+        assertThat(set == library.actualDefinition, is(true));
+        assertThat(getDefinitions("Foo"), is(Arrays.asList(library.actualDefinition)));
+    }
+
+    @Test
+    public void testPromiseReplacedWhenSetChangesWhileResolving()
+    {
+        StubCompilationUnit library = new StubCompilationUnit(BasePriority.LIBRARY_PATH, "a.Foo");
+        final StubCompilationUnit other = new StubCompilationUnit(BasePriority.LIBRARY_PATH, "b.Foo");
+        scope.addDefinition(library.promise);
+        library.onResolve = new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                scope.addDefinition(other.promise);
+            }
+        };
+
+        // The actual definition takes the place of the promise in the
+        // new set, and the definition added meanwhile is kept.
+        IDefinitionSet set = scope.getLocalDefinitionSetByName("Foo");
+        assertThat(set.getSize(), is(2));
+        assertThat(set.getDefinition(0) == library.actualDefinition, is(true));
+        assertThat(getDefinitions("Foo").get(0) == library.actualDefinition, is(true));
+        assertThat(getDefinitions("Foo").contains(other.promise), is(true));
+    }
+
+    @Test
+    public void testPromiseNotReplacedWhenRemovedWhileResolving()
+    {
+        final StubCompilationUnit library = new StubCompilationUnit(BasePriority.LIBRARY_PATH, "a.Foo");
+        scope.addDefinition(library.promise);
+        library.onResolve = new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                scope.removeDefinition(library.promise);
+            }
+        };
+
+        assertThat(scope.getLocalDefinitionSetByName("Foo") == null, is(true));
+        assertThat(getDefinitions("Foo").isEmpty(), is(true));
+    }
+
+    @Test
+    public void testPromiseNotReplacedWhenShadowedWhileResolving()
+    {
+        final StubCompilationUnit library = new StubCompilationUnit(BasePriority.LIBRARY_PATH, "a.Foo");
+        final StubCompilationUnit source = new StubCompilationUnit(BasePriority.SOURCE_PATH, "a.Foo");
+        scope.addDefinition(library.promise);
+        library.onResolve = new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                scope.addDefinition(source.promise);
+            }
+        };
+
+        // Resolving the promise of the library returns the current set,
+        // whose shadowing promise is resolved by the next lookup.
+        IDefinitionSet set = scope.getLocalDefinitionSetByName("Foo");
+        assertThat(set == source.promise, is(true));
+        assertThat(scope.getLocalDefinitionSetByName("Foo") == source.actualDefinition, is(true));
+        assertThat(scope.getShadowedDefinitions(source.promise).contains(library.promise), is(true));
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ *
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.apache.royale.compiler.internal.scopes;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.royale.compiler.definitions.IDefinition;
+import org.apache.royale.compiler.scopes.IDefinitionSet;
+import org.junit.Test;
+
+/**
+ * JUnit tests for {@link ConcurrentDefinitionStore}.
+ * <p>
+ * A reader may hold a definition set from the store while it changes, so each
+ * test keeps the sets it got before a change and checks that the change left
+ * them as they were.
+ */
+public class ConcurrentDefinitionStoreTests
+{
+    private static IDefinition newDefinition(String qname)
+    {
+        return ASProjectScope.createDefinitionPromise(qname, null);
+    }
+
+    private static List<IDefinition> toList(IDefinitionSet definitionSet)
+    {
+        List<IDefinition> list = new ArrayList<IDefinition>();
+        if (definitionSet != null)
+        {
+            int n = definitionSet.getSize();
+            for (int i = 0; i < n; i++)
+                list.add(definitionSet.getDefinition(i));
+        }
+        return list;
+    }
+
+    @Test
+    public void testAddCopiesSet()
+    {
+        ConcurrentDefinitionStore store = new ConcurrentDefinitionStore();
+        IDefinition a = newDefinition("a.Foo");
+        IDefinition b = newDefinition("b.Foo");
+        IDefinition c = newDefinition("c.Foo");
+
+        store.add(a);
+        IDefinitionSet set1 = store.getDefinitionSetByName("Foo");
+        // A single definition is its own set-of-size-1.
+        assertThat(set1 == a, is(true));
+
+        store.add(b);
+        IDefinitionSet set2 = store.getDefinitionSetByName("Foo");
+        assertThat(set2 != set1, is(true));
+        assertThat(toList(set1), is(Arrays.asList(a)));
+        assertThat(toList(set2), is(Arrays.asList(a, b)));
+
+        store.add(c);
+        IDefinitionSet set3 = store.getDefinitionSetByName("Foo");
+        assertThat(set3 != set2, is(true));
+        assertThat(toList(set2), is(Arrays.asList(a, b)));
+        assertThat(toList(set3), is(Arrays.asList(a, b, c)));
+    }
+
+    @Test
+    public void testAddToLargeSetCopiesSet()
+    {
+        ConcurrentDefinitionStore store = new ConcurrentDefinitionStore();
+        List<IDefinition> definitions = new ArrayList<IDefinition>();
+        List<IDefinitionSet> sets = new ArrayList<IDefinitionSet>();
+        for (int i = 0; i < 20; i++)
+        {
+            IDefinition definition = newDefinition("p" + i + ".Foo");
+            store.add(definition);
+            definitions.add(definition);
+            sets.add(store.getDefinitionSetByName("Foo"));
+        }
+        for (int i = 0; i < sets.size(); i++)
+            assertThat(toList(sets.get(i)), is(definitions.subList(0, i + 1)));
+        assertThat(store.getAllDefinitions().size(), is(20));
+    }
+
+    @Test
+    public void testRemoveCopiesSet()
+    {
+        ConcurrentDefinitionStore store = new ConcurrentDefinitionStore();
+        IDefinition a = newDefinition("a.Foo");
+        IDefinition b = newDefinition("b.Foo");
+        IDefinition c = newDefinition("c.Foo");
+        store.add(a);
+        store.add(b);
+        store.add(c);
+
+        IDefinitionSet set3 = store.getDefinitionSetByName("Foo");
+        assertThat(store.remove(b), is(true));
+        IDefinitionSet set2 = store.getDefinitionSetByName("Foo");
+        assertThat(toList(set3), is(Arrays.asList(a, b, c)));
+        assertThat(toList(set2), is(Arrays.asList(a, c)));
+
+        // Going back to a single definition puts the definition itself
+        // into the map.
+        assertThat(store.remove(a), is(true));
+        IDefinitionSet set1 = store.getDefinitionSetByName("Foo");
+        assertThat(set1 == c, is(true));
+        assertThat(toList(set2), is(Arrays.asList(a, c)));
+
+        assertThat(store.remove(c), is(true));
+        assertThat(store.getDefinitionSetByName("Foo") == null, is(true));
+        assertThat(store.getAllNames().contains("Foo"), is(false));
+        assertThat(toList(set1), is(Arrays.asList(c)));
+
+        assertThat(store.remove(c), is(false));
+    }
+
+    @Test
+    public void testReplaceDefinitionInSetOfSize1()
+    {
+        ConcurrentDefinitionStore store = new ConcurrentDefinitionStore();
+        IDefinition a = newDefinition("a.Foo");
+        IDefinition a2 = newDefinition("a.Foo");
+        store.add(a);
+
+        store.replaceDefinition(a, a2);
+        assertThat(store.getDefinitionSetByName("Foo") == a2, is(true));
+    }
+
+    @Test
+    public void testReplaceDefinitionKeepsPosition()
+    {
+        ConcurrentDefinitionStore store = new ConcurrentDefinitionStore();
+        IDefinition a = newDefinition("a.Foo");
+        IDefinition b = newDefinition("b.Foo");
+        IDefinition c = newDefinition("c.Foo");
+        IDefinition b2 = newDefinition("b.Foo");
+        store.add(a);
+        store.add(b);
+        store.add(c);
+
+        IDefinitionSet oldSet = store.getDefinitionSetByName("Foo");
+        store.replaceDefinition(b, b2);
+        assertThat(toList(oldSet), is(Arrays.asList(a, b, c)));
+        assertThat(toList(store.getDefinitionSetByName("Foo")), is(Arrays.asList(a, b2, c)));
+    }
+
+    @Test
+    public void testReplaceMissingDefinitionAddsIt()
+    {
+        ConcurrentDefinitionStore store = new ConcurrentDefinitionStore();
+        IDefinition a = newDefinition("a.Foo");
+        IDefinition b = newDefinition("b.Foo");
+        IDefinition b2 = newDefinition("b.Foo");
+
+        store.replaceDefinition(b, b2);
+        assertThat(store.getDefinitionSetByName("Foo") == b2, is(true));
+
+        store.remove(b2);
+        store.add(a);
+        IDefinitionSet oldSet = store.getDefinitionSetByName("Foo");
+        store.replaceDefinition(b, b2);
+        assertThat(toList(oldSet), is(Arrays.asList(a)));
+        assertThat(toList(store.getDefinitionSetByName("Foo")), is(Arrays.asList(a, b2)));
+    }
+}
@@ -0,0 +1,371 @@
+/*
+ *
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.apache.royale.compiler.internal.targets;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * Checks that the passes of {@link CSSDependencyDiscovery}, which only walk
+ * and test what the previous pass found, link the same compilation units as a
+ * loop that walks and tests everything in each pass.
+ * <p>
+ * The compilation units and definitions are names; each compilation unit
+ * defines the definition of the same name.
+ */
+public class CSSDependencyDiscoveryTests
+{
+    /**
+     * A rule selects a compilation unit when one of its subjects is linked, or
+     * in Flex 3 mode, when all of its subjects are linked.
+     */
+    private static final class Rule
+    {
+        Rule(String selected, String... subjects)
+        {
+            this.subjects = Arrays.asList(subjects);
+            this.selected = selected;
+        }
+
+        final List<String> subjects;
+        final String selected;
+    }
+
+    private static final class StyleSheet
+    {
+        StyleSheet(String name, Rule... rules)
+        {
+            this.name = name;
+            this.rules = Arrays.asList(rules);
+        }
+
+        final String name;
+        final List<Rule> rules;
+
+        @Override
+        public String toString()
+        {
+            return name;
+        }
+    }
+
+    /**
+     * The compilation units, the style sheets that are always activated, and
+     * the {@code defaults.css} that compilation units activate.
+     */
+    private static final class Project
+    {
+        Project(boolean flex3CSS)
+        {
+            this.flex3CSS = flex3CSS;
+        }
+
+        final boolean flex3CSS;
+        final Map<String, Set<String>> dependencies = new HashMap<String, Set<String>>();
+        final List<StyleSheet> styleSheets = new ArrayList<StyleSheet>();
+        final Map<String, StyleSheet> defaultsCSS = new HashMap<String, StyleSheet>();
+
+        Project depends(String from, String... to)
+        {
+            Set<String> set = dependencies.get(from);
+            if (set == null)
+            {
+                set = new HashSet<String>();
+                dependencies.put(from, set);
+            }
+            set.addAll(Arrays.asList(to));
+            return this;
+        }
+
+        Set<String> getDependencies(String compilationUnit)
+        {
+            final Set<String> result = dependencies.get(compilationUnit);
+            return result != null ? result : new HashSet<String>();
+        }
+
+        Collection<String> match(StyleSheet styleSheet, Collection<String> definitions)
+        {
+            final Set<String> result = new HashSet<String>();
+            for (final Rule rule : styleSheet.rules)
+            {
+                if (flex3CSS ? definitions.containsAll(rule.subjects) : containsAny(definitions, rule.subjects))
+                    result.add(rule.selected);
+            }
+            return result;
+        }
+
+        private static boolean containsAny(Collection<String> definitions, Collection<String> subjects)
+        {
+            for (final String subject : subjects)
+            {
+                if (definitions.contains(subject))
+                    return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Runs the incremental passes of {@link CSSDependencyDiscovery}.
+     *
+     * @return The linked compilation units, then the compilation units
+     * selected by CSS.
+     */
+    private static List<Set<String>> discover(final Project project, Collection<String> roots)
+            throws InterruptedException
+    {
+        final Set<StyleSheet> activatedStyleSheets = new LinkedHashSet<StyleSheet>(project.styleSheets);
+        final CSSDependencyDiscovery<String, String, StyleSheet> discovery =
+                new CSSDependencyDiscovery<String, String, StyleSheet>(project.flex3CSS)
+        {
+            @Override
+            protected Set<String> getDependentCompilationUnits(Collection<String> roots,
+                    Set<String> visitedCompilationUnits)
+            {
+                final Set<String> newSet = new HashSet<String>();
+                final List<String> workList = new ArrayList<String>(roots);
+                while (!workList.isEmpty())
+                {
+                    final String compilationUnit = workList.remove(workList.size() - 1);
+                    if (visitedCompilationUnits.add(compilationUnit))
+                    {
+                        newSet.add(compilationUnit);
+                        workList.addAll(project.getDependencies(compilationUnit));
+                    }
+                }
+                return newSet;
+            }
+
+            @Override
+            protected void activateStyleSheets(Collection<String> newCompilationUnits)
+            {
+                for (final String compilationUnit : newCompilationUnits)
+                {
+                    final StyleSheet defaultsCSS = project.defaultsCSS.get(compilationUnit);
+                    if (defaultsCSS != null)
+                        activatedStyleSheets.add(defaultsCSS);
+                }
+            }
+
+            @Override
+            protected Collection<StyleSheet> getActivatedStyleSheets()
+            {
+                return new ArrayList<StyleSheet>(activatedStyleSheets);
+            }
+
+            @Override
+            protected List<String> getDefinitions(Collection<String> compilationUnits)
+            {
+                return new ArrayList<String>(compilationUnits);
+            }
+
+            @Override
+            protected Collection<String> getDependentCompilationUnitsFromCSS(StyleSheet styleSheet,
+                    Collection<String> definitions)
+            {
+                return project.match(styleSheet, definitions);
+            }
+        };
+        discovery.run(roots);
+        return Arrays.asList(discovery.getAllCompilationUnits(), discovery.getAllCSSDependencies());
+    }
+
+    /**
+     * The loop that {@link RoyaleAppSWFTarget} used before the passes were
+     * incremental: each pass walks the dependencies of all the linked
+     * compilation units, and tests all of their definitions against all the
+     * activated style sheets.
+     *
+     * @return The linked compilation units, then the compilation units
+     * selected by CSS.
+     */
+    private static List<Set<String>> discoverByFullRescan(Project project, Collection<String> roots)
+    {
+        final Set<String> allCompilationUnits = new HashSet<String>(roots);
+        final Set<StyleSheet> activatedStyleSheets = new LinkedHashSet<StyleSheet>(project.styleSheets);
+        Set<String> cssDependencies;
+        boolean done = false;
+        do
+        {
+            final List<String> workList = new ArrayList<String>(allCompilationUnits);
+            final Set<String> visited = new HashSet<String>();
+            while (!workList.isEmpty())
+            {
+                final String compilationUnit = workList.remove(workList.size() - 1);
+                if (visited.add(compilationUnit))
+                    workList.addAll(project.getDependencies(compilationUnit));
+            }
+            allCompilationUnits.addAll(visited);
+
+            for (final String compilationUnit : allCompilationUnits)
+            {
+                final StyleSheet defaultsCSS = project.defaultsCSS.get(compilationUnit);
+                if (defaultsCSS != null)
+                    activatedStyleSheets.add(defaultsCSS);
+            }
+
+            cssDependencies = new HashSet<String>();
+            for (final StyleSheet styleSheet : activatedStyleSheets)
+                cssDependencies.addAll(project.match(styleSheet, allCompilationUnits));
+
+            done = !allCompilationUnits.addAll(cssDependencies);
+        }
+        while (!done);
+        return Arrays.asList(allCompilationUnits, cssDependencies);
+    }
+
+    private static void assertSameAsFullRescan(Project project, String... roots) throws InterruptedException
+    {
+        final List<String> rootList = Arrays.asList(roots);
+        assertThat(discover(project, rootList), is(discoverByFullRescan(project, rootList)));
+    }
+
+    private static Set<String> set(String... names)
+    {
+        return new HashSet<String>(Arrays.asList(names));
+    }
+
+    /**
+     * The example in the documentation of
+     * {@link RoyaleAppSWFTarget#findAllCompilationUnitsToLink}: the "K" rules
+     * of "styles.css" and of the {@code defaults.css} of "myskins.swc" are
+     * only matched in the 4th pass, after both style sheets were tested
+     * against the classes found by the earlier passes.
+     */
+    @Test
+    public void testRuleActivatedByLaterClass() throws InterruptedException
+    {
+        final Project project = new Project(false);
+        project.depends("A", "D");
+        project.styleSheets.add(new StyleSheet("styles.css",
+                new Rule("B", "A"),
+                new Rule("L", "K")));
+        project.defaultsCSS.put("B", new StyleSheet("myskins.swc",
+                new Rule("C", "B"),
+                new Rule("M", "K")));
+        project.defaultsCSS.put("C", new StyleSheet("anotherSkin.swc",
+                new Rule("K", "C")));
+
+        final List<Set<String>> result = discover(project, Arrays.asList("A"));
+        assertThat(result.get(0), is(set("A", "B", "C", "D", "K", "L", "M")));
+        assertThat(result.get(1), is(set("B", "C", "K", "L", "M")));
+        assertSameAsFullRescan(project, "A");
+    }
+
+    /**
+     * A class found by walking the dependencies of a class that CSS selected
+     * activates a rule of a style sheet that was tested in every earlier pass.
+     */
+    @Test
+    public void testRuleActivatedByDependencyOfCSSDependency() throws InterruptedException
+    {
+        final Project project = new Project(false);
+        project.styleSheets.add(new StyleSheet("styles.css",
+                new Rule("Skin", "Button"),
+                new Rule("Border", "Graphics")));
+        project.depends("App", "Button");
+        project.depends("Skin", "Sprite");
+        project.depends("Sprite", "Graphics");
+
+        final List<Set<String>> result = discover(project, Arrays.asList("App"));
+        assertThat(result.get(0).contains("Border"), is(true));
+        assertSameAsFullRescan(project, "App");
+    }
+
+    /**
+     * In Flex 3 mode, a rule with several subjects is only matched once all
+     * of them are linked, even if they are found in different passes.
+     */
+    @Test
+    public void testFlex3RuleWithSubjectsFromDifferentPasses() throws InterruptedException
+    {
+        final Project project = new Project(true);
+        project.styleSheets.add(new StyleSheet("styles.css",
+                new Rule("B", "A"),
+                new Rule("C", "B"),
+                new Rule("Both", "A", "C")));
+
+        final List<Set<String>> result = discover(project, Arrays.asList("A"));
+        assertThat(result.get(0), is(set("A", "B", "C", "Both")));
+        assertSameAsFullRescan(project, "A");
+    }
+
+    @Test
+    public void testRandomProjects() throws InterruptedException
+    {
+        final Random random = new Random(14);
+        for (int i = 0; i < 200; i++)
+        {
+            final boolean flex3CSS = i % 2 == 1;
+            final Project project = randomProject(random, flex3CSS);
+            assertSameAsFullRescan(project, "U0");
+            assertSameAsFullRescan(project, "U0", "U" + random.nextInt(COMPILATION_UNIT_COUNT));
+        }
+    }
+
+    private static final int COMPILATION_UNIT_COUNT = 40;
+
+    private static Project randomProject(Random random, boolean flex3CSS)
+    {
+        final Project project = new Project(flex3CSS);
+        for (int i = 0; i < COMPILATION_UNIT_COUNT; i++)
+        {
+            // Sparse dependencies, so that CSS has something left to find.
+            if (random.nextInt(3) == 0)
+                project.depends(unit(i), unit(random.nextInt(COMPILATION_UNIT_COUNT)));
+            if (random.nextInt(6) == 0)
+                project.defaultsCSS.put(unit(i), randomStyleSheet(random, "defaults" + i + ".css"));
+        }
+        project.styleSheets.add(randomStyleSheet(random, "styles.css"));
+        project.styleSheets.add(randomStyleSheet(random, "theme.css"));
+        return project;
+    }
+
+    private static StyleSheet randomStyleSheet(Random random, String name)
+    {
+        final Rule[] rules = new Rule[1 + random.nextInt(5)];
+        for (int i = 0; i < rules.length; i++)
+        {
+            final String[] subjects = new String[1 + random.nextInt(2)];
+            for (int j = 0; j < subjects.length; j++)
+                subjects[j] = unit(random.nextInt(COMPILATION_UNIT_COUNT));
+            rules[i] = new Rule(unit(random.nextInt(COMPILATION_UNIT_COUNT)), subjects);
+        }
+        return new StyleSheet(name, rules);
+    }
+
+    private static String unit(int i)
+    {
+        return "U" + i;
+    }
+}
@@ -0,0 +1,264 @@
+/*
+ *
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.apache.royale.compiler.internal.tree.mxml;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.royale.compiler.internal.projects.RoyaleProject;
+import org.apache.royale.compiler.internal.tree.as.FunctionNode;
+import org.apache.royale.compiler.tree.as.IASNode;
+import org.apache.royale.utils.TestAdapterFactory;
+import org.junit.Test;
+
+/**
+ * JUnit tests for the deferred function bodies of MXML script tags, which
+ * must build the same syntax trees as function bodies that are parsed with
+ * the rest of the file.
+ */
+public class MXMLDeferredFunctionBodyTests extends MXMLNodeBaseTests
+{
+	private boolean deferFunctionBodies;
+
+	@Override
+	protected String[] getTemplate()
+	{
+		return new String[]
+		{
+   			"<custom:TestInstance xmlns:fx='http://ns.adobe.com/mxml/2009' xmlns:custom='library://ns.apache.org/royale/test'>",
+   			"    %1",
+   			"</custom:TestInstance>"
+	    };
+	}
+
+	@Override
+	protected void configureProject(RoyaleProject project)
+	{
+		project.setDeferFunctionBodies(deferFunctionBodies);
+		Map<String, String> defines = new HashMap<String, String>();
+		defines.put("CONFIG::debug", "true");
+		defines.put("CONFIG::release", "false");
+		project.setDefineDirectives(defines);
+	}
+
+	private MXMLFileNode parse(String[] code, boolean defer)
+	{
+		deferFunctionBodies = defer;
+		return (MXMLFileNode)getMXMLFileNode(code);
+	}
+
+	/**
+	 * Parses the code with and without deferred function bodies, and checks
+	 * that the trees are the same once the deferred function bodies are
+	 * parsed.
+	 */
+	private void assertSameAsEager(String[] code)
+	{
+		MXMLFileNode eager = parse(code, false);
+		assertThat("eager deferred functions", countDeferredFunctions(eager), is(0));
+		MXMLFileNode deferred = parse(code, true);
+		assertThat("deferred functions", countDeferredFunctions(deferred) > 0, is(true));
+		deferred.populateFunctionNodes();
+		assertThat("populated deferred functions", countDeferredFunctions(deferred), is(0));
+		assertThat(dump(deferred), is(dump(eager)));
+	}
+
+	private static void writeSourceFile(String name, String[] lines) throws IOException
+	{
+		File file = new File(TestAdapterFactory.getTestAdapter().getTempDir(), name);
+		file.deleteOnExit();
+		Writer out = new FileWriter(file);
+		try
+		{
+			for (String line : lines)
+				out.write(line + "\n");
+		}
+		finally
+		{
+			out.close();
+		}
+	}
+
+	@Test
+	public void MXMLDeferredFunctionBody_methods()
+	{
+		String[] code = new String[]
+		{
+			"<fx:Script><![CDATA[",
+			"    private var pattern:RegExp = /[{}]/g;",
+			"    private function f(a:int):int",
+			"    {",
+			"        var s:String = \"}\";",
+			"        if (a > 0) { a -= s.length; }",
+			"        return a / 2;",
+			"    }",
+			"    public function get x():XML",
+			"    {",
+			"        return <a b=\"{'}'}\">{f(1)}</a>;",
+			"    }",
+			"    protected function g():Function",
+			"    {",
+			"        function local():int { return f(2); }",
+			"        return function():void { trace(local()); };",
+			"    }",
+			"]]></fx:Script>"
+		};
+		assertSameAsEager(code);
+	}
+
+	@Test
+	public void MXMLDeferredFunctionBody_parseRequiredFunctionBodies()
+	{
+		String[] code = new String[]
+		{
+			"<fx:Script><![CDATA[",
+			"    private function method():int { return 1; }",
+			"    CONFIG::debug",
+			"    {",
+			"        private function debugOnly():int { return 2; }",
+			"    }",
+			"]]></fx:Script>"
+		};
+		MXMLFileNode fileNode = parse(code, true);
+		// methods in script tags are parsed on demand
+		assertThat("method", findFunction(fileNode, "method").hasBeenParsed(), is(false));
+		// other deferred function bodies are parsed with the syntax tree
+		assertThat("debugOnly", findFunction(fileNode, "debugOnly").hasBeenParsed(), is(true));
+
+		assertSameAsEager(code);
+	}
+
+	@Test
+	public void MXMLDeferredFunctionBody_retainedBodyText()
+	{
+		String[] code = new String[]
+		{
+			"<fx:Script><![CDATA[",
+			"    private function f(a:int):int { var b:int = a * 2; return b; }",
+			"    private function g():String { return \"{\" + f(1) + \"}\"; }",
+			"]]></fx:Script>"
+		};
+		MXMLFileNode fileNode = parse(code, true);
+		fileNode.populateFunctionNodes();
+		String parsed = dump(fileNode);
+
+		// The function bodies of a script tag can't be read again from the
+		// file at their offsets, so they are rebuilt from the retained text.
+		for (String name : new String[] {"f", "g"})
+		{
+			FunctionNode function = findFunction(fileNode, name);
+			function.discardFunctionBody();
+			assertThat(name, function.getScopedNode().getChildCount(), is(0));
+		}
+		fileNode.populateFunctionNodes();
+		assertThat(dump(fileNode), is(parsed));
+	}
+
+	@Test
+	public void MXMLDeferredFunctionBody_scriptSource() throws IOException
+	{
+		writeSourceFile("MXMLDeferredFunctionBodyScript.as", new String[]
+		{
+			"private function f(a:int):int",
+			"{",
+			"    var r:RegExp = /}/;",
+			"    return a + 1;",
+			"}",
+			"private function g():void { trace(f(1)); }"
+		});
+		String[] code = new String[]
+		{
+			"<fx:Script source=\"MXMLDeferredFunctionBodyScript.as\"/>"
+		};
+		assertSameAsEager(code);
+	}
+
+	@Test
+	public void MXMLDeferredFunctionBody_include() throws IOException
+	{
+		writeSourceFile("MXMLDeferredFunctionBodyInclude.as", new String[]
+		{
+			"private function included(a:int):int",
+			"{",
+			"    return a * 3;",
+			"}"
+		});
+		String[] code = new String[]
+		{
+			"<fx:Script><![CDATA[",
+			"    private function before():int { return 1; }",
+			"    include \"MXMLDeferredFunctionBodyInclude.as\";",
+			"    private function after():int { return included(before()); }",
+			"]]></fx:Script>"
+		};
+		assertSameAsEager(code);
+	}
+
+	private static int countDeferredFunctions(IASNode node)
+	{
+		int count = 0;
+		if (node instanceof FunctionNode && !((FunctionNode)node).hasBeenParsed())
+			count++;
+		for (int i = 0; i < node.getChildCount(); i++)
+			count += countDeferredFunctions(node.getChild(i));
+		return count;
+	}
+
+	private static FunctionNode findFunction(IASNode node, String name)
+	{
+		if (node instanceof FunctionNode && ((FunctionNode)node).getName().equals(name))
+			return (FunctionNode)node;
+		for (int i = 0; i < node.getChildCount(); i++)
+		{
+			FunctionNode found = findFunction(node.getChild(i), name);
+			if (found != null)
+				return found;
+		}
+		return null;
+	}
+
+	/**
+	 * @return The node IDs, offsets and positions of the nodes of a tree.
+	 */
+	private static String dump(IASNode node)
+	{
+		StringBuilder result = new StringBuilder();
+		dump(node, "", result);
+		return result.toString();
+	}
+
+	private static void dump(IASNode node, String indent, StringBuilder result)
+	{
+		result.append(indent).append(node.getNodeID())
+			  .append(' ').append(node.getAbsoluteStart()).append('-').append(node.getAbsoluteEnd())
+			  .append(' ').append(node.getLine()).append(':').append(node.getColumn())
+			  .append('-').append(node.getEndLine()).append(':').append(node.getEndColumn())
+			  .append('\n');
+		for (int i = 0; i < node.getChildCount(); i++)
+			dump(node.getChild(i), indent + "  ", result);
+	}
+}
@@ -114,10 +114,18 @@ public class MXMLNodeBaseTests
     	return getMXMLFileNode(mxml, false);
 	}
     
+    /**
+     * Called after the project is created, before the MXML is parsed.
+     */
+    protected void configureProject(RoyaleProject project)
+    {
+    }
+
     protected IMXMLFileNode getMXMLFileNode(String mxml, boolean withFlex)
 	{
 		project = new RoyaleProject(workspace);
 		RoyaleProjectConfigurator.configure(project);
+		configureProject(project);
 
 		ITestAdapter testAdapter = TestAdapterFactory.getTestAdapter();
 		String tempDir = testAdapter.getTempDir();
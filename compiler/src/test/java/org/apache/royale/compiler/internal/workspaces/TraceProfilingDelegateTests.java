@@ -0,0 +1,188 @@
+/*
+ *
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.apache.royale.compiler.internal.workspaces;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.CountDownLatch;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.royale.compiler.units.ICompilationUnit;
+import org.apache.royale.compiler.units.ICompilationUnit.Operation;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks the reports that {@link TraceProfilingDelegate} writes when it is
+ * flushed after a build and when its workspace is closed.
+ */
+public class TraceProfilingDelegateTests
+{
+    private File tempDir;
+    private File traceFile;
+    private File summaryFile;
+
+    @Before
+    public void setUp() throws IOException
+    {
+        tempDir = Files.createTempDirectory("TraceProfilingDelegateTests").toFile();
+        traceFile = new File(tempDir, "trace.json");
+        summaryFile = new File(traceFile.getPath() + TraceProfilingDelegate.SUMMARY_FILE_SUFFIX);
+    }
+
+    @After
+    public void tearDown() throws IOException
+    {
+        FileUtils.deleteDirectory(tempDir);
+    }
+
+    /**
+     * @return A compilation unit that only has a name.
+     */
+    private static ICompilationUnit createUnit(final String name)
+    {
+        return (ICompilationUnit)Proxy.newProxyInstance(ICompilationUnit.class.getClassLoader(),
+                new Class<?>[] {ICompilationUnit.class}, new InvocationHandler()
+                {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args)
+                    {
+                        if (method.getName().equals("getName"))
+                            return name;
+                        if (method.getName().equals("hashCode"))
+                            return System.identityHashCode(proxy);
+                        if (method.getName().equals("equals"))
+                            return proxy == args[0];
+                        return null;
+                    }
+                });
+    }
+
+    private static void runOperation(TraceProfilingDelegate delegate, ICompilationUnit unit, Operation operation)
+    {
+        delegate.operationStarted(unit, operation);
+        delegate.operationCompleted(unit, operation);
+    }
+
+    private static String read(File file) throws IOException
+    {
+        return FileUtils.readFileToString(file, StandardCharsets.UTF_8);
+    }
+
+    private static boolean hasEvent(String trace, String unitName, Operation operation)
+    {
+        return trace.contains("{\"name\":\"" + unitName + "\",\"cat\":\"" + operation.name() + "\",\"ph\":\"X\"");
+    }
+
+    private static int countEvents(String trace)
+    {
+        int count = 0;
+        for (int i = trace.indexOf("\"ph\":\"X\""); i != -1; i = trace.indexOf("\"ph\":\"X\"", i + 1))
+        {
+            count++;
+        }
+        return count;
+    }
+
+    @Test
+    public void testFlushWritesOperationsOfEachBuild() throws IOException
+    {
+        TraceProfilingDelegate delegate = new TraceProfilingDelegate(traceFile, 10);
+        ICompilationUnit outer = createUnit("a.Outer");
+        ICompilationUnit inner = createUnit("a.Inner");
+        delegate.operationStarted(outer, Operation.GET_SEMANTIC_PROBLEMS);
+        runOperation(delegate, inner, Operation.GET_FILESCOPE);
+        delegate.operationCompleted(outer, Operation.GET_SEMANTIC_PROBLEMS);
+        delegate.flush();
+
+        String trace = read(traceFile);
+        assertThat(trace, trace.startsWith("{\"traceEvents\":["), is(true));
+        assertThat(trace, trace.endsWith("],\"displayTimeUnit\":\"ms\"}\n"), is(true));
+        assertThat(trace, countEvents(trace), is(2));
+        assertThat(trace, hasEvent(trace, "a.Outer", Operation.GET_SEMANTIC_PROBLEMS), is(true));
+        assertThat(trace, hasEvent(trace, "a.Inner", Operation.GET_FILESCOPE), is(true));
+        String summary = read(summaryFile);
+        assertThat(summary, summary.startsWith("Slowest compilation units by self time (2 of 2)"), is(true));
+        assertThat(summary, summary.contains("a.Outer"), is(true));
+
+        // the next build only reports its own operations
+        runOperation(delegate, createUnit("b.Next"), Operation.GET_ABC_BYTES);
+        delegate.flush();
+        trace = read(traceFile);
+        assertThat(trace, countEvents(trace), is(1));
+        assertThat(trace, hasEvent(trace, "b.Next", Operation.GET_ABC_BYTES), is(true));
+        assertThat(trace, trace.contains("a.Outer"), is(false));
+    }
+
+    @Test
+    public void testCloseKeepsFlushedReport() throws IOException
+    {
+        TraceProfilingDelegate delegate = new TraceProfilingDelegate(traceFile, 10);
+        runOperation(delegate, createUnit("a.Flushed"), Operation.GET_SYNTAX_TREE);
+        delegate.flush();
+        delegate.close();
+
+        String trace = read(traceFile);
+        assertThat(trace, hasEvent(trace, "a.Flushed", Operation.GET_SYNTAX_TREE), is(true));
+    }
+
+    @Test
+    public void testCloseOfWorkspaceWaitsForRunningTasks() throws Exception
+    {
+        final TraceProfilingDelegate delegate = new TraceProfilingDelegate(traceFile, 10);
+        Workspace workspace = new Workspace();
+        workspace.setProfilingDelegate(delegate);
+
+        final CountDownLatch started = new CountDownLatch(1);
+        workspace.getExecutorService().submit(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                ICompilationUnit unit = createUnit("a.InFlight");
+                delegate.operationStarted(unit, Operation.GET_ABC_BYTES);
+                started.countDown();
+                try
+                {
+                    Thread.sleep(200);
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                }
+                delegate.operationCompleted(unit, Operation.GET_ABC_BYTES);
+            }
+        });
+        started.await();
+        workspace.close();
+
+        String trace = read(traceFile);
+        assertThat(trace, hasEvent(trace, "a.InFlight", Operation.GET_ABC_BYTES), is(true));
+    }
+}
@@ -0,0 +1,275 @@
+/*
+ *
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.apache.royale.compiler.internal.workspaces;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.royale.compiler.filespecs.FileSpecification;
+import org.apache.royale.compiler.internal.projects.DependencyGraph;
+import org.apache.royale.compiler.internal.projects.RoyaleProject;
+import org.apache.royale.compiler.internal.projects.RoyaleProjectConfigurator;
+import org.apache.royale.compiler.projects.ICompilerProject;
+import org.apache.royale.compiler.units.ICompilationUnit;
+import org.apache.royale.compiler.workspaces.IInvalidationListener;
+import org.apache.royale.utils.FilenameNormalization;
+import org.apache.royale.utils.ITestAdapter;
+import org.apache.royale.utils.TestAdapterFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks which compilation units {@link Workspace#fileChanged} cleans when
+ * the early cutoff on the API fingerprint of the changed file applies.
+ * <p>
+ * {@code Mid} extends {@code Base}, so it depends on it directly.
+ * {@code User} only has {@code Mid} in a signature, so it only depends on
+ * {@code Base} through {@code Mid}, and is only cleaned if the API of
+ * {@code Base} changed.
+ */
+public class WorkspaceEarlyCutoffTests
+{
+    private static final String[] BASE = new String[]
+    {
+        "package cutoff",
+        "{",
+        "    public class Base",
+        "    {",
+        "        public static const LIMIT:int = 1;",
+        "        public function f(a:int):int",
+        "        {",
+        "            return a + 1;",
+        "        }",
+        "    }",
+        "}"
+    };
+
+    private static final String[] MID = new String[]
+    {
+        "package cutoff",
+        "{",
+        "    public class Mid extends Base",
+        "    {",
+        "    }",
+        "}"
+    };
+
+    private static final String[] USER = new String[]
+    {
+        "package cutoff",
+        "{",
+        "    public class User",
+        "    {",
+        "        public function get mid():Mid",
+        "        {",
+        "            return null;",
+        "        }",
+        "    }",
+        "}"
+    };
+
+    private Workspace workspace;
+    private RoyaleProject project;
+    private File sourceDir;
+    private final Set<String> cleanedDefinitions = new HashSet<String>();
+
+    @Before
+    public void setUp() throws IOException
+    {
+        ITestAdapter testAdapter = TestAdapterFactory.getTestAdapter();
+        sourceDir = Files.createTempDirectory(new File(testAdapter.getTempDir()).toPath(),
+                getClass().getSimpleName()).toFile();
+        File packageDir = new File(sourceDir, "cutoff");
+        packageDir.mkdirs();
+        write("Base", BASE);
+        write("Mid", MID);
+        write("User", USER);
+
+        workspace = new Workspace();
+        workspace.addInvalidationListener(new IInvalidationListener()
+        {
+            @Override
+            public void definitionsChanged(Map<ICompilerProject, Collection<InvalidatedDefinition>> changedDefinitions)
+            {
+                for (Collection<InvalidatedDefinition> definitions : changedDefinitions.values())
+                {
+                    for (InvalidatedDefinition definition : definitions)
+                        cleanedDefinitions.add(definition.getQName());
+                }
+            }
+        });
+        project = new RoyaleProject(workspace);
+        RoyaleProjectConfigurator.configure(project);
+        project.setSourcePath(Collections.singletonList(sourceDir));
+        project.setLibraries(testAdapter.getLibraries(false));
+    }
+
+    @After
+    public void tearDown()
+    {
+        workspace.close();
+        for (String name : new String[] {"Base", "Mid", "User"})
+            getFile(name).delete();
+        new File(sourceDir, "cutoff").delete();
+        sourceDir.delete();
+    }
+
+    private File getFile(String name)
+    {
+        return new File(new File(sourceDir, "cutoff"), name + ".as");
+    }
+
+    private void write(String name, String[] lines) throws IOException
+    {
+        Writer out = new OutputStreamWriter(Files.newOutputStream(getFile(name).toPath()), StandardCharsets.UTF_8);
+        try
+        {
+            for (String line : lines)
+                out.write(line + "\n");
+        }
+        finally
+        {
+            out.close();
+        }
+    }
+
+    private Collection<ICompilationUnit> getCompilationUnits(String name)
+    {
+        String path = FilenameNormalization.normalize(getFile(name).getAbsolutePath());
+        return workspace.getCompilationUnits(path, project);
+    }
+
+    private void build() throws InterruptedException
+    {
+        for (String name : new String[] {"Base", "Mid", "User"})
+        {
+            for (ICompilationUnit compilationUnit : getCompilationUnits(name))
+                compilationUnit.getOutgoingDependenciesRequest().get();
+        }
+    }
+
+    private static String[] replace(String[] lines, String oldText, String newText)
+    {
+        String[] result = new String[lines.length];
+        boolean replaced = false;
+        for (int i = 0; i < lines.length; i++)
+        {
+            result[i] = lines[i].replace(oldText, newText);
+            replaced |= !result[i].equals(lines[i]);
+        }
+        assertThat(oldText, replaced, is(true));
+        return result;
+    }
+
+    /**
+     * Builds the project, changes {@code Base}, and checks which of the
+     * classes were cleaned.
+     *
+     * @param newBase The new source of {@code Base}.
+     * @param expectCutoff True if the dependents of {@code Mid} are expected
+     * to be skipped.
+     */
+    private void assertCleanedAfterChange(String[] newBase, boolean expectCutoff)
+            throws InterruptedException, IOException
+    {
+        build();
+
+        Collection<ICompilationUnit> baseUnits = getCompilationUnits("Base");
+        Set<ICompilationUnit> directSet = DependencyGraph.computeDirectInvalidationSet(baseUnits);
+        Set<ICompilationUnit> fullSet = DependencyGraph.computeInvalidationSet(baseUnits);
+        Set<ICompilationUnit> userUnits = new HashSet<ICompilationUnit>(getCompilationUnits("User"));
+        assertThat("User depends on Base directly", Collections.disjoint(directSet, userUnits), is(true));
+        assertThat("User depends on Base", fullSet.containsAll(userUnits), is(true));
+
+        long skipCount = workspace.getEarlyCutoffSkipCount();
+        write("Base", newBase);
+        cleanedDefinitions.clear();
+        workspace.fileChanged(new FileSpecification(FilenameNormalization.normalize(getFile("Base").getAbsolutePath())));
+
+        assertThat("Base cleaned", cleanedDefinitions.contains("cutoff.Base"), is(true));
+        assertThat("Mid cleaned", cleanedDefinitions.contains("cutoff.Mid"), is(true));
+        assertThat("User cleaned", cleanedDefinitions.contains("cutoff.User"), is(!expectCutoff));
+        long skipped = workspace.getEarlyCutoffSkipCount() - skipCount;
+        assertThat("skipped", skipped, is(expectCutoff ? (long)(fullSet.size() - directSet.size()) : 0L));
+
+        // the project still builds after the change
+        build();
+    }
+
+    @Test
+    public void testBodyOnlyChangeSkipsIndirectDependents() throws Exception
+    {
+        assertCleanedAfterChange(replace(BASE, "return a + 1;", "var b:int = a * 2; return b;"), true);
+    }
+
+    @Test
+    public void testPrivateMemberChangeSkipsIndirectDependents() throws Exception
+    {
+        assertCleanedAfterChange(replace(BASE, "public static const LIMIT:int = 1;",
+                "public static const LIMIT:int = 1; private var cache:Object;"), true);
+    }
+
+    @Test
+    public void testSignatureChangeCleansIndirectDependents() throws Exception
+    {
+        assertCleanedAfterChange(replace(BASE, "f(a:int):int", "f(a:int, b:int = 0):int"), false);
+    }
+
+    @Test
+    public void testNewPublicMemberCleansIndirectDependents() throws Exception
+    {
+        assertCleanedAfterChange(replace(BASE, "public static const LIMIT:int = 1;",
+                "public static const LIMIT:int = 1; public var added:String;"), false);
+    }
+
+    @Test
+    public void testConstantInitializerChangeCleansIndirectDependents() throws Exception
+    {
+        assertCleanedAfterChange(replace(BASE, "LIMIT:int = 1;", "LIMIT:int = 2;"), false);
+    }
+
+    @Test
+    public void testNamespaceChangeCleansIndirectDependents() throws Exception
+    {
+        assertCleanedAfterChange(replace(BASE, "public function f", "protected function f"), false);
+    }
+
+    @Test
+    public void testInlineFunctionFallsBackToFullInvalidation() throws Exception
+    {
+        String[] inlineBase = replace(BASE, "public static const LIMIT:int = 1;",
+                "public static const LIMIT:int = 1; [Inline] public static function g():int { return 1; }");
+        write("Base", inlineBase);
+        assertCleanedAfterChange(replace(inlineBase, "return 1;", "return 2;"), false);
+    }
+}
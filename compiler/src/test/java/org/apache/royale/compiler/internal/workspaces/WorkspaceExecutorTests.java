@@ -0,0 +1,234 @@
+/*
+ *
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.apache.royale.compiler.internal.workspaces;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import org.apache.royale.compiler.workspaces.WorkspaceExecutorStrategy;
+import org.junit.Test;
+
+/**
+ * Checks the {@link ExecutorService} that each
+ * {@link WorkspaceExecutorStrategy} creates for a {@link Workspace}.
+ */
+public class WorkspaceExecutorTests
+{
+    /**
+     * @return true if the current thread is a virtual thread. JVMs older
+     * than Java 21 have no virtual threads.
+     */
+    private static boolean isVirtualThread()
+    {
+        try
+        {
+            Method isVirtual = Thread.class.getMethod("isVirtual");
+            return (Boolean)isVirtual.invoke(Thread.currentThread());
+        }
+        catch (Exception e)
+        {
+            return false;
+        }
+    }
+
+    private static boolean hasVirtualThreads()
+    {
+        try
+        {
+            Thread.class.getMethod("isVirtual");
+            return true;
+        }
+        catch (NoSuchMethodException e)
+        {
+            return false;
+        }
+    }
+
+    /**
+     * Runs tasks that each wait for a nested task on the same executor, as
+     * requests on compilation units do, and checks that they all complete.
+     *
+     * @return true if the tasks ran on virtual threads.
+     */
+    private static boolean runNestedTasks(final ExecutorService executorService) throws Exception
+    {
+        List<Future<Boolean>> futures = new ArrayList<Future<Boolean>>();
+        for (int i = 0; i < 32; i++)
+        {
+            futures.add(executorService.submit(new Callable<Boolean>()
+            {
+                @Override
+                public Boolean call() throws Exception
+                {
+                    Future<Boolean> nested = executorService.submit(new Callable<Boolean>()
+                    {
+                        @Override
+                        public Boolean call()
+                        {
+                            return isVirtualThread();
+                        }
+                    });
+                    return nested.get() && isVirtualThread();
+                }
+            }));
+        }
+        boolean virtual = true;
+        for (Future<Boolean> future : futures)
+        {
+            virtual &= future.get();
+        }
+        return virtual;
+    }
+
+    @Test
+    public void testThreadPoolHas16ThreadsByDefault() throws Exception
+    {
+        ExecutorService executorService = Workspace.createExecutorService(WorkspaceExecutorStrategy.THREAD_POOL, 0);
+        try
+        {
+            assertThat(executorService instanceof ThreadPoolExecutor, is(true));
+            ThreadPoolExecutor threadPool = (ThreadPoolExecutor)executorService;
+            assertThat(threadPool.getMaximumPoolSize(), is(16));
+            assertThat(threadPool.getRejectedExecutionHandler() instanceof ThreadPoolExecutor.CallerRunsPolicy, is(true));
+            assertThat(runNestedTasks(executorService), is(false));
+        }
+        finally
+        {
+            executorService.shutdown();
+        }
+    }
+
+    @Test
+    public void testThreadPoolHasConfiguredThreadCount() throws Exception
+    {
+        ExecutorService executorService = Workspace.createExecutorService(WorkspaceExecutorStrategy.THREAD_POOL, 3);
+        try
+        {
+            assertThat(((ThreadPoolExecutor)executorService).getMaximumPoolSize(), is(3));
+            // work that doesn't fit in the pool runs on the thread that submits it
+            assertThat(runNestedTasks(executorService), is(false));
+        }
+        finally
+        {
+            executorService.shutdown();
+        }
+    }
+
+    @Test
+    public void testWorkStealing() throws Exception
+    {
+        ExecutorService executorService = Workspace.createExecutorService(WorkspaceExecutorStrategy.WORK_STEALING, 2);
+        try
+        {
+            assertThat(executorService instanceof ForkJoinPool, is(true));
+            assertThat(((ForkJoinPool)executorService).getParallelism(), is(2));
+            assertThat(runNestedTasks(executorService), is(false));
+        }
+        finally
+        {
+            executorService.shutdown();
+        }
+
+        executorService = Workspace.createExecutorService(WorkspaceExecutorStrategy.WORK_STEALING, 0);
+        try
+        {
+            assertThat(((ForkJoinPool)executorService).getParallelism(), is(16));
+        }
+        finally
+        {
+            executorService.shutdown();
+        }
+    }
+
+    @Test
+    public void testVirtualThreads() throws Exception
+    {
+        ExecutorService executorService = Workspace.createExecutorService(WorkspaceExecutorStrategy.VIRTUAL_THREADS, 2);
+        try
+        {
+            if (hasVirtualThreads())
+            {
+                assertThat(executorService instanceof ForkJoinPool, is(false));
+                assertThat(runNestedTasks(executorService), is(true));
+            }
+            else
+            {
+                assertThat(executorService instanceof ForkJoinPool, is(true));
+                assertThat(runNestedTasks(executorService), is(false));
+            }
+        }
+        finally
+        {
+            executorService.shutdown();
+        }
+    }
+
+    @Test
+    public void testVirtualThreadsFallBackToWorkStealing() throws Exception
+    {
+        // as on a JVM whose Executors has no virtual thread factory
+        ExecutorService executorService = Workspace.createExecutorService(WorkspaceExecutorStrategy.VIRTUAL_THREADS, 2,
+                "noVirtualThreadPerTaskExecutor");
+        try
+        {
+            assertThat(executorService instanceof ForkJoinPool, is(true));
+            assertThat(((ForkJoinPool)executorService).getParallelism(), is(2));
+            assertThat(runNestedTasks(executorService), is(false));
+        }
+        finally
+        {
+            executorService.shutdown();
+        }
+    }
+
+    @Test
+    public void testWorkspaceThreadCount()
+    {
+        Workspace workspace = new Workspace();
+        try
+        {
+            assertThat(workspace.getExecutorThreadCount(), is(16));
+            ExecutorService oldExecutorService = workspace.getExecutorService();
+
+            workspace.setExecutorStrategy(WorkspaceExecutorStrategy.WORK_STEALING, 4);
+            assertThat(workspace.getExecutorThreadCount(), is(4));
+            assertThat(workspace.getExecutorService() instanceof ForkJoinPool, is(true));
+            assertThat(oldExecutorService.isShutdown(), is(true));
+
+            // the same settings keep the executor
+            ExecutorService executorService = workspace.getExecutorService();
+            workspace.setExecutorStrategy(WorkspaceExecutorStrategy.WORK_STEALING, 4);
+            assertThat(workspace.getExecutorService() == executorService, is(true));
+        }
+        finally
+        {
+            workspace.close();
+        }
+    }
+}
@@ -0,0 +1,559 @@
+/*
+ *
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.apache.royale.swc.io;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * JUnit tests for {@link SWCArchive} and {@link SWCArchiveWriter}.
+ * <p>
+ * The archives that are read are written by
+ * {@link java.util.zip.ZipOutputStream}, and the archives that are written
+ * are read back by {@link java.util.zip.ZipFile}.
+ */
+public class SWCArchiveTests
+{
+    private static final String STORED = "catalog.xml";
+    private static final String DEFLATED = "library.swf";
+    private static final String DESCRIPTOR = "js/out/Foo.js";
+
+    /**
+     * Bit 3 of the flags in a local header says that the sizes and the CRC
+     * follow the data in a data descriptor.
+     */
+    private static final int FLAG_DATA_DESCRIPTOR = 0x08;
+
+    private final List<File> files = new ArrayList<File>();
+    private File zip;
+    private byte[] storedData;
+    private byte[] deflatedData;
+    private byte[] descriptorData;
+
+    @Before
+    public void setUp() throws IOException
+    {
+        storedData = "<swc><files/></swc>".getBytes(StandardCharsets.UTF_8);
+        deflatedData = createData(20000, 1);
+        descriptorData = createData(5000, 2);
+        zip = createTempFile();
+        writeZip(zip);
+    }
+
+    @After
+    public void tearDown()
+    {
+        for (File file : files)
+            file.delete();
+    }
+
+    private File createTempFile() throws IOException
+    {
+        File file = Files.createTempFile(getClass().getSimpleName(), ".swc").toFile();
+        files.add(file);
+        return file;
+    }
+
+    /**
+     * @return Compressible data that isn't only repeated bytes.
+     */
+    private static byte[] createData(int length, long seed)
+    {
+        Random random = new Random(seed);
+        byte[] data = new byte[length];
+        for (int i = 0; i < length; i++)
+            data[i] = (byte)('a' + random.nextInt(4));
+        return data;
+    }
+
+    private static long crc(byte[] data)
+    {
+        CRC32 crc = new CRC32();
+        crc.update(data);
+        return crc.getValue();
+    }
+
+    private static byte[] readAll(InputStream input) throws IOException
+    {
+        try
+        {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            byte[] buffer = new byte[1000];
+            int count;
+            while ((count = input.read(buffer)) != -1)
+                output.write(buffer, 0, count);
+            return output.toByteArray();
+        }
+        finally
+        {
+            input.close();
+        }
+    }
+
+    /**
+     * Writes a STORED file, a DEFLATED file whose sizes are in its local
+     * header, and a DEFLATED file with a data descriptor.
+     */
+    private void writeZip(File file) throws IOException
+    {
+        // ZipOutputStream only puts the sizes of a DEFLATED file in its local
+        // header if they are known, so deflate it once to find them.
+        File sizes = createTempFile();
+        ZipOutputStream sizesOutput = new ZipOutputStream(new FileOutputStream(sizes));
+        try
+        {
+            sizesOutput.putNextEntry(new ZipEntry(DEFLATED));
+            sizesOutput.write(deflatedData);
+            sizesOutput.closeEntry();
+        }
+        finally
+        {
+            sizesOutput.close();
+        }
+        long compressedSize;
+        ZipFile sizesZip = new ZipFile(sizes);
+        try
+        {
+            compressedSize = sizesZip.getEntry(DEFLATED).getCompressedSize();
+        }
+        finally
+        {
+            sizesZip.close();
+        }
+
+        ZipOutputStream output = new ZipOutputStream(new FileOutputStream(file));
+        try
+        {
+            ZipEntry stored = new ZipEntry(STORED);
+            stored.setMethod(ZipEntry.STORED);
+            stored.setSize(storedData.length);
+            stored.setCompressedSize(storedData.length);
+            stored.setCrc(crc(storedData));
+            output.putNextEntry(stored);
+            output.write(storedData);
+            output.closeEntry();
+
+            ZipEntry deflated = new ZipEntry(DEFLATED);
+            deflated.setSize(deflatedData.length);
+            deflated.setCompressedSize(compressedSize);
+            deflated.setCrc(crc(deflatedData));
+            output.putNextEntry(deflated);
+            output.write(deflatedData);
+            output.closeEntry();
+
+            output.putNextEntry(new ZipEntry(DESCRIPTOR));
+            output.write(descriptorData);
+            output.closeEntry();
+        }
+        finally
+        {
+            output.close();
+        }
+    }
+
+    /**
+     * @return The flags in the local header of a file.
+     */
+    private static int getLocalHeaderFlags(File file, String name) throws IOException
+    {
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        for (int i = 0; i + SWCArchive.LOCAL_HEADER_SIZE + nameBytes.length <= bytes.length; i++)
+        {
+            if (getInt(bytes, i) == SWCArchive.LOCAL_HEADER_SIGNATURE &&
+                getShort(bytes, i + 26) == nameBytes.length &&
+                new String(bytes, i + SWCArchive.LOCAL_HEADER_SIZE, nameBytes.length, StandardCharsets.UTF_8).equals(name))
+            {
+                return getShort(bytes, i + 6);
+            }
+        }
+        throw new AssertionError("No local header for " + name);
+    }
+
+    private static int getShort(byte[] bytes, int index)
+    {
+        return (bytes[index] & 0xff) | (bytes[index + 1] & 0xff) << 8;
+    }
+
+    private static int getInt(byte[] bytes, int index)
+    {
+        return getShort(bytes, index) | getShort(bytes, index + 2) << 16;
+    }
+
+    @Test
+    public void testTestArchive() throws IOException
+    {
+        assertThat(getLocalHeaderFlags(zip, STORED) & FLAG_DATA_DESCRIPTOR, is(0));
+        assertThat(getLocalHeaderFlags(zip, DEFLATED) & FLAG_DATA_DESCRIPTOR, is(0));
+        assertThat(getLocalHeaderFlags(zip, DESCRIPTOR) & FLAG_DATA_DESCRIPTOR, is(FLAG_DATA_DESCRIPTOR));
+    }
+
+    @Test
+    public void testReadEntries() throws IOException
+    {
+        SWCArchive archive = new SWCArchive(zip);
+        try
+        {
+            List<String> names = new ArrayList<String>();
+            for (SWCArchive.Entry entry : archive.getEntries())
+                names.add(entry.getName());
+            assertThat(names.toString(), is("[" + STORED + ", " + DEFLATED + ", " + DESCRIPTOR + "]"));
+
+            assertEntry(archive, STORED, ZipEntry.STORED, storedData);
+            assertEntry(archive, DEFLATED, ZipEntry.DEFLATED, deflatedData);
+            assertEntry(archive, DESCRIPTOR, ZipEntry.DEFLATED, descriptorData);
+
+            assertThat(archive.getEntry("missing") == null, is(true));
+            assertThat(archive.getInputStream("missing") == null, is(true));
+        }
+        finally
+        {
+            archive.close();
+        }
+    }
+
+    private static void assertEntry(SWCArchive archive, String name, int method, byte[] data) throws IOException
+    {
+        SWCArchive.Entry entry = archive.getEntry(name);
+        assertThat(name, entry.getMethod(), is(method));
+        assertThat(name, entry.getSize(), is((long)data.length));
+        assertThat(name, entry.getCrc(), is(crc(data)));
+        if (method == ZipEntry.DEFLATED)
+            assertThat(name, entry.getCompressedSize() < data.length, is(true));
+
+        // The stream can be read twice.
+        assertArrayEquals(data, readAll(archive.getInputStream(name)));
+        assertArrayEquals(data, readAll(archive.getInputStream(entry)));
+
+        // Read one byte at a time too.
+        InputStream input = archive.getInputStream(entry);
+        try
+        {
+            assertThat(input.available() > 0, is(data.length > 0));
+            for (int i = 0; i < data.length; i++)
+                assertThat(name, input.read(), is(data[i] & 0xff));
+            assertThat(input.read(), is(-1));
+        }
+        finally
+        {
+            input.close();
+        }
+    }
+
+    /**
+     * Some callers size a buffer with {@code available()} and read a file
+     * with one call to {@code read()}, as they could with
+     * {@link java.util.zip.ZipFile}, so a read fills the buffer even if the
+     * file is larger than the input buffer of the inflater.
+     */
+    @Test
+    public void testSingleReadFillsBuffer() throws IOException
+    {
+        // Random bytes don't compress, so the compressed data of the file
+        // is several times the size of the input buffer.
+        byte[] assetData = new byte[40000];
+        new Random(3).nextBytes(assetData);
+        File file = createTempFile();
+        ZipOutputStream output = new ZipOutputStream(new FileOutputStream(file));
+        try
+        {
+            output.putNextEntry(new ZipEntry("assets/large.png"));
+            output.write(assetData);
+            output.closeEntry();
+        }
+        finally
+        {
+            output.close();
+        }
+
+        SWCArchive archive = new SWCArchive(file);
+        try
+        {
+            SWCArchive.Entry entry = archive.getEntry("assets/large.png");
+            assertThat(entry.getMethod(), is(ZipEntry.DEFLATED));
+            assertThat(entry.getCompressedSize() > 4 * 8192, is(true));
+            InputStream input = archive.getInputStream(entry);
+            try
+            {
+                byte[] data = new byte[input.available()];
+                assertThat(data.length, is(assetData.length));
+                assertThat(input.read(data), is(data.length));
+                assertArrayEquals(assetData, data);
+                assertThat(input.read(), is(-1));
+            }
+            finally
+            {
+                input.close();
+            }
+        }
+        finally
+        {
+            archive.close();
+        }
+    }
+
+    @Test
+    public void testStreamsReadableAfterClose() throws IOException
+    {
+        SWCArchive archive = new SWCArchive(zip);
+        InputStream stored = archive.getInputStream(STORED);
+        InputStream deflated = archive.getInputStream(DEFLATED);
+        assertThat(archive.isOpen(), is(true));
+        archive.close();
+        assertThat(archive.isOpen(), is(false));
+        assertArrayEquals(storedData, readAll(stored));
+        assertArrayEquals(deflatedData, readAll(deflated));
+
+        try
+        {
+            archive.getInputStream(STORED);
+            throw new AssertionError("Expected a ClosedChannelException");
+        }
+        catch (ClosedChannelException e)
+        {
+            // expected
+        }
+    }
+
+    /**
+     * A thread that is interrupted while it reads from an archive closes the
+     * file, which the other threads open again.
+     */
+    @Test
+    public void testReadAfterInterruptedRead() throws Exception
+    {
+        final SWCArchive archive = new SWCArchive(zip);
+        try
+        {
+            final AtomicReference<Throwable> interruptedResult = new AtomicReference<Throwable>();
+            Thread thread = new Thread(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    Thread.currentThread().interrupt();
+                    try
+                    {
+                        archive.getInputStream(DESCRIPTOR).close();
+                    }
+                    catch (Throwable e)
+                    {
+                        interruptedResult.set(e);
+                    }
+                }
+            });
+            thread.start();
+            thread.join();
+            assertThat(String.valueOf(interruptedResult.get()),
+                       interruptedResult.get() instanceof ClosedByInterruptException, is(true));
+
+            assertThat(archive.isOpen(), is(true));
+            assertArrayEquals(descriptorData, readAll(archive.getInputStream(DESCRIPTOR)));
+            assertArrayEquals(deflatedData, readAll(archive.getInputStream(DEFLATED)));
+        }
+        finally
+        {
+            archive.close();
+        }
+    }
+
+    /**
+     * An archive doesn't keep the file from being replaced after it is
+     * closed.
+     */
+    @Test
+    public void testFileCanBeReplacedAfterClose() throws IOException
+    {
+        SWCArchive archive = new SWCArchive(zip);
+        InputStream input = archive.getInputStream(DEFLATED);
+        archive.close();
+
+        File replacement = createTempFile();
+        writeZip(replacement);
+        assertThat(zip.delete(), is(true));
+        assertThat(replacement.renameTo(zip), is(true));
+        assertArrayEquals(deflatedData, readAll(input));
+
+        archive = new SWCArchive(zip);
+        try
+        {
+            assertArrayEquals(descriptorData, readAll(archive.getInputStream(DESCRIPTOR)));
+        }
+        finally
+        {
+            archive.close();
+        }
+    }
+
+    @Test
+    public void testNotAZipArchive() throws IOException
+    {
+        File file = createTempFile();
+        OutputStream output = new FileOutputStream(file);
+        try
+        {
+            output.write(storedData);
+        }
+        finally
+        {
+            output.close();
+        }
+        try
+        {
+            new SWCArchive(file).close();
+            throw new AssertionError("Expected a ZipException");
+        }
+        catch (ZipException e)
+        {
+            // expected
+        }
+    }
+
+    @Test
+    public void testWriterOutputReadByZipFile() throws IOException
+    {
+        File copy = createTempFile();
+        byte[] putData = "<swc/>".getBytes(StandardCharsets.UTF_8);
+        long time = 1500000000000L;
+
+        SWCArchive archive = new SWCArchive(zip);
+        try
+        {
+            SWCArchiveWriter writer = new SWCArchiveWriter(copy);
+            try
+            {
+                writer.copyEntry(archive, archive.getEntry(STORED), time);
+                writer.copyEntry(archive, archive.getEntry(DEFLATED), time);
+                writer.copyEntry(archive, archive.getEntry(DESCRIPTOR), time);
+                writer.putEntry("new/catalog.xml", time, putData);
+            }
+            finally
+            {
+                writer.close();
+            }
+        }
+        finally
+        {
+            archive.close();
+        }
+
+        // The copied files keep their compression method.
+        ZipFile zipFile = new ZipFile(copy);
+        try
+        {
+            assertZipEntry(zipFile, STORED, ZipEntry.STORED, storedData);
+            assertZipEntry(zipFile, DEFLATED, ZipEntry.DEFLATED, deflatedData);
+            assertZipEntry(zipFile, DESCRIPTOR, ZipEntry.DEFLATED, descriptorData);
+            assertZipEntry(zipFile, "new/catalog.xml", ZipEntry.STORED, putData);
+            assertThat(zipFile.size(), is(4));
+        }
+        finally
+        {
+            zipFile.close();
+        }
+
+        // No data descriptors are written.
+        assertThat(getLocalHeaderFlags(copy, DESCRIPTOR) & FLAG_DATA_DESCRIPTOR, is(0));
+
+        // The output can be read by SWCArchive too.
+        SWCArchive copyArchive = new SWCArchive(copy);
+        try
+        {
+            assertEntry(copyArchive, DESCRIPTOR, ZipEntry.DEFLATED, descriptorData);
+            assertEntry(copyArchive, "new/catalog.xml", ZipEntry.STORED, putData);
+        }
+        finally
+        {
+            copyArchive.close();
+        }
+    }
+
+    private static void assertZipEntry(ZipFile zipFile, String name, int method, byte[] data) throws IOException
+    {
+        ZipEntry entry = zipFile.getEntry(name);
+        assertThat(name, entry != null, is(true));
+        assertThat(name, entry.getMethod(), is(method));
+        assertThat(name, entry.getSize(), is((long)data.length));
+        assertThat(name, entry.getCrc(), is(crc(data)));
+        // ZipFile checks the CRC when the stream is read to the end.
+        assertArrayEquals(data, readAll(zipFile.getInputStream(entry)));
+    }
+
+    @Test
+    public void testWriterReplacesFile() throws IOException
+    {
+        File copy = createTempFile();
+        RandomAccessFile existing = new RandomAccessFile(copy, "rw");
+        try
+        {
+            existing.setLength(100000);
+        }
+        finally
+        {
+            existing.close();
+        }
+
+        SWCArchiveWriter writer = new SWCArchiveWriter(copy);
+        try
+        {
+            writer.putEntry(STORED, 0, storedData);
+        }
+        finally
+        {
+            writer.close();
+        }
+
+        ZipFile zipFile = new ZipFile(copy);
+        try
+        {
+            assertZipEntry(zipFile, STORED, ZipEntry.STORED, storedData);
+        }
+        finally
+        {
+            zipFile.close();
+        }
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ *
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.apache.royale.swf.io;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class ParallelDeflaterTests
+{
+    private static ExecutorService executor;
+
+    @BeforeClass
+    public static void createExecutor()
+    {
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @AfterClass
+    public static void shutdownExecutor()
+    {
+        executor.shutdown();
+    }
+
+    /**
+     * Text-like data that compresses, with repeats that cross block
+     * boundaries.
+     */
+    private static byte[] createData(int length)
+    {
+        final Random random = new Random(length);
+        final byte[] data = new byte[length];
+        for (int i = 0; i < length; i++)
+        {
+            data[i] = (byte)('a' + random.nextInt(12));
+        }
+        return data;
+    }
+
+    private static byte[] deflateParallel(byte[] data, int length, int level) throws Exception
+    {
+        return deflateParallel(data, length, level, executor, 4);
+    }
+
+    private static byte[] deflateParallel(byte[] data, int length, int level,
+            Executor executor, int threadCount) throws Exception
+    {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        new ParallelDeflater(level, executor, threadCount).deflate(data, length, output);
+        return output.toByteArray();
+    }
+
+    private static byte[] deflateSerial(byte[] data, int length, int level) throws IOException
+    {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        final Deflater deflater = new Deflater(level);
+        final DeflaterOutputStream deflaterStream = new DeflaterOutputStream(output, deflater);
+        deflaterStream.write(data, 0, length);
+        deflaterStream.finish();
+        deflater.end();
+        return output.toByteArray();
+    }
+
+    private static byte[] inflate(byte[] compressed) throws IOException
+    {
+        final InflaterInputStream input = new InflaterInputStream(new ByteArrayInputStream(compressed));
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[8192];
+        int count;
+        while ((count = input.read(buffer)) > 0)
+        {
+            output.write(buffer, 0, count);
+        }
+        input.close();
+        return output.toByteArray();
+    }
+
+    private static void assertRoundTrip(int length, int level) throws Exception
+    {
+        // the array is longer than the data, like the array of an IOutputBitStream
+        final byte[] data = createData(length + 16);
+        final byte[] compressed = deflateParallel(data, length, level);
+        assertArrayEquals("length " + length, Arrays.copyOf(data, length), inflate(compressed));
+
+        // the header has the same level flags as the one java.util.zip writes
+        final byte[] serial = deflateSerial(data, length, level);
+        assertTrue("header", compressed[0] == serial[0] && compressed[1] == serial[1]);
+    }
+
+    @Test
+    public void testSmallInputs() throws Exception
+    {
+        assertRoundTrip(0, Deflater.BEST_COMPRESSION);
+        assertRoundTrip(1, Deflater.BEST_COMPRESSION);
+        assertRoundTrip(1000, Deflater.BEST_SPEED);
+    }
+
+    @Test
+    public void testBlockBoundaries() throws Exception
+    {
+        assertRoundTrip(ParallelDeflater.BLOCK_SIZE, Deflater.BEST_COMPRESSION);
+        assertRoundTrip(ParallelDeflater.BLOCK_SIZE + 1, Deflater.BEST_COMPRESSION);
+        assertRoundTrip(ParallelDeflater.BLOCK_SIZE * 3 - 1, Deflater.BEST_SPEED);
+    }
+
+    @Test
+    public void testSizeIsCloseToSerialCompression() throws Exception
+    {
+        final int length = ParallelDeflater.BLOCK_SIZE * 20 + 12345;
+        final byte[] data = createData(length);
+        final byte[] parallel = deflateParallel(data, length, Deflater.BEST_COMPRESSION);
+        final byte[] serial = deflateSerial(data, length, Deflater.BEST_COMPRESSION);
+        assertArrayEquals(data, inflate(parallel));
+        // the preset dictionaries keep the overhead of the blocks small
+        assertTrue(parallel.length + " vs " + serial.length, parallel.length < serial.length * 1.01);
+    }
+
+    @Test
+    public void testThreadCountLimitsHelperThreads() throws Exception
+    {
+        final int length = ParallelDeflater.BLOCK_SIZE * 8;
+        final byte[] data = createData(length);
+        final AtomicInteger helperCount = new AtomicInteger();
+        final Executor countingExecutor = new Executor()
+        {
+            @Override
+            public void execute(Runnable command)
+            {
+                helperCount.incrementAndGet();
+                executor.execute(command);
+            }
+        };
+
+        // one thread compresses every block on the calling thread
+        final byte[] single = deflateParallel(data, length, Deflater.BEST_COMPRESSION, countingExecutor, 1);
+        assertTrue("helpers " + helperCount.get(), helperCount.get() == 0);
+
+        final byte[] several = deflateParallel(data, length, Deflater.BEST_COMPRESSION, countingExecutor, 3);
+        assertTrue("helpers " + helperCount.get(), helperCount.get() == 2);
+
+        // the output doesn't depend on the number of threads
+        assertArrayEquals(single, several);
+        assertArrayEquals(data, inflate(several));
+    }
+}
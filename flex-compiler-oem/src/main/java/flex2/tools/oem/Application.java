@@ -31,8 +31,10 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import org.apache.royale.compiler.clients.IncrementalBuild;
 import org.apache.royale.compiler.clients.MXMLJSC;
 import org.apache.royale.compiler.clients.problems.ProblemFormatter;
 import org.apache.royale.compiler.clients.problems.ProblemQuery;
@@ -541,6 +543,7 @@ public class Application implements Builder
     	// assuming FB takes care of deleting bin-release and bin-debug, we want to delete bin.
     	// but this also gets called when quitting FB.
     	setOutputCalled = false;
+    	closeIncrementalBuild();
     }
 
     /**
@@ -632,14 +635,44 @@ public class Application implements Builder
     
             //Map licenseMap = OEMUtil.getLicenseMap(tempOEMConfiguration.configuration);
     
-            mxmljsc = new MXMLJSC();
-            mxmljsc.noLink = true;
+            String[] args = constructCommandLine(oemConfiguration);
+            if (incremental && Arrays.equals(args, incrementalBuildArgs))
+            {
+                try
+                {
+                    incrementalBuild.applyFileChanges();
+                }
+                catch (RuntimeException e)
+                {
+                    // fall back to a full build
+                    closeIncrementalBuild();
+                }
+            }
+            else
+            {
+                closeIncrementalBuild();
+            }
+            if (incrementalBuild == null)
+            {
+                MXMLJSC compiler = new MXMLJSC();
+                compiler.noLink = true;
+                incrementalBuild = new IncrementalBuild(compiler);
+            }
+            mxmljsc = incrementalBuild.getCompiler();
             //int returnValue = mxmlc.mainCompileOnly(constructCommandLine2(tempOEMConfiguration.configuration), null);
-            int returnValue = mxmljsc.mainNoExit(constructCommandLine(oemConfiguration), null, true);
+            int returnValue = mxmljsc.mainNoExit(args, null, true);
             if (returnValue == 0 || returnValue == 2)
+            {
+                incrementalBuild.recordFiles();
+                incrementalBuildArgs = args;
                 returnValue = OK;
+            }
             else
+            {
+                // the configuration may be half applied, so start over next time
+                closeIncrementalBuild();
                 returnValue = FAIL;
+            }
             
             processMXMLCReport(mxmljsc, tempOEMConfiguration);
             
@@ -665,6 +698,24 @@ public class Application implements Builder
     }
     
     private MXMLJSC mxmljsc = new MXMLJSC();
+
+    /**
+     * The build that keeps the workspace of the last successful compile, and
+     * the command line it was compiled with. An incremental build with the
+     * same command line only rebuilds the files that changed since.
+     */
+    private IncrementalBuild incrementalBuild;
+    private String[] incrementalBuildArgs;
+
+    private void closeIncrementalBuild()
+    {
+        if (incrementalBuild != null)
+        {
+            incrementalBuild.close();
+            incrementalBuild = null;
+            incrementalBuildArgs = null;
+        }
+    }
     private List<Source> sources;
     private SimpleMovie movie;
     private SourceList sourceList;
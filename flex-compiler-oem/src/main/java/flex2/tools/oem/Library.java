@@ -26,6 +26,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -38,6 +39,7 @@ import java.lang.annotation.Annotation;
 import java.net.URI;
 
 import org.apache.royale.compiler.clients.COMPJSC;
+import org.apache.royale.compiler.clients.IncrementalBuild;
 import org.apache.royale.compiler.clients.problems.ProblemFormatter;
 import org.apache.royale.compiler.clients.problems.ProblemQuery;
 import org.apache.royale.compiler.problems.CompilerProblemSeverity;
@@ -259,6 +261,22 @@ public class Library implements Builder, Cloneable
     private List<Source> compiledSources;
     private SourceList sourceList;
 
+    // the build that keeps the workspace of the last successful compile, and the
+    // command line it was compiled with. an incremental build with the same command
+    // line only rebuilds the files that changed since.
+    private IncrementalBuild incrementalBuild;
+    private String[] incrementalBuildArgs;
+
+    private void closeIncrementalBuild()
+    {
+        if (incrementalBuild != null)
+        {
+            incrementalBuild.close();
+            incrementalBuild = null;
+            incrementalBuildArgs = null;
+        }
+    }
+
 
     // clean() would null out the following variables
     //LibraryData data;
@@ -727,6 +745,7 @@ public class Library implements Builder, Cloneable
      */
     public void clean()
     {
+        closeIncrementalBuild();
         clean(true /* cleanData */,
               true /* cleanCache */,
               true /* cleanOutput */,
@@ -914,12 +933,41 @@ public class Library implements Builder, Cloneable
               true /* cleanConfig */,
               false /* cleanMessages */,
               false /* cleanThreadLocals */);
-        COMPJSC compc = new COMPJSC();
-        int returnValue = compc.mainNoExit(constructCommandLine(oemConfiguration), null, true);
+        String[] args = constructCommandLine(oemConfiguration);
+        if (incremental && Arrays.equals(args, incrementalBuildArgs))
+        {
+            try
+            {
+                incrementalBuild.applyFileChanges();
+            }
+            catch (RuntimeException e)
+            {
+                // fall back to a full build
+                closeIncrementalBuild();
+            }
+        }
+        else
+        {
+            closeIncrementalBuild();
+        }
+        if (incrementalBuild == null)
+        {
+            incrementalBuild = new IncrementalBuild(new COMPJSC());
+        }
+        COMPJSC compc = (COMPJSC) incrementalBuild.getCompiler();
+        int returnValue = compc.mainNoExit(args, null, true);
         if (returnValue == 0 || returnValue == 2)
+        {
+            incrementalBuild.recordFiles();
+            incrementalBuildArgs = args;
             returnValue = OK;
+        }
         else
+        {
+            // the configuration may be half applied, so start over next time
+            closeIncrementalBuild();
             returnValue = FAIL;
+        }
 
         LibraryCompilerConfiguration acc = ((LibraryCompilerConfiguration)tempOEMConfiguration.configuration);
         VirtualFile[] sourcePaths = acc.getCompilerConfiguration().getSourcePath();
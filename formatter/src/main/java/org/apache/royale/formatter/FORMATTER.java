@@ -27,6 +27,11 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Scanner;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
@@ -49,6 +54,7 @@ import org.apache.royale.formatter.config.ConfigurationBuffer;
 import org.apache.royale.formatter.config.ConfigurationValue;
 import org.apache.royale.formatter.config.Configurator;
 import org.apache.royale.formatter.config.Semicolons;
+import org.apache.royale.formatter.internal.FormattedFileCache;
 import org.apache.royale.utils.FilenameNormalization;
 
 /**
@@ -110,6 +116,8 @@ public class FORMATTER {
 	private List<File> inputFiles = new ArrayList<File>();
 	private boolean writeBackToInputFiles = false;
 	private boolean listChangedFiles = false;
+	private int threads = 1;
+	private File cacheFile = null;
 	private Configuration configuration;
 	private ConfigurationBuffer configBuffer;
 
@@ -143,23 +151,7 @@ public class FORMATTER {
 						System.out.println(formattedText);
 					}
 				} else {
-					for (File inputFile : inputFiles) {
-						String filePath = FilenameNormalization.normalize(inputFile.getAbsolutePath());
-						FileSpecification fileSpec = new FileSpecification(filePath);
-						String fileText = IOUtils.toString(fileSpec.createReader());
-						String formattedText = formatFileText(filePath, fileText, problemQuery.getProblems());
-						if (!fileText.equals(formattedText)) {
-							if (listChangedFiles) {
-								System.out.println(filePath);
-							}
-							if (writeBackToInputFiles) {
-								FileUtils.write(inputFile, formattedText, "utf8");
-							}
-						}
-						if (!listChangedFiles && !writeBackToInputFiles) {
-							System.out.println(formattedText);
-						}
-					}
+					formatInputFiles();
 				}
 			} else if (problemQuery.hasFilteredProblems()) {
 				exitCode = ExitCode.FAILED_WITH_CONFIG_PROBLEMS;
@@ -182,6 +174,109 @@ public class FORMATTER {
 		return exitCode.getCode();
 	}
 
+	/**
+	 * Formats the input files, on several threads if requested. The results
+	 * are printed or written in the order of the input files.
+	 */
+	private void formatInputFiles() throws Exception {
+		final FormattedFileCache cache = (cacheFile != null) ? new FormattedFileCache(cacheFile, getFormatterSettings())
+				: null;
+		ExecutorService executor = null;
+		List<Future<FormatResult>> futures = null;
+		if (threads > 1 && inputFiles.size() > 1) {
+			executor = Executors.newFixedThreadPool(Math.min(threads, inputFiles.size()));
+			futures = new ArrayList<Future<FormatResult>>(inputFiles.size());
+			for (final File inputFile : inputFiles) {
+				futures.add(executor.submit(new Callable<FormatResult>() {
+					@Override
+					public FormatResult call() throws Exception {
+						return formatInputFile(inputFile, cache);
+					}
+				}));
+			}
+		}
+		try {
+			for (int i = 0; i < inputFiles.size(); i++) {
+				FormatResult result = null;
+				if (futures != null) {
+					try {
+						result = futures.get(i).get();
+					} catch (ExecutionException e) {
+						Throwable cause = e.getCause();
+						if (cause instanceof Exception) {
+							throw (Exception) cause;
+						}
+						throw e;
+					}
+					// don't keep the text of files that are done
+					futures.set(i, null);
+				} else {
+					result = formatInputFile(inputFiles.get(i), cache);
+				}
+				problemQuery.addAll(result.problems);
+				if (!result.fileText.equals(result.formattedText)) {
+					if (listChangedFiles) {
+						System.out.println(result.filePath);
+					}
+					if (writeBackToInputFiles) {
+						FileUtils.write(result.file, result.formattedText, "utf8");
+					}
+				}
+				if (!listChangedFiles && !writeBackToInputFiles) {
+					System.out.println(result.formattedText);
+				}
+			}
+		} finally {
+			if (executor != null) {
+				executor.shutdownNow();
+			}
+		}
+		if (cache != null) {
+			cache.save();
+		}
+	}
+
+	/**
+	 * Formats one input file. Each file gets its own collection of problems,
+	 * so files can be formatted at the same time, and so a problem in one file
+	 * doesn't stop the files after it from being formatted.
+	 */
+	private FormatResult formatInputFile(File inputFile, FormattedFileCache cache) throws IOException {
+		String filePath = FilenameNormalization.normalize(inputFile.getAbsolutePath());
+		FileSpecification fileSpec = new FileSpecification(filePath);
+		String fileText = IOUtils.toString(fileSpec.createReader());
+		List<ICompilerProblem> problems = new ArrayList<ICompilerProblem>();
+		String hash = null;
+		if (cache != null) {
+			hash = FormattedFileCache.hash(filePath, fileText);
+			if (cache.isFormatted(hash)) {
+				return new FormatResult(inputFile, filePath, fileText, fileText, problems);
+			}
+		}
+		String formattedText = formatFileText(filePath, fileText, problems);
+		if (cache != null && problems.isEmpty() && fileText.equals(formattedText)) {
+			cache.addFormatted(hash);
+		}
+		return new FormatResult(inputFile, filePath, fileText, formattedText, problems);
+	}
+
+	private static class FormatResult {
+		FormatResult(File file, String filePath, String fileText, String formattedText,
+				List<ICompilerProblem> problems) {
+			this.file = file;
+			this.filePath = filePath;
+			this.fileText = fileText;
+			this.formattedText = formattedText;
+			this.problems = problems;
+		}
+
+		final File file;
+		final String filePath;
+		final String fileText;
+		final String formattedText;
+		final List<ICompilerProblem> problems;
+	}
+
 	public String formatFile(File file, Collection<ICompilerProblem> problems) throws IOException {
 		String filePath = FilenameNormalization.normalize(file.getAbsolutePath());
 		FileSpecification fileSpec = new FileSpecification(filePath);
@@ -354,6 +449,10 @@ public class FORMATTER {
 			semicolons = Semicolons.valueOf(configuration.getSemicolons().toUpperCase());
 			tabSize = configuration.getTabSize();
 			writeBackToInputFiles = configuration.getWriteFiles();
+			threads = configuration.getThreads();
+			if (configuration.getCacheFile() != null) {
+				cacheFile = new File(configuration.getCacheFile());
+			}
 			for (String filePath : configuration.getFiles()) {
 				File inputFile = new File(filePath);
 				if (!inputFile.exists()) {
@@ -202,6 +202,53 @@ public class Configuration {
         this.listFiles = b;
     }
 
+    //
+    // 'threads' option
+    //
+
+    private int threads = 1;
+
+    /**
+     * The number of files that are formatted at the same time.
+     */
+    public int getThreads()
+    {
+        return threads;
+    }
+
+    @Config(advanced = true)
+    @Mapping("threads")
+    public void setThreads(ConfigurationValue cv, int b) throws ConfigurationException
+    {
+        if (b <= 0)
+            throw new ConfigurationException.GreaterThanZero(cv.getVar(), cv.getSource(), cv.getLine());
+        this.threads = b;
+    }
+
+    //
+    // 'cache-file' option
+    //
+
+    private String cacheFile = null;
+
+    /**
+     * A file that records the content hashes of files that are already
+     * formatted with the current settings, so that they are skipped on the
+     * next run.
+     */
+    public String getCacheFile()
+    {
+        return cacheFile;
+    }
+
+    @Config(advanced = true)
+    @Mapping("cache-file")
+    @Arguments("filename")
+    public void setCacheFile(ConfigurationValue cv, String filename)
+    {
+        this.cacheFile = filename;
+    }
+
     //
     // 'insert-spaces' option
     //
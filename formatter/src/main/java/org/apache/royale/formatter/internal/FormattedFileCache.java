@@ -0,0 +1,189 @@
+////////////////////////////////////////////////////////////////////////////////
+//
+//  Licensed to the Apache Software Foundation (ASF) under one or more
+//  contributor license agreements.  See the NOTICE file distributed with
+//  this work for additional information regarding copyright ownership.
+//  The ASF licenses this file to You under the Apache License, Version 2.0
+//  (the "License"); you may not use this file except in compliance with
+//  the License.  You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+//  Unless required by applicable law or agreed to in writing, software
+//  distributed under the License is distributed on an "AS IS" BASIS,
+//  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//  See the License for the specific language governing permissions and
+//  limitations under the License.
+//
+////////////////////////////////////////////////////////////////////////////////
+
+package org.apache.royale.formatter.internal;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.royale.compiler.common.VersionInfo;
+import org.apache.royale.formatter.FormatterSettings;
+
+/**
+ * A set of the content hashes of files that are known to be formatted, which
+ * is saved to a file between runs of the formatter. A file whose hash is in
+ * the set doesn't need to be formatted again.
+ *
+ * The first line of the cache file is a stamp of the formatter version and
+ * the {@link FormatterSettings}. If the stamp doesn't match, the cache starts
+ * empty, because the same text may not be formatted under other settings.
+ *
+ * Only files that the formatter left unchanged without any problems are
+ * added, so a cached file can be skipped without hiding a problem or a change.
+ * The methods may be called from several threads.
+ */
+public class FormattedFileCache {
+	public FormattedFileCache(File file, FormatterSettings settings) {
+		this.file = file;
+		this.stamp = createStamp(settings);
+		load();
+	}
+
+	private final File file;
+	private final String stamp;
+	private final Set<String> hashes = ConcurrentHashMap.newKeySet();
+	private boolean changed = false;
+
+	/**
+	 * Computes the key of a file's text. The kind of file is included, because
+	 * the same text is formatted differently in .as and .mxml files.
+	 */
+	public static String hash(String filePath, String text) {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException(e);
+		}
+		digest.update((filePath.endsWith(".mxml") ? "mxml:" : "as:").getBytes(StandardCharsets.UTF_8));
+		byte[] bytes = digest.digest(text.getBytes(StandardCharsets.UTF_8));
+		StringBuilder builder = new StringBuilder(bytes.length * 2);
+		for (byte b : bytes) {
+			builder.append(Character.forDigit((b >> 4) & 0xf, 16));
+			builder.append(Character.forDigit(b & 0xf, 16));
+		}
+		return builder.toString();
+	}
+
+	public boolean isFormatted(String hash) {
+		return hashes.contains(hash);
+	}
+
+	public void addFormatted(String hash) {
+		if (hashes.add(hash)) {
+			synchronized (this) {
+				changed = true;
+			}
+		}
+	}
+
+	/**
+	 * Writes the cache file, if anything was added. The file is written to a
+	 * temporary file first, so an interrupted run can't leave a partial cache.
+	 */
+	public synchronized void save() throws IOException {
+		if (!changed) {
+			return;
+		}
+		File parent = file.getAbsoluteFile().getParentFile();
+		if (parent != null && !parent.exists()) {
+			parent.mkdirs();
+		}
+		File tempFile = new File(file.getPath() + ".tmp");
+		Writer writer = new OutputStreamWriter(new FileOutputStream(tempFile), StandardCharsets.UTF_8);
+		try {
+			writer.write(stamp);
+			writer.write('\n');
+			for (String hash : hashes) {
+				writer.write(hash);
+				writer.write('\n');
+			}
+		} finally {
+			IOUtils.closeQuietly(writer);
+		}
+		if (!tempFile.renameTo(file)) {
+			file.delete();
+			if (!tempFile.renameTo(file)) {
+				throw new IOException("Failed to write formatter cache: " + file.getPath());
+			}
+		}
+		changed = false;
+	}
+
+	private void load() {
+		if (!file.isFile()) {
+			return;
+		}
+		BufferedReader reader = null;
+		try {
+			reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8));
+			if (!stamp.equals(reader.readLine())) {
+				// written by another version or with other settings
+				changed = true;
+				return;
+			}
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (line.length() > 0) {
+					hashes.add(line);
+				}
+			}
+		} catch (IOException e) {
+			// an unreadable cache is the same as an empty one
+			hashes.clear();
+			changed = true;
+		} finally {
+			IOUtils.closeQuietly(reader);
+		}
+	}
+
+	private static String createStamp(FormatterSettings settings) {
+		StringBuilder builder = new StringBuilder();
+		builder.append(VersionInfo.getRoyaleVersion());
+		builder.append('.');
+		builder.append(VersionInfo.getBuild());
+		Field[] fields = FormatterSettings.class.getFields();
+		Arrays.sort(fields, new Comparator<Field>() {
+			@Override
+			public int compare(Field f1, Field f2) {
+				return f1.getName().compareTo(f2.getName());
+			}
+		});
+		for (Field field : fields) {
+			if (Modifier.isStatic(field.getModifiers())) {
+				continue;
+			}
+			builder.append(';');
+			builder.append(field.getName());
+			builder.append('=');
+			try {
+				builder.append(field.get(settings));
+			} catch (IllegalAccessException e) {
+				throw new RuntimeException(e);
+			}
+		}
+		return builder.toString();
+	}
+}
@@ -0,0 +1,79 @@
+////////////////////////////////////////////////////////////////////////////////
+//
+//  Licensed to the Apache Software Foundation (ASF) under one or more
+//  contributor license agreements.  See the NOTICE file distributed with
+//  this work for additional information regarding copyright ownership.
+//  The ASF licenses this file to You under the Apache License, Version 2.0
+//  (the "License"); you may not use this file except in compliance with
+//  the License.  You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+//  Unless required by applicable law or agreed to in writing, software
+//  distributed under the License is distributed on an "AS IS" BASIS,
+//  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//  See the License for the specific language governing permissions and
+//  limitations under the License.
+//
+////////////////////////////////////////////////////////////////////////////////
+
+package org.apache.royale.formatter;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.royale.formatter.internal.FormattedFileCache;
+import org.junit.Test;
+
+public class TestFormattedFileCache {
+	private static final String TEXT = "package\n{\n}\n";
+
+	private File createCacheFile() throws IOException {
+		File file = File.createTempFile("formatter", ".cache");
+		file.delete();
+		file.deleteOnExit();
+		return file;
+	}
+
+	@Test
+	public void testHashDependsOnFileKind() {
+		assertFalse(FormattedFileCache.hash("/src/Main.as", TEXT)
+				.equals(FormattedFileCache.hash("/src/Main.mxml", TEXT)));
+		assertTrue(FormattedFileCache.hash("/src/Main.as", TEXT)
+				.equals(FormattedFileCache.hash("/src/Other.as", TEXT)));
+	}
+
+	@Test
+	public void testSavedHashesAreReadBack() throws IOException {
+		File file = createCacheFile();
+		FormatterSettings settings = new FormatterSettings();
+		String hash = FormattedFileCache.hash("/src/Main.as", TEXT);
+
+		FormattedFileCache cache = new FormattedFileCache(file, settings);
+		assertFalse(cache.isFormatted(hash));
+		cache.addFormatted(hash);
+		cache.save();
+
+		FormattedFileCache reloaded = new FormattedFileCache(file, new FormatterSettings());
+		assertTrue(reloaded.isFormatted(hash));
+		assertFalse(reloaded.isFormatted(FormattedFileCache.hash("/src/Main.as", TEXT + "\n")));
+	}
+
+	@Test
+	public void testOtherSettingsInvalidateCache() throws IOException {
+		File file = createCacheFile();
+		String hash = FormattedFileCache.hash("/src/Main.as", TEXT);
+
+		FormattedFileCache cache = new FormattedFileCache(file, new FormatterSettings());
+		cache.addFormatted(hash);
+		cache.save();
+
+		FormatterSettings otherSettings = new FormatterSettings();
+		otherSettings.insertSpaces = true;
+		FormattedFileCache reloaded = new FormattedFileCache(file, otherSettings);
+		assertFalse(reloaded.isFormatted(hash));
+	}
+}
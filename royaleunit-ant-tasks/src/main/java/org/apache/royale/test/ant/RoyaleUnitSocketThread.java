@@ -21,12 +21,13 @@ import java.io.IOException;
 import java.util.Map;
 import java.util.concurrent.Callable;
 
+import javax.xml.stream.XMLStreamException;
+
 import org.apache.tools.ant.BuildException;
-import org.dom4j.Document;
-import org.dom4j.DocumentException;
-import org.dom4j.DocumentHelper;
+import org.dom4j.Element;
 import org.apache.royale.test.ant.report.Report;
 import org.apache.royale.test.ant.report.Suite;
+import org.apache.royale.test.ant.report.TestCaseParser;
 
 /**
  * Managing class for the RoyaleUnitSocketServer and report aggregation.
@@ -46,6 +47,7 @@ public class RoyaleUnitSocketThread implements Callable<Object>
 
     private IRoyaleUnitServer server;
     private Map<String, Report> reports;
+    private TestCaseParser parser = new TestCaseParser();
 
     public RoyaleUnitSocketThread(IRoyaleUnitServer server, File reportDir, Map<String, Report> reports)
     {
@@ -133,48 +135,50 @@ public class RoyaleUnitSocketThread implements Callable<Object>
     /**
      * Process the test report.
      * 
-     * @param report
+     * @param xml
      *           String that represents a complete test
      */
     private void processTestReport(String xml)
     {
-        // Convert the string report into an XML document
-        Document test = parseReport(xml);
+        // Convert the string report into the XML element of the test
+        Element test = parseReport(xml);
 
         // Find the name of the suite
-        String suiteName = test.getRootElement().attributeValue(SUITE_ATTRIBUTE);
+        String suiteName = test.attributeValue(SUITE_ATTRIBUTE);
 
         // Convert all instances of :: for file support
         suiteName = suiteName.replaceAll("::", ".");
 
-        if (!reports.containsKey(suiteName))
+        // Several runners may add to the same reports at the same time
+        synchronized (reports)
         {
-            reports.put(suiteName, new Report(new Suite(suiteName)));
-        }
+            if (!reports.containsKey(suiteName))
+            {
+                reports.put(suiteName, new Report(new Suite(suiteName)));
+            }
 
-        // Fetch report, add test, and write to disk
-        Report report = reports.get(suiteName);
-        report.addTest(test);
+            // Fetch report, add test, and write to disk
+            Report report = reports.get(suiteName);
+            report.addTest(test);
 
-        report.save(reportDir);
+            report.save(reportDir);
+        }
     }
 
     /**
-     * Parse the parameter String and returns it as a document
+     * Parse the parameter String and returns the root element of the test
      * 
      * @param report
      *           String
-     * @return Document
+     * @return Element
      */
-    private Document parseReport(String report)
+    private Element parseReport(String report)
     {
         try
         {
-            final Document document = DocumentHelper.parseText(report);
-
-            return document;
+            return parser.parse(report);
         }
-        catch (DocumentException e)
+        catch (XMLStreamException e)
         {
             LoggingUtil.log(report);
             throw new BuildException("Error parsing report.", e);
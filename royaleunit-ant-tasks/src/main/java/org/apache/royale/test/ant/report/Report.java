@@ -98,8 +98,14 @@ public class Report
      */
     public void addTest(Document test)
     {
-        Element root = test.getRootElement();
-        
+        addTest(test.getRootElement());
+    }
+
+    /**
+     * Adds the test to the suite report given the root element of an XML test
+     */
+    public void addTest(Element root)
+    {
         // Add to the number of tests in this suite if not seen and not null
         String testMethod = root.attributeValue(NAME_ATTRIBUTE);
         if(!recordedRuns.contains(testMethod) && !testMethod.equals("null"))
@@ -123,7 +129,7 @@ public class Report
         document.getRootElement().add(root);
 
         // Check for special status adjustments to make to suite
-        checkForStatus(test);
+        checkForStatus(root);
         
         //remove status attribute since it's only used by the report
         root.remove(root.attribute(STATUS_ATTRIBUTE));
@@ -138,13 +144,12 @@ public class Report
      * Updates counts for failed, error, and ignore on suite as well as logs what
      * failed if told to use logging.
      * 
-     * @param test
-     *           Test XML document
+     * @param root
+     *           Root element of the test XML
      */
-    private void checkForStatus(Document test)
+    private void checkForStatus(Element root)
     {
-        // Get the root element and pull the test name and status
-        final Element root = test.getRootElement();
+        // Pull the test name and status
         final String name = root.attributeValue(NAME_ATTRIBUTE);
         final String status = root.attributeValue(STATUS_ATTRIBUTE);
 
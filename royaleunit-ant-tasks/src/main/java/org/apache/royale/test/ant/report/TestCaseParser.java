@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.royale.test.ant.report;
+
+import java.io.StringReader;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.dom4j.DocumentHelper;
+import org.dom4j.Element;
+
+/**
+ * Parses the testcase messages sent by the CIListener with StAX. Only the
+ * testcase element that is added to the suite report is built, instead of a
+ * whole document with a new SAX parser for every message.
+ */
+public class TestCaseParser
+{
+    private XMLInputFactory factory;
+
+    public TestCaseParser()
+    {
+        factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.FALSE);
+    }
+
+    /**
+     * Parse a testcase message.
+     *
+     * @param xml
+     *           String that represents a complete test
+     * @return The root element of the message
+     */
+    public Element parse(String xml) throws XMLStreamException
+    {
+        XMLStreamReader reader = factory.createXMLStreamReader(new StringReader(xml));
+        try
+        {
+            Element root = null;
+            Deque<Element> elements = new ArrayDeque<Element>();
+            while (reader.hasNext())
+            {
+                switch (reader.next())
+                {
+                    case XMLStreamConstants.START_ELEMENT:
+                    {
+                        Element element = DocumentHelper.createElement(reader.getLocalName());
+                        for (int i = 0; i < reader.getAttributeCount(); i++)
+                        {
+                            element.addAttribute(reader.getAttributeLocalName(i), reader.getAttributeValue(i));
+                        }
+                        if (root == null)
+                        {
+                            root = element;
+                        }
+                        else
+                        {
+                            elements.peek().add(element);
+                        }
+                        elements.push(element);
+                        break;
+                    }
+                    case XMLStreamConstants.END_ELEMENT:
+                    {
+                        elements.pop();
+                        break;
+                    }
+                    case XMLStreamConstants.CHARACTERS:
+                    case XMLStreamConstants.SPACE:
+                    {
+                        if (!elements.isEmpty())
+                        {
+                            elements.peek().addText(reader.getText());
+                        }
+                        break;
+                    }
+                    case XMLStreamConstants.CDATA:
+                    {
+                        if (!elements.isEmpty())
+                        {
+                            elements.peek().addCDATA(reader.getText());
+                        }
+                        break;
+                    }
+                }
+            }
+            if (root == null)
+            {
+                throw new XMLStreamException("No root element in report.");
+            }
+            return root;
+        }
+        finally
+        {
+            reader.close();
+        }
+    }
+}
@@ -17,6 +17,9 @@
 package org.apache.royale.test.ant.tasks;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 import org.apache.tools.ant.BuildException;
 import org.apache.tools.ant.Project;
@@ -43,9 +46,11 @@ public class Compilation
     private final String AIR_CI_LISTENER = "AirCIListener";
     private final String TESTRUNNER_TEMPLATE = "TestRunner.template";
     private final String TESTRUNNER_FILE = "TestRunner.mxml";
+    private final String TESTRUNNER_NAME = "TestRunner";
     private final String MXMLC_RELATIVE_PATH = "lib/mxmlc.jar";
     private final String FRAMEWORKS_RELATIVE_PATH = "frameworks";
     private final String SWF_FILENAME = "TestRunner.swf";
+    private final String MXMLC_ERROR_PROPERTY = "MXMLC_ERROR";
     
     private CompilationConfiguration configuration;
     private Project project;
@@ -62,22 +67,120 @@ public class Compilation
     {
         configuration.log();
 
-        File runnerFile = generateTestRunnerFromTemplate(configuration.getWorkingDir());
+        File runnerFile = generateTestRunnerFromTemplate(configuration.getWorkingDir(), TESTRUNNER_FILE,
+                configuration.getTestSources().getImports(), configuration.getTestSources().getClasses(), "");
         File finalFile = new File(configuration.getWorkingDir().getAbsolutePath() + File.separatorChar + SWF_FILENAME);
         
-        Java compilationTask = createJavaTask(runnerFile, finalFile);
-        LoggingUtil.log("Compiling test classes: [" + configuration.getTestSources().getCanonicalClasses(", ") + "]", true);
+        compileTestRunner(runnerFile, finalFile, configuration.getTestSources().getCanonicalClasses(", "), MXMLC_ERROR_PROPERTY);
+        
+        return finalFile;
+    }
+    
+    /**
+     * Compiles a test runner for each shard of a sharded test run. The test
+     * classes are dealt out to the shards in turn, and the runner of each
+     * shard sends its results to the port after the one of the previous shard.
+     * If there are fewer test classes than shards, fewer runners are compiled.
+     * 
+     * @param shards
+     *           the number of shards
+     * @param basePort
+     *           the port of the first shard
+     * @return the SWF of each shard
+     */
+    public List<File> compileShards(int shards, int basePort) throws BuildException
+    {
+        configuration.log();
+        
+        List<File> swfs = new ArrayList<File>();
+        for(Shard shard : createShards(configuration.getTestSources().getCanonicalClassList(), shards, basePort))
+        {
+            File runnerFile = generateTestRunnerFromTemplate(configuration.getWorkingDir(), TESTRUNNER_NAME + shard.index + ".mxml",
+                    shard.imports, shard.classRefs, shard.ciListenerArgs);
+            File finalFile = new File(configuration.getWorkingDir().getAbsolutePath() + File.separatorChar + TESTRUNNER_NAME + shard.index + ".swf");
+            
+            //ant properties can only be set once, so each shard reports its errors in its own property
+            compileTestRunner(runnerFile, finalFile, shard.canonicalClasses, MXMLC_ERROR_PROPERTY + shard.index);
+            
+            swfs.add(finalFile);
+        }
+        
+        return swfs;
+    }
+    
+    /**
+     * The test classes of one shard, as they are filled into the test runner
+     * template.
+     */
+    static class Shard
+    {
+        int index;
+        String imports;
+        String classRefs;
+        String canonicalClasses;
+        String ciListenerArgs;
+    }
+    
+    /**
+     * Deals the test classes out to the shards in turn, in the order of their
+     * names, so the shards are the same for every run.
+     * 
+     * @param classes
+     *           the canonical names of the test classes
+     * @param shards
+     *           the number of shards
+     * @param basePort
+     *           the port of the first shard
+     * @return the shards that have at least one test class
+     */
+    static List<Shard> createShards(List<String> classes, int shards, int basePort)
+    {
+        classes = new ArrayList<String>(classes);
+        Collections.sort(classes);
+        
+        List<Shard> result = new ArrayList<Shard>();
+        for(int index = 0; index < shards && index < classes.size(); index++)
+        {
+            StringBuilder imports = new StringBuilder();
+            StringBuilder classRefs = new StringBuilder();
+            StringBuilder canonicalClasses = new StringBuilder();
+            for(int i = index; i < classes.size(); i += shards)
+            {
+                String canonicalClassName = classes.get(i);
+                if(classRefs.length() > 0)
+                {
+                    classRefs.append(',');
+                    canonicalClasses.append(", ");
+                }
+                imports.append("import " + canonicalClassName + ";\n");
+                classRefs.append(canonicalClassName.substring(canonicalClassName.lastIndexOf('.') + 1));
+                canonicalClasses.append(canonicalClassName);
+            }
+            
+            Shard shard = new Shard();
+            shard.index = index;
+            shard.imports = imports.toString();
+            shard.classRefs = classRefs.toString();
+            shard.canonicalClasses = canonicalClasses.toString();
+            shard.ciListenerArgs = String.valueOf(basePort + index);
+            result.add(shard);
+        }
+        return result;
+    }
+    
+    private void compileTestRunner(File runnerFile, File finalFile, String canonicalClasses, String errorProperty) throws BuildException
+    {
+        Java compilationTask = createJavaTask(runnerFile, finalFile, errorProperty);
+        LoggingUtil.log("Compiling test classes: [" + canonicalClasses + "]", true);
         LoggingUtil.log(compilationTask.getCommandLine().describeCommand());
         
         if(compilationTask.executeJava() != 0)
         {
-            throw new BuildException("Compilation failed:\n" + project.getProperty("MXMLC_ERROR"));
+            throw new BuildException("Compilation failed:\n" + project.getProperty(errorProperty));
         }
-        
-        return finalFile;
     }
     
-    private File generateTestRunnerFromTemplate(File workingDir) throws BuildException
+    private File generateTestRunnerFromTemplate(File workingDir, String runnerFileName, String imports, String classes, String ciListenerArgs) throws BuildException
     {
         try
         {
@@ -86,7 +189,7 @@ public class Compilation
             String namespaces = MXML2009_NAMESPACE + "\n" + BASIC_NAMESPACE;
             String ciListener = configuration.getPlayer().equals("flash") ? CI_LISTENER : AIR_CI_LISTENER;
             
-            File runner = new File(workingDir.getAbsolutePath() + File.separatorChar + TESTRUNNER_FILE);
+            File runner = new File(workingDir.getAbsolutePath() + File.separatorChar + runnerFileName);
             
             //Template location in JAR
             URLResource template = new URLResource(getClass().getResource("/" + TESTRUNNER_TEMPLATE));
@@ -98,8 +201,9 @@ public class Compilation
             filters.addFilter("NAMESPACES", namespaces);
             filters.addFilter("MXML_PREFIX", MXML2009_PREFIX);
             filters.addFilter("CI_LISTENER_CLASS", ciListener);
-            filters.addFilter("CLASS_REFS", configuration.getTestSources().getClasses());
-            filters.addFilter("IMPORT_REFS", configuration.getTestSources().getImports());
+            filters.addFilter("CI_LISTENER_ARGS", ciListenerArgs);
+            filters.addFilter("CLASS_REFS", classes);
+            filters.addFilter("IMPORT_REFS", imports);
             
             //Copy descriptor template to SWF folder performing token replacement
             ResourceUtils.copyResource(
@@ -152,7 +256,7 @@ public class Compilation
         return version;
     }
     
-    private Java createJavaTask(File runnerFile, File finalFile)
+    private Java createJavaTask(File runnerFile, File finalFile, String errorProperty)
     {
         String frameworksPath = configuration.getRoyaleHome().getAbsolutePath() + File.separatorChar + FRAMEWORKS_RELATIVE_PATH;
         
@@ -163,7 +267,7 @@ public class Compilation
         task.setProject(project);
         task.setDir(project.getBaseDir());
         task.setMaxmemory("256M"); //MXMLC needs to eat
-        task.setErrorProperty("MXMLC_ERROR");
+        task.setErrorProperty(errorProperty);
         
         Argument royaleLibArgument = task.createArg();
         royaleLibArgument.setLine("+royalelib \"" + frameworksPath + "\"");
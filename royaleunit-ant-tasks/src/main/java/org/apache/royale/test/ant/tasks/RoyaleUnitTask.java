@@ -16,12 +16,14 @@
  */
 package org.apache.royale.test.ant.tasks;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.apache.royale.test.ant.tasks.configuration.TaskConfiguration;
+import org.apache.royale.test.ant.tasks.configuration.TestRunConfiguration;
 import org.apache.royale.test.ant.tasks.types.LoadConfig;
 import org.apache.tools.ant.BuildException;
 import org.apache.tools.ant.DynamicAttribute;
@@ -69,6 +71,20 @@ public class RoyaleUnitTask extends Task implements DynamicElement, DynamicAttri
         configuration.setPort(serverPort);
     }
 
+    /**
+     * Set the number of test runners to split the test classes between. The
+     * runners run at the same time, and each one receives its results on its
+     * own port, starting at the port of the task. Requires the testSource
+     * element(s). Default is 1
+     * 
+     * @param shards
+     *           the number of test runners.
+     */
+    public void setShards(final int shards)
+    {
+        configuration.setShards(shards);
+    }
+
     /**
      * Set the timeout for receiving the royaleunit report.
      * 
@@ -189,6 +205,18 @@ public class RoyaleUnitTask extends Task implements DynamicElement, DynamicAttri
         //verify entire configuration
         configuration.verify();
         
+        //compile and execute one test runner per shard
+        TestRunConfiguration testRunConfiguration = configuration.getTestRunConfiguration();
+        if(configuration.shouldCompile() && testRunConfiguration.getShards() > 1)
+        {
+            Compilation compilation = new Compilation(getProject(), configuration.getCompilationConfiguration());
+            List<File> swfs = compilation.compileShards(testRunConfiguration.getShards(), testRunConfiguration.getPort());
+            
+            ShardedTestRun shardedTestRun = new ShardedTestRun(getProject(), testRunConfiguration, swfs);
+            shardedTestRun.run();
+            return;
+        }
+        
         //compile tests if necessary
         if(configuration.shouldCompile())
         {
@@ -197,7 +225,7 @@ public class RoyaleUnitTask extends Task implements DynamicElement, DynamicAttri
         }
         
         //executes tests
-        TestRun testRun = new TestRun(getProject(), configuration.getTestRunConfiguration());
+        TestRun testRun = new TestRun(getProject(), testRunConfiguration);
         testRun.run();
     }
     
@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.royale.test.ant.tasks;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.royale.test.ant.LoggingUtil;
+import org.apache.royale.test.ant.report.Reports;
+import org.apache.royale.test.ant.tasks.configuration.TestRunConfiguration;
+import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.Project;
+
+/**
+ * Runs the test runners of a sharded test run at the same time. Each shard
+ * has its own execution context and its own server on the port of the shard,
+ * and all of them add their results to the same reports, which are analyzed
+ * once every shard is done.
+ */
+public class ShardedTestRun
+{
+    private TestRunConfiguration configuration;
+    private Project project;
+    private List<File> swfs;
+
+    private Reports reports;
+
+    public ShardedTestRun(Project project, TestRunConfiguration configuration, List<File> swfs)
+    {
+        this.project = project;
+        this.configuration = configuration;
+        this.swfs = swfs;
+        this.reports = new Reports();
+    }
+
+    public void run() throws BuildException
+    {
+        if (swfs.isEmpty())
+        {
+            throw new BuildException("No test classes were found in the 'testSource' element(s).");
+        }
+
+        LoggingUtil.log("Running " + swfs.size() + " shards ...", true);
+
+        List<TestRun> testRuns = new ArrayList<TestRun>();
+        for (int shard = 0; shard < swfs.size(); shard++)
+        {
+            TestRunConfiguration shardConfiguration = configuration.createShardConfiguration(shard, swfs.get(shard));
+            testRuns.add(new TestRun(project, shardConfiguration, reports));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(testRuns.size());
+        try
+        {
+            List<Future<Object>> results = new ArrayList<Future<Object>>();
+            for (final TestRun testRun : testRuns)
+            {
+                results.add(executor.submit(new Callable<Object>()
+                {
+                    public Object call() throws Exception
+                    {
+                        testRun.runTests();
+                        return null;
+                    }
+                }));
+            }
+
+            // wait for every shard, even if one of them fails
+            BuildException failure = null;
+            for (Future<Object> result : results)
+            {
+                try
+                {
+                    result.get();
+                }
+                catch (ExecutionException e)
+                {
+                    if (failure == null)
+                    {
+                        failure = e.getCause() instanceof BuildException
+                                ? (BuildException) e.getCause()
+                                : new BuildException(e.getCause());
+                    }
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                    throw new BuildException(e);
+                }
+            }
+
+            if (failure != null)
+            {
+                throw failure;
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+
+        // print summaries and check for failure
+        testRuns.get(0).analyzeReports();
+    }
+}
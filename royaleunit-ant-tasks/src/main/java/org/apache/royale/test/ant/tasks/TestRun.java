@@ -53,13 +53,34 @@ public class TestRun
     private Reports reports;
 
     public TestRun(Project project, TestRunConfiguration configuration)
+    {
+        this(project, configuration, new Reports());
+    }
+
+    /**
+     * Creates a test run that adds its results to reports that may be shared
+     * with other test runs.
+     */
+    public TestRun(Project project, TestRunConfiguration configuration, Reports reports)
     {
         this.project = project;
         this.configuration = configuration;
-        this.reports = new Reports();
+        this.reports = reports;
     }
     
     public void run() throws BuildException
+    {
+        runTests();
+
+        // print summaries and check for failure
+        analyzeReports();
+    }
+
+    /**
+     * Runs the tests and waits for all of the results, without analyzing
+     * the reports.
+     */
+    public void runTests() throws BuildException
     {
         configuration.log();
 
@@ -104,10 +125,6 @@ public class TestRun
                     ((PlaywrightExecutionContext)context).stop(playwright);
                 }
             }
-
-            // print summaries and check for failure
-            analyzeReports();
-
         } 
         catch (Exception e)
         {
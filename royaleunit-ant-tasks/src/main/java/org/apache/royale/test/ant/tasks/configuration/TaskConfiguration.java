@@ -152,6 +152,11 @@ public class TaskConfiguration
         testRunConfiguration.setPort(port);
     }
 
+    public void setShards(int shards)
+    {
+        testRunConfiguration.setShards(shards);
+    }
+
     public void setReportDir(String reportDirPath)
     {
         this.reportDir = project.resolveFile(reportDirPath);
@@ -253,6 +258,12 @@ public class TaskConfiguration
            throw new BuildException("The provided 'swf' property points to a remote location.  Please set localTrusted = false or change the location of your swf to a local path.");
         }
         
+        //each shard compiles its own test runner with the port of the shard
+        if(testRunConfiguration.getShards() > 1 && noTestSources)
+        {
+            throw new BuildException("The 'shards' property requires the 'testSource' element(s), because the test classes are compiled into one test runner per shard.");
+        }
+        
         if(swf != null && !noTestSources)
         {
             throw new BuildException("Please specify the 'swf' property or use the 'testSource' element(s), but not both.");
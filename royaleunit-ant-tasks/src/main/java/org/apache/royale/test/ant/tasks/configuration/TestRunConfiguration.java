@@ -26,6 +26,7 @@ import org.apache.royale.test.ant.launcher.OperatingSystem;
 public class TestRunConfiguration implements StepConfiguration
 {
     private final int FLOOR_FOR_PORT = 1;
+    private final int CEILING_FOR_PORT = 65535;
     private final int SHORTEST_SOCKET_TIMEOUT = 5000; //ms
 
     private String player;
@@ -38,6 +39,7 @@ public class TestRunConfiguration implements StepConfiguration
     private boolean headless = false;
     private boolean isLocalTrusted = true;
     private int port = 1024;
+    private int shards = 1;
     private File reportDir = null;
     private int serverBufferSize = 262144; //bytes
     private int socketTimeout = 60000; //milliseconds
@@ -156,6 +158,49 @@ public class TestRunConfiguration implements StepConfiguration
         this.port = port;
     }
 
+    public int getShards()
+    {
+        return shards;
+    }
+
+    public void setShards(int shards)
+    {
+        this.shards = shards;
+    }
+
+    /**
+     * Creates the configuration of one shard of a sharded test run. Each shard
+     * runs its own SWF and receives its results on its own port, and gets its
+     * own display when running headless.
+     * 
+     * @param shard
+     *           index of the shard, starting at 0
+     * @param swf
+     *           the test runner that was compiled for the shard
+     */
+    public TestRunConfiguration createShardConfiguration(int shard, File swf)
+    {
+        TestRunConfiguration shardConfiguration = new TestRunConfiguration();
+        shardConfiguration.player = player;
+        shardConfiguration.command = command;
+        shardConfiguration.commandArgs = commandArgs;
+        shardConfiguration.display = display + shard;
+        shardConfiguration.failOnTestFailure = failOnTestFailure;
+        shardConfiguration.failureProperty = failureProperty;
+        shardConfiguration.royaleHome = royaleHome;
+        shardConfiguration.headless = headless;
+        shardConfiguration.isLocalTrusted = isLocalTrusted;
+        shardConfiguration.port = port + shard;
+        shardConfiguration.shards = 1;
+        shardConfiguration.reportDir = reportDir;
+        shardConfiguration.serverBufferSize = serverBufferSize;
+        shardConfiguration.socketTimeout = socketTimeout;
+        shardConfiguration.swf = swf;
+        shardConfiguration.precompiledAppDescriptor = precompiledAppDescriptor;
+        shardConfiguration.os = os;
+        return shardConfiguration;
+    }
+
     public File getReportDir()
     {
         return reportDir;
@@ -228,6 +273,16 @@ public class TestRunConfiguration implements StepConfiguration
             throw new BuildException("The provided 'port' property value [" + port + "] must be great than " + FLOOR_FOR_PORT + ".");
         }
         
+        if(shards < 1)
+        {
+            throw new BuildException("The provided 'shards' property value [" + shards + "] must be at least 1.");
+        }
+        
+        if(port + shards - 1 > CEILING_FOR_PORT)
+        {
+            throw new BuildException("The provided 'port' property value [" + port + "] leaves no port for each of the [" + shards + "] shards.");
+        }
+        
         if(socketTimeout < SHORTEST_SOCKET_TIMEOUT)
         {
             throw new BuildException("The provided 'timeout' property value [" + socketTimeout + "] must be great than " + SHORTEST_SOCKET_TIMEOUT + ".");
@@ -287,6 +342,7 @@ public class TestRunConfiguration implements StepConfiguration
         }
         
         LoggingUtil.log("\tport: [" + port + "]");
+        LoggingUtil.log("\tshards: [" + shards + "]");
         LoggingUtil.log("\tswf: [" + swf + "]");
         LoggingUtil.log("\ttimeout: [" + socketTimeout + "ms]");
         LoggingUtil.log("\ttoDir: [" + reportDir.getAbsolutePath() + "]");
@@ -17,6 +17,8 @@
 package org.apache.royale.test.ant.tasks.types;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.apache.tools.ant.DirectoryScanner;
 import org.apache.tools.ant.types.FileSet;
@@ -108,4 +110,24 @@ public class SourcePaths extends CompilationFileSetCollection
         
         return elements.length() <= delimiter.length() ? "" : elements.substring(0, elements.length() - delimiter.length());
     }
+    
+    public List<String> getCanonicalClassList()
+    {
+        List<String> elements = new ArrayList<String>();
+        
+        for(FileSet fileset : filesets)
+        {
+            DirectoryScanner ds = fileset.getDirectoryScanner();
+            for(String file : ds.getIncludedFiles())
+            {
+                if(file.endsWith(".as") || file.endsWith(".mxml"))
+                {
+                    String pathWithOutSuffix = file.substring(0, file.lastIndexOf('.'));
+                    elements.add(pathWithOutSuffix.replace(File.separatorChar, '.'));
+                }
+            }
+        }
+        
+        return elements;
+    }
 }
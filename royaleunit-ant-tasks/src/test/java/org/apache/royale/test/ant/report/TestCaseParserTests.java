@@ -0,0 +1,139 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.royale.test.ant.report;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.dom4j.Element;
+import org.junit.Test;
+
+/**
+ * Checks the elements that {@link TestCaseParser} builds from the testcase
+ * messages of the CIListener, and that a message can't read other files.
+ */
+public class TestCaseParserTests
+{
+    private static final String SECRET = "secret that must not be in the report";
+
+    @Test
+    public void testParseTestCase() throws XMLStreamException
+    {
+        Element testCase = new TestCaseParser().parse(
+                "<testcase classname=\"tests.ATest\" name=\"testFail\" time=\"12\" status=\"failure\">" +
+                "<failure message=\"expected &lt;1&gt;\" type=\"AssertionError\"><![CDATA[at <tests.ATest>]]></failure>" +
+                "</testcase>");
+
+        assertEquals("testcase", testCase.getName());
+        assertEquals("tests.ATest", testCase.attributeValue("classname"));
+        assertEquals("testFail", testCase.attributeValue("name"));
+        assertEquals("12", testCase.attributeValue("time"));
+        assertEquals("failure", testCase.attributeValue("status"));
+
+        List<?> children = testCase.elements();
+        assertEquals(1, children.size());
+        Element failure = (Element) children.get(0);
+        assertEquals("failure", failure.getName());
+        assertEquals("expected <1>", failure.attributeValue("message"));
+        assertEquals("at <tests.ATest>", failure.getText());
+    }
+
+    @Test
+    public void testParseKeepsTextAroundEntities() throws XMLStreamException
+    {
+        Element testCase = new TestCaseParser().parse(
+                "<testcase name=\"testText\"><system-out>a &amp; b &lt; c</system-out></testcase>");
+        assertEquals("a & b < c", testCase.element("system-out").getText());
+    }
+
+    @Test
+    public void testParseWithoutRootFails()
+    {
+        try
+        {
+            new TestCaseParser().parse("<?xml version=\"1.0\"?>");
+            fail("there is no root element");
+        }
+        catch(XMLStreamException e)
+        {
+            // expected
+        }
+    }
+
+    @Test
+    public void testExternalEntityIsNotResolved() throws IOException
+    {
+        File secretFile = File.createTempFile("TestCaseParserTests", ".txt");
+        try
+        {
+            OutputStream out = new FileOutputStream(secretFile);
+            try
+            {
+                out.write(SECRET.getBytes("UTF-8"));
+            }
+            finally
+            {
+                out.close();
+            }
+
+            String xml = "<?xml version=\"1.0\"?>" +
+                    "<!DOCTYPE testcase [<!ENTITY secret SYSTEM \"" + secretFile.toURI() + "\">]>" +
+                    "<testcase name=\"testEntity\"><system-out>&secret;</system-out></testcase>";
+            try
+            {
+                Element testCase = new TestCaseParser().parse(xml);
+                assertFalse(testCase.asXML(), testCase.asXML().contains(SECRET));
+            }
+            catch(XMLStreamException e)
+            {
+                // an undeclared entity may also be rejected
+            }
+        }
+        finally
+        {
+            secretFile.delete();
+        }
+    }
+
+    @Test
+    public void testInternalEntityIsNotExpanded() throws IOException
+    {
+        // with DTDs unsupported, entities can't be declared, so a message
+        // can't expand into a huge report
+        String xml = "<?xml version=\"1.0\"?>" +
+                "<!DOCTYPE testcase [<!ENTITY a \"" + SECRET + "\"><!ENTITY b \"&a;&a;&a;&a;&a;&a;&a;&a;\">]>" +
+                "<testcase name=\"testEntity\"><system-out>&b;</system-out></testcase>";
+        try
+        {
+            Element testCase = new TestCaseParser().parse(xml);
+            assertFalse(testCase.asXML(), testCase.asXML().contains(SECRET));
+        }
+        catch(XMLStreamException e)
+        {
+            // an undeclared entity may also be rejected
+        }
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.royale.test.ant.tasks;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Checks how {@link Compilation} deals the test classes out to the shards of
+ * a sharded test run.
+ */
+public class CompilationTests
+{
+    private static final List<String> CLASSES = Arrays.asList(
+            "tests.E", "tests.A", "tests.sub.D", "tests.B", "tests.C");
+
+    @Test
+    public void testShardsAreDealtRoundRobinInNameOrder()
+    {
+        List<Compilation.Shard> shards = Compilation.createShards(CLASSES, 2, 1024);
+        assertEquals(2, shards.size());
+
+        Compilation.Shard first = shards.get(0);
+        assertEquals(0, first.index);
+        assertEquals("tests.A, tests.C, tests.sub.D", first.canonicalClasses);
+        assertEquals("A,C,D", first.classRefs);
+        assertEquals("import tests.A;\nimport tests.C;\nimport tests.sub.D;\n", first.imports);
+
+        Compilation.Shard second = shards.get(1);
+        assertEquals(1, second.index);
+        assertEquals("tests.B, tests.E", second.canonicalClasses);
+        assertEquals("B,E", second.classRefs);
+        assertEquals("import tests.B;\nimport tests.E;\n", second.imports);
+    }
+
+    @Test
+    public void testEachShardListensOnItsOwnPort()
+    {
+        List<Compilation.Shard> shards = Compilation.createShards(CLASSES, 3, 2000);
+        assertEquals(3, shards.size());
+        assertEquals("2000", shards.get(0).ciListenerArgs);
+        assertEquals("2001", shards.get(1).ciListenerArgs);
+        assertEquals("2002", shards.get(2).ciListenerArgs);
+    }
+
+    @Test
+    public void testNoShardWithoutTestClasses()
+    {
+        List<Compilation.Shard> shards = Compilation.createShards(Arrays.asList("tests.B", "tests.A"), 4, 1024);
+        assertEquals(2, shards.size());
+        assertEquals("tests.A", shards.get(0).canonicalClasses);
+        assertEquals("tests.B", shards.get(1).canonicalClasses);
+    }
+
+    @Test
+    public void testOneShardHasAllTestClasses()
+    {
+        List<Compilation.Shard> shards = Compilation.createShards(CLASSES, 1, 1024);
+        assertEquals(1, shards.size());
+        assertEquals("tests.A, tests.B, tests.C, tests.E, tests.sub.D", shards.get(0).canonicalClasses);
+        assertEquals("1024", shards.get(0).ciListenerArgs);
+    }
+}
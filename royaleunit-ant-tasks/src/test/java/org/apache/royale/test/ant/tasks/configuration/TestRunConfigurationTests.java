@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.royale.test.ant.tasks.configuration;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+
+import org.apache.tools.ant.BuildException;
+import org.junit.Test;
+
+/**
+ * Checks the configurations of the shards of a sharded test run.
+ */
+public class TestRunConfigurationTests
+{
+    private TestRunConfiguration createConfiguration()
+    {
+        TestRunConfiguration configuration = new TestRunConfiguration();
+        configuration.setPort(2000);
+        configuration.setDisplay(99);
+        configuration.setShards(3);
+        configuration.setSocketTimeout(10000);
+        configuration.setReportDir(new File("reports"));
+        return configuration;
+    }
+
+    @Test
+    public void testShardHasItsOwnPortAndDisplay()
+    {
+        TestRunConfiguration configuration = createConfiguration();
+        File swf = new File("TestRunner2.swf");
+        TestRunConfiguration shard = configuration.createShardConfiguration(2, swf);
+
+        assertEquals(2002, shard.getPort());
+        assertEquals(101, shard.getDisplay());
+        assertEquals(1, shard.getShards());
+        assertSame(swf, shard.getSwf());
+        assertEquals(10000, shard.getSocketTimeout());
+        assertEquals(configuration.getReportDir(), shard.getReportDir());
+
+        // the first shard uses the configured port and display
+        TestRunConfiguration first = configuration.createShardConfiguration(0, swf);
+        assertEquals(2000, first.getPort());
+        assertEquals(99, first.getDisplay());
+
+        // the configuration that the shards were created from is unchanged
+        assertEquals(2000, configuration.getPort());
+        assertEquals(99, configuration.getDisplay());
+        assertEquals(3, configuration.getShards());
+    }
+
+    @Test
+    public void testValidateAcceptsPortForEveryShard()
+    {
+        TestRunConfiguration configuration = createConfiguration();
+        configuration.setPort(65533);
+        configuration.validate();
+    }
+
+    @Test
+    public void testValidateRejectsShardsPastLastPort()
+    {
+        TestRunConfiguration configuration = createConfiguration();
+        configuration.setPort(65534);
+        try
+        {
+            configuration.validate();
+            fail("a shard has no port");
+        }
+        catch(BuildException e)
+        {
+            // expected
+        }
+    }
+
+    @Test
+    public void testValidateRejectsNoShards()
+    {
+        TestRunConfiguration configuration = createConfiguration();
+        configuration.setShards(0);
+        try
+        {
+            configuration.validate();
+            fail("there are no shards");
+        }
+        catch(BuildException e)
+        {
+            // expected
+        }
+    }
+}